@@ -0,0 +1,130 @@
+package com.example.odata.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latency percentiles per operation and overall, and the SLO verdict
+ * The SLOs are checked against the coordinated-omission-corrected latencies;
+ * the uncorrected p99 is printed next to them to show how much queueing the
+ * corrected numbers include.
+ */
+public class LatencyReport {
+
+    private static final String[] PERCENTILES = { "p50", "p99", "p999" };
+    private static final double[] PERCENTILE_VALUES = { 50.0, 99.0, 99.9 };
+
+    private final LoadTestConfig config;
+    private final double elapsedSeconds;
+    private final Map<String, Histogram> corrected = new LinkedHashMap<>();
+    private final Map<String, Histogram> uncorrected = new LinkedHashMap<>();
+    private final Map<String, Long> errors = new LinkedHashMap<>();
+    private final Histogram total;
+    private final Histogram totalUncorrected;
+    private final long totalErrors;
+
+    public LatencyReport(LoadTestConfig config, List<Operation> mix, long elapsedNanos) {
+        this.config = config;
+        this.elapsedSeconds = elapsedNanos / 1e9;
+        long errorSum = 0;
+        Histogram all = null;
+        Histogram allUncorrected = null;
+        for (Operation operation : mix) {
+            Histogram histogram = operation.correctedHistogram();
+            Histogram service = operation.uncorrectedHistogram();
+            corrected.put(operation.getName(), histogram);
+            uncorrected.put(operation.getName(), service);
+            errors.put(operation.getName(), operation.errors());
+            errorSum += operation.errors();
+            if (all == null) {
+                all = histogram.copy();
+                allUncorrected = service.copy();
+            } else {
+                all.add(histogram);
+                allUncorrected.add(service);
+            }
+        }
+        this.total = all;
+        this.totalUncorrected = allUncorrected;
+        this.totalErrors = errorSum;
+    }
+
+    public boolean passed() {
+        if (total.getTotalCount() == 0 || errorRate() > config.sloMaxErrorRate()) {
+            return false;
+        }
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            if (millis(total, PERCENTILE_VALUES[i]) > config.sloMillis(PERCENTILES[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%n📊 Latency in ms, measured from the scheduled send time (%.0f req/s achieved)%n",
+                total.getTotalCount() / elapsedSeconds);
+        out.printf("%-22s %9s %9s %9s %9s %9s %8s %14s%n", "operation", "requests", "p50", "p99", "p999", "max",
+                "errors", "p99 (service)");
+        for (Map.Entry<String, Histogram> entry : corrected.entrySet()) {
+            printRow(out, entry.getKey(), entry.getValue(), uncorrected.get(entry.getKey()),
+                    errors.get(entry.getKey()));
+        }
+        printRow(out, "ALL", total, totalUncorrected, totalErrors);
+
+        out.printf("%n🎯 SLOs%n");
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            double actual = millis(total, PERCENTILE_VALUES[i]);
+            double limit = config.sloMillis(PERCENTILES[i]);
+            out.printf("  %s %s %9.2f ms (limit %.2f ms)%n", actual <= limit ? "✅" : "❌", PERCENTILES[i],
+                    actual, limit);
+        }
+        out.printf("  %s errors %9.4f%% (limit %.4f%%)%n", errorRate() <= config.sloMaxErrorRate() ? "✅" : "❌",
+                errorRate() * 100, config.sloMaxErrorRate() * 100);
+        out.printf("%n%s%n", passed() ? "✅ PASS" : "❌ FAIL");
+    }
+
+    /**
+     * Writes the HdrHistogram percentile distribution of all requests (in
+     * ms), e.g. for plotting with the HdrHistogram plotter
+     */
+    public void writeHistogram(String file) throws IOException {
+        if (file == null || file.isBlank()) {
+            return;
+        }
+        Path path = Paths.get(file);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (PrintStream out = new PrintStream(path.toFile())) {
+            total.outputPercentileDistribution(out, 1000.0);
+        } catch (FileNotFoundException e) {
+            throw new IOException("Unable to write " + file, e);
+        }
+        System.out.println("📁 Latency distribution written to " + path.toAbsolutePath());
+    }
+
+    private double errorRate() {
+        return total.getTotalCount() == 0 ? 0 : (double) totalErrors / total.getTotalCount();
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram histogram, Histogram service,
+            long errorCount) {
+        out.printf("%-22s %9d %9.2f %9.2f %9.2f %9.2f %8d %14.2f%n", name, histogram.getTotalCount(),
+                millis(histogram, 50.0), millis(histogram, 99.0), millis(histogram, 99.9),
+                histogram.getMaxValue() / 1000.0, errorCount, millis(service, 99.0));
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.odata.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load generator for a locally started odata-demo
+ * Replays the weighted query mix at a fixed rate (open model): request i is
+ * due at start + i / rate no matter how long earlier requests take, and its
+ * latency is measured from that due time. A slow response therefore shows up
+ * in the latencies of every request it held back, instead of silently
+ * lowering the request rate (coordinated omission).
+ *
+ * Usage: mvn -f loadtest/pom.xml compile exec:java -Dexec.args="rate=500 duration-seconds=30"
+ * Exit code 1 if an SLO is missed.
+ */
+public class LoadGenerator {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadTestConfig config;
+    private final List<Operation> mix;
+    private final int totalWeight;
+
+    public LoadGenerator(LoadTestConfig config) {
+        this.config = config;
+        this.mix = config.mix();
+        this.totalWeight = mix.stream().mapToInt(Operation::getWeight).sum();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = new LoadTestConfig(args);
+        LoadGenerator generator = new LoadGenerator(config);
+        LatencyReport report = generator.run();
+        report.print(System.out);
+        report.writeHistogram(config.histogramFile());
+        System.exit(report.passed() ? 0 : 1);
+    }
+
+    public LatencyReport run() throws InterruptedException {
+        ExecutorService responseWorkers = Executors.newFixedThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors()), runnable -> {
+                    Thread thread = new Thread(runnable, "loadtest-http");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(responseWorkers)
+                .build();
+
+        long rate = config.rate();
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(config.warmupSeconds());
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(config.durationSeconds());
+        Semaphore inFlight = new Semaphore(config.maxInFlight());
+
+        System.out.printf("🚀 %d req/s from %d clients against %s for %ds (+%ds warm-up), %d operations in the mix%n",
+                config.rate(), config.clients(), config.baseUrl(), config.durationSeconds(), config.warmupSeconds(),
+                mix.size());
+
+        long sent = 0;
+        for (long due = start; due < end; due = start + ++sent * 1_000_000_000L / rate) {
+            long now;
+            while ((now = System.nanoTime()) < due) {
+                LockSupport.parkNanos(due - now);
+            }
+            // A full window delays the send, but not the due time the latency counts from
+            inFlight.acquire();
+
+            Operation operation = pick();
+            boolean measured = due >= measureFrom;
+            long intended = due;
+            long sentAt = System.nanoTime();
+            String clientId = "loadtest-" + sent % config.clients();
+            client.sendAsync(operation.request(config.baseUrl(), REQUEST_TIMEOUT, clientId),
+                    HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        long completed = System.nanoTime();
+                        if (measured) {
+                            boolean success = error == null && response.statusCode() < 400;
+                            operation.record(intended, sentAt, completed, success);
+                        }
+                        inFlight.release();
+                    });
+        }
+
+        // Outstanding requests are part of the run
+        inFlight.acquire(config.maxInFlight());
+        long elapsedNanos = System.nanoTime() - measureFrom;
+        responseWorkers.shutdown();
+        return new LatencyReport(config, mix, elapsedNanos);
+    }
+
+    private Operation pick() {
+        int ticket = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Operation operation : mix) {
+            ticket -= operation.getWeight();
+            if (ticket < 0) {
+                return operation;
+            }
+        }
+        return mix.get(mix.size() - 1);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.odata.loadtest;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * Load test settings: loadtest.properties from the classpath, then the file
+ * given as config=path, then key=value arguments
+ */
+public class LoadTestConfig {
+
+    private final Properties properties = new Properties();
+
+    public LoadTestConfig(String[] args) throws IOException {
+        try (InputStream defaults = LoadTestConfig.class.getResourceAsStream("/loadtest.properties")) {
+            if (defaults != null) {
+                properties.load(defaults);
+            }
+        }
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            }
+            String key = arg.substring(0, separator);
+            String value = arg.substring(separator + 1);
+            if (key.equals("config")) {
+                try (InputStream file = new FileInputStream(value)) {
+                    properties.load(file);
+                }
+            } else {
+                properties.setProperty(key, value);
+            }
+        }
+    }
+
+    public String baseUrl() {
+        String baseUrl = string("base-url");
+        return baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    public int rate() {
+        return positiveInt("rate");
+    }
+
+    public int clients() {
+        return positiveInt("clients");
+    }
+
+    public int durationSeconds() {
+        return positiveInt("duration-seconds");
+    }
+
+    public int warmupSeconds() {
+        return Integer.parseInt(string("warmup-seconds"));
+    }
+
+    public int maxInFlight() {
+        return positiveInt("max-in-flight");
+    }
+
+    public String histogramFile() {
+        return properties.getProperty("histogram-file", "");
+    }
+
+    public double sloMillis(String percentile) {
+        return Double.parseDouble(string("slo." + percentile + "-ms"));
+    }
+
+    public double sloMaxErrorRate() {
+        return Double.parseDouble(string("slo.max-error-rate"));
+    }
+
+    /**
+     * @return the operations of the query mix, ordered by name
+     */
+    public List<Operation> mix() {
+        TreeSet<String> names = new TreeSet<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith("mix.") && key.endsWith(".request")) {
+                names.add(key.substring("mix.".length(), key.length() - ".request".length()));
+            }
+        }
+
+        List<Operation> operations = new ArrayList<>();
+        for (String name : names) {
+            String request = properties.getProperty("mix." + name + ".request").trim();
+            int space = request.indexOf(' ');
+            if (space < 0) {
+                throw new IllegalArgumentException("Expected 'METHOD path' for mix." + name + ".request");
+            }
+            int weight = Integer.parseInt(properties.getProperty("mix." + name + ".weight", "1"));
+            if (weight == 0) {
+                // A zero weight switches an operation off
+                continue;
+            }
+            operations.add(new Operation(name, weight, request.substring(0, space).toUpperCase(),
+                    request.substring(space + 1).trim(), properties.getProperty("mix." + name + ".body")));
+        }
+        if (operations.isEmpty()) {
+            throw new IllegalArgumentException("The query mix is empty");
+        }
+        return operations;
+    }
+
+    private String string(String key) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing setting: " + key);
+        }
+        return value.trim();
+    }
+
+    private int positiveInt(String key) {
+        int value = Integer.parseInt(string(key));
+        if (value <= 0) {
+            throw new IllegalArgumentException(key + " must be positive");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.odata.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One request of the query mix and the latencies recorded for it
+ * Latencies are kept twice, in microseconds: from the time the schedule
+ * intended to send the request (corrected for coordinated omission: a stalled
+ * server also delays the requests queued behind it) and from the time it was
+ * actually sent (service time only, what a naive load tester reports).
+ */
+public class Operation {
+
+    // One hour, 3 significant digits
+    private static final long HIGHEST_TRACKABLE_MICROS = 3_600_000_000L;
+
+    private final String name;
+    private final int weight;
+    private final String method;
+    private final String path;
+    private final String body;
+
+    private final Recorder corrected = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Recorder uncorrected = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final LongAdder errors = new LongAdder();
+
+    public Operation(String name, int weight, String method, String path, String body) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weight of " + name + " must be positive");
+        }
+        if (!method.equals("GET") && !method.equals("POST")) {
+            throw new IllegalArgumentException("Unsupported method for " + name + ": " + method);
+        }
+        this.name = name;
+        this.weight = weight;
+        this.method = method;
+        this.path = path;
+        this.body = body;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * @param clientId sent as X-Client-Id, the key of the server's per-client
+     *                 rate limit
+     */
+    public HttpRequest request(String baseUrl, Duration timeout, String clientId) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + encode(path)))
+                .timeout(timeout)
+                .header("Accept", "application/json")
+                .header("X-Client-Id", clientId);
+        if (method.equals("POST")) {
+            builder.header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body != null ? body : "{}", StandardCharsets.UTF_8));
+        } else {
+            builder.GET();
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param intendedNanos when the schedule meant to send the request
+     * @param sentNanos     when it was actually sent
+     */
+    public void record(long intendedNanos, long sentNanos, long completedNanos, boolean success) {
+        corrected.recordValue(Math.min((completedNanos - intendedNanos) / 1000, HIGHEST_TRACKABLE_MICROS));
+        uncorrected.recordValue(Math.min((completedNanos - sentNanos) / 1000, HIGHEST_TRACKABLE_MICROS));
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    public Histogram correctedHistogram() {
+        return corrected.getIntervalHistogram();
+    }
+
+    public Histogram uncorrectedHistogram() {
+        return uncorrected.getIntervalHistogram();
+    }
+
+    public long errors() {
+        return errors.sum();
+    }
+
+    /**
+     * Percent-encodes the characters of a readable query string that are not
+     * allowed in a URI (spaces, quotes, ...); '$', '/', '=', '&' and ',' stay
+     */
+    static String encode(String path) {
+        StringBuilder encoded = new StringBuilder(path.length() + 16);
+        for (byte b : path.getBytes(StandardCharsets.UTF_8)) {
+            int c = b & 0xFF;
+            if (c > 0x20 && c < 0x7F && "\"'<>\\^`{|}#".indexOf(c) < 0) {
+                encoded.append((char) c);
+            } else {
+                encoded.append('%').append(Character.toUpperCase(Character.forDigit(c >> 4, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(c & 0xF, 16)));
+            }
+        }
+        return encoded.toString();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.odata.loadtest;
+
+import com.example.odata.application.service.PartitionedQueryExecutor;
+import com.example.odata.domain.model.Product;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Scaling curve of the partitioned scan behind /odata/Products: runs the
+ * application's PartitionedQueryExecutor over an in-memory product list with
+ * 1, 2, 4, ... workers up to the available cores and prints wall time per
+ * scan, speedup over the sequential scan and parallel efficiency. Each scan
+ * loads every product into an entity map, applies a residual filter (price
+ * range and a substring of Name) and projects the survivors to Name and
+ * Price, as a filtered $select query does.
+ *
+ * Needs the application classes: mvn install -DskipTests in the app, then
+ * mvn -f loadtest/pom.xml compile exec:java
+ *     -Dexec.mainClass=com.example.odata.loadtest.PartitionedScanBenchmark
+ *     -Dexec.args="products=1000000 chunk-size=8192 parallelism=1,2,4,8"
+ */
+public class PartitionedScanBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 10;
+    private static final int MEASURED_ITERATIONS = 20;
+
+    public static void main(String[] args) {
+        int products = 1_000_000;
+        int chunkSize = 8192;
+        TreeSet<Integer> levels = defaultLevels(Runtime.getRuntime().availableProcessors());
+        for (String arg : args) {
+            if (arg.startsWith("products=")) {
+                products = Integer.parseInt(arg.substring("products=".length()));
+            } else if (arg.startsWith("chunk-size=")) {
+                chunkSize = Integer.parseInt(arg.substring("chunk-size=".length()));
+            } else if (arg.startsWith("parallelism=")) {
+                levels.clear();
+                for (String level : arg.substring("parallelism=".length()).split(",")) {
+                    levels.add(Integer.parseInt(level.trim()));
+                }
+            }
+        }
+
+        List<Product> rows = products(products);
+        System.out.printf("📊 %d products, chunks of %d, %d cores, wall time per scan after %d warm-up scans "
+                + "(mean of %d)%n", products, chunkSize, Runtime.getRuntime().availableProcessors(),
+                WARMUP_ITERATIONS, MEASURED_ITERATIONS);
+        System.out.printf("%-14s %12s %10s %11s %10s%n", "workers", "ms/scan", "speedup", "efficiency", "rows");
+
+        // Threshold above the input size: the calling thread scans it in one pass
+        double sequentialMillis = measure(new PartitionedQueryExecutor(Integer.MAX_VALUE, chunkSize, 1), rows,
+                "sequential", 0);
+        for (int parallelism : levels) {
+            measure(new PartitionedQueryExecutor(0, chunkSize, parallelism), rows, String.valueOf(parallelism),
+                    sequentialMillis);
+        }
+    }
+
+    /**
+     * @return mean milliseconds per scan
+     */
+    private static double measure(PartitionedQueryExecutor executor, List<Product> rows, String label,
+            double sequentialMillis) {
+        Function<Product, Map<String, Object>> load = PartitionedScanBenchmark::toEntity;
+        Predicate<Map<String, Object>> filter = entity -> (Double) entity.get("Price") < 250.0
+                && ((String) entity.get("Name")).contains("se");
+        Function<Map<String, Object>, Map<String, Object>> project = entity -> {
+            Map<String, Object> projected = new LinkedHashMap<>();
+            projected.put("Name", entity.get("Name"));
+            projected.put("Price", entity.get("Price"));
+            return projected;
+        };
+
+        try {
+            int matched = 0;
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                matched = executor.execute(rows, load, filter, project).size();
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+                matched = executor.execute(rows, load, filter, project).size();
+            }
+            double millis = (System.nanoTime() - start) / 1e6 / MEASURED_ITERATIONS;
+
+            if (sequentialMillis == 0) {
+                System.out.printf("%-14s %12.1f %10s %11s %10d%n", label, millis, "1.00x", "-", matched);
+            } else {
+                double speedup = sequentialMillis / millis;
+                System.out.printf("%-14s %12.1f %9.2fx %10.0f%% %10d%n", label, millis, speedup,
+                        100.0 * speedup / Integer.parseInt(label), matched);
+            }
+            return millis;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static TreeSet<Integer> defaultLevels(int cores) {
+        TreeSet<Integer> levels = new TreeSet<>();
+        for (int level = 1; level < cores; level *= 2) {
+            levels.add(level);
+        }
+        levels.add(cores);
+        return levels;
+    }
+
+    private static Map<String, Object> toEntity(Product product) {
+        Map<String, Object> entity = new LinkedHashMap<>();
+        entity.put("ID", product.getId());
+        entity.put("Name", product.getName());
+        entity.put("Description", product.getDescription());
+        entity.put("Price", product.getPrice());
+        entity.put("BrandID", product.getBrandId());
+        return entity;
+    }
+
+    private static List<Product> products(int count) {
+        String[] kinds = { "Notebook", "Monitor", "Mouse", "Keyboard", "Headset", "Webcam" };
+        List<Product> rows = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            String kind = kinds[id % kinds.length];
+            rows.add(new Product(id, kind + " " + id, kind + " model " + id + " with USB",
+                    10.0 + (id * 37 % 5000) / 10.0, 1 + id % 3));
+        }
+        return rows;
+    }
+}
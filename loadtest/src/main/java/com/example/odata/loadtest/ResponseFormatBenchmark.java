@@ -0,0 +1,122 @@
+package com.example.odata.loadtest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares the response formats of /odata/Products for 10k products: bytes
+ * on the wire (plain and gzip) and serialization CPU time, for JSON with
+ * odata.metadata=minimal (the default), JSON with odata.metadata=none and
+ * Smile. Rows have the shape the app serializes (entity maps of ID, Name,
+ * Description, Price, BrandID), written with the same Jackson version.
+ *
+ * Usage: mvn -f loadtest/pom.xml compile exec:java
+ *        -Dexec.mainClass=com.example.odata.loadtest.ResponseFormatBenchmark -Dexec.args="products=10000"
+ */
+public class ResponseFormatBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 50;
+    private static final int MEASURED_ITERATIONS = 200;
+
+    private static final class Format {
+        final String name;
+        final JsonFactory factory;
+        final boolean metadata;
+
+        Format(String name, JsonFactory factory, boolean metadata) {
+            this.name = name;
+            this.factory = factory;
+            this.metadata = metadata;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int products = 10_000;
+        for (String arg : args) {
+            if (arg.startsWith("products=")) {
+                products = Integer.parseInt(arg.substring("products=".length()));
+            }
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        List<Format> formats = List.of(
+                new Format("json;odata.metadata=minimal", mapper.getFactory(), true),
+                new Format("json;odata.metadata=none", mapper.getFactory(), false),
+                new Format("x-jackson-smile", new SmileFactory(), true),
+                new Format("x-jackson-smile, no metadata", new SmileFactory(), false));
+        List<Map<String, Object>> rows = products(products);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        System.out.printf("📊 %d products, CPU per response after %d warm-up iterations (mean of %d)%n", products,
+                WARMUP_ITERATIONS, MEASURED_ITERATIONS);
+        System.out.printf("%-30s %12s %12s %10s %14s%n", "format", "bytes", "gzip bytes", "vs json", "CPU ms/10k");
+
+        long jsonBytes = 0;
+        for (Format format : formats) {
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                serialize(mapper, format, rows);
+            }
+            long cpuStart = threads.getCurrentThreadCpuTime();
+            byte[] body = null;
+            for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+                body = serialize(mapper, format, rows);
+            }
+            double cpuMillis = (threads.getCurrentThreadCpuTime() - cpuStart) / 1e6 / MEASURED_ITERATIONS;
+
+            if (jsonBytes == 0) {
+                jsonBytes = body.length;
+            }
+            System.out.printf("%-30s %12d %12d %9.0f%% %14.2f%n", format.name, body.length, gzip(body).length,
+                    100.0 * body.length / jsonBytes, cpuMillis * 10_000 / products);
+        }
+    }
+
+    private static byte[] serialize(ObjectMapper mapper, Format format, List<Map<String, Object>> rows)
+            throws IOException {
+        Map<String, Object> response = new LinkedHashMap<>();
+        if (format.metadata) {
+            response.put("@odata.context", "/odata/$metadata#Products");
+        }
+        response.put("value", rows);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        mapper.writeValue(format.factory.createGenerator(out), response);
+        return out.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private static List<Map<String, Object>> products(int count) {
+        String[] kinds = { "Notebook", "Monitor", "Mouse", "Keyboard", "Headset", "Webcam" };
+        List<Map<String, Object>> rows = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            String kind = kinds[id % kinds.length];
+            Map<String, Object> entity = new HashMap<>();
+            entity.put("ID", id);
+            entity.put("Name", kind + " " + id);
+            entity.put("Description", kind + " model " + id + " with USB");
+            entity.put("Price", 10.0 + (id * 37 % 5000) / 10.0);
+            entity.put("BrandID", 1 + id % 3);
+            rows.add(entity);
+        }
+        return rows;
+    }
+}
@@ -1,16 +1,37 @@
 package com.example.odata.application.service;
 
+import com.example.odata.application.usecase.AggregateProductsUseCase;
+import com.example.odata.application.usecase.DeleteProductUseCase;
 import com.example.odata.application.usecase.GetBrandsUseCase;
+import com.example.odata.application.usecase.GetProductChangesUseCase;
 import com.example.odata.application.usecase.GetProductsUseCase;
+import com.example.odata.application.usecase.SearchProductsUseCase;
+import com.example.odata.domain.model.AggregationSpec;
 import com.example.odata.domain.model.Brand;
 import com.example.odata.domain.model.Product;
+import com.example.odata.domain.model.ProductChange;
+import com.example.odata.domain.model.ProductCriteria;
+import com.example.odata.domain.model.ProductWithBrand;
+import com.example.odata.domain.repository.BrandDictionary;
+import com.example.odata.domain.repository.ProductWithBrandRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Application Service - Coordinates Use Cases
@@ -23,30 +44,361 @@ public class ODataQueryService {
     private final GetProductsUseCase getProductsUseCase;
     private final GetBrandsUseCase getBrandsUseCase;
     private final com.example.odata.application.usecase.CreateProductUseCase createProductUseCase;
+    private final SearchProductsUseCase searchProductsUseCase;
+    private final AggregateProductsUseCase aggregateProductsUseCase;
+    private final PartitionedQueryExecutor partitionedQueryExecutor;
+    private final DeleteProductUseCase deleteProductUseCase;
+    private final GetProductChangesUseCase getProductChangesUseCase;
+    private final Optional<ProductWithBrandRepository> productBrandView;
+    // Brand Name and Country go into entities as shared, pre-encoded values
+    private final BrandDictionary brandDictionary;
+
+    private static final List<String> PRODUCT_PROPERTIES = List.of("ID", "Name", "Description", "Price", "BrandID");
 
     /**
      * Retrieves products with optional brand expansion
      * 
-     * @param expand if true, enriches each product with its brand data (simulates
-     *               microservice call)
+     * @param query parsed query options; with $expand, enriches each product
+     *              with its brand data (simulates microservice call)
      */
-    public List<Map<String, Object>> getProducts(boolean expand, List<String> select) {
-        List<Product> products = getProductsUseCase.execute();
+    public List<Map<String, Object>> getProducts(ProductQuery query) {
+        boolean expand = query.isExpand();
+        ProductCriteria criteria = query.getCriteria();
 
-        return products.stream()
-                .map(product -> toODataEntity(product, expand, select))
-                .collect(Collectors.toList());
+        // Large scans are partitioned across cores; row order is preserved
+        if (productBrandView.isPresent()) {
+            ProductWithBrandRepository view = productBrandView.get();
+            List<Integer> ids = resolveProductIds(query.getSearch(), query.getCandidateIds());
+            List<ProductWithBrand> rows = ids == null
+                    ? view.streamAll().collect(Collectors.toList())
+                    : view.findAllById(ids);
+            Map<Integer, Brand> joined = new ConcurrentHashMap<>();
+            List<Map<String, Object>> entities = partitionedQueryExecutor.execute(rows,
+                    row -> toODataEntity(row, joined), inMemoryFilter(query, joined::get), entity -> entity);
+            return orderPageAndProject(entities, criteria, expand, query.getSelect());
+        }
+
+        Map<Integer, Optional<Brand>> brandCache = new ConcurrentHashMap<>();
+        List<Product> products = selectProducts(query);
+        return partitionedQueryExecutor.execute(products, product -> toODataEntity(product, expand, brandCache),
+                entity -> true, entity -> project(entity, expand, query.getSelect()));
+    }
+
+    /**
+     * Products of a query without $expand: filtered, ordered and paged, but
+     * not converted to entities, for callers that serialize them directly
+     *
+     * @return empty if the query has $expand or is answered from the
+     *         product-brand view
+     */
+    public Optional<List<Product>> findProducts(ProductQuery query) {
+        if (query.isExpand() || productBrandView.isPresent()) {
+            return Optional.empty();
+        }
+        return Optional.of(selectProducts(query));
+    }
+
+    /**
+     * Number of products matching the query's filter and $search, ignoring
+     * $expand, $select, $orderby and paging. Filters pushed down entirely are
+     * counted in the repository without reading the rows.
+     */
+    public long countProducts(ProductQuery query) {
+        if (query.getFilter() == null && query.getSearch() == null && query.getCandidateIds() == null) {
+            return getProductsUseCase.count(query.getCriteria());
+        }
+        // Neither $expand nor $select: only the matching products are counted
+        ProductQuery unpaged = new ProductQuery();
+        unpaged.setFilter(query.getFilter());
+        unpaged.setSearch(query.getSearch());
+        unpaged.setCandidateIds(query.getCandidateIds());
+        unpaged.setCriteria(new ProductCriteria(query.getCriteria().getConditions(), Collections.emptyList(), null,
+                null, List.of("ID")));
+        Optional<List<Product>> products = findProducts(unpaged);
+        return products.isPresent() ? products.get().size() : getProducts(unpaged).size();
+    }
+
+    /**
+     * Reads rows through the shared pipeline; the residual filter may refer
+     * to any property, so it needs the full product
+     */
+    private List<Product> selectProducts(ProductQuery query) {
+        boolean expand = query.isExpand();
+        ProductCriteria criteria = query.getCriteria();
+        Predicate<Product> residual = query.getFilter() != null ? query.getFilter().apply(brandLookup()) : null;
+        ProductCriteria pushed = residual == null && !expand ? criteria
+                : new ProductCriteria(criteria.getConditions(), criteria.getOrderBy(), criteria.getTop(),
+                        criteria.getSkip(), Collections.emptyList());
+        return findProducts(pushed, query.getSearch(), query.getCandidateIds(), residual);
+    }
+
+    /**
+     * Products matching a query, read through the pipeline shared by the
+     * /odata and /OData.svc endpoints: $search and candidate ids narrow the
+     * read, conditions, $orderby and paging are pushed down to the repository,
+     * and only the residual filter runs in memory (partitioned for large
+     * scans, row order preserved)
+     *
+     * @param residual filter the repository cannot evaluate, or null; it must
+     *                 be thread-safe
+     */
+    public List<Product> findProducts(ProductCriteria criteria, String search, Set<Integer> candidateIds,
+            Predicate<Product> residual) {
+        List<Integer> ids = resolveProductIds(search, candidateIds);
+        if (ids != null) {
+            List<ProductCriteria.Condition> conditions = criteria.getConditions();
+            Predicate<Product> matching = product -> {
+                for (ProductCriteria.Condition condition : conditions) {
+                    if (!condition.matches(valueOf(product, condition.getProperty()))) {
+                        return false;
+                    }
+                }
+                return residual == null || residual.test(product);
+            };
+            List<Product> products = partitionedQueryExecutor.execute(getProductsUseCase.executeByIds(ids),
+                    product -> product, matching, product -> product);
+            Comparator<Product> comparator = criteria.comparator(ODataQueryService::valueOf);
+            if (comparator != null) {
+                products.sort(comparator);
+            }
+            return page(products, criteria);
+        }
+
+        // Paging has to wait for the residual filter
+        ProductCriteria pushed = residual == null ? criteria : criteria.withoutPaging();
+        List<Product> products;
+        try (Stream<Product> rows = getProductsUseCase.query(pushed)) {
+            products = rows.collect(Collectors.toList());
+        }
+        if (residual == null) {
+            return products;
+        }
+        return page(partitionedQueryExecutor.execute(products, product -> product, residual,
+                product -> product), criteria);
+    }
+
+    /**
+     * Brand lookups for Brand/... members of the compiled filter, memoized per
+     * read so each brand is requested once; safe for the scanning threads
+     */
+    private IntFunction<Brand> brandLookup() {
+        Map<Integer, Optional<Brand>> brands = new ConcurrentHashMap<>();
+        return brandId -> brands.computeIfAbsent(brandId, getBrandsUseCase::executeById).orElse(null);
     }
 
-    public List<Map<String, Object>> getBrands(List<String> select) {
+    public List<Product> findProductsByBrandId(int brandId) {
+        return getProductsUseCase.executeByBrandId(brandId);
+    }
+
+    public List<Brand> findBrands() {
+        return getBrandsUseCase.execute();
+    }
+
+    public Optional<Brand> findBrand(int id) {
+        return getBrandsUseCase.executeById(id);
+    }
+
+    /**
+     * Aggregates products ($apply) inside the repository: only the grouped
+     * rows are returned, no product is converted to an entity map
+     */
+    public List<Map<String, Object>> aggregateProducts(AggregationSpec spec) {
+        return aggregateProductsUseCase.execute(spec);
+    }
+
+    /**
+     * @return delta token for the current product data
+     */
+    public long currentProductDeltaToken() {
+        return getProductChangesUseCase.currentSequence();
+    }
+
+    /**
+     * Products changed since the delta token, one entry per product (its
+     * latest state, or a deleted-entity marker), in change order
+     *
+     * @return empty if the token is too old and a full resync is required
+     */
+    public Optional<List<Map<String, Object>>> getProductChanges(long deltaToken, List<String> select) {
+        return getProductChangesUseCase.execute(deltaToken).map(changes -> {
+            Map<Integer, ProductChange> latest = new LinkedHashMap<>();
+            for (ProductChange change : changes) {
+                // Re-insert so the product moves to the position of its latest change
+                latest.remove(change.getProductId());
+                latest.put(change.getProductId(), change);
+            }
+
+            List<Map<String, Object>> delta = new ArrayList<>(latest.size());
+            for (ProductChange change : latest.values()) {
+                delta.add(toODataEntity(change, select));
+            }
+            return delta;
+        });
+    }
+
+    /**
+     * @return the saved product, or a deleted-entity marker for deletions
+     */
+    public Map<String, Object> toODataEntity(ProductChange change, List<String> select) {
+        if (change.getType() == ProductChange.Type.DELETED) {
+            Map<String, Object> deleted = new LinkedHashMap<>();
+            deleted.put("@odata.context", "/odata/$metadata#Products/$deletedEntity");
+            deleted.put("id", "Products(" + change.getProductId() + ")");
+            deleted.put("reason", "deleted");
+            return deleted;
+        }
+        return project(toODataEntity(change.getProduct(), null), false, select);
+    }
+
+    /**
+     * Streams products lazily: each product is filtered, expanded and projected
+     * only when the consumer pulls it, so the full result never sits in memory.
+     * When the materialized product-brand view is enabled, rows are read
+     * pre-joined and filters on Brand/... work without calling the Brand service;
+     * otherwise brand lookups are memoized per stream.
+     * With $search (or candidate ids) only the matching products are read, in
+     * relevance order.
+     */
+    public Stream<Map<String, Object>> streamProducts(ProductQuery query) {
+        boolean expand = query.isExpand();
+        List<Integer> ids = resolveProductIds(query.getSearch(), query.getCandidateIds());
+
+        if (productBrandView.isPresent()) {
+            ProductWithBrandRepository view = productBrandView.get();
+            Stream<ProductWithBrand> rows = ids == null ? view.streamAll() : view.findAllById(ids).stream();
+            Map<Integer, Brand> joined = new HashMap<>();
+            return rows
+                    .map(row -> toODataEntity(row, joined))
+                    .filter(inMemoryFilter(query, joined::get))
+                    .map(entity -> project(entity, expand, query.getSelect()));
+        }
+
+        Map<Integer, Optional<Brand>> brandCache = new HashMap<>();
+        Stream<Product> products = ids == null
+                ? getProductsUseCase.stream()
+                : getProductsUseCase.executeByIds(ids).stream();
+
+        return products
+                .map(product -> toODataEntity(product, expand, brandCache))
+                .filter(inMemoryFilter(query, brandLookup()))
+                .map(entity -> project(entity, expand, query.getSelect()));
+    }
+
+    /**
+     * Wraps work that runs after the request thread has returned, e.g. a
+     * streamed body, so that it reads the versions the request has pinned
+     */
+    public <A, R> Function<A, R> withRequestPins(Function<A, R> task) {
+        return partitionedQueryExecutor.withCallerPins(task);
+    }
+
+    /**
+     * Retrieves brands with optional expansion of their products
+     *
+     * @param expand if true, attaches each brand's products (resolved through
+     *               the BrandID index of the product repository)
+     */
+    public List<Map<String, Object>> getBrands(boolean expand, List<String> select) {
         List<Brand> brands = getBrandsUseCase.execute();
 
         return brands.stream()
-                .map(brand -> toODataEntity(brand, select))
+                .map(brand -> {
+                    Map<String, Object> entity = toODataEntity(brand, select);
+                    if (expand) {
+                        entity.put("Products", getProductsUseCase.executeByBrandId(brand.getId()).stream()
+                                .map(product -> toODataEntity(product, null))
+                                .collect(Collectors.toList()));
+                    }
+                    return entity;
+                })
                 .collect(Collectors.toList());
     }
 
-    private Map<String, Object> toODataEntity(Product product, boolean expand, List<String> select) {
+    /**
+     * Conditions and residual filter, for rows the repository did not filter
+     *
+     * @param brands resolves Brand/... members of the residual filter
+     */
+    private static Predicate<Map<String, Object>> inMemoryFilter(ProductQuery query, IntFunction<Brand> brands) {
+        List<ProductCriteria.Condition> conditions = query.getCriteria().getConditions();
+        Predicate<Product> residual = query.getFilter() != null ? query.getFilter().apply(brands) : null;
+        return entity -> {
+            for (ProductCriteria.Condition condition : conditions) {
+                if (!condition.matches(entity.get(condition.getProperty()))) {
+                    return false;
+                }
+            }
+            return residual == null || residual.test(toProduct(entity));
+        };
+    }
+
+    private List<Map<String, Object>> orderPageAndProject(List<Map<String, Object>> entities,
+            ProductCriteria criteria, boolean expand, List<String> select) {
+        Comparator<Map<String, Object>> comparator = criteria.comparator(Map::get);
+        if (comparator != null) {
+            entities.sort(comparator);
+        }
+        return page(entities, criteria).stream()
+                .map(entity -> project(entity, expand, select))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The product behind an unprojected entity, for the compiled filter
+     */
+    private static Product toProduct(Map<String, Object> entity) {
+        return new Product(((Number) entity.get("ID")).intValue(), (String) entity.get("Name"),
+                (String) entity.get("Description"), ((Number) entity.get("Price")).doubleValue(),
+                ((Number) entity.get("BrandID")).intValue());
+    }
+
+    /**
+     * Reads a product property by OData name
+     */
+    private static Object valueOf(Product product, String property) {
+        switch (property) {
+            case "ID":
+                return product.getId();
+            case "Name":
+                return product.getName();
+            case "Description":
+                return product.getDescription();
+            case "Price":
+                return product.getPrice();
+            case "BrandID":
+                return product.getBrandId();
+            default:
+                throw new IllegalArgumentException("Unknown property: " + property);
+        }
+    }
+
+    private static <T> List<T> page(List<T> rows, ProductCriteria criteria) {
+        int from = criteria.getSkip() != null ? Math.min(criteria.getSkip(), rows.size()) : 0;
+        int to = criteria.getTop() != null ? Math.min(from + criteria.getTop(), rows.size()) : rows.size();
+        return rows.subList(from, to);
+    }
+
+    /**
+     * @return ids to read (ranked by $search relevance and/or narrowed to the
+     *         candidate ids), or null to scan all products
+     */
+    private List<Integer> resolveProductIds(String search, Set<Integer> candidates) {
+        if (search != null && !search.isEmpty()) {
+            List<Integer> ranked = searchProductsUseCase.execute(search);
+            if (candidates != null) {
+                ranked.retainAll(candidates);
+            }
+            return ranked;
+        }
+        if (candidates != null) {
+            List<Integer> ids = new ArrayList<>(candidates);
+            Collections.sort(ids);
+            return ids;
+        }
+        return null;
+    }
+
+    private Map<String, Object> toODataEntity(Product product, List<String> select) {
         Map<String, Object> entity = new HashMap<>();
 
         if (select == null || select.isEmpty() || select.contains("ID")) {
@@ -65,20 +417,66 @@ public class ODataQueryService {
             entity.put("BrandID", product.getBrandId());
         }
 
+        return entity;
+    }
+
+    private Map<String, Object> toODataEntity(Product product, boolean expand,
+            Map<Integer, Optional<Brand>> brandCache) {
+        Map<String, Object> entity = toODataEntity(product, null);
         // ORCHESTRATION: Only call Brand microservice if $expand is requested
         if (expand) {
-            getBrandsUseCase.executeById(product.getBrandId()).ifPresent(brand -> {
-                Map<String, Object> brandEntity = new HashMap<>();
-                brandEntity.put("ID", brand.getId());
-                brandEntity.put("Name", brand.getName());
-                brandEntity.put("Country", brand.getCountry());
-                entity.put("Brand", brandEntity);
-            });
+            brandCache.computeIfAbsent(product.getBrandId(), getBrandsUseCase::executeById)
+                    .ifPresent(brand -> entity.put("Brand", toODataEntity(brand, null)));
+        }
+        return entity;
+    }
+
+    /**
+     * Entity of a view row; its joined brand is also kept for the Brand/...
+     * members of the residual filter, so they need no Brand service call
+     */
+    private Map<String, Object> toODataEntity(ProductWithBrand row, Map<Integer, Brand> joined) {
+        if (row.hasBrand()) {
+            joined.computeIfAbsent(row.getBrandId(),
+                    brandId -> new Brand(brandId, row.getBrandName(), row.getBrandCountry()));
+        }
+        return toODataEntity(row);
+    }
+
+    private Map<String, Object> toODataEntity(ProductWithBrand row) {
+        Map<String, Object> entity = new HashMap<>();
+        entity.put("ID", row.getId());
+        entity.put("Name", row.getName());
+        entity.put("Description", row.getDescription());
+        entity.put("Price", row.getPrice());
+        entity.put("BrandID", row.getBrandId());
+
+        if (row.hasBrand()) {
+            Map<String, Object> brandEntity = new HashMap<>();
+            brandEntity.put("ID", row.getBrandId());
+            brandEntity.put("Name", brandDictionary.name(row.getBrandName()));
+            brandEntity.put("Country", brandDictionary.country(row.getBrandCountry()));
+            entity.put("Brand", brandEntity);
         }
 
         return entity;
     }
 
+    private Map<String, Object> project(Map<String, Object> entity, boolean expand, List<String> select) {
+        Map<String, Object> projected = new HashMap<>();
+
+        for (String property : PRODUCT_PROPERTIES) {
+            if (select == null || select.isEmpty() || select.contains(property)) {
+                projected.put(property, entity.get(property));
+            }
+        }
+        if (expand && entity.containsKey("Brand")) {
+            projected.put("Brand", entity.get("Brand"));
+        }
+
+        return projected;
+    }
+
     private Map<String, Object> toODataEntity(Brand brand, List<String> select) {
         Map<String, Object> entity = new HashMap<>();
 
@@ -86,10 +484,10 @@ public class ODataQueryService {
             entity.put("ID", brand.getId());
         }
         if (select == null || select.isEmpty() || select.contains("Name")) {
-            entity.put("Name", brand.getName());
+            entity.put("Name", brandDictionary.name(brand.getName()));
         }
         if (select == null || select.isEmpty() || select.contains("Country")) {
-            entity.put("Country", brand.getCountry());
+            entity.put("Country", brandDictionary.country(brand.getCountry()));
         }
 
         return entity;
@@ -122,4 +520,13 @@ public class ODataQueryService {
 
         return entity;
     }
+
+    /**
+     * Deletes a product
+     *
+     * @return false if the product does not exist
+     */
+    public boolean deleteProduct(int id) {
+        return deleteProductUseCase.execute(id);
+    }
 }
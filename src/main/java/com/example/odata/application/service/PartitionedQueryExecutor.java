@@ -0,0 +1,127 @@
+package com.example.odata.application.service;
+
+import com.example.odata.domain.repository.BrandRepository;
+import com.example.odata.domain.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Application Service - Partitioned query execution
+ * Large scans are split into fixed-size chunks that are loaded, filtered and
+ * projected on a dedicated fork-join pool. Chunk results are concatenated in
+ * chunk order, so the output keeps the input order. Inputs below the
+ * threshold run sequentially on the calling thread. Chunks read the product
+ * and brand versions the calling thread has pinned, like the caller would.
+ */
+@Slf4j
+@Component
+public class PartitionedQueryExecutor {
+
+    private final ProductRepository productRepository;
+    private final BrandRepository brandRepository;
+    private final int threshold;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+
+    public PartitionedQueryExecutor(ProductRepository productRepository, BrandRepository brandRepository,
+            @Value("${odata.query.parallel.threshold:50000}") int threshold,
+            @Value("${odata.query.parallel.chunk-size:8192}") int chunkSize,
+            @Value("${odata.query.parallel.parallelism:0}") int parallelism) {
+        this.productRepository = productRepository;
+        this.brandRepository = brandRepository;
+        this.threshold = threshold;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        log.info("⚙️ Partitioned queries: threshold={}, chunkSize={}, parallelism={}", threshold, this.chunkSize,
+                pool.getParallelism());
+    }
+
+    /**
+     * Loads each row into an entity, keeps the entities accepted by the filter
+     * and projects them; all three functions must be thread-safe
+     */
+    public <T, E, R> List<R> execute(List<T> rows, Function<T, E> load, Predicate<E> filter,
+            Function<E, R> project) {
+        if (rows.size() < threshold) {
+            return scan(rows, 0, rows.size(), load, filter, project);
+        }
+        long start = System.nanoTime();
+        // Captured here, on the calling thread; every chunk runs with the caller's pins
+        Function<int[], List<R>> scanChunk = withCallerPins(
+                range -> scan(rows, range[0], range[1], load, filter, project));
+        List<R> result = pool.invoke(new ChunkTask<>(scanChunk, 0, rows.size()));
+        log.info("⚡ Partitioned scan of {} rows in {} chunks: {} ms", rows.size(),
+                (rows.size() + chunkSize - 1) / chunkSize, (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * Wraps a task for another thread so that its reads see the product and
+     * brand versions pinned by the calling thread, if any
+     */
+    public <A, R> Function<A, R> withCallerPins(Function<A, R> task) {
+        return productRepository.withCallerPin(brandRepository.withCallerPin(task));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static <T, E, R> List<R> scan(List<T> rows, int from, int to, Function<T, E> load, Predicate<E> filter,
+            Function<E, R> project) {
+        List<R> result = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            E entity = load.apply(rows.get(i));
+            if (filter.test(entity)) {
+                result.add(project.apply(entity));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Halves its range until it spans a single chunk; the left half's
+     * results always precede the right half's
+     */
+    private final class ChunkTask<R> extends RecursiveTask<List<R>> {
+        private static final long serialVersionUID = 1L;
+
+        // Scans the rows of a {from, to} range
+        private final Function<int[], List<R>> scanChunk;
+        private final int from;
+        private final int to;
+
+        ChunkTask(Function<int[], List<R>> scanChunk, int from, int to) {
+            this.scanChunk = scanChunk;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<R> compute() {
+            if (to - from <= chunkSize) {
+                return scanChunk.apply(new int[] { from, to });
+            }
+            // Split on a chunk boundary so partitions stay fixed-size
+            int chunks = (to - from + chunkSize - 1) / chunkSize;
+            int middle = from + (chunks / 2) * chunkSize;
+            ChunkTask<R> left = new ChunkTask<>(scanChunk, from, middle);
+            ChunkTask<R> right = new ChunkTask<>(scanChunk, middle, to);
+            left.fork();
+            List<R> rightResult = right.compute();
+            List<R> result = left.join();
+            result.addAll(rightResult);
+            return result;
+        }
+    }
+}
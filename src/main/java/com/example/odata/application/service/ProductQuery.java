@@ -0,0 +1,32 @@
+package com.example.odata.application.service;
+
+import com.example.odata.domain.model.Brand;
+import com.example.odata.domain.model.Product;
+import com.example.odata.domain.model.ProductCriteria;
+import lombok.Data;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * Application Layer - Parsed query options of a Products request
+ */
+@Data
+public class ProductQuery {
+    private boolean expand;
+    private List<String> select = Collections.emptyList();
+    // Filter, $orderby and paging the repository can evaluate itself
+    private ProductCriteria criteria = new ProductCriteria();
+    // Compiled $filter, checked in memory against the full (unprojected) product
+    // when the criteria are not the whole filter; null if there is nothing left.
+    // Each read binds it to the source of its Brand/... values
+    private Function<IntFunction<Brand>, Predicate<Product>> filter;
+    // $search expression; matches are returned most relevant first
+    private String search;
+    // Optional superset of matching product ids (e.g. from the search index)
+    private Set<Integer> candidateIds;
+}
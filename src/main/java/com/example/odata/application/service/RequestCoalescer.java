@@ -0,0 +1,95 @@
+package com.example.odata.application.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Application Service - Single-flight request coalescing
+ * Concurrent requests with the same key share one computation: the first
+ * runs it, the others wait for and receive its result (or its exception).
+ * Nothing is kept once the computation completes, so this is not a cache;
+ * keys include the data version, so a request arriving after a write never
+ * joins a computation that started before it.
+ *
+ * Metrics: odata.coalescing.requests{endpoint=...,outcome=executed|coalesced}
+ * and odata.coalescing.inflight
+ */
+@Component
+public class RequestCoalescer {
+
+    private final boolean enabled;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public RequestCoalescer(MeterRegistry meterRegistry,
+            @Value("${odata.coalescing.enabled:true}") boolean enabled) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+
+        Gauge.builder("odata.coalescing.inflight", inFlight, Map::size)
+                .description("Distinct computations that requests may currently join")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the computation, or joins the identical one already in flight
+     *
+     * @param endpoint metrics tag and key namespace
+     * @param key      identifies the result: normalized query, response format
+     *                 and data version
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(String endpoint, String key, Supplier<V> computation) {
+        if (!enabled) {
+            return computation.get();
+        }
+        String flightKey = endpoint + '\n' + key;
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(flightKey, flight);
+
+        if (leader != null) {
+            counter(endpoint, "coalesced").increment();
+            try {
+                return (V) leader.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        counter(endpoint, "executed").increment();
+        try {
+            V result = computation.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    private Counter counter(String endpoint, String outcome) {
+        return counters.computeIfAbsent(endpoint + '/' + outcome, name -> Counter.builder("odata.coalescing.requests")
+                .description("Requests that ran a computation or joined one in flight")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.odata.application.usecase;
+
+import com.example.odata.domain.model.AggregationSpec;
+import com.example.odata.domain.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Use Case - Application Layer
+ * Aggregates products inside the repository ($apply)
+ */
+@Service
+@RequiredArgsConstructor
+public class AggregateProductsUseCase {
+
+    private final ProductRepository productRepository;
+
+    public List<Map<String, Object>> execute(AggregationSpec spec) {
+        return productRepository.aggregate(spec);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.odata.application.usecase;
+
+import com.example.odata.domain.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Use Case - Application Layer
+ * Deletes a product
+ */
+@Service
+@RequiredArgsConstructor
+public class DeleteProductUseCase {
+
+    private final ProductRepository productRepository;
+
+    public boolean execute(int id) {
+        return productRepository.deleteById(id);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.odata.application.usecase;
+
+import com.example.odata.domain.model.ProductChange;
+import com.example.odata.domain.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Use Case - Application Layer
+ * Retrieves product changes for delta queries
+ */
+@Service
+@RequiredArgsConstructor
+public class GetProductChangesUseCase {
+
+    private final ProductRepository productRepository;
+
+    /**
+     * @return sequence number of the latest change, usable as a delta token
+     */
+    public long currentSequence() {
+        return productRepository.version();
+    }
+
+    public Optional<List<ProductChange>> execute(long sinceSequence) {
+        return productRepository.changesSince(sinceSequence);
+    }
+}
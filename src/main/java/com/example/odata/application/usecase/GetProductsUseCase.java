@@ -1,11 +1,14 @@
 package com.example.odata.application.usecase;
 
 import com.example.odata.domain.model.Product;
+import com.example.odata.domain.model.ProductCriteria;
 import com.example.odata.domain.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Use Case - Application Layer
@@ -20,4 +23,30 @@ public class GetProductsUseCase {
     public List<Product> execute() {
         return productRepository.findAll();
     }
+
+    public List<Product> executeByIds(Collection<Integer> ids) {
+        return productRepository.findAllById(ids);
+    }
+
+    public List<Product> executeByBrandId(int brandId) {
+        return productRepository.findByBrandId(brandId);
+    }
+
+    /**
+     * Filters, orders and pages in the repository; the stream must be closed
+     */
+    public Stream<Product> query(ProductCriteria criteria) {
+        return productRepository.query(criteria);
+    }
+
+    /**
+     * Counts the products matching the criteria's conditions in the repository
+     */
+    public long count(ProductCriteria criteria) {
+        return productRepository.count(criteria);
+    }
+
+    public Stream<Product> stream() {
+        return productRepository.streamAll();
+    }
 }
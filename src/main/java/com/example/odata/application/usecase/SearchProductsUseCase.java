@@ -0,0 +1,25 @@
+package com.example.odata.application.usecase;
+
+import com.example.odata.domain.repository.ProductSearchIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Use Case - Application Layer
+ * Full-text product search ($search)
+ */
+@Service
+@RequiredArgsConstructor
+public class SearchProductsUseCase {
+
+    private final ProductSearchIndex productSearchIndex;
+
+    /**
+     * @return ids of the matching products, most relevant first
+     */
+    public List<Integer> execute(String search) {
+        return productSearchIndex.search(search);
+    }
+}
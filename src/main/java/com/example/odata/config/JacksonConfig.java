@@ -0,0 +1,25 @@
+package com.example.odata.config;
+
+import com.example.odata.domain.model.StringDictionary;
+import com.example.odata.infrastructure.encoding.DictionaryEntrySerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Jackson modules, picked up by every ObjectMapper Spring Boot builds
+ */
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * Dictionary-encoded values (brand Name and Country) are written from
+     * their pre-encoded UTF-8 bytes
+     */
+    @Bean
+    public Module dictionaryModule() {
+        return new SimpleModule("StringDictionary")
+                .addSerializer(StringDictionary.Entry.class, new DictionaryEntrySerializer());
+    }
+}
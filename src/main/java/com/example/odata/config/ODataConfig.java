@@ -1,11 +1,16 @@
 package com.example.odata.config;
 
+import com.example.odata.application.service.ODataQueryService;
+import com.example.odata.application.service.RequestCoalescer;
+import com.example.odata.domain.repository.BrandDictionary;
+import com.example.odata.infrastructure.odata.ApplyParser;
+import com.example.odata.infrastructure.odata.ODataFilterProcessor;
 import com.example.odata.service.DemoEdmProvider;
 import com.example.odata.service.DemoEntityCollectionProcessor;
-import com.example.odata.service.Storage;
 import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.ODataHttpHandler;
 import org.apache.olingo.server.api.ServiceMetadata;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.web.servlet.ServletRegistrationBean;
 import org.springframework.context.annotation.Bean;
@@ -21,10 +26,18 @@ import java.util.ArrayList;
 @Configuration
 public class ODataConfig {
 
+    // Same query pipeline and repositories as the /odata controller; resolved
+    // on the first request, so registering the servlet loads no data
     @Autowired
-    private Storage storage;
+    private ObjectProvider<ODataQueryService> queryService;
     @Autowired
-    private com.example.odata.service.BrandStorage brandStorage;
+    private ObjectProvider<ODataFilterProcessor> filterProcessor;
+    @Autowired
+    private ObjectProvider<ApplyParser> applyParser;
+    @Autowired
+    private ObjectProvider<RequestCoalescer> requestCoalescer;
+    @Autowired
+    private ObjectProvider<BrandDictionary> brandDictionary;
 
     @Bean
     public ServletRegistrationBean<HttpServlet> odataServlet() {
@@ -43,7 +56,9 @@ public class ODataConfig {
                     ODataHttpHandler handler = odata.createHandler(edm);
 
                     // Register Processors
-                    handler.register(new DemoEntityCollectionProcessor(storage, brandStorage));
+                    handler.register(new DemoEntityCollectionProcessor(queryService.getObject(),
+                            filterProcessor.getObject(), applyParser.getObject(), requestCoalescer.getObject(),
+                            brandDictionary.getObject()));
 
                     // Execute
                     handler.process(req, resp);
@@ -0,0 +1,42 @@
+package com.example.odata.config;
+
+import com.example.odata.infrastructure.startup.StartupTimingReport;
+import com.example.odata.infrastructure.startup.StartupWarmup;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Startup: warm-up readiness gate and the fast-startup profile
+ * (application-fast-startup.properties), which creates beans lazily and
+ * leaves loading the data to the background warm-up
+ */
+@Configuration
+public class StartupConfig {
+
+    /**
+     * The startup components have to listen from the start even when every
+     * other bean is created lazily
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter startupComponentsAreEager() {
+        return LazyInitializationExcludeFilter.forBeanTypes(StartupWarmup.class, StartupTimingReport.class);
+    }
+
+    /**
+     * "warmup" health contributor, part of the readiness group: out of
+     * service until the startup warm-up has finished
+     */
+    @Bean
+    public HealthIndicator warmupHealthIndicator(StartupWarmup warmup) {
+        return () -> {
+            if (warmup.isDone()) {
+                return Health.up().build();
+            }
+            Health.Builder health = warmup.isFailed() ? Health.down() : Health.outOfService();
+            return health.withDetail("phase", warmup.getPhase()).build();
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.odata.domain.event;
+
+import com.example.odata.domain.model.Brand;
+import lombok.Value;
+
+/**
+ * Domain Event - Published after a brand has been created or updated
+ */
+@Value
+public class BrandSavedEvent {
+    Brand brand;
+    // Version of the brand snapshot the save published
+    long version;
+}
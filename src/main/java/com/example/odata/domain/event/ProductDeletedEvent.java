@@ -0,0 +1,13 @@
+package com.example.odata.domain.event;
+
+import lombok.Value;
+
+/**
+ * Domain Event - Published after a product has been deleted
+ */
+@Value
+public class ProductDeletedEvent {
+    int productId;
+    // Change log sequence number of the delete
+    long sequence;
+}
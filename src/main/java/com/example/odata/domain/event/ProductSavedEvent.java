@@ -0,0 +1,14 @@
+package com.example.odata.domain.event;
+
+import com.example.odata.domain.model.Product;
+import lombok.Value;
+
+/**
+ * Domain Event - Published after a product has been created or updated
+ */
+@Value
+public class ProductSavedEvent {
+    Product product;
+    // Change log sequence number of the save
+    long sequence;
+}
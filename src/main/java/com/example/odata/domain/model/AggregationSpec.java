@@ -0,0 +1,47 @@
+package com.example.odata.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Value Object - Parsed $apply transformation
+ * groupby((BrandID),aggregate(Price with average as AvgPrice)) or
+ * aggregate(Price with sum as Total); an empty groupBy aggregates all rows
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AggregationSpec {
+
+    public enum Method {
+        SUM, MIN, MAX, AVERAGE, COUNTDISTINCT, COUNT
+    }
+
+    /**
+     * One "Property with method as Alias" (property is null for $count)
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Aggregate {
+        private String property;
+        private Method method;
+        private String alias;
+    }
+
+    private List<String> groupBy = new ArrayList<>();
+    private List<Aggregate> aggregates = new ArrayList<>();
+
+    /**
+     * Result columns: grouping properties followed by aggregate aliases
+     */
+    public List<String> columns() {
+        List<String> columns = new ArrayList<>(groupBy);
+        aggregates.forEach(aggregate -> columns.add(aggregate.getAlias()));
+        return columns;
+    }
+}
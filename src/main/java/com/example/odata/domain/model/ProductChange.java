@@ -0,0 +1,22 @@
+package com.example.odata.domain.model;
+
+import lombok.Value;
+
+/**
+ * Value Object - Entry of the product change log
+ * The sequence number is the repository snapshot version that the change
+ * produced; sequence numbers increase monotonically
+ */
+@Value
+public class ProductChange {
+
+    public enum Type {
+        SAVED, DELETED
+    }
+
+    long sequence;
+    Type type;
+    int productId;
+    // Saved state; null for deletions
+    Product product;
+}
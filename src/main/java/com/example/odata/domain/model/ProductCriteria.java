@@ -0,0 +1,148 @@
+package com.example.odata.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Value Object - Product query pushed down to the repository
+ * Conditions are ANDed; properties use their OData names (ID, Name,
+ * Description, Price, BrandID). A repository backed by a database translates
+ * the criteria into its query language; in-memory stores evaluate them with
+ * {@link Condition#matches(Object)} and {@link #comparator(BiFunction)}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCriteria {
+
+    public enum Operator {
+        EQ, NE, GT, GE, LT, LE, CONTAINS, STARTSWITH, IN
+    }
+
+    /**
+     * "Property operator value"; value is a String or a Double, or for IN a
+     * Set of the allowed values
+     */
+    @Value
+    public static class Condition {
+        String property;
+        Operator operator;
+        Object value;
+
+        public boolean matches(Object actual) {
+            if (actual == null || value == null) {
+                return false;
+            }
+            switch (operator) {
+                case CONTAINS:
+                    return String.valueOf(actual).contains(String.valueOf(value));
+                case STARTSWITH:
+                    return String.valueOf(actual).startsWith(String.valueOf(value));
+                case IN:
+                    return ((Collection<?>) value).contains(actual);
+                default:
+                    int cmp = compare(actual, value);
+                    switch (operator) {
+                        case EQ:
+                            return cmp == 0;
+                        case NE:
+                            return cmp != 0;
+                        case GT:
+                            return cmp > 0;
+                        case GE:
+                            return cmp >= 0;
+                        case LT:
+                            return cmp < 0;
+                        default:
+                            return cmp <= 0;
+                    }
+            }
+        }
+    }
+
+    @Value
+    public static class Order {
+        String property;
+        boolean descending;
+    }
+
+    private List<Condition> conditions = new ArrayList<>();
+    private List<Order> orderBy = new ArrayList<>();
+    private Integer top;
+    private Integer skip;
+    // Empty: all properties
+    private List<String> select = new ArrayList<>();
+
+    /**
+     * Parses a $orderby value such as "Price desc,Name"
+     *
+     * @throws IllegalArgumentException for a malformed item
+     */
+    public static List<Order> parseOrderBy(String orderBy) {
+        List<Order> orders = new ArrayList<>();
+        if (orderBy == null || orderBy.isEmpty()) {
+            return orders;
+        }
+        for (String item : orderBy.split(",")) {
+            String[] parts = item.trim().split("\\s+");
+            if (parts.length > 2 || (parts.length == 2 && !parts[1].matches("(?i)asc|desc"))) {
+                throw new IllegalArgumentException("Invalid $orderby item: " + item);
+            }
+            orders.add(new Order(parts[0], parts.length == 2 && parts[1].equalsIgnoreCase("desc")));
+        }
+        return orders;
+    }
+
+    public boolean hasPaging() {
+        return top != null || skip != null;
+    }
+
+    /**
+     * Copy without $top/$skip, for when paging has to follow further
+     * in-memory filtering
+     */
+    public ProductCriteria withoutPaging() {
+        return new ProductCriteria(conditions, orderBy, null, null, select);
+    }
+
+    /**
+     * Orders rows by the $orderby properties (nulls first); null when there
+     * is no $orderby
+     *
+     * @param valueOf reads a property of a row by OData name
+     */
+    public <T> Comparator<T> comparator(BiFunction<T, String, Object> valueOf) {
+        Comparator<T> comparator = null;
+        for (Order order : orderBy) {
+            Comparator<T> next = (left, right) -> compareNullable(valueOf.apply(left, order.getProperty()),
+                    valueOf.apply(right, order.getProperty()));
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    private static int compareNullable(Object left, Object right) {
+        if (left == null || right == null) {
+            return left == null ? (right == null ? 0 : -1) : 1;
+        }
+        return compare(left, right);
+    }
+
+    private static int compare(Object left, Object right) {
+        if (left instanceof Number && right instanceof Number) {
+            return Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+        }
+        return String.valueOf(left).compareTo(String.valueOf(right));
+    }
+}
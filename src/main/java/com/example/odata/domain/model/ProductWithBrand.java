@@ -0,0 +1,26 @@
+package com.example.odata.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Read Model - Product denormalized with the fields of its Brand
+ * Brand fields are null when the product references an unknown brand
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductWithBrand {
+    private int id;
+    private String name;
+    private String description;
+    private double price;
+    private int brandId;
+    private String brandName;
+    private String brandCountry;
+
+    public boolean hasBrand() {
+        return brandName != null || brandCountry != null;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.odata.domain.model;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Domain Model - Dictionary encoding of a low-cardinality string column
+ * Each distinct value is kept once, with a dense integer code and its UTF-8
+ * bytes: rows share the one instance, equality compares codes and writers
+ * copy the bytes instead of encoding the same string again. At most
+ * maxEntries values get a code; further ones are encoded without one.
+ */
+public class StringDictionary {
+
+    public static final int NO_CODE = -1;
+
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public StringDictionary(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return the entry of the value, added if new; null for null
+     */
+    public Entry encode(String value) {
+        if (value == null) {
+            return null;
+        }
+        Entry entry = entries.get(value);
+        if (entry != null) {
+            return entry;
+        }
+        synchronized (this) {
+            entry = entries.get(value);
+            if (entry == null) {
+                if (entries.size() >= maxEntries) {
+                    return new Entry(NO_CODE, value);
+                }
+                entry = new Entry(entries.size(), value);
+                entries.put(value, entry);
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * @return the code of the value, or NO_CODE if it has none (never adds)
+     */
+    public int code(String value) {
+        Entry entry = value != null ? entries.get(value) : null;
+        return entry != null ? entry.code : NO_CODE;
+    }
+
+    public boolean isFull() {
+        return entries.size() >= maxEntries;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * A dictionary value; equal to another entry with the same string, and
+     * printed as the string itself so it can stand in for one in entities
+     */
+    @Getter
+    public static final class Entry {
+        private final int code;
+        private final String value;
+        // Shared: callers must not modify it
+        private final byte[] utf8;
+
+        private Entry(int code, String value) {
+            this.code = code;
+            this.value = value;
+            this.utf8 = value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Entry && value.equals(((Entry) other).value);
+        }
+
+        @Override
+        public int hashCode() {
+            return value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.odata.domain.repository;
+
+import com.example.odata.domain.model.StringDictionary;
+import java.util.Set;
+
+/**
+ * Repository Interface - Domain Layer
+ * Dictionary-encoded brand Name and Country columns
+ */
+public interface BrandDictionary {
+    StringDictionary.Entry name(String name);
+
+    StringDictionary.Entry country(String country);
+
+    /**
+     * Compares integer codes, not strings
+     *
+     * @return ids of the brands whose property (Name or Country) equals the
+     *         value, or null if the property is not dictionary-encoded
+     */
+    Set<Integer> brandIdsWhere(String property, String value);
+}
@@ -3,13 +3,50 @@ package com.example.odata.domain.repository;
 import com.example.odata.domain.model.Brand;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * Repository Interface - Domain Layer
  * Defines the contract without implementation details
  */
 public interface BrandRepository {
+    /**
+     * @return a read-only view of the current snapshot (not a copy)
+     */
     List<Brand> findAll();
 
+    /**
+     * Current immutable snapshot; it is never modified by later writes
+     */
+    Snapshot<Brand> snapshot();
+
+    /**
+     * Version of the current snapshot, without reading the brands; stores
+     * without versions return 0
+     */
+    default long version() {
+        return 0;
+    }
+
     Optional<Brand> findById(int id);
+
+    Brand save(Brand brand);
+
+    /**
+     * Pins the current version for the reads of this thread until the pin
+     * is closed; stores without versions return {@link SnapshotPin#NONE}
+     */
+    default SnapshotPin pin() {
+        return SnapshotPin.NONE;
+    }
+
+    /**
+     * Wraps a task that this thread hands to another one, so that its reads
+     * see the version this thread has pinned, if any. The pin is captured
+     * when wrapping and held while the task runs; stores without versions
+     * return the task itself.
+     */
+    default <A, R> Function<A, R> withCallerPin(Function<A, R> task) {
+        return task;
+    }
 }
@@ -1,17 +1,108 @@
 package com.example.odata.domain.repository;
 
+import com.example.odata.domain.model.AggregationSpec;
 import com.example.odata.domain.model.Product;
+import com.example.odata.domain.model.ProductChange;
+import com.example.odata.domain.model.ProductCriteria;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Repository Interface - Domain Layer
  * Defines the contract without implementation details
  */
 public interface ProductRepository {
+    /**
+     * @return a read-only view of the current snapshot (not a copy)
+     */
     List<Product> findAll();
 
+    /**
+     * Current immutable snapshot; it is never modified by later writes
+     */
+    Snapshot<Product> snapshot();
+
+    /**
+     * Version of the current snapshot, without reading the products
+     */
+    long version();
+
+    /**
+     * Lazily streams all products without materializing an intermediate list
+     */
+    Stream<Product> streamAll();
+
     Optional<Product> findById(int id);
 
+    /**
+     * Filters, orders, pages and projects inside the store; properties not in
+     * the criteria's select list may be left unset. The stream must be closed.
+     *
+     * @throws IllegalArgumentException for unknown properties
+     */
+    Stream<Product> query(ProductCriteria criteria);
+
+    /**
+     * Number of products matching the criteria's conditions; ordering,
+     * paging and the select list are ignored
+     */
+    default long count(ProductCriteria criteria) {
+        try (Stream<Product> products = query(new ProductCriteria(criteria.getConditions(), List.of(), null, null,
+                List.of("ID")))) {
+            return products.count();
+        }
+    }
+
+    /**
+     * @return the existing products among the given ids, in the given order
+     */
+    List<Product> findAllById(Collection<Integer> ids);
+
+    List<Product> findByBrandId(int brandId);
+
     Product save(Product product);
+
+    /**
+     * @return false if there was no product with that id
+     */
+    boolean deleteById(int id);
+
+    /**
+     * Changes after the given sequence number, oldest first; the latest
+     * sequence number is {@link #version()}
+     *
+     * @return empty if those changes are no longer retained, in which case
+     *         the client has to resynchronize fully
+     */
+    Optional<List<ProductChange>> changesSince(long sequence);
+
+    /**
+     * Executes a $apply aggregation inside the store
+     *
+     * @return one row per group: the grouping properties plus one entry per
+     *         aggregate alias
+     */
+    List<Map<String, Object>> aggregate(AggregationSpec spec);
+
+    /**
+     * Pins the current version for the reads of this thread until the pin
+     * is closed; stores without versions return {@link SnapshotPin#NONE}
+     */
+    default SnapshotPin pin() {
+        return SnapshotPin.NONE;
+    }
+
+    /**
+     * Wraps a task that this thread hands to another one, so that its reads
+     * see the version this thread has pinned, if any. The pin is captured
+     * when wrapping and held while the task runs; stores without versions
+     * return the task itself.
+     */
+    default <A, R> Function<A, R> withCallerPin(Function<A, R> task) {
+        return task;
+    }
 }
@@ -0,0 +1,21 @@
+package com.example.odata.domain.repository;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Repository Interface - Domain Layer
+ * Full-text search over product Name and Description
+ */
+public interface ProductSearchIndex {
+    /**
+     * @return ids of the matching products, most relevant first
+     */
+    List<Integer> search(String query);
+
+    /**
+     * @return superset of the products whose property contains the text
+     *         (ignoring case), or null if the index cannot narrow it down
+     */
+    Set<Integer> candidates(String property, String text);
+}
@@ -0,0 +1,19 @@
+package com.example.odata.domain.repository;
+
+import com.example.odata.domain.model.ProductWithBrand;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Repository Interface - Domain Layer
+ * Read-only access to products already joined with their brand
+ */
+public interface ProductWithBrandRepository {
+    Stream<ProductWithBrand> streamAll();
+
+    /**
+     * @return the existing rows among the given product ids, in the given order
+     */
+    List<ProductWithBrand> findAllById(Collection<Integer> ids);
+}
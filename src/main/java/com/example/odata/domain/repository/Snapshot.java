@@ -0,0 +1,337 @@
+package com.example.odata.domain.repository;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Repository Snapshot - Domain Layer
+ * Immutable, versioned view of a repository's contents, ordered by id.
+ * Readers iterate it without copying and without locks; writers derive a new
+ * snapshot (copy-on-write) and publish it atomically, so a reader never sees
+ * a half-applied write.
+ *
+ * Items are kept in chunks of at most {@link #CHUNK_SIZE}, sorted by id. A
+ * write copies the one chunk it changes and the chunk directory and shares
+ * every other chunk with the previous snapshot, so its cost grows with
+ * n / CHUNK_SIZE + CHUNK_SIZE instead of n, and a bulk load of single writes
+ * is not quadratic. Lookups by id are binary searches.
+ */
+public final class Snapshot<T> implements Iterable<T> {
+
+    static final int CHUNK_SIZE = 512;
+
+    private static final Object[][] NO_CHUNKS = new Object[0][];
+
+    private final long version;
+    // Non-empty, sorted by id; chunk i holds the items from position offsets[i]
+    private final Object[][] chunks;
+    private final int[] lastIds;
+    private final int[] offsets;
+    private final int size;
+    private final ToIntFunction<T> idOf;
+    private final List<T> items = new Items();
+
+    private Snapshot(long version, Object[][] chunks, ToIntFunction<T> idOf) {
+        this.version = version;
+        this.chunks = chunks;
+        this.idOf = idOf;
+        this.lastIds = new int[chunks.length];
+        this.offsets = new int[chunks.length];
+        int position = 0;
+        for (int i = 0; i < chunks.length; i++) {
+            offsets[i] = position;
+            lastIds[i] = idOf.applyAsInt(item(chunks[i], chunks[i].length - 1));
+            position += chunks[i].length;
+        }
+        this.size = position;
+    }
+
+    public static <T> Snapshot<T> empty(ToIntFunction<T> idOf) {
+        return new Snapshot<>(0, NO_CHUNKS, idOf);
+    }
+
+    /**
+     * Snapshot of the given version holding a copy of the items
+     */
+    public static <T> Snapshot<T> of(long version, Collection<T> items, ToIntFunction<T> idOf) {
+        return new Snapshot<>(version, empty(idOf).withAll(items).chunks, idOf);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Optional<T> get(int id) {
+        int chunk = chunkOf(id);
+        if (chunk == chunks.length) {
+            return Optional.empty();
+        }
+        int position = indexOf(chunks[chunk], id);
+        return position >= 0 ? Optional.of(item(chunks[chunk], position)) : Optional.empty();
+    }
+
+    /**
+     * Read-only list view of the snapshot; no elements are copied
+     */
+    public List<T> asList() {
+        return items;
+    }
+
+    public Stream<T> stream() {
+        return items.stream();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return items.iterator();
+    }
+
+    /**
+     * Visits the items in id order until the visitor returns false
+     *
+     * @return true if every item was visited
+     */
+    public boolean visit(Predicate<? super T> visitor) {
+        for (Object[] chunk : chunks) {
+            for (Object item : chunk) {
+                if (!visitor.test(this.<T>cast(item))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return a new snapshot (next version) with the item added or replaced
+     */
+    public Snapshot<T> with(T item) {
+        int id = idOf.applyAsInt(item);
+        if (chunks.length == 0) {
+            return new Snapshot<>(version + 1, new Object[][] { { item } }, idOf);
+        }
+        // Beyond the last id: appended to the last chunk
+        int chunk = Math.min(chunkOf(id), chunks.length - 1);
+        Object[] current = chunks[chunk];
+        int position = indexOf(current, id);
+        Object[] next;
+        int insertAt = -position - 1;
+        if (position >= 0) {
+            next = current.clone();
+            next[position] = item;
+        } else {
+            next = new Object[current.length + 1];
+            System.arraycopy(current, 0, next, 0, insertAt);
+            next[insertAt] = item;
+            System.arraycopy(current, insertAt, next, insertAt + 1, current.length - insertAt);
+        }
+        if (next.length <= CHUNK_SIZE) {
+            Object[][] nextChunks = chunks.clone();
+            nextChunks[chunk] = next;
+            return new Snapshot<>(version + 1, nextChunks, idOf);
+        }
+        // Full chunk: split in halves, or keep it full when appending new ids
+        int split = chunk == chunks.length - 1 && insertAt == current.length ? CHUNK_SIZE : next.length / 2;
+        return new Snapshot<>(version + 1, replace(chunk, 1,
+                Arrays.copyOfRange(next, 0, split), Arrays.copyOfRange(next, split, next.length)), idOf);
+    }
+
+    /**
+     * @return a new snapshot (next version) with all items added or replaced
+     */
+    public Snapshot<T> withAll(Collection<T> updates) {
+        Map<Integer, Object> nextById = new HashMap<>(size + updates.size());
+        for (Object[] chunk : chunks) {
+            for (Object item : chunk) {
+                nextById.put(idOf.applyAsInt(cast(item)), item);
+            }
+        }
+        for (T item : updates) {
+            nextById.put(idOf.applyAsInt(item), item);
+        }
+        Object[] sorted = nextById.values().toArray();
+        Arrays.sort(sorted, Comparator.comparingInt(item -> idOf.applyAsInt(cast(item))));
+
+        Object[][] nextChunks = new Object[(sorted.length + CHUNK_SIZE - 1) / CHUNK_SIZE][];
+        for (int i = 0; i < nextChunks.length; i++) {
+            nextChunks[i] = Arrays.copyOfRange(sorted, i * CHUNK_SIZE,
+                    Math.min(sorted.length, (i + 1) * CHUNK_SIZE));
+        }
+        return new Snapshot<>(version + 1, nextChunks, idOf);
+    }
+
+    /**
+     * @return a new snapshot (next version) without the item, or this
+     *         snapshot if there is no item with that id
+     */
+    public Snapshot<T> without(int id) {
+        int chunk = chunkOf(id);
+        if (chunk == chunks.length) {
+            return this;
+        }
+        Object[] current = chunks[chunk];
+        int position = indexOf(current, id);
+        if (position < 0) {
+            return this;
+        }
+        Object[] next = new Object[current.length - 1];
+        System.arraycopy(current, 0, next, 0, position);
+        System.arraycopy(current, position + 1, next, position, next.length - position);
+        if (next.length == 0) {
+            return new Snapshot<>(version + 1, replace(chunk, 1), idOf);
+        }
+        // A small chunk is merged into its successor, so deletes cannot leave many tiny chunks
+        if (next.length < CHUNK_SIZE / 4 && chunk + 1 < chunks.length
+                && next.length + chunks[chunk + 1].length <= CHUNK_SIZE) {
+            Object[] successor = chunks[chunk + 1];
+            Object[] merged = Arrays.copyOf(next, next.length + successor.length);
+            System.arraycopy(successor, 0, merged, next.length, successor.length);
+            return new Snapshot<>(version + 1, replace(chunk, 2, merged), idOf);
+        }
+        Object[][] nextChunks = chunks.clone();
+        nextChunks[chunk] = next;
+        return new Snapshot<>(version + 1, nextChunks, idOf);
+    }
+
+    public int maxId() {
+        return chunks.length == 0 ? 0 : lastIds[chunks.length - 1];
+    }
+
+    /**
+     * Chunk directory with count chunks from index replaced by the given ones
+     */
+    private Object[][] replace(int index, int count, Object[]... replacements) {
+        Object[][] next = new Object[chunks.length - count + replacements.length][];
+        System.arraycopy(chunks, 0, next, 0, index);
+        System.arraycopy(replacements, 0, next, index, replacements.length);
+        System.arraycopy(chunks, index + count, next, index + replacements.length, chunks.length - index - count);
+        return next;
+    }
+
+    /**
+     * @return the first chunk whose last id is at least the id, or the
+     *         number of chunks if the id is beyond all of them
+     */
+    private int chunkOf(int id) {
+        int low = 0;
+        int high = chunks.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (lastIds[middle] < id) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the position of the id in the chunk, or (-(insertion point) - 1)
+     */
+    private int indexOf(Object[] chunk, int id) {
+        int low = 0;
+        int high = chunk.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = idOf.applyAsInt(item(chunk, middle));
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private T item(Object[] chunk, int position) {
+        return cast(chunk[position]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E> E cast(Object item) {
+        // Chunks only ever hold items of this snapshot
+        return (E) item;
+    }
+
+    /**
+     * The items as one list, read through the chunks
+     */
+    private final class Items extends AbstractList<T> implements RandomAccess {
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+            }
+            // Last chunk starting at or before the index
+            int low = 0;
+            int high = chunks.length - 1;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (offsets[middle] <= index) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return item(chunks[low], index - offsets[low]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<>() {
+                private int chunk;
+                private int position;
+
+                @Override
+                public boolean hasNext() {
+                    return chunk < chunks.length;
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    T item = item(chunks[chunk], position);
+                    if (++position == chunks[chunk].length) {
+                        chunk++;
+                        position = 0;
+                    }
+                    return item;
+                }
+            };
+        }
+
+        @Override
+        public Spliterator<T> spliterator() {
+            return Spliterators.spliterator(this, Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+        }
+    }
+}
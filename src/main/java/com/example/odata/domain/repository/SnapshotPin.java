@@ -0,0 +1,20 @@
+package com.example.odata.domain.repository;
+
+/**
+ * Repository Snapshot Pin - Domain Layer
+ * While a pin is open, every read of the pinning thread through the store
+ * sees the version that was current when the pin was taken, however many
+ * writes are published meanwhile. Pins nest; closing the outermost one
+ * releases the version, which is reclaimed once nothing else references it.
+ */
+public interface SnapshotPin extends AutoCloseable {
+
+    /**
+     * Pin of a store whose reads cannot be pinned
+     */
+    SnapshotPin NONE = () -> {
+    };
+
+    @Override
+    void close();
+}
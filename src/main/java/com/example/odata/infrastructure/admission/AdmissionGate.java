@@ -0,0 +1,151 @@
+package com.example.odata.infrastructure.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Infrastructure - Admission control for OData requests
+ * A request is admitted if its client's token bucket holds as many tokens as
+ * the request costs (else 429) and the global concurrency budget, counted in
+ * cost units of the requests in flight, has room for it (else 503). Expensive
+ * queries thus use up both a client's rate and the shared budget faster than
+ * cheap ones.
+ *
+ * Metrics: odata.admission.inflight-cost and odata.admission.rejected{reason=...}
+ */
+@Slf4j
+@Component
+public class AdmissionGate {
+
+    /**
+     * Outcome of an admission check; an admitted request must be released
+     * once it has been processed
+     */
+    public static final class Admission {
+        private final int status;
+        private final long retryAfterSeconds;
+        private final Runnable release;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Admission(int status, long retryAfterSeconds, Runnable release) {
+            this.status = status;
+            this.retryAfterSeconds = retryAfterSeconds;
+            this.release = release;
+        }
+
+        public boolean isAdmitted() {
+            return status == 0;
+        }
+
+        /**
+         * @return 429 (client rate limit) or 503 (server busy) for rejections
+         */
+        public int getStatus() {
+            return status;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                release.run();
+            }
+        }
+    }
+
+    private final double bucketCapacity;
+    private final double refillPerSecond;
+    private final int maxClients;
+    private final int maxConcurrentCost;
+    private final Semaphore concurrencyBudget;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final Counter rateLimited;
+    private final Counter overloaded;
+
+    public AdmissionGate(MeterRegistry meterRegistry,
+            @Value("${odata.admission.client.capacity:50}") double bucketCapacity,
+            @Value("${odata.admission.client.refill-per-second:25}") double refillPerSecond,
+            @Value("${odata.admission.max-clients:10000}") int maxClients,
+            @Value("${odata.admission.max-concurrent-cost:64}") int maxConcurrentCost) {
+        this.bucketCapacity = bucketCapacity;
+        this.refillPerSecond = refillPerSecond;
+        this.maxClients = maxClients;
+        this.maxConcurrentCost = maxConcurrentCost;
+        this.concurrencyBudget = new Semaphore(maxConcurrentCost);
+
+        Gauge.builder("odata.admission.inflight-cost", concurrencyBudget,
+                budget -> maxConcurrentCost - budget.availablePermits())
+                .description("Cost units of the requests in flight")
+                .register(meterRegistry);
+        this.rateLimited = rejectedCounter(meterRegistry, "rate_limited");
+        this.overloaded = rejectedCounter(meterRegistry, "overloaded");
+    }
+
+    public Admission admit(String clientId, int estimatedCost) {
+        // A request costing more than a full bucket or the whole budget would never be admitted
+        int cost = Math.min(estimatedCost, (int) Math.min(bucketCapacity, maxConcurrentCost));
+
+        TokenBucket bucket = bucket(clientId);
+        long waitNanos = bucket.tryConsume(cost);
+        if (waitNanos > 0) {
+            rateLimited.increment();
+            log.warn("🚦 Rate limited client {} (cost {})", clientId, cost);
+            long retryAfterSeconds = TimeUnit.NANOSECONDS.toSeconds(waitNanos - 1) + 1;
+            return new Admission(429, retryAfterSeconds, () -> {
+            });
+        }
+        if (!concurrencyBudget.tryAcquire(cost)) {
+            bucket.refund(cost);
+            overloaded.increment();
+            log.warn("🚦 Concurrency budget exhausted, rejecting client {} (cost {})", clientId, cost);
+            return new Admission(503, 1, () -> {
+            });
+        }
+        return new Admission(0, 0, () -> concurrencyBudget.release(cost));
+    }
+
+    private TokenBucket bucket(String clientId) {
+        TokenBucket bucket = buckets.get(clientId);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxClients) {
+            evictIdleBuckets();
+        }
+        return buckets.computeIfAbsent(clientId, id -> new TokenBucket(bucketCapacity, refillPerSecond));
+    }
+
+    /**
+     * Drops the buckets of clients that have been idle long enough to refill
+     * completely; forgetting them does not change any decision
+     */
+    private void evictIdleBuckets() {
+        if (evicting.compareAndSet(false, true)) {
+            try {
+                buckets.values().removeIf(TokenBucket::isFull);
+            } finally {
+                evicting.set(false);
+            }
+        }
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("odata.admission.rejected")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.odata.infrastructure.admission;
+
+import com.example.odata.infrastructure.odata.ODataFilterProcessor;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * Infrastructure - Estimates the cost of an OData request from its query
+ * options alone, before any data is read
+ * A request costs 1, plus a per-row weight times a row factor:
+ * - the row weight is 1, +1 with $expand (a Brand or Products lookup per
+ *   row), +1 with a $filter that the repository cannot evaluate in full
+ *   (e.g. or, functions or Brand/ID, checked in memory)
+ * - the row factor is 4 without $top or $search (the whole catalog is read
+ *   and serialized), else 1
+ * Writes cost 2; aggregations, delta queries, single entities and metadata 1.
+ * E.g. Products?$expand=Brand costs 9, Products?$top=20&$expand=Brand costs 3.
+ */
+@Component
+public class QueryCostEstimator {
+
+    private static final int UNBOUNDED_ROW_FACTOR = 4;
+
+    private final ODataFilterProcessor filterProcessor;
+
+    // Lazy: the admission filter is created at startup, the data behind the
+    // filter processor may be loaded later (fast-startup profile)
+    public QueryCostEstimator(@Lazy ODataFilterProcessor filterProcessor) {
+        this.filterProcessor = filterProcessor;
+    }
+
+    /**
+     * @param resource  path below the service root, e.g. "Products" or
+     *                  "Products(1)"
+     * @param parameter reads a query option by name (null if absent)
+     */
+    public int estimate(String method, String resource, Function<String, String> parameter) {
+        if (!"GET".equals(method)) {
+            return "POST".equals(method) ? 2 : 1;
+        }
+        if (!isCollection(resource) || parameter.apply("$apply") != null
+                || parameter.apply("$deltatoken") != null) {
+            return 1;
+        }
+
+        int rowWeight = 1;
+        if (parameter.apply("$expand") != null) {
+            rowWeight++;
+        }
+        if (!isPushedDown(parameter.apply("$filter"))) {
+            rowWeight++;
+        }
+        boolean bounded = parameter.apply("$top") != null || parameter.apply("$search") != null;
+        return 1 + rowWeight * (bounded ? 1 : UNBOUNDED_ROW_FACTOR);
+    }
+
+    /**
+     * True if the repository evaluates the whole filter; a malformed filter
+     * is rejected before any row is read, so it counts as pushed down
+     */
+    private boolean isPushedDown(String filter) {
+        try {
+            Expression expression = filterProcessor.parse(filter);
+            return expression == null || filterProcessor.pushdown(expression).isExact();
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    private static boolean isCollection(String resource) {
+        return resource.equals("Products") || resource.equals("Brands") || resource.equals("Products/$stream");
+    }
+}
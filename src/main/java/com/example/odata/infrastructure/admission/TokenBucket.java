@@ -0,0 +1,58 @@
+package com.example.odata.infrastructure.admission;
+
+/**
+ * Infrastructure - Token Bucket
+ * Holds up to capacity tokens and refills continuously at a fixed rate; a
+ * request is admitted if the bucket holds as many tokens as it costs
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+
+    private double tokens;
+    private long refilledAt;
+
+    public TokenBucket(double capacity, double refillPerSecond) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Takes cost tokens if the bucket holds them
+     *
+     * @return 0 if the tokens were taken, otherwise the nanoseconds until the
+     *         bucket will hold enough of them
+     */
+    public synchronized long tryConsume(double cost) {
+        refill();
+        if (tokens >= cost) {
+            tokens -= cost;
+            return 0;
+        }
+        return (long) Math.ceil((cost - tokens) / refillPerNano);
+    }
+
+    /**
+     * Returns tokens taken for a request that was rejected later on
+     */
+    public synchronized void refund(double cost) {
+        tokens = Math.min(capacity, tokens + cost);
+    }
+
+    /**
+     * A full bucket carries no state worth keeping
+     */
+    public synchronized boolean isFull() {
+        refill();
+        return tokens >= capacity;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * refillPerNano);
+        refilledAt = now;
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.odata.infrastructure.aggregation;
+
+import com.example.odata.domain.model.AggregationSpec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * Infrastructure - Single-pass $apply aggregation
+ * Property accessors are resolved once, then every row is folded into a
+ * per-group accumulator of primitive sums, minima, maxima and counts.
+ * Large inputs are aggregated in parallel and the partial groups merged, so
+ * only the aggregated rows leave the store.
+ */
+public final class AggregationEngine {
+
+    // Below this many rows a sequential pass is cheaper than forking
+    public static final int PARALLEL_THRESHOLD = 10_000;
+
+    /**
+     * Resolves entity properties by name; throws IllegalArgumentException for
+     * unknown (or, for numeric, non-numeric) properties
+     */
+    public interface PropertyResolver<T> {
+        Function<T, Object> value(String property);
+
+        ToDoubleFunction<T> numeric(String property);
+
+        boolean isIntegral(String property);
+    }
+
+    private AggregationEngine() {
+    }
+
+    public static <T> List<Map<String, Object>> aggregate(Collection<T> rows, AggregationSpec spec,
+            PropertyResolver<T> resolver) {
+        List<Function<T, Object>> keyAccessors = new ArrayList<>();
+        for (String property : spec.getGroupBy()) {
+            keyAccessors.add(resolver.value(property));
+        }
+
+        List<AggregationSpec.Aggregate> aggregates = spec.getAggregates();
+        Compiled<T> compiled = new Compiled<>(aggregates.size());
+        for (int i = 0; i < aggregates.size(); i++) {
+            AggregationSpec.Aggregate aggregate = aggregates.get(i);
+            compiled.methods[i] = aggregate.getMethod();
+            if (aggregate.getMethod() == AggregationSpec.Method.COUNTDISTINCT) {
+                compiled.values.set(i, resolver.value(aggregate.getProperty()));
+            } else if (aggregate.getMethod() != AggregationSpec.Method.COUNT) {
+                compiled.numerics.set(i, resolver.numeric(aggregate.getProperty()));
+                compiled.integral[i] = resolver.isIntegral(aggregate.getProperty());
+            }
+        }
+
+        Stream<T> stream = rows.size() >= PARALLEL_THRESHOLD ? rows.parallelStream() : rows.stream();
+        Map<List<Object>, Accumulator<T>> groups = stream.collect(Collector.of(
+                HashMap::new,
+                (map, row) -> map.computeIfAbsent(key(row, keyAccessors), k -> new Accumulator<>(compiled))
+                        .add(row),
+                (left, right) -> {
+                    right.forEach((key, accumulator) -> left.merge(key, accumulator, Accumulator::merge));
+                    return left;
+                }));
+
+        if (groups.isEmpty() && keyAccessors.isEmpty()) {
+            // aggregate() over no rows still yields one row
+            groups.put(List.of(), new Accumulator<>(compiled));
+        }
+
+        List<List<Object>> keys = new ArrayList<>(groups.keySet());
+        keys.sort(AggregationEngine::compareKeys);
+
+        List<Map<String, Object>> result = new ArrayList<>(keys.size());
+        for (List<Object> key : keys) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < key.size(); i++) {
+                row.put(spec.getGroupBy().get(i), key.get(i));
+            }
+            Accumulator<T> accumulator = groups.get(key);
+            for (int i = 0; i < aggregates.size(); i++) {
+                row.put(aggregates.get(i).getAlias(), accumulator.result(i));
+            }
+            result.add(row);
+        }
+        return result;
+    }
+
+    private static <T> List<Object> key(T row, List<Function<T, Object>> keyAccessors) {
+        if (keyAccessors.isEmpty()) {
+            return List.of();
+        }
+        Object[] values = new Object[keyAccessors.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = keyAccessors.get(i).apply(row);
+        }
+        return Arrays.asList(values);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compareKeys(List<Object> left, List<Object> right) {
+        Comparator<Object> comparator = Comparator.nullsFirst((a, b) -> ((Comparable) a).compareTo(b));
+        for (int i = 0; i < left.size(); i++) {
+            int cmp = comparator.compare(left.get(i), right.get(i));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Accessors resolved once per query and shared by all accumulators
+     */
+    private static final class Compiled<T> {
+        final AggregationSpec.Method[] methods;
+        final List<ToDoubleFunction<T>> numerics;
+        final List<Function<T, Object>> values;
+        final boolean[] integral;
+
+        Compiled(int size) {
+            methods = new AggregationSpec.Method[size];
+            numerics = new ArrayList<>(Collections.nCopies(size, null));
+            values = new ArrayList<>(Collections.nCopies(size, null));
+            integral = new boolean[size];
+        }
+    }
+
+    private static final class Accumulator<T> {
+        private final Compiled<T> compiled;
+        private long count;
+        private final double[] sum;
+        private final double[] min;
+        private final double[] max;
+        private final List<Set<Object>> distinct;
+
+        Accumulator(Compiled<T> compiled) {
+            int size = compiled.methods.length;
+            this.compiled = compiled;
+            this.sum = new double[size];
+            this.min = new double[size];
+            this.max = new double[size];
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+            this.distinct = new ArrayList<>(size);
+            for (AggregationSpec.Method method : compiled.methods) {
+                distinct.add(method == AggregationSpec.Method.COUNTDISTINCT ? new HashSet<>() : null);
+            }
+        }
+
+        void add(T row) {
+            count++;
+            for (int i = 0; i < sum.length; i++) {
+                switch (compiled.methods[i]) {
+                    case SUM:
+                    case AVERAGE:
+                        sum[i] += compiled.numerics.get(i).applyAsDouble(row);
+                        break;
+                    case MIN:
+                        min[i] = Math.min(min[i], compiled.numerics.get(i).applyAsDouble(row));
+                        break;
+                    case MAX:
+                        max[i] = Math.max(max[i], compiled.numerics.get(i).applyAsDouble(row));
+                        break;
+                    case COUNTDISTINCT:
+                        distinct.get(i).add(compiled.values.get(i).apply(row));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        Accumulator<T> merge(Accumulator<T> other) {
+            count += other.count;
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] += other.sum[i];
+                min[i] = Math.min(min[i], other.min[i]);
+                max[i] = Math.max(max[i], other.max[i]);
+                if (distinct.get(i) != null) {
+                    distinct.get(i).addAll(other.distinct.get(i));
+                }
+            }
+            return this;
+        }
+
+        Object result(int i) {
+            switch (compiled.methods[i]) {
+                case SUM:
+                    return compiled.integral[i] ? (Object) (long) sum[i] : (Object) sum[i];
+                case AVERAGE:
+                    return count > 0 ? sum[i] / count : null;
+                case MIN:
+                    return count > 0 ? numeric(i, min[i]) : null;
+                case MAX:
+                    return count > 0 ? numeric(i, max[i]) : null;
+                case COUNTDISTINCT:
+                    return (long) distinct.get(i).size();
+                default:
+                    return count;
+            }
+        }
+
+        private Object numeric(int i, double value) {
+            return compiled.integral[i] ? (Object) (long) value : (Object) value;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.odata.infrastructure.cluster;
+
+import com.example.odata.domain.model.AggregationSpec;
+import com.example.odata.domain.model.Product;
+import com.example.odata.domain.model.ProductChange;
+import com.example.odata.domain.model.ProductCriteria;
+import com.example.odata.domain.repository.ProductRepository;
+import com.example.odata.domain.repository.Snapshot;
+import com.example.odata.domain.repository.SnapshotPin;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Infrastructure Layer - Cluster node decorator for the configured product store
+ * Keeps only the products whose IDs this node owns on the hash ring: the
+ * seed data of other nodes is dropped at startup, new products get the next
+ * ID this node owns (so nodes never hand out the same ID) and saving a
+ * product owned by another node is rejected. Reads go straight to the store.
+ */
+@Slf4j
+@Primary
+@Repository
+@ConditionalOnProperty(name = "odata.cluster.enabled", havingValue = "true")
+public class ClusterNodeProductRepository implements ProductRepository {
+
+    private final ProductRepository delegate;
+    private final ClusterTopology topology;
+    private int lastId;
+
+    // The only other ProductRepository bean is the store selected by odata.repository
+    public ClusterNodeProductRepository(List<ProductRepository> stores, ClusterTopology topology) {
+        if (stores.size() != 1) {
+            throw new IllegalStateException("Expected one product store to decorate, found " + stores.size());
+        }
+        this.delegate = stores.get(0);
+        this.topology = topology;
+    }
+
+    @PostConstruct
+    public void init() {
+        List<Integer> foreign = delegate.findAll().stream()
+                .map(Product::getId)
+                .filter(id -> !topology.isLocal(id))
+                .collect(Collectors.toList());
+        lastId = delegate.snapshot().maxId();
+        foreign.forEach(delegate::deleteById);
+        log.info("🌐 Dropped {} products owned by other nodes, {} products are local", foreign.size(),
+                delegate.findAll().size());
+    }
+
+    @Override
+    public List<Product> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Snapshot<Product> snapshot() {
+        return delegate.snapshot();
+    }
+
+    @Override
+    public long version() {
+        return delegate.version();
+    }
+
+    @Override
+    public Stream<Product> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public Optional<Product> findById(int id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public Stream<Product> query(ProductCriteria criteria) {
+        return delegate.query(criteria);
+    }
+
+    @Override
+    public long count(ProductCriteria criteria) {
+        return delegate.count(criteria);
+    }
+
+    @Override
+    public List<Product> findAllById(Collection<Integer> ids) {
+        return delegate.findAllById(ids);
+    }
+
+    @Override
+    public List<Product> findByBrandId(int brandId) {
+        return delegate.findByBrandId(brandId);
+    }
+
+    @Override
+    public synchronized Product save(Product product) {
+        if (product.getId() == 0) {
+            int id = lastId + 1;
+            while (!topology.isLocal(id)) {
+                id++;
+            }
+            product.setId(id);
+        } else if (!topology.isLocal(product.getId())) {
+            throw new IllegalArgumentException("Product " + product.getId() + " is owned by cluster node "
+                    + topology.ownerOf(product.getId()));
+        }
+        lastId = Math.max(lastId, product.getId());
+        return delegate.save(product);
+    }
+
+    @Override
+    public boolean deleteById(int id) {
+        return delegate.deleteById(id);
+    }
+
+    @Override
+    public Optional<List<ProductChange>> changesSince(long sequence) {
+        return delegate.changesSince(sequence);
+    }
+
+    @Override
+    public List<Map<String, Object>> aggregate(AggregationSpec spec) {
+        return delegate.aggregate(spec);
+    }
+
+    @Override
+    public SnapshotPin pin() {
+        return delegate.pin();
+    }
+
+    @Override
+    public <A, R> Function<A, R> withCallerPin(Function<A, R> task) {
+        return delegate.withCallerPin(task);
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.odata.infrastructure.cluster;
+
+import com.example.odata.domain.model.ProductCriteria;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+/**
+ * Infrastructure - Scatter-gather of /odata/Products queries over the cluster
+ * Sends the query to every node's /odata/Products in parallel and merges the
+ * answers. Each node returns only its own first $skip + $top rows in the
+ * requested order (top-N pushdown, $skip is applied once after the merge);
+ * ID is appended to $orderby so every node's rows are totally ordered and
+ * the merged page does not depend on which node answered first. Properties
+ * needed for the merge but not in $select are stripped again, and
+ * @odata.count is the sum of the nodes' counts.
+ *
+ * A failing node fails the whole query: a partial answer would silently
+ * miss rows.
+ *
+ * The merge orders rows as ProductCriteria does: nulls first ascending and
+ * last descending, strings by String.compareTo. Every node's store must sort
+ * the same way, else the runs are not sorted for the merge and pages can
+ * skip or repeat rows. The in-memory and sharded stores share that
+ * comparator; the jdbc store sorts in SQL (NULLS FIRST/LAST, column
+ * collation), which agrees only with a binary collation such as H2's
+ * default. Do not mix stores with different collations in one cluster.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "odata.cluster.enabled", havingValue = "true")
+public class ClusterQueryCoordinator {
+
+    private static final TypeReference<Map<String, Object>> RESPONSE_TYPE = new TypeReference<>() {
+    };
+    private static final Set<String> PRODUCT_PROPERTIES = Set.of("ID", "Name", "Description", "Price", "BrandID");
+
+    private final ClusterTopology topology;
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+    private final HttpClient client;
+
+    public ClusterQueryCoordinator(ClusterTopology topology, ObjectMapper objectMapper,
+            @Value("${odata.cluster.timeout-ms:5000}") long timeoutMillis) {
+        this.topology = topology;
+        this.objectMapper = objectMapper;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    /**
+     * @param clientId forwarded as X-Client-Id, so node admission control
+     *                 sees the original client; may be null
+     */
+    public Map<String, Object> query(String expand, String select, String filter, String orderBy, Integer top,
+            Integer skip, boolean count, String clientId) {
+        if ((top != null && top < 0) || (skip != null && skip < 0)) {
+            throw new IllegalArgumentException("$top and $skip must not be negative");
+        }
+        List<ProductCriteria.Order> orders = ProductCriteria.parseOrderBy(orderBy);
+        // Rejected before any node is asked, as /odata does
+        for (ProductCriteria.Order order : orders) {
+            if (!PRODUCT_PROPERTIES.contains(order.getProperty())) {
+                throw new IllegalArgumentException("Unknown property: " + order.getProperty());
+            }
+        }
+        if (orders.stream().noneMatch(order -> order.getProperty().equals("ID"))) {
+            orders.add(new ProductCriteria.Order("ID", false));
+        }
+        List<String> selected = select == null || select.isEmpty()
+                ? Collections.emptyList()
+                : Arrays.asList(select.split(","));
+        // Merge keys the client did not select are fetched, then removed
+        Set<String> stripped = new LinkedHashSet<>();
+        List<String> nodeSelect = new ArrayList<>(selected);
+        if (!selected.isEmpty()) {
+            for (ProductCriteria.Order order : orders) {
+                if (!nodeSelect.contains(order.getProperty())) {
+                    nodeSelect.add(order.getProperty());
+                    stripped.add(order.getProperty());
+                }
+            }
+        }
+        int offset = skip != null ? skip : 0;
+
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("$expand", expand);
+        options.put("$select", nodeSelect.isEmpty() ? null : String.join(",", nodeSelect));
+        options.put("$filter", filter);
+        options.put("$orderby", orders.stream()
+                .map(order -> order.getProperty() + (order.isDescending() ? " desc" : ""))
+                .collect(Collectors.joining(",")));
+        options.put("$top", top != null ? String.valueOf((long) offset + top) : null);
+        options.put("$count", count ? "true" : null);
+        String queryString = toQueryString(options);
+
+        long start = System.nanoTime();
+        List<Map<String, Object>> responses = scatter(queryString, clientId);
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        long total = 0;
+        for (Map<String, Object> response : responses) {
+            rows.addAll(values(response));
+            if (count) {
+                total += ((Number) response.getOrDefault("@odata.count", 0)).longValue();
+            }
+        }
+        // Concatenated sorted runs: the sort merges them in linear time
+        rows.sort(new ProductCriteria(Collections.emptyList(), orders, null, null, Collections.emptyList())
+                .comparator(Map::get));
+        int from = Math.min(offset, rows.size());
+        int to = top != null ? (int) Math.min((long) from + top, rows.size()) : rows.size();
+        List<Map<String, Object>> page = new ArrayList<>(rows.subList(from, to));
+        if (!stripped.isEmpty()) {
+            page.forEach(row -> row.keySet().removeAll(stripped));
+        }
+        log.info("🌐 Scatter-gather over {} nodes: {} rows gathered, {} returned in {} ms", responses.size(),
+                rows.size(), page.size(), (System.nanoTime() - start) / 1_000_000);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("@odata.context", "/odata/$metadata#Products");
+        if (count) {
+            result.put("@odata.count", total);
+        }
+        result.put("value", page);
+        return result;
+    }
+
+    private List<Map<String, Object>> scatter(String queryString, String clientId) {
+        List<CompletableFuture<Map<String, Object>>> calls = new ArrayList<>();
+        for (String node : topology.getNodes()) {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(node + "/odata/Products" + queryString))
+                    .timeout(timeout)
+                    .header("Accept", "application/json;odata.metadata=none")
+                    .GET();
+            if (clientId != null) {
+                request.header("X-Client-Id", clientId);
+            }
+            calls.add(client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+                    .thenApply(response -> parse(node, response)));
+        }
+        List<Map<String, Object>> responses = new ArrayList<>(calls.size());
+        for (CompletableFuture<Map<String, Object>> call : calls) {
+            try {
+                responses.add(call.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException("Cluster node unreachable: " + e.getCause(), e.getCause());
+            }
+        }
+        return responses;
+    }
+
+    private Map<String, Object> parse(String node, HttpResponse<byte[]> response) {
+        Map<String, Object> body;
+        try {
+            body = objectMapper.readValue(response.body(), RESPONSE_TYPE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unreadable response from cluster node " + node, e);
+        }
+        if (response.statusCode() == 400) {
+            // The query itself is invalid; every node would say the same
+            throw new IllegalArgumentException(String.valueOf(errorMessage(body)));
+        }
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException("Cluster node " + node + " answered " + response.statusCode() + ": "
+                    + errorMessage(body));
+        }
+        return body;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> values(Map<String, Object> response) {
+        Object value = response.get("value");
+        return value instanceof List ? (List<Map<String, Object>>) value : Collections.emptyList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object errorMessage(Map<String, Object> body) {
+        Object error = body.get("error");
+        return error instanceof Map ? ((Map<String, Object>) error).get("message") : body;
+    }
+
+    private static String toQueryString(Map<String, String> options) {
+        StringJoiner query = new StringJoiner("&", "?", "").setEmptyValue("");
+        options.forEach((name, value) -> {
+            if (value != null) {
+                query.add(name + "=" + URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20"));
+            }
+        });
+        return query.toString();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.odata.infrastructure.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Infrastructure - Cluster membership of this instance
+ * odata.cluster.nodes lists the base URLs of all instances, the same list on
+ * every instance; odata.cluster.self is this instance's entry. Products are
+ * owned by node according to a consistent-hash ring over their IDs.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "odata.cluster.enabled", havingValue = "true")
+public class ClusterTopology {
+
+    private final List<String> nodes;
+    private final String self;
+    private final ConsistentHashRing ring;
+
+    public ClusterTopology(@Value("${odata.cluster.nodes}") List<String> nodes,
+            @Value("${odata.cluster.self:http://localhost:${server.port:8080}}") String self,
+            @Value("${odata.cluster.virtual-nodes:128}") int virtualNodes) {
+        this.nodes = nodes.stream().map(ClusterTopology::normalize).distinct().collect(Collectors.toList());
+        this.self = normalize(self);
+        if (!this.nodes.contains(this.self)) {
+            throw new IllegalArgumentException(
+                    "odata.cluster.self (" + this.self + ") is not one of odata.cluster.nodes " + this.nodes);
+        }
+        this.ring = new ConsistentHashRing(this.nodes, virtualNodes);
+        log.info("🌐 Cluster node {} of {} nodes, {} virtual nodes each", this.self, this.nodes, virtualNodes);
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    public String getSelf() {
+        return self;
+    }
+
+    public String ownerOf(int productId) {
+        return ring.ownerOf(productId);
+    }
+
+    public boolean isLocal(int productId) {
+        return self.equals(ring.ownerOf(productId));
+    }
+
+    private static String normalize(String url) {
+        String trimmed = url.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.odata.infrastructure.encoding;
+
+import com.example.odata.domain.model.StringDictionary;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Infrastructure - Writes dictionary entries as JSON/Smile strings
+ * Byte-oriented generators copy the entry's UTF-8 bytes; others (writers,
+ * token buffers) get the string
+ */
+public class DictionaryEntrySerializer extends StdSerializer<StringDictionary.Entry> {
+
+    private static final long serialVersionUID = 1L;
+
+    public DictionaryEntrySerializer() {
+        super(StringDictionary.Entry.class);
+    }
+
+    @Override
+    public void serialize(StringDictionary.Entry entry, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+        write(generator, entry);
+    }
+
+    public static void write(JsonGenerator generator, StringDictionary.Entry entry) throws IOException {
+        if (entry == null) {
+            generator.writeNull();
+        } else if (generator.getOutputTarget() instanceof OutputStream) {
+            generator.writeUTF8String(entry.getUtf8(), 0, entry.getUtf8().length);
+        } else {
+            generator.writeString(entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.odata.infrastructure.encoding;
+
+import com.example.odata.domain.event.BrandSavedEvent;
+import com.example.odata.domain.model.Brand;
+import com.example.odata.domain.model.StringDictionary;
+import com.example.odata.domain.repository.BrandDictionary;
+import com.example.odata.domain.repository.BrandRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Infrastructure Layer - Dictionary encoding of brand Name and Country
+ * Every brand is stored as its two codes; built at startup and kept current
+ * on every brand save
+ */
+@Slf4j
+@Repository
+public class InMemoryBrandDictionary implements BrandDictionary {
+
+    private static final int NAME = 0;
+    private static final int COUNTRY = 1;
+
+    private final BrandRepository brandRepository;
+    private final StringDictionary names;
+    private final StringDictionary countries;
+
+    // Brand ID -> {name code, country code}
+    private final Map<Integer, int[]> codesByBrand = new ConcurrentHashMap<>();
+
+    public InMemoryBrandDictionary(BrandRepository brandRepository,
+            @Value("${odata.dictionary.max-entries:4096}") int maxEntries) {
+        this.brandRepository = brandRepository;
+        this.names = new StringDictionary(maxEntries);
+        this.countries = new StringDictionary(maxEntries);
+    }
+
+    @PostConstruct
+    public void init() {
+        brandRepository.findAll().forEach(this::put);
+        log.info("📖 Encoded {} brand names and {} countries", names.size(), countries.size());
+    }
+
+    @Override
+    public StringDictionary.Entry name(String name) {
+        return names.encode(name);
+    }
+
+    @Override
+    public StringDictionary.Entry country(String country) {
+        return countries.encode(country);
+    }
+
+    @Override
+    public Set<Integer> brandIdsWhere(String property, String value) {
+        StringDictionary dictionary;
+        int column;
+        switch (property) {
+            case "Name":
+                dictionary = names;
+                column = NAME;
+                break;
+            case "Country":
+                dictionary = countries;
+                column = COUNTRY;
+                break;
+            default:
+                return null;
+        }
+
+        int code = dictionary.code(value);
+        if (code == StringDictionary.NO_CODE) {
+            // Unknown value, unless the dictionary overflowed before it came
+            return dictionary.isFull() ? null : Set.of();
+        }
+        Set<Integer> brandIds = new HashSet<>();
+        codesByBrand.forEach((brandId, codes) -> {
+            if (codes[column] == code) {
+                brandIds.add(brandId);
+            }
+        });
+        return brandIds;
+    }
+
+    @EventListener
+    public void onBrandSaved(BrandSavedEvent event) {
+        put(event.getBrand());
+    }
+
+    private void put(Brand brand) {
+        codesByBrand.put(brand.getId(), new int[] { code(names.encode(brand.getName())),
+                code(countries.encode(brand.getCountry())) });
+    }
+
+    private static int code(StringDictionary.Entry entry) {
+        return entry != null ? entry.getCode() : StringDictionary.NO_CODE;
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.odata.infrastructure.encoding;
+
+import com.example.odata.domain.event.ProductDeletedEvent;
+import com.example.odata.domain.event.ProductSavedEvent;
+import com.example.odata.domain.model.Product;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Infrastructure - Cache of pre-encoded JSON product entities
+ * Holds each product's serialized entity as UTF-8 bytes, one variant per
+ * $select shape, so JSON /odata/Products responses are assembled by copying
+ * byte arrays instead of serializing every product again.
+ *
+ * A fragment remembers the product state it was rendered from and is only
+ * used for an equal product, so a read racing a save never gets the old
+ * bytes; saves and deletes also drop the product's fragments right away.
+ * When the estimated size exceeds odata.fragment-cache.max-bytes, fragments
+ * are evicted until it is back under three quarters of the budget.
+ *
+ * Metrics: odata.fragment-cache.requests{outcome=hit|miss},
+ * odata.fragment-cache.evictions and odata.fragment-cache.bytes
+ */
+@Slf4j
+@Component
+public class ProductFragmentCache {
+
+    private static final List<String> PROPERTIES = List.of("ID", "Name", "Description", "Price", "BrandID");
+    private static final int SHAPE_BITS = PROPERTIES.size();
+    private static final int ALL_PROPERTIES = (1 << SHAPE_BITS) - 1;
+    // Estimated heap beside the bytes: map node, key, fragment, array header
+    // and the copy of the source product (about as large as its JSON)
+    private static final int ENTRY_OVERHEAD = 160;
+    private static final byte[] COUNT_START = "\"@odata.count\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] VALUE_START = "\"value\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NAME_SEPARATOR = "\":\"".getBytes(StandardCharsets.UTF_8);
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final JsonFactory jsonFactory;
+    private final Map<Long, Fragment> fragments = new ConcurrentHashMap<>();
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public ProductFragmentCache(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+            @Value("${odata.fragment-cache.enabled:true}") boolean enabled,
+            @Value("${odata.fragment-cache.max-bytes:16777216}") long maxBytes) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.jsonFactory = objectMapper.getFactory();
+
+        Gauge.builder("odata.fragment-cache.bytes", usedBytes, AtomicLong::get)
+                .description("Estimated heap held by cached product fragments")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.hits = requestCounter(meterRegistry, "hit");
+        this.misses = requestCounter(meterRegistry, "miss");
+        this.evictions = Counter.builder("odata.fragment-cache.evictions")
+                .description("Fragments evicted to stay within the memory budget")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the $select shape: one bit per selected product property, all
+     *         bits when nothing is selected
+     */
+    public static int shape(List<String> select) {
+        if (select == null || select.isEmpty()) {
+            return ALL_PROPERTIES;
+        }
+        int shape = 0;
+        for (int i = 0; i < PROPERTIES.size(); i++) {
+            if (select.contains(PROPERTIES.get(i))) {
+                shape |= 1 << i;
+            }
+        }
+        return shape;
+    }
+
+    /**
+     * Writes a JSON collection response from the products' fragments
+     *
+     * @param context   @odata.context, or null to leave it out
+     * @param count     @odata.count, or null to leave it out
+     * @param deltaLink @odata.deltaLink, or null to leave it out
+     */
+    public byte[] writeResponse(List<Product> products, int shape, String context, Long count, String deltaLink) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128 + products.size() * 96);
+        out.write('{');
+        if (context != null) {
+            writeField(out, "@odata.context", context);
+            out.write(',');
+        }
+        if (count != null) {
+            out.writeBytes(COUNT_START);
+            out.writeBytes(count.toString().getBytes(StandardCharsets.US_ASCII));
+            out.write(',');
+        }
+        out.writeBytes(VALUE_START);
+        for (int i = 0; i < products.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.writeBytes(fragment(products.get(i), shape));
+        }
+        out.write(']');
+        if (deltaLink != null) {
+            out.write(',');
+            writeField(out, "@odata.deltaLink", deltaLink);
+        }
+        out.write('}');
+        return out.toByteArray();
+    }
+
+    @EventListener
+    public void onProductSaved(ProductSavedEvent event) {
+        invalidate(event.getProduct().getId());
+    }
+
+    @EventListener
+    public void onProductDeleted(ProductDeletedEvent event) {
+        invalidate(event.getProductId());
+    }
+
+    private byte[] fragment(Product product, int shape) {
+        long key = ((long) product.getId() << SHAPE_BITS) | shape;
+        Fragment cached = fragments.get(key);
+        if (cached != null && cached.source.equals(product)) {
+            hits.increment();
+            return cached.bytes;
+        }
+        misses.increment();
+
+        // Copied: the cache must not see later changes to the caller's object
+        Product source = new Product(product.getId(), product.getName(), product.getDescription(),
+                product.getPrice(), product.getBrandId());
+        Fragment fragment = new Fragment(source, render(source, shape));
+        Fragment previous = fragments.put(key, fragment);
+        usedBytes.addAndGet(fragment.size() - (previous != null ? previous.size() : 0));
+        if (usedBytes.get() > maxBytes) {
+            evict();
+        }
+        return fragment.bytes;
+    }
+
+    private byte[] render(Product product, int shape) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            generator.writeStartObject();
+            if ((shape & 1) != 0) {
+                generator.writeNumberField("ID", product.getId());
+            }
+            if ((shape & 1 << 1) != 0) {
+                generator.writeStringField("Name", product.getName());
+            }
+            if ((shape & 1 << 2) != 0) {
+                generator.writeStringField("Description", product.getDescription());
+            }
+            if ((shape & 1 << 3) != 0) {
+                generator.writeNumberField("Price", product.getPrice());
+            }
+            if ((shape & 1 << 4) != 0) {
+                generator.writeNumberField("BrandID", product.getBrandId());
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private void invalidate(int productId) {
+        for (int shape = 0; shape <= ALL_PROPERTIES; shape++) {
+            Fragment removed = fragments.remove(((long) productId << SHAPE_BITS) | shape);
+            if (removed != null) {
+                usedBytes.addAndGet(-removed.size());
+            }
+        }
+    }
+
+    private synchronized void evict() {
+        long target = maxBytes / 4 * 3;
+        int evicted = 0;
+        for (Map.Entry<Long, Fragment> entry : fragments.entrySet()) {
+            if (usedBytes.get() <= target) {
+                break;
+            }
+            if (fragments.remove(entry.getKey(), entry.getValue())) {
+                usedBytes.addAndGet(-entry.getValue().size());
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            evictions.increment(evicted);
+            log.debug("🧹 Evicted {} product fragments, {} bytes cached", evicted, usedBytes.get());
+        }
+    }
+
+    private static void writeField(ByteArrayOutputStream out, String name, String value) {
+        JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        out.write('"');
+        out.writeBytes(encoder.quoteAsUTF8(name));
+        out.writeBytes(NAME_SEPARATOR);
+        out.writeBytes(encoder.quoteAsUTF8(value));
+        out.write('"');
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("odata.fragment-cache.requests")
+                .description("Product fragments served from the cache or rendered")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static final class Fragment {
+        final Product source;
+        final byte[] bytes;
+
+        Fragment(Product source, byte[] bytes) {
+            this.source = source;
+            this.bytes = bytes;
+        }
+
+        long size() {
+            return ENTRY_OVERHEAD + 2L * bytes.length;
+        }
+    }
+}
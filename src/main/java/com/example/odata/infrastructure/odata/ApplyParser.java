@@ -0,0 +1,79 @@
+package com.example.odata.infrastructure.odata;
+
+import com.example.odata.domain.model.AggregationSpec;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Infrastructure - OData $apply parsing
+ * Supports groupby((P1,P2)), groupby((P1,...),aggregate(...)) and
+ * aggregate(...) with sum, min, max, average, countdistinct and $count
+ */
+@Component
+public class ApplyParser {
+
+    private static final Pattern GROUP_BY = Pattern.compile("^groupby\\(\\((.+?)\\)\\s*(?:,\\s*aggregate\\((.+)\\)\\s*)?\\)$");
+    private static final Pattern AGGREGATE = Pattern.compile("^aggregate\\((.+)\\)$");
+    private static final Pattern EXPRESSION = Pattern.compile("^(\\w+)\\s+with\\s+(\\w+)\\s+as\\s+(\\w+)$");
+    private static final Pattern COUNT = Pattern.compile("^\\$count\\s+as\\s+(\\w+)$");
+
+    /**
+     * @throws IllegalArgumentException if the transformation is not supported
+     */
+    public AggregationSpec parse(String apply) {
+        String text = apply.trim();
+
+        Matcher groupBy = GROUP_BY.matcher(text);
+        if (groupBy.matches()) {
+            List<String> properties = new ArrayList<>();
+            for (String property : groupBy.group(1).split(",")) {
+                properties.add(property.trim());
+            }
+            List<AggregationSpec.Aggregate> aggregates = groupBy.group(2) != null
+                    ? parseAggregates(groupBy.group(2))
+                    : new ArrayList<>();
+            return new AggregationSpec(properties, aggregates);
+        }
+
+        Matcher aggregate = AGGREGATE.matcher(text);
+        if (aggregate.matches()) {
+            return new AggregationSpec(new ArrayList<>(), parseAggregates(aggregate.group(1)));
+        }
+
+        throw new IllegalArgumentException("Unsupported $apply transformation: " + apply);
+    }
+
+    private List<AggregationSpec.Aggregate> parseAggregates(String text) {
+        List<AggregationSpec.Aggregate> aggregates = new ArrayList<>();
+        for (String item : text.split(",")) {
+            String expression = item.trim();
+
+            Matcher count = COUNT.matcher(expression);
+            if (count.matches()) {
+                aggregates.add(new AggregationSpec.Aggregate(null, AggregationSpec.Method.COUNT, count.group(1)));
+                continue;
+            }
+
+            Matcher matcher = EXPRESSION.matcher(expression);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Invalid aggregate expression: " + expression);
+            }
+            AggregationSpec.Method method;
+            try {
+                method = AggregationSpec.Method.valueOf(matcher.group(2).toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported aggregation method: " + matcher.group(2));
+            }
+            if (method == AggregationSpec.Method.COUNT) {
+                throw new IllegalArgumentException("Use $count as Alias to count rows");
+            }
+            aggregates.add(new AggregationSpec.Aggregate(matcher.group(1), method, matcher.group(3)));
+        }
+        return aggregates;
+    }
+}
@@ -1,25 +1,85 @@
 package com.example.odata.infrastructure.odata;
 
+import com.example.odata.domain.model.Brand;
 import com.example.odata.domain.model.Product;
+import com.example.odata.domain.model.ProductCriteria;
+import com.example.odata.domain.repository.BrandDictionary;
+import com.example.odata.domain.repository.ProductSearchIndex;
+import com.example.odata.service.DemoEdmProvider;
+import com.example.odata.service.ProductFilterExpressionVisitor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
+import org.apache.olingo.commons.api.edm.EdmType;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ODataLibraryException;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceNavigation;
+import org.apache.olingo.server.api.uri.UriResourcePrimitiveProperty;
+import org.apache.olingo.server.api.uri.queryoption.expression.Binary;
+import org.apache.olingo.server.api.uri.queryoption.expression.BinaryOperatorKind;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitException;
+import org.apache.olingo.server.api.uri.queryoption.expression.Literal;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+import org.apache.olingo.server.api.uri.queryoption.expression.Method;
+import org.apache.olingo.server.api.uri.queryoption.expression.MethodKind;
+import org.apache.olingo.server.core.uri.parser.Parser;
 import org.springframework.stereotype.Component;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
  * Infrastructure - OData Filter Logic
- * Translates OData filter syntax to Java predicates
+ * Parses $filter expressions against the service's entity model and splits
+ * off the part the repository can evaluate itself; the simple string
+ * evaluator remains for rows that are not products (e.g. aggregated groups)
  */
 @Slf4j
 @Component
 public class ODataFilterProcessor {
 
+    private final ProductSearchIndex productSearchIndex;
+    private final BrandDictionary brandDictionary;
+    private final OData odata = OData.newInstance();
+    // Same entity model as /OData.svc; Olingo's Edm caches are synchronized
+    private final Edm edm = odata.createServiceMetadata(new DemoEdmProvider(), Collections.emptyList()).getEdm();
+
+    private static final Set<String> NUMERIC_PROPERTIES = Set.of("ID", "Price", "BrandID");
+    // May be null, and OData's "null ne 'x'" is true where the repositories' NE is false
+    private static final Set<String> TEXT_PROPERTIES = Set.of("Name", "Description");
+
+    /**
+     * Conditions the repository evaluates for a $filter; exact if they are
+     * the whole filter, else the filter still has to be checked in memory
+     * (the conditions then only narrow the rows it is checked against)
+     */
+    @lombok.Value
+    public static class Pushdown {
+        List<ProductCriteria.Condition> conditions;
+        boolean exact;
+    }
+
+    public ODataFilterProcessor(ProductSearchIndex productSearchIndex, BrandDictionary brandDictionary) {
+        this.productSearchIndex = productSearchIndex;
+        this.brandDictionary = brandDictionary;
+    }
+
     /**
      * Applies basic OData filters to a product list
-     * Supports: eq, ne, gt, lt, ge, le, contains
+     * Supports: eq, ne, gt, lt, ge, le, contains, startswith
      */
     public List<Map<String, Object>> applyFilter(List<Map<String, Object>> entities, String filter) {
         if (filter == null || filter.isEmpty()) {
@@ -33,6 +93,285 @@ public class ODataFilterProcessor {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Parses a $filter on Products with Olingo against the service's entity
+     * model, so /odata accepts the same filters as /OData.svc
+     *
+     * @return the expression, or null for an empty filter
+     * @throws IllegalArgumentException if the filter is malformed or refers
+     *                                  to unknown properties
+     */
+    public Expression parse(String filter) {
+        if (filter == null || filter.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            UriInfo uriInfo = new Parser(edm, odata).parseUri("/" + DemoEdmProvider.ES_PRODUCTS_NAME,
+                    "$filter=" + URLEncoder.encode(filter, StandardCharsets.UTF_8).replace("+", "%20"), null, null);
+            return uriInfo.getFilterOption().getExpression();
+        } catch (ODataLibraryException e) {
+            throw new IllegalArgumentException("Invalid $filter: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Narrows a filter with a contains/startswith conjunct on a product text
+     * property to the candidates found by the search index, so only those
+     * products are read and evaluated exactly
+     *
+     * @return candidate product ids, or null if the filter cannot be narrowed
+     */
+    public Set<Integer> candidateIds(Expression expression) {
+        for (Expression conjunct : conjuncts(expression)) {
+            ProductCriteria.Condition condition = condition(conjunct);
+            if (condition != null && (condition.getOperator() == ProductCriteria.Operator.CONTAINS
+                    || condition.getOperator() == ProductCriteria.Operator.STARTSWITH)) {
+                Set<Integer> candidates = productSearchIndex.candidates(condition.getProperty(),
+                        (String) condition.getValue());
+                if (candidates != null) {
+                    return candidates;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compiles a parsed filter into the predicate /OData.svc evaluates, so
+     * both endpoints agree on every filter the repository cannot evaluate
+     *
+     * @param brandResolver resolves a BrandID for Brand/... members; it is
+     *                      called from the scanning threads
+     * @throws IllegalArgumentException if the filter is not a valid Boolean
+     *                                  expression
+     */
+    public Predicate<Product> compile(Expression expression, IntFunction<Brand> brandResolver) {
+        try {
+            return ProductFilterExpressionVisitor.compile(expression, brandResolver);
+        } catch (ExpressionVisitException | ODataApplicationException e) {
+            throw new IllegalArgumentException("Invalid $filter: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compiles a parsed filter once, so an invalid filter is rejected before a
+     * response starts, and returns it unbound: each read binds it to its own
+     * source of Brand/... values (the brand service, or the brand fields
+     * already joined into product-brand view rows)
+     *
+     * @throws IllegalArgumentException if the filter is not a valid Boolean
+     *                                  expression
+     */
+    public Function<IntFunction<Brand>, Predicate<Product>> compiler(Expression expression) {
+        compile(expression, brandId -> null);
+        return brandResolver -> compile(expression, brandResolver);
+    }
+
+    /**
+     * Translates the top-level AND of a filter into conditions the repository
+     * can evaluate itself: comparisons of a product property with a literal
+     * and contains/startswith on a text property. Brand/Name and Brand/Country
+     * equality becomes BrandID in (the brands whose dictionary code matches).
+     * Any other conjunct (other Brand/... paths, functions, or, not, ...) makes
+     * the pushdown inexact.
+     */
+    public Pushdown pushdown(Expression expression) {
+        List<ProductCriteria.Condition> conditions = new ArrayList<>();
+        boolean exact = true;
+        for (Expression conjunct : conjuncts(expression)) {
+            ProductCriteria.Condition condition = condition(conjunct);
+            if (condition != null) {
+                conditions.add(condition);
+            } else {
+                exact = false;
+            }
+        }
+        return new Pushdown(conditions, exact);
+    }
+
+    private static List<Expression> conjuncts(Expression expression) {
+        List<Expression> conjuncts = new ArrayList<>();
+        if (expression != null) {
+            addConjuncts(expression, conjuncts);
+        }
+        return conjuncts;
+    }
+
+    private static void addConjuncts(Expression expression, List<Expression> conjuncts) {
+        if (expression instanceof Binary && ((Binary) expression).getOperator() == BinaryOperatorKind.AND) {
+            addConjuncts(((Binary) expression).getLeftOperand(), conjuncts);
+            addConjuncts(((Binary) expression).getRightOperand(), conjuncts);
+        } else {
+            conjuncts.add(expression);
+        }
+    }
+
+    /**
+     * @return the condition equivalent to the expression, or null
+     */
+    private ProductCriteria.Condition condition(Expression expression) {
+        if (expression instanceof Method) {
+            Method method = (Method) expression;
+            ProductCriteria.Operator operator = method.getMethod() == MethodKind.CONTAINS
+                    ? ProductCriteria.Operator.CONTAINS
+                    : method.getMethod() == MethodKind.STARTSWITH ? ProductCriteria.Operator.STARTSWITH : null;
+            if (operator == null || method.getParameters().size() != 2) {
+                return null;
+            }
+            String property = productProperty(method.getParameters().get(0));
+            Object value = literalValue(method.getParameters().get(1));
+            return property != null && TEXT_PROPERTIES.contains(property) && value instanceof String
+                    ? new ProductCriteria.Condition(property, operator, value)
+                    : null;
+        }
+        if (!(expression instanceof Binary)) {
+            return null;
+        }
+
+        Binary binary = (Binary) expression;
+        ProductCriteria.Operator operator = comparison(binary.getOperator());
+        if (operator == null) {
+            return null;
+        }
+        Expression member = binary.getLeftOperand();
+        Object value = literalValue(binary.getRightOperand());
+        if (value == null) {
+            // Literal first, e.g. "100 gt Price"
+            member = binary.getRightOperand();
+            value = literalValue(binary.getLeftOperand());
+            operator = mirrored(operator);
+        }
+        if (value == null) {
+            return null;
+        }
+
+        String brandProperty = brandProperty(member);
+        if (brandProperty != null) {
+            Set<Integer> brandIds = operator == ProductCriteria.Operator.EQ && value instanceof String
+                    ? brandDictionary.brandIdsWhere(brandProperty, (String) value)
+                    : null;
+            return brandIds != null
+                    ? new ProductCriteria.Condition("BrandID", ProductCriteria.Operator.IN, Set.copyOf(brandIds))
+                    : null;
+        }
+
+        String property = productProperty(member);
+        if (property == null) {
+            return null;
+        }
+        if (NUMERIC_PROPERTIES.contains(property) && value instanceof Double) {
+            return new ProductCriteria.Condition(property, operator, value);
+        }
+        if (TEXT_PROPERTIES.contains(property) && value instanceof String
+                && operator != ProductCriteria.Operator.NE) {
+            return new ProductCriteria.Condition(property, operator, value);
+        }
+        return null;
+    }
+
+    private static ProductCriteria.Operator comparison(BinaryOperatorKind operator) {
+        switch (operator) {
+            case EQ:
+                return ProductCriteria.Operator.EQ;
+            case NE:
+                return ProductCriteria.Operator.NE;
+            case GT:
+                return ProductCriteria.Operator.GT;
+            case GE:
+                return ProductCriteria.Operator.GE;
+            case LT:
+                return ProductCriteria.Operator.LT;
+            case LE:
+                return ProductCriteria.Operator.LE;
+            default:
+                return null;
+        }
+    }
+
+    private static ProductCriteria.Operator mirrored(ProductCriteria.Operator operator) {
+        switch (operator) {
+            case GT:
+                return ProductCriteria.Operator.LT;
+            case GE:
+                return ProductCriteria.Operator.LE;
+            case LT:
+                return ProductCriteria.Operator.GT;
+            case LE:
+                return ProductCriteria.Operator.GE;
+            default:
+                return operator;
+        }
+    }
+
+    /**
+     * @return the name of a product property member, else null
+     */
+    private static String productProperty(Expression expression) {
+        if (!(expression instanceof Member)) {
+            return null;
+        }
+        List<UriResource> parts = ((Member) expression).getResourcePath().getUriResourceParts();
+        return parts.size() == 1 && parts.get(0) instanceof UriResourcePrimitiveProperty
+                ? ((UriResourcePrimitiveProperty) parts.get(0)).getProperty().getName()
+                : null;
+    }
+
+    /**
+     * @return the property name of a Brand/... member, else null
+     */
+    private static String brandProperty(Expression expression) {
+        if (!(expression instanceof Member)) {
+            return null;
+        }
+        List<UriResource> parts = ((Member) expression).getResourcePath().getUriResourceParts();
+        return parts.size() == 2 && parts.get(0) instanceof UriResourceNavigation
+                && DemoEdmProvider.NAV_BRAND.equals(((UriResourceNavigation) parts.get(0)).getProperty().getName())
+                && parts.get(1) instanceof UriResourcePrimitiveProperty
+                        ? ((UriResourcePrimitiveProperty) parts.get(1)).getProperty().getName()
+                        : null;
+    }
+
+    /**
+     * @return a String for string literals (unescaped), a Double for finite
+     *         numeric literals, else null (also for the null literal)
+     */
+    private static Object literalValue(Expression expression) {
+        if (!(expression instanceof Literal)) {
+            return null;
+        }
+        String text = ((Literal) expression).getText();
+        EdmType type = ((Literal) expression).getType();
+        if (type == null || "null".equals(text)) {
+            return null;
+        }
+        EdmPrimitiveTypeKind kind;
+        try {
+            kind = EdmPrimitiveTypeKind.valueOfFQN(type.getFullQualifiedName());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        switch (kind) {
+            case String:
+                return text.substring(1, text.length() - 1).replace("''", "'");
+            case Byte:
+            case SByte:
+            case Int16:
+            case Int32:
+            case Int64:
+            case Single:
+            case Double:
+            case Decimal:
+                try {
+                    double value = Double.parseDouble(text);
+                    return Double.isFinite(value) ? value : null;
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            default:
+                return null;
+        }
+    }
+
     private boolean evaluateFilter(Map<String, Object> entity, String filter) {
         try {
             // Simple filter parser (enhancement: use Olingo's ExpressionVisitor for
@@ -43,7 +382,7 @@ public class ODataFilterProcessor {
                 String[] parts = filter.split(" gt ");
                 String field = parts[0].trim();
                 double value = Double.parseDouble(parts[1].trim());
-                Object fieldValue = entity.get(field);
+                Object fieldValue = resolve(entity, field);
                 return fieldValue instanceof Number && ((Number) fieldValue).doubleValue() > value;
             }
 
@@ -52,7 +391,7 @@ public class ODataFilterProcessor {
                 String[] parts = filter.split(" lt ");
                 String field = parts[0].trim();
                 double value = Double.parseDouble(parts[1].trim());
-                Object fieldValue = entity.get(field);
+                Object fieldValue = resolve(entity, field);
                 return fieldValue instanceof Number && ((Number) fieldValue).doubleValue() < value;
             }
 
@@ -61,7 +400,7 @@ public class ODataFilterProcessor {
                 String[] parts = filter.split(" eq ");
                 String field = parts[0].trim();
                 String value = parts[1].trim().replace("'", "");
-                Object fieldValue = entity.get(field);
+                Object fieldValue = resolve(entity, field);
 
                 if (fieldValue instanceof Number) {
                     return Double.parseDouble(value) == ((Number) fieldValue).doubleValue();
@@ -70,13 +409,17 @@ public class ODataFilterProcessor {
             }
 
             // Example: contains(Name, 'Mouse')
-            if (filter.startsWith("contains(")) {
-                String content = filter.substring(9, filter.length() - 1);
-                String[] parts = content.split(",");
-                String field = parts[0].trim();
-                String value = parts[1].trim().replace("'", "");
-                Object fieldValue = entity.get(field);
-                return fieldValue != null && String.valueOf(fieldValue).contains(value);
+            String[] arguments = functionArguments(filter, "contains(");
+            if (arguments != null) {
+                Object fieldValue = resolve(entity, arguments[0]);
+                return fieldValue != null && String.valueOf(fieldValue).contains(arguments[1]);
+            }
+
+            // Example: startswith(Name, 'Mouse')
+            arguments = functionArguments(filter, "startswith(");
+            if (arguments != null) {
+                Object fieldValue = resolve(entity, arguments[0]);
+                return fieldValue != null && String.valueOf(fieldValue).startsWith(arguments[1]);
             }
 
             return true;
@@ -85,4 +428,33 @@ public class ODataFilterProcessor {
             return true; // Don't filter on error
         }
     }
+
+    /**
+     * @return [field, value] of a two-argument string function call, or null
+     */
+    private String[] functionArguments(String filter, String function) {
+        if (!filter.startsWith(function)) {
+            return null;
+        }
+        String content = filter.substring(function.length(), filter.length() - 1);
+        String[] parts = content.split(",");
+        return new String[] { parts[0].trim(), parts[1].trim().replace("'", "") };
+    }
+
+    /**
+     * Resolves a property path such as "Brand/Country" through nested entities
+     */
+    private Object resolve(Map<String, Object> entity, String field) {
+        if (field.indexOf('/') < 0) {
+            return entity.get(field);
+        }
+        Object current = entity;
+        for (String segment : field.split("/")) {
+            if (!(current instanceof Map)) {
+                return null;
+            }
+            current = ((Map<?, ?>) current).get(segment);
+        }
+        return current;
+    }
 }
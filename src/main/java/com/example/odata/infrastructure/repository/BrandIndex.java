@@ -0,0 +1,68 @@
+package com.example.odata.infrastructure.repository;
+
+import com.example.odata.domain.model.Product;
+import com.example.odata.domain.repository.Snapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Infrastructure Layer - Immutable BrandID index of a product snapshot
+ * Reverse index for the Brand -> Products navigation. Each brand's products
+ * are a snapshot of their own, so a write re-indexes only the brands it
+ * touches and copies one map entry per brand, not the whole store.
+ */
+final class BrandIndex {
+
+    static final BrandIndex EMPTY = new BrandIndex(Collections.emptyMap());
+
+    private final Map<Integer, Snapshot<Product>> productsByBrand;
+
+    private BrandIndex(Map<Integer, Snapshot<Product>> productsByBrand) {
+        this.productsByBrand = productsByBrand;
+    }
+
+    static BrandIndex of(Iterable<Product> products) {
+        Map<Integer, List<Product>> grouped = new HashMap<>();
+        for (Product product : products) {
+            grouped.computeIfAbsent(product.getBrandId(), id -> new ArrayList<>()).add(product);
+        }
+        Map<Integer, Snapshot<Product>> productsByBrand = new HashMap<>();
+        grouped.forEach((brandId, list) -> productsByBrand.put(brandId, Snapshot.of(0, list, Product::getId)));
+        return new BrandIndex(productsByBrand);
+    }
+
+    /**
+     * @return the brand's products in ID order, without copying
+     */
+    List<Product> products(int brandId) {
+        Snapshot<Product> products = productsByBrand.get(brandId);
+        return products != null ? products.asList() : Collections.emptyList();
+    }
+
+    /**
+     * @param previous the product before the write, or null if it is new
+     * @param next     the product after the write, or null if it was deleted
+     * @return the index after the write
+     */
+    BrandIndex update(Product previous, Product next) {
+        Map<Integer, Snapshot<Product>> updated = new HashMap<>(productsByBrand);
+        Snapshot<Product> before = previous != null ? updated.get(previous.getBrandId()) : null;
+        if (before != null && (next == null || previous.getBrandId() != next.getBrandId())) {
+            Snapshot<Product> remaining = before.without(previous.getId());
+            if (remaining.size() == 0) {
+                updated.remove(previous.getBrandId());
+            } else {
+                updated.put(previous.getBrandId(), remaining);
+            }
+        }
+        if (next != null) {
+            Snapshot<Product> products = updated.get(next.getBrandId());
+            updated.put(next.getBrandId(), (products != null ? products : Snapshot.empty(Product::getId)).with(next));
+        }
+        return new BrandIndex(updated);
+    }
+}
@@ -1,37 +1,100 @@
 package com.example.odata.infrastructure.repository;
 
+import com.example.odata.domain.event.BrandSavedEvent;
 import com.example.odata.domain.model.Brand;
 import com.example.odata.domain.repository.BrandRepository;
+import com.example.odata.domain.repository.Snapshot;
+import com.example.odata.domain.repository.SnapshotPin;
+import com.example.odata.infrastructure.resilience.BrandServiceFaultInjector;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
 
 import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Infrastructure Layer - In-Memory Implementation
  * Simulates a microservice data source
+ * A pinned thread keeps reading the snapshot it pinned, and so do the calls
+ * it hands to other threads through {@link #withCallerPin(Supplier)}.
  */
 @Repository
 public class InMemoryBrandRepository implements BrandRepository {
 
-    private final Map<Integer, Brand> storage = new HashMap<>();
+    private final BrandServiceFaultInjector faultInjector;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Copy-on-write: readers use the published snapshot, writers replace it
+    private volatile Snapshot<Brand> snapshot = Snapshot.empty(Brand::getId);
+    private final SnapshotPins<Snapshot<Brand>> pins;
+
+    public InMemoryBrandRepository(BrandServiceFaultInjector faultInjector, ApplicationEventPublisher eventPublisher,
+            MeterRegistry meterRegistry) {
+        this.faultInjector = faultInjector;
+        this.eventPublisher = eventPublisher;
+        this.pins = new SnapshotPins<>(meterRegistry, "brands");
+    }
 
     @PostConstruct
     public void init() {
-        storage.put(1, new Brand(1, "TechGiant", "USA"));
-        storage.put(2, new Brand(2, "ErgoSoft", "Germany"));
-        storage.put(3, new Brand(3, "SpeedyMouse", "China"));
+        snapshot = snapshot.withAll(List.of(
+                new Brand(1, "TechGiant", "USA"),
+                new Brand(2, "ErgoSoft", "Germany"),
+                new Brand(3, "SpeedyMouse", "China")));
     }
 
     @Override
     public List<Brand> findAll() {
         System.out.println("🏷️  [Brand Microservice] Fetching all brands");
-        return new ArrayList<>(storage.values());
+        faultInjector.beforeCall();
+        return pins.current(() -> snapshot).asList();
+    }
+
+    @Override
+    public Snapshot<Brand> snapshot() {
+        System.out.println("🏷️  [Brand Microservice] Fetching brand snapshot");
+        faultInjector.beforeCall();
+        return pins.current(() -> snapshot);
     }
 
     @Override
     public Optional<Brand> findById(int id) {
         System.out.println("🏷️  [Brand Microservice] Fetching brand ID: " + id);
-        return Optional.ofNullable(storage.get(id));
+        faultInjector.beforeCall();
+        return pins.current(() -> snapshot).get(id);
+    }
+
+    @Override
+    public synchronized Brand save(Brand brand) {
+        System.out.println("🏷️  [Brand Microservice] Saving brand ID: " + brand.getId());
+        snapshot = snapshot.with(brand);
+        eventPublisher.publishEvent(new BrandSavedEvent(brand, snapshot.getVersion()));
+        return brand;
+    }
+
+    @Override
+    public long version() {
+        return pins.current(() -> snapshot).getVersion();
+    }
+
+    @Override
+    public SnapshotPin pin() {
+        Snapshot<Brand> pinned = snapshot;
+        return pins.pin(pinned, pinned.getVersion());
+    }
+
+    @Override
+    public <A, R> Function<A, R> withCallerPin(Function<A, R> task) {
+        return pins.carry(task);
+    }
+
+    /**
+     * Lets a call that runs on another thread read the calling thread's pin
+     */
+    <T> Supplier<T> withCallerPin(Supplier<T> call) {
+        return pins.carry(call);
     }
 }
@@ -1,54 +1,254 @@
 package com.example.odata.infrastructure.repository;
 
+import com.example.odata.domain.event.ProductDeletedEvent;
+import com.example.odata.domain.event.ProductSavedEvent;
+import com.example.odata.domain.model.AggregationSpec;
 import com.example.odata.domain.model.Product;
+import com.example.odata.domain.model.ProductChange;
+import com.example.odata.domain.model.ProductCriteria;
 import com.example.odata.domain.repository.ProductRepository;
+import com.example.odata.domain.repository.Snapshot;
+import com.example.odata.domain.repository.SnapshotPin;
+import com.example.odata.infrastructure.aggregation.AggregationEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
 
 import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
 
 /**
  * Infrastructure Layer - In-Memory Implementation
  * Simulates a microservice data source
+ * Reads go to an immutable snapshot without locks or copies; writes are
+ * serialized and publish the next snapshot together with its BrandID index.
+ * Every write is also appended to a bounded change log for delta queries.
+ * A pinned thread keeps reading the snapshot and index it pinned.
  */
 @Repository
+@ConditionalOnProperty(name = "odata.repository", havingValue = "memory", matchIfMissing = true)
 public class InMemoryProductRepository implements ProductRepository {
 
-    private final Map<Integer, Product> storage = new HashMap<>();
+    private final ApplicationEventPublisher eventPublisher;
+    private final int changeLogRetention;
+    // Sequence numbers are the snapshot versions
+    private ProductChangeLog changeLog;
+
+    // Snapshot and its BrandID index, always published together
+    private volatile State state = new State(Snapshot.empty(Product::getId), BrandIndex.EMPTY);
+    private final SnapshotPins<State> pins;
+
+    public InMemoryProductRepository(ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+            @Value("${odata.delta.retention:1000}") int changeLogRetention) {
+        this.eventPublisher = eventPublisher;
+        this.changeLogRetention = changeLogRetention;
+        this.pins = new SnapshotPins<>(meterRegistry, "products");
+    }
 
     @PostConstruct
     public void init() {
         // Brand 1: TechGiant, 2: ErgoSoft, 3: SpeedyMouse
-        storage.put(1, new Product(1, "Notebook Basic", "Notebook Basic 15", 95.0, 1));
-        storage.put(2, new Product(2, "Notebook Professional", "Notebook Professional 17", 420.0, 1));
-        storage.put(3, new Product(3, "Monitor Ergo", "Monitor Ergo 24", 150.0, 2));
-        storage.put(4, new Product(4, "Mouse Optical", "Mouse Optical USB", 15.0, 3));
-        storage.put(5, new Product(5, "Mouse Wireless", "Mouse Wireless Bluetooth", 25.0, 3));
-        storage.put(6, new Product(6, "Keyboard Standard", "Keyboard Standard USB", 20.0, 3));
+        Snapshot<Product> seed = state.products.withAll(List.of(
+                new Product(1, "Notebook Basic", "Notebook Basic 15", 95.0, 1),
+                new Product(2, "Notebook Professional", "Notebook Professional 17", 420.0, 1),
+                new Product(3, "Monitor Ergo", "Monitor Ergo 24", 150.0, 2),
+                new Product(4, "Mouse Optical", "Mouse Optical USB", 15.0, 3),
+                new Product(5, "Mouse Wireless", "Mouse Wireless Bluetooth", 25.0, 3),
+                new Product(6, "Keyboard Standard", "Keyboard Standard USB", 20.0, 3)));
+        state = new State(seed, BrandIndex.of(seed));
+        changeLog = new ProductChangeLog(changeLogRetention, state.products.getVersion());
     }
 
     @Override
     public List<Product> findAll() {
         System.out.println("📦 [Product Microservice] Fetching all products");
-        return new ArrayList<>(storage.values());
+        return state().products.asList();
+    }
+
+    @Override
+    public Snapshot<Product> snapshot() {
+        return state().products;
+    }
+
+    @Override
+    public long version() {
+        return state().products.getVersion();
+    }
+
+    @Override
+    public Stream<Product> streamAll() {
+        System.out.println("📦 [Product Microservice] Streaming all products");
+        return state().products.stream();
     }
 
     @Override
     public Optional<Product> findById(int id) {
         System.out.println("📦 [Product Microservice] Fetching product ID: " + id);
-        return Optional.ofNullable(storage.get(id));
+        return state().products.get(id);
     }
 
     @Override
-    public Product save(Product product) {
+    public Stream<Product> query(ProductCriteria criteria) {
+        System.out.println("📦 [Product Microservice] Querying products: " + criteria);
+        Stream<Product> products = state().products.stream();
+        for (ProductCriteria.Condition condition : criteria.getConditions()) {
+            Function<Product, Object> value = PROPERTY_RESOLVER.value(condition.getProperty());
+            products = products.filter(product -> condition.matches(value.apply(product)));
+        }
+        // Fail fast on unknown properties, even when no row would be compared
+        criteria.getOrderBy().forEach(order -> PROPERTY_RESOLVER.value(order.getProperty()));
+        Comparator<Product> comparator = criteria.comparator(
+                (product, property) -> PROPERTY_RESOLVER.value(property).apply(product));
+        if (comparator != null) {
+            products = products.sorted(comparator);
+        }
+        if (criteria.getSkip() != null) {
+            products = products.skip(criteria.getSkip());
+        }
+        if (criteria.getTop() != null) {
+            products = products.limit(criteria.getTop());
+        }
+        return products;
+    }
+
+    @Override
+    public List<Product> findAllById(Collection<Integer> ids) {
+        System.out.println("📦 [Product Microservice] Fetching " + ids.size() + " products by ID");
+        Snapshot<Product> products = state().products;
+        List<Product> found = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            products.get(id).ifPresent(found::add);
+        }
+        return found;
+    }
+
+    @Override
+    public List<Product> findByBrandId(int brandId) {
+        System.out.println("📦 [Product Microservice] Fetching products of brand ID: " + brandId);
+        return state().productsByBrand.products(brandId);
+    }
+
+    @Override
+    public synchronized Product save(Product product) {
         // Auto-generate ID if not present
         if (product.getId() == 0) {
-            int newId = storage.keySet().stream().max(Integer::compareTo).orElse(0) + 1;
-            product.setId(newId);
+            product.setId(state.products.maxId() + 1);
         }
 
         System.out.println("📦 [Product Microservice] Saving product ID: " + product.getId());
-        storage.put(product.getId(), product);
+        Product previous = state.products.get(product.getId()).orElse(null);
+        Snapshot<Product> products = state.products.with(product);
+        // Logged before publishing, so a delta token read from the snapshot never skips it
+        changeLog.record(products.getVersion(), ProductChange.Type.SAVED, product.getId(), product);
+        publish(products, previous, product);
+        eventPublisher.publishEvent(new ProductSavedEvent(product, state.products.getVersion()));
         return product;
     }
+
+    @Override
+    public synchronized boolean deleteById(int id) {
+        System.out.println("📦 [Product Microservice] Deleting product ID: " + id);
+        Optional<Product> previous = state.products.get(id);
+        if (previous.isEmpty()) {
+            return false;
+        }
+        Snapshot<Product> products = state.products.without(id);
+        changeLog.record(products.getVersion(), ProductChange.Type.DELETED, id, null);
+        publish(products, previous.get(), null);
+        eventPublisher.publishEvent(new ProductDeletedEvent(id, state.products.getVersion()));
+        return true;
+    }
+
+    @Override
+    public Optional<List<ProductChange>> changesSince(long sequence) {
+        return changeLog.since(sequence, state().products.getVersion());
+    }
+
+    @Override
+    public List<Map<String, Object>> aggregate(AggregationSpec spec) {
+        System.out.println("📦 [Product Microservice] Aggregating products: " + spec);
+        return AggregationEngine.aggregate(state().products.asList(), spec, PROPERTY_RESOLVER);
+    }
+
+    static final AggregationEngine.PropertyResolver<Product> PROPERTY_RESOLVER =
+            new AggregationEngine.PropertyResolver<>() {
+                @Override
+                public Function<Product, Object> value(String property) {
+                    switch (property) {
+                        case "ID":
+                            return Product::getId;
+                        case "Name":
+                            return Product::getName;
+                        case "Description":
+                            return Product::getDescription;
+                        case "Price":
+                            return Product::getPrice;
+                        case "BrandID":
+                            return Product::getBrandId;
+                        default:
+                            throw new IllegalArgumentException("Unknown property: " + property);
+                    }
+                }
+
+                @Override
+                public ToDoubleFunction<Product> numeric(String property) {
+                    switch (property) {
+                        case "ID":
+                            return Product::getId;
+                        case "Price":
+                            return Product::getPrice;
+                        case "BrandID":
+                            return Product::getBrandId;
+                        default:
+                            throw new IllegalArgumentException("Not a numeric property: " + property);
+                    }
+                }
+
+                @Override
+                public boolean isIntegral(String property) {
+                    return !"Price".equals(property);
+                }
+            };
+
+    @Override
+    public SnapshotPin pin() {
+        State pinned = state;
+        return pins.pin(pinned, pinned.products.getVersion());
+    }
+
+    @Override
+    public <A, R> Function<A, R> withCallerPin(Function<A, R> task) {
+        return pins.carry(task);
+    }
+
+    /**
+     * State for reads: pinned by this thread, else the published one; writes
+     * always work on the published state
+     */
+    private State state() {
+        return pins.current(() -> state);
+    }
+
+    /**
+     * Publishes the snapshot after one write, re-indexing only the product's
+     * old and new brand
+     */
+    private void publish(Snapshot<Product> products, Product previous, Product next) {
+        state = new State(products, state.productsByBrand.update(previous, next));
+    }
+
+    private static final class State {
+        final Snapshot<Product> products;
+        final BrandIndex productsByBrand;
+
+        State(Snapshot<Product> products, BrandIndex productsByBrand) {
+            this.products = products;
+            this.productsByBrand = productsByBrand;
+        }
+    }
 }
@@ -0,0 +1,518 @@
+package com.example.odata.infrastructure.repository;
+
+import com.example.odata.domain.event.ProductDeletedEvent;
+import com.example.odata.domain.event.ProductSavedEvent;
+import com.example.odata.domain.model.AggregationSpec;
+import com.example.odata.domain.model.Product;
+import com.example.odata.domain.model.ProductChange;
+import com.example.odata.domain.model.ProductCriteria;
+import com.example.odata.domain.repository.ProductRepository;
+import com.example.odata.domain.repository.Snapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Infrastructure Layer - JDBC Implementation
+ * Products live in a relational database (embedded H2 by default). Query
+ * criteria are translated into a single parameterized statement, so the
+ * database filters, orders, pages and projects; results are streamed from
+ * the ResultSet in fetch-size batches. The SQL text is built once per
+ * criteria shape and reused, so the driver's statement cache can serve
+ * repeated shapes without re-parsing. Shapes are normalized (IN lists padded
+ * to a power of two, selected columns in table order) and the number of
+ * cached statements is capped, so clients cannot grow the cache unboundedly.
+ * Enabled with odata.repository=jdbc
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "odata.repository", havingValue = "jdbc")
+public class JdbcProductRepository implements ProductRepository {
+
+    // OData property -> column
+    private static final Map<String, String> COLUMNS = new LinkedHashMap<>();
+
+    static {
+        COLUMNS.put("ID", "id");
+        COLUMNS.put("Name", "name");
+        COLUMNS.put("Description", "description");
+        COLUMNS.put("Price", "price");
+        COLUMNS.put("BrandID", "brand_id");
+    }
+
+    private static final String ALL_COLUMNS = String.join(", ", COLUMNS.values());
+
+    static final int MAX_CACHED_STATEMENTS = 512;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int changeLogRetention;
+
+    // Criteria shape -> SQL text
+    private final Map<String, String> statements = new ConcurrentHashMap<>();
+
+    // Bumped by every write; sequence numbers of the change log
+    private volatile long version;
+    private ProductChangeLog changeLog;
+
+    public JdbcProductRepository(DataSource dataSource, ApplicationEventPublisher eventPublisher,
+            @Value("${odata.jdbc.fetch-size:256}") int fetchSize,
+            @Value("${odata.delta.retention:1000}") int changeLogRetention) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.eventPublisher = eventPublisher;
+        this.changeLogRetention = changeLogRetention;
+    }
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS products ("
+                + "id INT PRIMARY KEY, "
+                + "name VARCHAR(255), "
+                + "description VARCHAR(1024), "
+                + "price DOUBLE PRECISION NOT NULL, "
+                + "brand_id INT NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS products_brand_id ON products (brand_id)");
+
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products", Integer.class);
+        if (count != null && count == 0) {
+            // Brand 1: TechGiant, 2: ErgoSoft, 3: SpeedyMouse
+            insert(new Product(1, "Notebook Basic", "Notebook Basic 15", 95.0, 1));
+            insert(new Product(2, "Notebook Professional", "Notebook Professional 17", 420.0, 1));
+            insert(new Product(3, "Monitor Ergo", "Monitor Ergo 24", 150.0, 2));
+            insert(new Product(4, "Mouse Optical", "Mouse Optical USB", 15.0, 3));
+            insert(new Product(5, "Mouse Wireless", "Mouse Wireless Bluetooth", 25.0, 3));
+            insert(new Product(6, "Keyboard Standard", "Keyboard Standard USB", 20.0, 3));
+        }
+
+        version = 1;
+        changeLog = new ProductChangeLog(changeLogRetention, version);
+        log.info("🗄️ JDBC product repository ready");
+    }
+
+    @Override
+    public List<Product> findAll() {
+        System.out.println("📦 [Product Microservice] Fetching all products (JDBC)");
+        return jdbcTemplate.query("SELECT " + ALL_COLUMNS + " FROM products ORDER BY id", this::mapRow);
+    }
+
+    @Override
+    public Snapshot<Product> snapshot() {
+        // Read the version first: a concurrent write is then covered by the next delta
+        long snapshotVersion = version;
+        return Snapshot.of(snapshotVersion, findAll(), Product::getId);
+    }
+
+    @Override
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public Stream<Product> streamAll() {
+        System.out.println("📦 [Product Microservice] Streaming all products (JDBC)");
+        return jdbcTemplate.queryForStream("SELECT " + ALL_COLUMNS + " FROM products ORDER BY id", this::mapRow);
+    }
+
+    @Override
+    public Optional<Product> findById(int id) {
+        System.out.println("📦 [Product Microservice] Fetching product ID: " + id + " (JDBC)");
+        return jdbcTemplate.query("SELECT " + ALL_COLUMNS + " FROM products WHERE id = ?", this::mapRow, id)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public Stream<Product> query(ProductCriteria criteria) {
+        List<Object> parameters = conditionParameters(criteria);
+        if (criteria.getSkip() != null) {
+            parameters.add(criteria.getSkip());
+        }
+        if (criteria.getTop() != null) {
+            parameters.add(criteria.getTop());
+        }
+
+        String sql = statement(criteria);
+        System.out.println("📦 [Product Microservice] Querying products (JDBC): " + sql + " " + parameters);
+
+        List<String> columns = selectedColumns(criteria.getSelect());
+        RowMapper<Product> mapper = (rs, rowNum) -> mapRow(rs, columns);
+        return jdbcTemplate.queryForStream(sql, mapper, parameters.toArray());
+    }
+
+    @Override
+    public long count(ProductCriteria criteria) {
+        String sql = "SELECT COUNT(*) FROM products" + where(criteria);
+        List<Object> parameters = conditionParameters(criteria);
+        System.out.println("📦 [Product Microservice] Counting products (JDBC): " + sql + " " + parameters);
+        return jdbcTemplate.queryForObject(sql, Long.class, parameters.toArray());
+    }
+
+    @Override
+    public List<Product> findAllById(Collection<Integer> ids) {
+        System.out.println("📦 [Product Microservice] Fetching " + ids.size() + " products by ID (JDBC)");
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String placeholders = ids.stream().map(id -> "?").collect(Collectors.joining(", "));
+        Map<Integer, Product> found = new HashMap<>();
+        jdbcTemplate.query("SELECT " + ALL_COLUMNS + " FROM products WHERE id IN (" + placeholders + ")",
+                this::mapRow, ids.toArray()).forEach(product -> found.put(product.getId(), product));
+
+        // Keep the requested order
+        List<Product> products = new ArrayList<>(found.size());
+        for (Integer id : ids) {
+            Product product = found.get(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    @Override
+    public List<Product> findByBrandId(int brandId) {
+        System.out.println("📦 [Product Microservice] Fetching products of brand ID: " + brandId + " (JDBC)");
+        return jdbcTemplate.query("SELECT " + ALL_COLUMNS + " FROM products WHERE brand_id = ? ORDER BY id",
+                this::mapRow, brandId);
+    }
+
+    @Override
+    public synchronized Product save(Product product) {
+        // Auto-generate ID if not present
+        if (product.getId() == 0) {
+            Integer maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM products", Integer.class);
+            product.setId(maxId + 1);
+        }
+
+        System.out.println("📦 [Product Microservice] Saving product ID: " + product.getId() + " (JDBC)");
+        jdbcTemplate.update("MERGE INTO products (" + ALL_COLUMNS + ") KEY (id) VALUES (?, ?, ?, ?, ?)",
+                product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                product.getBrandId());
+        // Logged before the version is published, so a delta token never skips it
+        changeLog.record(version + 1, ProductChange.Type.SAVED, product.getId(), product);
+        version++;
+        eventPublisher.publishEvent(new ProductSavedEvent(product, version));
+        return product;
+    }
+
+    @Override
+    public synchronized boolean deleteById(int id) {
+        System.out.println("📦 [Product Microservice] Deleting product ID: " + id + " (JDBC)");
+        if (jdbcTemplate.update("DELETE FROM products WHERE id = ?", id) == 0) {
+            return false;
+        }
+        changeLog.record(version + 1, ProductChange.Type.DELETED, id, null);
+        version++;
+        eventPublisher.publishEvent(new ProductDeletedEvent(id, version));
+        return true;
+    }
+
+    @Override
+    public Optional<List<ProductChange>> changesSince(long sequence) {
+        return changeLog.since(sequence, version);
+    }
+
+    @Override
+    public List<Map<String, Object>> aggregate(AggregationSpec spec) {
+        List<String> expressions = new ArrayList<>();
+        List<String> groupColumns = new ArrayList<>();
+        for (String property : spec.getGroupBy()) {
+            groupColumns.add(column(property));
+        }
+        expressions.addAll(groupColumns);
+        for (AggregationSpec.Aggregate aggregate : spec.getAggregates()) {
+            expressions.add(aggregateExpression(aggregate));
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(String.join(", ", expressions))
+                .append(" FROM products");
+        if (!groupColumns.isEmpty()) {
+            String groupBy = String.join(", ", groupColumns);
+            sql.append(" GROUP BY ").append(groupBy).append(" ORDER BY ").append(groupBy);
+        }
+        System.out.println("📦 [Product Microservice] Aggregating products (JDBC): " + sql);
+
+        List<String> columns = spec.columns();
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < columns.size(); i++) {
+                row.put(columns.get(i), normalize(rs.getObject(i + 1), isIntegralColumn(spec, i)));
+            }
+            return row;
+        });
+    }
+
+    // --- Helper Methods ---
+
+    private void insert(Product product) {
+        jdbcTemplate.update("INSERT INTO products (" + ALL_COLUMNS + ") VALUES (?, ?, ?, ?, ?)",
+                product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                product.getBrandId());
+    }
+
+    private static String column(String property) {
+        String column = COLUMNS.get(property);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown property: " + property);
+        }
+        return column;
+    }
+
+    /**
+     * SQL text of a criteria, cached per shape until the cache is full;
+     * statements of further shapes are built per query
+     */
+    private String statement(ProductCriteria criteria) {
+        String shape = shape(criteria);
+        String sql = statements.get(shape);
+        if (sql == null) {
+            sql = buildSelect(criteria);
+            if (statements.size() < MAX_CACHED_STATEMENTS) {
+                statements.putIfAbsent(shape, sql);
+            }
+        }
+        return sql;
+    }
+
+    int cachedStatements() {
+        return statements.size();
+    }
+
+    /**
+     * Key identifying the SQL text of a criteria: everything but the values
+     */
+    private static String shape(ProductCriteria criteria) {
+        StringBuilder shape = new StringBuilder();
+        criteria.getConditions().forEach(c -> shape.append(c.getProperty()).append(' ').append(c.getOperator())
+                .append(c.getOperator() == ProductCriteria.Operator.IN ? inListSlots(((Collection<?>) c.getValue()).size()) : "")
+                .append(';'));
+        shape.append('|');
+        criteria.getOrderBy().forEach(o -> shape.append(o.getProperty()).append(o.isDescending() ? " desc;" : ";"));
+        shape.append('|').append(criteria.getSkip() != null).append('|').append(criteria.getTop() != null)
+                .append('|').append(selectedColumns(criteria.getSelect()));
+        return shape.toString();
+    }
+
+    static String buildSelect(ProductCriteria criteria) {
+        StringBuilder sql = new StringBuilder("SELECT ")
+                .append(String.join(", ", selectedColumns(criteria.getSelect())))
+                .append(" FROM products")
+                .append(where(criteria));
+
+        List<String> orderBy = new ArrayList<>();
+        for (ProductCriteria.Order order : criteria.getOrderBy()) {
+            orderBy.add(column(order.getProperty()) + (order.isDescending() ? " DESC NULLS LAST" : " ASC NULLS FIRST"));
+        }
+        // Stable paging needs a total order
+        orderBy.add("id");
+        sql.append(" ORDER BY ").append(String.join(", ", orderBy));
+
+        if (criteria.getSkip() != null) {
+            sql.append(" OFFSET ? ROWS");
+        }
+        if (criteria.getTop() != null) {
+            sql.append(" FETCH FIRST ? ROWS ONLY");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * WHERE clause of the criteria's conditions, or "" if there are none
+     */
+    private static String where(ProductCriteria criteria) {
+        List<String> predicates = new ArrayList<>();
+        for (ProductCriteria.Condition condition : criteria.getConditions()) {
+            if (condition.getOperator() == ProductCriteria.Operator.IN) {
+                int values = inListSlots(((Collection<?>) condition.getValue()).size());
+                predicates.add(values == 0 ? "FALSE"
+                        : column(condition.getProperty()) + " IN (" + String.join(", ", Collections.nCopies(values, "?"))
+                                + ")");
+            } else {
+                predicates.add(column(condition.getProperty()) + " " + sqlOperator(condition.getOperator()));
+            }
+        }
+        return predicates.isEmpty() ? "" : " WHERE " + String.join(" AND ", predicates);
+    }
+
+    /**
+     * Parameters of the criteria's conditions, in placeholder order
+     */
+    private static List<Object> conditionParameters(ProductCriteria criteria) {
+        List<Object> parameters = new ArrayList<>();
+        for (ProductCriteria.Condition condition : criteria.getConditions()) {
+            if (condition.getOperator() == ProductCriteria.Operator.IN) {
+                List<?> values = new ArrayList<>((Collection<?>) condition.getValue());
+                parameters.addAll(values);
+                // Repeat the last value up to the padded number of placeholders
+                for (int i = values.size(); i < inListSlots(values.size()); i++) {
+                    parameters.add(values.get(values.size() - 1));
+                }
+            } else {
+                parameters.add(parameter(condition));
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Placeholders for an IN list: the next power of two, so lists of similar
+     * length share a statement
+     */
+    static int inListSlots(int values) {
+        return values <= 1 ? values : Integer.highestOneBit(values - 1) << 1;
+    }
+
+    private static String sqlOperator(ProductCriteria.Operator operator) {
+        switch (operator) {
+            case EQ:
+                return "= ?";
+            case NE:
+                return "<> ?";
+            case GT:
+                return "> ?";
+            case GE:
+                return ">= ?";
+            case LT:
+                return "< ?";
+            case LE:
+                return "<= ?";
+            default:
+                // CONTAINS, STARTSWITH
+                return "LIKE ? ESCAPE '\\'";
+        }
+    }
+
+    private static Object parameter(ProductCriteria.Condition condition) {
+        switch (condition.getOperator()) {
+            case CONTAINS:
+                return "%" + escapeLike(String.valueOf(condition.getValue())) + "%";
+            case STARTSWITH:
+                return escapeLike(String.valueOf(condition.getValue())) + "%";
+            default:
+                return condition.getValue();
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Columns to read in table order: the key plus the selected properties
+     * (all if none)
+     */
+    private static List<String> selectedColumns(List<String> select) {
+        if (select == null || select.isEmpty()) {
+            return new ArrayList<>(COLUMNS.values());
+        }
+        Set<String> selected = new HashSet<>();
+        for (String property : select) {
+            selected.add(column(property));
+        }
+        List<String> columns = new ArrayList<>();
+        for (String column : COLUMNS.values()) {
+            if (column.equals("id") || selected.contains(column)) {
+                columns.add(column);
+            }
+        }
+        return columns;
+    }
+
+    private String aggregateExpression(AggregationSpec.Aggregate aggregate) {
+        if (aggregate.getMethod() == AggregationSpec.Method.COUNT) {
+            return "COUNT(*)";
+        }
+        String column = column(aggregate.getProperty());
+        switch (aggregate.getMethod()) {
+            case SUM:
+                return "SUM(" + column + ")";
+            case MIN:
+                return "MIN(" + column + ")";
+            case MAX:
+                return "MAX(" + column + ")";
+            case AVERAGE:
+                return "AVG(CAST(" + column + " AS DOUBLE PRECISION))";
+            default:
+                return "COUNT(DISTINCT " + column + ")";
+        }
+    }
+
+    /**
+     * Whether result column i holds an integral value (matches the in-memory
+     * engine: integral sums, minima and maxima of integral properties, counts)
+     */
+    private static boolean isIntegralColumn(AggregationSpec spec, int i) {
+        int groups = spec.getGroupBy().size();
+        if (i < groups) {
+            return !"Price".equals(spec.getGroupBy().get(i));
+        }
+        AggregationSpec.Aggregate aggregate = spec.getAggregates().get(i - groups);
+        switch (aggregate.getMethod()) {
+            case AVERAGE:
+                return false;
+            case COUNT:
+            case COUNTDISTINCT:
+                return true;
+            default:
+                return !"Price".equals(aggregate.getProperty());
+        }
+    }
+
+    private static Object normalize(Object value, boolean integral) {
+        if (!(value instanceof Number)) {
+            return value;
+        }
+        return integral ? (Object) ((Number) value).longValue() : (Object) ((Number) value).doubleValue();
+    }
+
+    private Product mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return mapRow(rs, new ArrayList<>(COLUMNS.values()));
+    }
+
+    private static Product mapRow(ResultSet rs, List<String> columns) throws SQLException {
+        Product product = new Product();
+        for (String column : columns) {
+            switch (column) {
+                case "id":
+                    product.setId(rs.getInt(column));
+                    break;
+                case "name":
+                    product.setName(rs.getString(column));
+                    break;
+                case "description":
+                    product.setDescription(rs.getString(column));
+                    break;
+                case "price":
+                    product.setPrice(rs.getDouble(column));
+                    break;
+                default:
+                    product.setBrandId(rs.getInt(column));
+                    break;
+            }
+        }
+        return product;
+    }
+}
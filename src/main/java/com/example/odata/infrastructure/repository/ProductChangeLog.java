@@ -0,0 +1,53 @@
+package com.example.odata.infrastructure.repository;
+
+import com.example.odata.domain.model.Product;
+import com.example.odata.domain.model.ProductChange;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Infrastructure Layer - Bounded log of product changes for delta queries
+ * Sequence numbers are assigned by the owning repository and must increase.
+ * Once the log is full the oldest changes are dropped; tokens older than the
+ * oldest retained change then require a full resync.
+ */
+class ProductChangeLog {
+
+    private final int retention;
+    private final Deque<ProductChange> changes = new ArrayDeque<>();
+    // Changes up to this sequence number are no longer in the log
+    private long floor;
+
+    ProductChangeLog(int retention, long initialSequence) {
+        this.retention = retention;
+        this.floor = initialSequence;
+    }
+
+    synchronized void record(long sequence, ProductChange.Type type, int productId, Product product) {
+        changes.addLast(new ProductChange(sequence, type, productId, product));
+        while (changes.size() > retention) {
+            floor = changes.removeFirst().getSequence();
+        }
+    }
+
+    /**
+     * Changes after sequence up to and including currentSequence, so a reader
+     * pinned to an older version gets exactly the changes it can see
+     */
+    synchronized Optional<List<ProductChange>> since(long sequence, long currentSequence) {
+        if (sequence < floor || sequence > currentSequence) {
+            return Optional.empty();
+        }
+        List<ProductChange> result = new ArrayList<>();
+        for (ProductChange change : changes) {
+            if (change.getSequence() > sequence && change.getSequence() <= currentSequence) {
+                result.add(change);
+            }
+        }
+        return Optional.of(result);
+    }
+}
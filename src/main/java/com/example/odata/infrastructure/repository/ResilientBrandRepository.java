@@ -0,0 +1,85 @@
+package com.example.odata.infrastructure.repository;
+
+import com.example.odata.domain.model.Brand;
+import com.example.odata.domain.repository.BrandRepository;
+import com.example.odata.domain.repository.Snapshot;
+import com.example.odata.domain.repository.SnapshotPin;
+import com.example.odata.infrastructure.resilience.BrandServiceGuard;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Infrastructure Layer - Resilient decorator for the Brand microservice
+ * Guards every call with {@link BrandServiceGuard} and falls back to the
+ * last-known brand values (or no brand, so the Brand navigation is omitted).
+ * The guard runs calls on its own threads, so each call carries the caller's
+ * snapshot pin along.
+ */
+@Primary
+@Repository
+@RequiredArgsConstructor
+public class ResilientBrandRepository implements BrandRepository {
+
+    private final InMemoryBrandRepository delegate;
+    private final BrandServiceGuard guard;
+
+    private final Map<Integer, Brand> lastKnown = new ConcurrentHashMap<>();
+
+    @Override
+    public List<Brand> findAll() {
+        return guard.execute(delegate.withCallerPin(() -> {
+            List<Brand> brands = delegate.findAll();
+            brands.forEach(brand -> lastKnown.put(brand.getId(), brand));
+            return brands;
+        }), () -> new ArrayList<>(lastKnown.values()));
+    }
+
+    @Override
+    public Snapshot<Brand> snapshot() {
+        return guard.execute(delegate.withCallerPin(() -> {
+            Snapshot<Brand> snapshot = delegate.snapshot();
+            snapshot.forEach(brand -> lastKnown.put(brand.getId(), brand));
+            return snapshot;
+        }), () -> Snapshot.<Brand>empty(Brand::getId).withAll(lastKnown.values()));
+    }
+
+    @Override
+    public Optional<Brand> findById(int id) {
+        return guard.execute(delegate.withCallerPin(() -> {
+            Optional<Brand> brand = delegate.findById(id);
+            brand.ifPresent(b -> lastKnown.put(id, b));
+            return brand;
+        }), () -> Optional.ofNullable(lastKnown.get(id)));
+    }
+
+    @Override
+    public Brand save(Brand brand) {
+        Brand saved = delegate.save(brand);
+        lastKnown.put(saved.getId(), saved);
+        return saved;
+    }
+
+    @Override
+    public long version() {
+        // Versions and pins are local bookkeeping, not calls to the brand service
+        return delegate.version();
+    }
+
+    @Override
+    public SnapshotPin pin() {
+        return delegate.pin();
+    }
+
+    @Override
+    public <A, R> Function<A, R> withCallerPin(Function<A, R> task) {
+        return delegate.withCallerPin(task);
+    }
+}
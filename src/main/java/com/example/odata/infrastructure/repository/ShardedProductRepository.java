@@ -0,0 +1,564 @@
+package com.example.odata.infrastructure.repository;
+
+import com.example.odata.domain.event.ProductDeletedEvent;
+import com.example.odata.domain.event.ProductSavedEvent;
+import com.example.odata.domain.model.AggregationSpec;
+import com.example.odata.domain.model.Product;
+import com.example.odata.domain.model.ProductChange;
+import com.example.odata.domain.model.ProductCriteria;
+import com.example.odata.domain.repository.ProductRepository;
+import com.example.odata.domain.repository.Snapshot;
+import com.example.odata.domain.repository.SnapshotPin;
+import com.example.odata.infrastructure.aggregation.AggregationEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Infrastructure Layer - Sharded In-Memory Implementation
+ * Products are partitioned by BrandID over odata.sharding.shards independent
+ * shards, each an immutable snapshot with its own BrandID index and its own
+ * write lock, so writes to different shards run concurrently. The states of
+ * all shards are published as one array, swapped atomically by every write;
+ * a save that moves a product to another brand's shard takes both locks,
+ * lowest shard first, and replaces both states in the same swap, so a reader
+ * never sees the product in both shards or in neither.
+ *
+ * Collection queries fan out over the shards, in parallel once the store
+ * holds odata.sharding.parallel-threshold products: each shard filters,
+ * sorts and keeps its first $skip + $top rows, and the sorted shard results
+ * are merged with ties broken by ID, so the result equals that of the
+ * unsharded store. Whole-store reads use a merged snapshot that is rebuilt
+ * lazily after writes.
+ *
+ * Sequence numbers are global. The reported version trails any write that
+ * is still being applied, so a delta token taken from a read never skips a
+ * change; at worst a change is delivered twice. A pin captures that version
+ * together with the state of every shard.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "odata.repository", havingValue = "sharded")
+public class ShardedProductRepository implements ProductRepository {
+
+    private static final AggregationEngine.PropertyResolver<Product> PROPERTY_RESOLVER =
+            InMemoryProductRepository.PROPERTY_RESOLVER;
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final int changeLogRetention;
+    private final int parallelThreshold;
+    private final Shard[] shards;
+    // State of every shard, shard i's at index i; an entry only changes while holding that shard's lock
+    private final AtomicReference<State[]> states;
+    private final ForkJoinPool pool;
+    // Shard of every product; updated while holding the shard locks
+    private final Map<Integer, Integer> shardOfProduct = new ConcurrentHashMap<>();
+    private final AtomicInteger maxId = new AtomicInteger();
+
+    // Guards lastSequence, pendingSequences and the order of the change log
+    private final Object sequenceLock = new Object();
+    private long lastSequence;
+    private final NavigableSet<Long> pendingSequences = new TreeSet<>();
+    private ProductChangeLog changeLog;
+
+    private final SnapshotPins<View> pins;
+
+    private volatile Merged merged = new Merged(snapshotArray(0), Snapshot.empty(Product::getId));
+
+    public ShardedProductRepository(ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+            @Value("${odata.delta.retention:1000}") int changeLogRetention,
+            @Value("${odata.sharding.shards:0}") int shards,
+            @Value("${odata.sharding.parallel-threshold:10000}") int parallelThreshold) {
+        this.eventPublisher = eventPublisher;
+        this.changeLogRetention = changeLogRetention;
+        this.parallelThreshold = parallelThreshold;
+        this.shards = new Shard[shards > 0 ? shards : Runtime.getRuntime().availableProcessors()];
+        for (int i = 0; i < this.shards.length; i++) {
+            this.shards[i] = new Shard(i);
+        }
+        State[] empty = new State[this.shards.length];
+        Arrays.fill(empty, new State(Snapshot.empty(Product::getId), BrandIndex.EMPTY));
+        this.states = new AtomicReference<>(empty);
+        this.pool = new ForkJoinPool(this.shards.length);
+        this.pins = new SnapshotPins<>(meterRegistry, "products");
+    }
+
+    @PostConstruct
+    public void init() {
+        // Brand 1: TechGiant, 2: ErgoSoft, 3: SpeedyMouse
+        List<Product> products = List.of(
+                new Product(1, "Notebook Basic", "Notebook Basic 15", 95.0, 1),
+                new Product(2, "Notebook Professional", "Notebook Professional 17", 420.0, 1),
+                new Product(3, "Monitor Ergo", "Monitor Ergo 24", 150.0, 2),
+                new Product(4, "Mouse Optical", "Mouse Optical USB", 15.0, 3),
+                new Product(5, "Mouse Wireless", "Mouse Wireless Bluetooth", 25.0, 3),
+                new Product(6, "Keyboard Standard", "Keyboard Standard USB", 20.0, 3));
+        Map<Shard, List<Product>> byShard = products.stream()
+                .collect(Collectors.groupingBy(product -> shardOf(product.getBrandId())));
+        byShard.forEach((shard, seed) -> {
+            Snapshot<Product> shardProducts = states.get()[shard.index].products.withAll(seed);
+            publish(shard, new State(shardProducts, BrandIndex.of(shardProducts)));
+            seed.forEach(product -> shardOfProduct.put(product.getId(), shard.index));
+        });
+        maxId.set(products.stream().mapToInt(Product::getId).max().orElse(0));
+        lastSequence = 1;
+        changeLog = new ProductChangeLog(changeLogRetention, lastSequence);
+        log.info("🧩 Sharded product store: {} shards, parallel fan-out from {} products", shards.length,
+                parallelThreshold);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Override
+    public List<Product> findAll() {
+        System.out.println("📦 [Product Microservice] Fetching all products (sharded)");
+        return snapshot().asList();
+    }
+
+    @Override
+    public Snapshot<Product> snapshot() {
+        View view = view();
+        Snapshot<Product>[] current = snapshotArray(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            current[i] = view.states[i].products;
+        }
+        Merged cached = merged;
+        if (Arrays.equals(cached.shards, current)) {
+            return cached.products;
+        }
+        List<Product> products = new ArrayList<>();
+        for (Snapshot<Product> shard : current) {
+            products.addAll(shard.asList());
+        }
+        Merged next = new Merged(current, Snapshot.of(view.version, products, Product::getId));
+        // A pinned reader's older snapshot must not replace a newer one
+        if (next.products.getVersion() >= cached.products.getVersion()) {
+            merged = next;
+        }
+        return next.products;
+    }
+
+    @Override
+    public long version() {
+        return pins.isPinned() ? view().version : publishedVersion();
+    }
+
+    @Override
+    public SnapshotPin pin() {
+        View view = publishedView();
+        return pins.pin(view, view.version);
+    }
+
+    @Override
+    public <A, R> Function<A, R> withCallerPin(Function<A, R> task) {
+        return pins.carry(task);
+    }
+
+    private long publishedVersion() {
+        synchronized (sequenceLock) {
+            return pendingSequences.isEmpty() ? lastSequence : pendingSequences.first() - 1;
+        }
+    }
+
+    @Override
+    public Stream<Product> streamAll() {
+        System.out.println("📦 [Product Microservice] Streaming all products (sharded)");
+        return snapshot().stream();
+    }
+
+    @Override
+    public Optional<Product> findById(int id) {
+        System.out.println("📦 [Product Microservice] Fetching product ID: " + id + " (sharded)");
+        return get(id);
+    }
+
+    @Override
+    public Stream<Product> query(ProductCriteria criteria) {
+        System.out.println("📦 [Product Microservice] Querying products (sharded): " + criteria);
+        // Fail fast on unknown properties, even when no row would be compared
+        criteria.getConditions().forEach(condition -> PROPERTY_RESOLVER.value(condition.getProperty()));
+        criteria.getOrderBy().forEach(order -> PROPERTY_RESOLVER.value(order.getProperty()));
+
+        Comparator<Product> byOrder = criteria.comparator(
+                (product, property) -> PROPERTY_RESOLVER.value(property).apply(product));
+        // Shards are in ID order and sorting is stable, so within a shard ties are already in ID order
+        Comparator<Product> merge = byOrder != null
+                ? byOrder.thenComparingInt(Product::getId)
+                : Comparator.comparingInt(Product::getId);
+        long skip = criteria.getSkip() != null ? criteria.getSkip() : 0;
+        // Rows a single shard can contribute at most
+        long perShard = criteria.getTop() != null ? skip + criteria.getTop() : Long.MAX_VALUE;
+
+        List<List<Product>> results = fanOut(state -> state.query(criteria, byOrder, perShard));
+        Stream<Product> products = mergeSorted(results, merge).stream().skip(skip);
+        if (criteria.getTop() != null) {
+            products = products.limit(criteria.getTop());
+        }
+        return products;
+    }
+
+    @Override
+    public List<Product> findAllById(Collection<Integer> ids) {
+        System.out.println("📦 [Product Microservice] Fetching " + ids.size() + " products by ID (sharded)");
+        List<Product> found = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            get(id).ifPresent(found::add);
+        }
+        return found;
+    }
+
+    @Override
+    public List<Product> findByBrandId(int brandId) {
+        System.out.println("📦 [Product Microservice] Fetching products of brand ID: " + brandId + " (sharded)");
+        return view().states[shardOf(brandId).index].productsByBrand.products(brandId);
+    }
+
+    @Override
+    public Product save(Product product) {
+        // Auto-generate ID if not present
+        if (product.getId() == 0) {
+            product.setId(maxId.incrementAndGet());
+        } else {
+            maxId.accumulateAndGet(product.getId(), Math::max);
+        }
+
+        System.out.println("📦 [Product Microservice] Saving product ID: " + product.getId() + " (sharded)");
+        Shard target = shardOf(product.getBrandId());
+        while (true) {
+            Integer previousIndex = shardOfProduct.get(product.getId());
+            Shard previous = previousIndex != null ? shards[previousIndex] : target;
+            lock(previous, target);
+            try {
+                if (!Objects.equals(previousIndex, shardOfProduct.get(product.getId()))) {
+                    continue;
+                }
+                long sequence = beginWrite(ProductChange.Type.SAVED, product.getId(), product);
+                try {
+                    State[] current = states.get();
+                    State from = current[previous.index];
+                    State to = current[target.index];
+                    Product before = from.products.get(product.getId()).orElse(null);
+                    if (previous == target) {
+                        publish(target, to.update(to.products.with(product), before, product));
+                    } else {
+                        publish(previous, from.update(from.products.without(product.getId()), before, null),
+                                target, to.update(to.products.with(product), null, product));
+                    }
+                    shardOfProduct.put(product.getId(), target.index);
+                    eventPublisher.publishEvent(new ProductSavedEvent(product, sequence));
+                } finally {
+                    endWrite(sequence);
+                }
+                return product;
+            } finally {
+                unlock(previous, target);
+            }
+        }
+    }
+
+    @Override
+    public boolean deleteById(int id) {
+        System.out.println("📦 [Product Microservice] Deleting product ID: " + id + " (sharded)");
+        while (true) {
+            Integer index = shardOfProduct.get(id);
+            if (index == null) {
+                return false;
+            }
+            Shard shard = shards[index];
+            shard.lock.lock();
+            try {
+                if (!index.equals(shardOfProduct.get(id))) {
+                    continue;
+                }
+                long sequence = beginWrite(ProductChange.Type.DELETED, id, null);
+                try {
+                    State current = states.get()[shard.index];
+                    Product before = current.products.get(id).orElse(null);
+                    publish(shard, current.update(current.products.without(id), before, null));
+                    shardOfProduct.remove(id);
+                    eventPublisher.publishEvent(new ProductDeletedEvent(id, sequence));
+                } finally {
+                    endWrite(sequence);
+                }
+                return true;
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public Optional<List<ProductChange>> changesSince(long sequence) {
+        return changeLog.since(sequence, version());
+    }
+
+    @Override
+    public List<Map<String, Object>> aggregate(AggregationSpec spec) {
+        System.out.println("📦 [Product Microservice] Aggregating products (sharded): " + spec);
+        return AggregationEngine.aggregate(snapshot().asList(), spec, PROPERTY_RESOLVER);
+    }
+
+    private Optional<Product> get(int id) {
+        State[] current = pins.isPinned() ? view().states : states.get();
+        Integer index = shardOfProduct.get(id);
+        if (index != null) {
+            Optional<Product> product = current[index].products.get(id);
+            if (product.isPresent()) {
+                return product;
+            }
+        }
+        // The product moved since these states were published, or does not exist; shards are few
+        for (State state : current) {
+            Optional<Product> product = state.products.get(id);
+            if (product.isPresent()) {
+                return product;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Shard states for reads: pinned by this thread, else the published ones
+     */
+    private View view() {
+        return pins.current(this::publishedView);
+    }
+
+    private View publishedView() {
+        // Version first: the states read afterwards contain at least its changes
+        long version = publishedVersion();
+        return new View(version, states.get());
+    }
+
+    private void publish(Shard shard, State state) {
+        publish(shard, state, shard, state);
+    }
+
+    /**
+     * Publishes the states of two shards, whose locks the caller holds, in
+     * one swap; retried when a write to another shard swapped in between
+     */
+    private void publish(Shard first, State firstState, Shard second, State secondState) {
+        states.updateAndGet(current -> {
+            State[] next = current.clone();
+            next[first.index] = firstState;
+            next[second.index] = secondState;
+            return next;
+        });
+    }
+
+    private Shard shardOf(int brandId) {
+        return shards[Math.floorMod(brandId, shards.length)];
+    }
+
+    /**
+     * Assigns the next sequence number and logs the change under it; the
+     * version stays below it until {@link #endWrite(long)}
+     */
+    private long beginWrite(ProductChange.Type type, int productId, Product product) {
+        synchronized (sequenceLock) {
+            long sequence = ++lastSequence;
+            pendingSequences.add(sequence);
+            // Logged before publishing, so a delta token read from the store never skips it
+            changeLog.record(sequence, type, productId, product);
+            return sequence;
+        }
+    }
+
+    private void endWrite(long sequence) {
+        synchronized (sequenceLock) {
+            pendingSequences.remove(sequence);
+        }
+    }
+
+    private static void lock(Shard first, Shard second) {
+        if (first == second) {
+            first.lock.lock();
+            return;
+        }
+        // Fixed order, so two moves in opposite directions cannot deadlock
+        Shard lower = first.index < second.index ? first : second;
+        Shard higher = lower == first ? second : first;
+        lower.lock.lock();
+        higher.lock.lock();
+    }
+
+    private static void unlock(Shard first, Shard second) {
+        first.lock.unlock();
+        if (first != second) {
+            second.lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the shard query on every shard; in parallel on the shard pool once
+     * the store is large enough, with the calling thread taking the first
+     * shard
+     */
+    private <R> List<R> fanOut(Function<State, R> shardQuery) {
+        State[] states = view().states;
+        int size = 0;
+        for (State state : states) {
+            size += state.products.size();
+        }
+        List<R> results = new ArrayList<>(states.length);
+        if (size < parallelThreshold || states.length == 1) {
+            for (State state : states) {
+                results.add(shardQuery.apply(state));
+            }
+            return results;
+        }
+        List<Future<R>> futures = new ArrayList<>(states.length - 1);
+        for (int i = 1; i < states.length; i++) {
+            State state = states[i];
+            futures.add(pool.submit(() -> shardQuery.apply(state)));
+        }
+        results.add(shardQuery.apply(states[0]));
+        for (Future<R> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while querying shards", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException("Shard query failed", e.getCause());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * K-way merge of lists that are each sorted by the comparator
+     */
+    private static List<Product> mergeSorted(List<List<Product>> sorted, Comparator<Product> comparator) {
+        List<List<Product>> nonEmpty = new ArrayList<>();
+        int total = 0;
+        for (List<Product> list : sorted) {
+            if (!list.isEmpty()) {
+                nonEmpty.add(list);
+                total += list.size();
+            }
+        }
+        if (nonEmpty.size() <= 1) {
+            return nonEmpty.isEmpty() ? Collections.emptyList() : nonEmpty.get(0);
+        }
+        // Heap of {list, position} cursors ordered by their current row
+        PriorityQueue<int[]> heads = new PriorityQueue<>(nonEmpty.size(),
+                (left, right) -> comparator.compare(nonEmpty.get(left[0]).get(left[1]),
+                        nonEmpty.get(right[0]).get(right[1])));
+        for (int i = 0; i < nonEmpty.size(); i++) {
+            heads.add(new int[] { i, 0 });
+        }
+        List<Product> merged = new ArrayList<>(total);
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<Product> list = nonEmpty.get(head[0]);
+            merged.add(list.get(head[1]));
+            if (++head[1] < list.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    private static final class Shard {
+        final int index;
+        final ReentrantLock lock = new ReentrantLock();
+
+        Shard(int index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     * Snapshot of one shard and its BrandID index, always published together
+     */
+    private static final class State {
+        final Snapshot<Product> products;
+        final BrandIndex productsByBrand;
+
+        State(Snapshot<Product> products, BrandIndex productsByBrand) {
+            this.products = products;
+            this.productsByBrand = productsByBrand;
+        }
+
+        /**
+         * State after one write, re-indexing only the product's old and new
+         * brand
+         */
+        State update(Snapshot<Product> products, Product previous, Product next) {
+            return new State(products, productsByBrand.update(previous, next));
+        }
+
+        /**
+         * Filtered rows, sorted when there is an order, at most limit of them
+         */
+        List<Product> query(ProductCriteria criteria, Comparator<Product> comparator, long limit) {
+            Stream<Product> rows = products.stream();
+            for (ProductCriteria.Condition condition : criteria.getConditions()) {
+                Function<Product, Object> value = PROPERTY_RESOLVER.value(condition.getProperty());
+                rows = rows.filter(product -> condition.matches(value.apply(product)));
+            }
+            if (comparator != null) {
+                rows = rows.sorted(comparator);
+            }
+            return rows.limit(limit).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Version and the shard states that make it up; shard i's state is
+     * states[i]
+     */
+    private static final class View {
+        final long version;
+        final State[] states;
+
+        View(long version, State[] states) {
+            this.version = version;
+            this.states = states;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Snapshot<Product>[] snapshotArray(int length) {
+        // Only ever holds product snapshots
+        return (Snapshot<Product>[]) new Snapshot<?>[length];
+    }
+
+    /**
+     * Merged snapshot and the shard snapshots it was built from
+     */
+    private static final class Merged {
+        final Snapshot<Product>[] shards;
+        final Snapshot<Product> products;
+
+        Merged(Snapshot<Product>[] shards, Snapshot<Product> products) {
+            this.shards = shards;
+            this.products = products;
+        }
+    }
+}
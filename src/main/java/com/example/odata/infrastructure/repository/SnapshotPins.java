@@ -0,0 +1,129 @@
+package com.example.odata.infrastructure.repository;
+
+import com.example.odata.domain.repository.SnapshotPin;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Infrastructure Layer - Per-thread pins of a store's published state
+ * A store keeps its published state S in a volatile field and reads it
+ * through {@link #current(Supplier)}: a thread holding a pin gets the state
+ * captured when its outermost pin was taken, other threads the published
+ * one. A pinned state is only referenced by its pins, so it becomes garbage
+ * once its last pin is closed and a newer state has been published.
+ *
+ * Metrics: odata.snapshot.pins{store=...} (open outermost pins, including
+ * pins carried to other threads) and odata.snapshot.pinned-versions{store=...}
+ * (distinct versions they hold)
+ */
+final class SnapshotPins<S> {
+
+    private final ThreadLocal<Pin> pinned = new ThreadLocal<>();
+    private final Map<Long, AtomicInteger> pinsByVersion = new ConcurrentHashMap<>();
+    private final AtomicInteger open = new AtomicInteger();
+
+    SnapshotPins(MeterRegistry meterRegistry, String store) {
+        Gauge.builder("odata.snapshot.pins", open, AtomicInteger::get)
+                .description("Open snapshot pins; each holds one version for a request or a task")
+                .tag("store", store)
+                .register(meterRegistry);
+        Gauge.builder("odata.snapshot.pinned-versions", pinsByVersion, Map::size)
+                .description("Distinct versions held by open snapshot pins")
+                .tag("store", store)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the state pinned by this thread, or the published one
+     */
+    S current(Supplier<S> published) {
+        Pin pin = pinned.get();
+        return pin != null ? pin.state : published.get();
+    }
+
+    boolean isPinned() {
+        return pinned.get() != null;
+    }
+
+    /**
+     * Pins the state unless this thread already holds a pin, in which case
+     * the returned pin is nested and keeps the outer state
+     */
+    SnapshotPin pin(S state, long version) {
+        Pin outer = pinned.get();
+        if (outer != null) {
+            outer.depth++;
+            return outer;
+        }
+        return open(state, version);
+    }
+
+    /**
+     * Wraps a task handed to another thread so that it reads the state this
+     * thread has pinned (if any) instead of the published one. The pin is
+     * captured now; each run of the task holds a copy of it, counted like any
+     * other pin, so the state stays pinned while a run outlives the caller's
+     * pin.
+     */
+    <A, R> Function<A, R> carry(Function<A, R> task) {
+        Pin pin = pinned.get();
+        if (pin == null) {
+            return task;
+        }
+        return argument -> {
+            Pin previous = pinned.get();
+            Pin copy = open(pin.state, pin.version);
+            try {
+                return task.apply(argument);
+            } finally {
+                copy.close();
+                if (previous != null) {
+                    pinned.set(previous);
+                }
+            }
+        };
+    }
+
+    <T> Supplier<T> carry(Supplier<T> task) {
+        Function<Void, T> carried = carry(ignored -> task.get());
+        return () -> carried.apply(null);
+    }
+
+    private Pin open(S state, long version) {
+        Pin pin = new Pin(state, version);
+        pinned.set(pin);
+        open.incrementAndGet();
+        pinsByVersion.computeIfAbsent(version, v -> new AtomicInteger()).incrementAndGet();
+        return pin;
+    }
+
+    private final class Pin implements SnapshotPin {
+        final S state;
+        final long version;
+        int depth = 1;
+
+        Pin(S state, long version) {
+            this.state = state;
+            this.version = version;
+        }
+
+        @Override
+        public void close() {
+            if (--depth > 0) {
+                return;
+            }
+            if (depth < 0) {
+                throw new IllegalStateException("Snapshot pin closed twice");
+            }
+            pinned.remove();
+            open.decrementAndGet();
+            pinsByVersion.computeIfPresent(version, (v, count) -> count.decrementAndGet() == 0 ? null : count);
+        }
+    }
+}
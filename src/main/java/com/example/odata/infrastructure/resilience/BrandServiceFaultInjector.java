@@ -0,0 +1,38 @@
+package com.example.odata.infrastructure.resilience;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Infrastructure - In-process fault injection for the simulated Brand microservice
+ * Adds latency and random failures to brand calls so the resilience layer can
+ * be exercised locally, e.g. --brand.faults.latency-ms=500
+ * --brand.faults.failure-rate=0.5 (both disabled by default)
+ */
+@Component
+public class BrandServiceFaultInjector {
+
+    private final long latencyMs;
+    private final double failureRate;
+
+    public BrandServiceFaultInjector(@Value("${brand.faults.latency-ms:0}") long latencyMs,
+            @Value("${brand.faults.failure-rate:0.0}") double failureRate) {
+        this.latencyMs = latencyMs;
+        this.failureRate = failureRate;
+    }
+
+    public void beforeCall() {
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new IllegalStateException("Injected Brand service failure");
+        }
+    }
+}
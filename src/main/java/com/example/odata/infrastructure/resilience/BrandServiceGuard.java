@@ -0,0 +1,174 @@
+package com.example.odata.infrastructure.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Infrastructure - Resilience layer for the Brand microservice
+ * Every brand lookup passes through a bulkhead and a circuit breaker; rejected,
+ * failed or short-circuited calls are answered by the caller's fallback so a
+ * degraded Brand service degrades $expand instead of the whole API.
+ * Calls slower than the slow-call threshold count as failures; calls still
+ * running after the call timeout are abandoned (interrupted) and answered by
+ * the fallback as well. Calls run on the guard's own worker threads, so a
+ * caller that needs thread-bound state (e.g. a snapshot pin) must carry it
+ * into the call itself.
+ *
+ * Metrics: brand.circuit.state (0 closed, 1 open, 2 half-open) and
+ * brand.calls{outcome=...}
+ */
+@Slf4j
+@Component
+public class BrandServiceGuard {
+
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final long slowCallThresholdNanos;
+    private final long callTimeoutNanos;
+    private final AtomicInteger workerCount = new AtomicInteger();
+    private final ExecutorService workers;
+
+    private final Counter successCalls;
+    private final Counter failedCalls;
+    private final Counter slowCalls;
+    private final Counter timedOutCalls;
+    private final Counter shortCircuitedCalls;
+    private final Counter bulkheadRejectedCalls;
+
+    public BrandServiceGuard(MeterRegistry meterRegistry,
+            @Value("${brand.resilience.max-concurrent-calls:10}") int maxConcurrentCalls,
+            @Value("${brand.resilience.max-wait-ms:20}") long maxWaitMs,
+            @Value("${brand.resilience.failure-threshold:5}") int failureThreshold,
+            @Value("${brand.resilience.open-duration-ms:5000}") long openDurationMs,
+            @Value("${brand.resilience.slow-call-threshold-ms:200}") long slowCallThresholdMs,
+            @Value("${brand.resilience.call-timeout-ms:1000}") long callTimeoutMs) {
+        this.bulkhead = new Bulkhead(maxConcurrentCalls, Duration.ofMillis(maxWaitMs));
+        this.circuitBreaker = new CircuitBreaker("brand-service", failureThreshold,
+                Duration.ofMillis(openDurationMs));
+        this.slowCallThresholdNanos = Duration.ofMillis(slowCallThresholdMs).toNanos();
+        this.callTimeoutNanos = Duration.ofMillis(callTimeoutMs).toNanos();
+        // Abandoned calls may keep a worker until they notice the interrupt; later calls
+        // then queue and time out, which opens the circuit
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrentCalls, maxConcurrentCalls, 60,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "brand-call-" + workerCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.workers = pool;
+
+        Gauge.builder("brand.circuit.state", circuitBreaker, cb -> cb.getState().ordinal())
+                .description("Brand service circuit state (0 closed, 1 open, 2 half-open)")
+                .register(meterRegistry);
+        this.successCalls = outcomeCounter(meterRegistry, "success");
+        this.failedCalls = outcomeCounter(meterRegistry, "failure");
+        this.slowCalls = outcomeCounter(meterRegistry, "slow");
+        this.timedOutCalls = outcomeCounter(meterRegistry, "timeout");
+        this.shortCircuitedCalls = outcomeCounter(meterRegistry, "short_circuited");
+        this.bulkheadRejectedCalls = outcomeCounter(meterRegistry, "bulkhead_full");
+    }
+
+    /**
+     * Executes a brand service call, answering with the fallback when the
+     * bulkhead is full, the circuit is open or the call fails or times out
+     */
+    public <T> T execute(Supplier<T> call, Supplier<T> fallback) {
+        if (!bulkhead.tryEnter()) {
+            bulkheadRejectedCalls.increment();
+            return fallback.get();
+        }
+        try {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                shortCircuitedCalls.increment();
+                return fallback.get();
+            }
+
+            // The outcome is reported in finally, so even an Error thrown by the call
+            // cannot leave a half-open probe in flight forever
+            boolean succeeded = false;
+            long start = System.nanoTime();
+            try {
+                T result = callWithTimeout(call);
+                if (System.nanoTime() - start > slowCallThresholdNanos) {
+                    slowCalls.increment();
+                } else {
+                    succeeded = true;
+                    successCalls.increment();
+                }
+                return result;
+            } catch (TimeoutException e) {
+                log.warn("🏷️  Brand service call timed out after {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(callTimeoutNanos));
+                timedOutCalls.increment();
+                return fallback.get();
+            } catch (RuntimeException e) {
+                log.warn("🏷️  Brand service call failed: {}", e.getMessage());
+                failedCalls.increment();
+                return fallback.get();
+            } finally {
+                if (succeeded) {
+                    circuitBreaker.onSuccess();
+                } else {
+                    circuitBreaker.onFailure();
+                }
+            }
+        } finally {
+            bulkhead.exit();
+        }
+    }
+
+    public CircuitBreaker.State getState() {
+        return circuitBreaker.getState();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private <T> T callWithTimeout(Supplier<T> call) throws TimeoutException {
+        Future<T> future = workers.submit(call::get);
+        try {
+            return future.get(callTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw e;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the brand service", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("brand.calls")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.odata.infrastructure.search;
+
+import com.example.odata.domain.event.ProductDeletedEvent;
+import com.example.odata.domain.event.ProductSavedEvent;
+import com.example.odata.domain.model.Product;
+import com.example.odata.domain.repository.ProductRepository;
+import com.example.odata.domain.repository.ProductSearchIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Infrastructure Layer - Inverted index over product Name and Description
+ * Built at startup and kept current on every product save and delete
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class InMemoryProductSearchIndex implements ProductSearchIndex {
+
+    private final ProductRepository productRepository;
+
+    // Name matches weigh twice as much as Description matches
+    private final InvertedIndex index = new InvertedIndex(List.of("Name", "Description"), 2.0, 1.0);
+
+    @PostConstruct
+    public void init() {
+        productRepository.findAll().forEach(this::put);
+        log.info("🔎 Indexed products for $search");
+    }
+
+    @Override
+    public List<Integer> search(String query) {
+        return index.search(query);
+    }
+
+    @Override
+    public Set<Integer> candidates(String property, String text) {
+        return index.candidates(property, text);
+    }
+
+    @EventListener
+    public void onProductSaved(ProductSavedEvent event) {
+        put(event.getProduct());
+    }
+
+    @EventListener
+    public void onProductDeleted(ProductDeletedEvent event) {
+        index.remove(event.getProductId());
+    }
+
+    private void put(Product product) {
+        index.put(product.getId(), product.getName(), product.getDescription());
+    }
+}
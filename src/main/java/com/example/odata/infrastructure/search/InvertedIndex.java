@@ -0,0 +1,235 @@
+package com.example.odata.infrastructure.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Infrastructure - In-memory inverted index over the text fields of a document
+ * Tokens are split on non-alphanumeric characters and case-folded. Search
+ * terms match tokens by prefix and hits are ranked by a field-weighted tf-idf
+ * score. A per-field suffix index additionally answers "which documents may
+ * contain this substring", used to narrow contains/startswith filters before
+ * they are evaluated exactly.
+ */
+public class InvertedIndex {
+
+    // Exact token hits score higher than prefix-only hits
+    private static final double PREFIX_MATCH_FACTOR = 0.5;
+
+    private final List<String> fields;
+    private final double[] fieldWeights;
+
+    // term -> (document -> field-weighted term frequency)
+    private final NavigableMap<String, Map<Integer, Double>> postings = new TreeMap<>();
+    // per field: token suffix -> documents
+    private final List<NavigableMap<String, Set<Integer>>> suffixes = new ArrayList<>();
+    private final Map<Integer, String[]> documents = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public InvertedIndex(List<String> fields, double... fieldWeights) {
+        if (fields.size() != fieldWeights.length) {
+            throw new IllegalArgumentException("One weight per field is required");
+        }
+        this.fields = List.copyOf(fields);
+        this.fieldWeights = fieldWeights.clone();
+        for (int i = 0; i < fields.size(); i++) {
+            suffixes.add(new TreeMap<>());
+        }
+    }
+
+    /**
+     * Indexes (or re-indexes) a document; values are given in field order
+     */
+    public void put(int id, String... values) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            documents.put(id, values.clone());
+            for (int field = 0; field < fields.size(); field++) {
+                for (String token : tokenize(values[field])) {
+                    postings.computeIfAbsent(token, t -> new HashMap<>()).merge(id, fieldWeights[field], Double::sum);
+                    for (int start = 0; start < token.length(); start++) {
+                        suffixes.get(field).computeIfAbsent(token.substring(start), s -> new HashSet<>()).add(id);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Evaluates an OData-style search expression: whitespace-separated terms
+     * are ANDed, "OR" separates alternatives and "NOT" excludes the next term
+     *
+     * @return matching document ids, most relevant first
+     */
+    public List<Integer> search(String query) {
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> scores = new HashMap<>();
+            for (List<String> group : parse(query)) {
+                searchGroup(group).forEach((id, score) -> scores.merge(id, score, Math::max));
+            }
+
+            List<Integer> ranked = new ArrayList<>(scores.keySet());
+            ranked.sort(Comparator.<Integer>comparingDouble(scores::get).reversed()
+                    .thenComparing(Comparator.naturalOrder()));
+            return ranked;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Superset of the documents whose field contains the given text (ignoring
+     * case), or null if the text has no indexable token
+     */
+    public Set<Integer> candidates(String field, String text) {
+        int fieldIndex = fields.indexOf(field);
+        String longest = tokenize(text).stream().max(Comparator.comparingInt(String::length)).orElse(null);
+        if (fieldIndex < 0 || longest == null) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            Set<Integer> candidates = new HashSet<>();
+            prefixRange(suffixes.get(fieldIndex), longest).values().forEach(candidates::addAll);
+            return candidates;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // --- Helper Methods ---
+
+    private Map<Integer, Double> searchGroup(List<String> clauses) {
+        Map<Integer, Double> result = null;
+        Set<Integer> excluded = new HashSet<>();
+
+        for (int i = 0; i < clauses.size(); i++) {
+            if ("NOT".equals(clauses.get(i)) && i + 1 < clauses.size()) {
+                excluded.addAll(matchTerm(clauses.get(++i)).keySet());
+                continue;
+            }
+            Map<Integer, Double> matches = matchTerm(clauses.get(i));
+            if (result == null) {
+                result = new HashMap<>(matches);
+            } else {
+                result.keySet().retainAll(matches.keySet());
+                result.replaceAll((id, score) -> score + matches.get(id));
+            }
+        }
+
+        if (result == null) {
+            // Only negated terms: everything except the excluded documents
+            result = new HashMap<>();
+            for (Integer id : documents.keySet()) {
+                result.put(id, 0.0);
+            }
+        }
+        result.keySet().removeAll(excluded);
+        return result;
+    }
+
+    private Map<Integer, Double> matchTerm(String term) {
+        Map<Integer, Double> result = null;
+        // A term such as "usb-c" yields several tokens, all of which must match
+        for (String token : tokenize(term)) {
+            Map<Integer, Double> matches = new HashMap<>();
+            prefixRange(postings, token).forEach((indexed, docs) -> {
+                double idf = Math.log(1.0 + (double) documents.size() / docs.size());
+                double factor = indexed.equals(token) ? 1.0 : PREFIX_MATCH_FACTOR;
+                docs.forEach((id, tf) -> matches.merge(id, tf * idf * factor, Double::sum));
+            });
+
+            if (result == null) {
+                result = matches;
+            } else {
+                result.keySet().retainAll(matches.keySet());
+                result.replaceAll((id, score) -> score + matches.get(id));
+            }
+        }
+        return result != null ? result : Collections.emptyMap();
+    }
+
+    private static <V> NavigableMap<String, V> prefixRange(NavigableMap<String, V> map, String prefix) {
+        return map.subMap(prefix, true, prefix + Character.MAX_VALUE, true);
+    }
+
+    private static List<List<String>> parse(String query) {
+        List<List<String>> groups = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        for (String word : query.replace("\"", " ").trim().split("\\s+")) {
+            if ("OR".equals(word)) {
+                if (!current.isEmpty()) {
+                    groups.add(current);
+                }
+                current = new ArrayList<>();
+            } else if (!word.isEmpty() && !"AND".equals(word)) {
+                current.add(word);
+            }
+        }
+        if (!current.isEmpty()) {
+            groups.add(current);
+        }
+        return groups;
+    }
+
+    private void removeInternal(int id) {
+        String[] values = documents.remove(id);
+        if (values == null) {
+            return;
+        }
+        for (int field = 0; field < fields.size(); field++) {
+            for (String token : tokenize(values[field])) {
+                Map<Integer, Double> docs = postings.get(token);
+                if (docs != null && docs.remove(id) != null && docs.isEmpty()) {
+                    postings.remove(token);
+                }
+                for (int start = 0; start < token.length(); start++) {
+                    String suffix = token.substring(start);
+                    Set<Integer> ids = suffixes.get(field).get(suffix);
+                    if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                        suffixes.get(field).remove(suffix);
+                    }
+                }
+            }
+        }
+    }
+}
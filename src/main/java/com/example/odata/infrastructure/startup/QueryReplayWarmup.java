@@ -0,0 +1,194 @@
+package com.example.odata.infrastructure.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Infrastructure - JIT warm-up by replaying representative queries
+ * Part of the startup warm-up, so it runs before readiness reports UP: the
+ * queries of odata.warmup.queries (GET only, against /odata and /OData.svc)
+ * are sent in rounds to the application's own port, through Tomcat, the
+ * filters, both OData stacks, Jackson and the repositories, until
+ * odata.warmup.rounds rounds are done or odata.warmup.max-duration-ms has
+ * passed. The report compares each query's first (cold) latency with the
+ * median of the final rounds.
+ *
+ * Replayed requests carry a per-process random token and bypass admission
+ * control, so they neither use up the rate limit of the loopback client nor
+ * the shared budget; nothing else distinguishes them from client requests.
+ * Open-ended streams ($changes) cannot be replayed.
+ */
+@Slf4j
+@Component
+public class QueryReplayWarmup {
+
+    public static final String TOKEN_HEADER = "X-Warmup-Token";
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private final boolean enabled;
+    private final Resource queries;
+    private final int rounds;
+    private final long maxDurationMillis;
+    private final String token = UUID.randomUUID().toString();
+
+    public QueryReplayWarmup(@Value("${odata.warmup.enabled:true}") boolean enabled,
+            @Value("${odata.warmup.queries:classpath:warmup-queries.txt}") Resource queries,
+            @Value("${odata.warmup.rounds:100}") int rounds,
+            @Value("${odata.warmup.max-duration-ms:15000}") long maxDurationMillis) {
+        this.enabled = enabled;
+        this.queries = queries;
+        this.rounds = rounds;
+        this.maxDurationMillis = maxDurationMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return whether the request was sent by this warm-up
+     */
+    public boolean isReplayed(String tokenHeader) {
+        return token.equals(tokenHeader);
+    }
+
+    /**
+     * Replays the queries against the server on the given port and logs the
+     * before/after latency report
+     *
+     * @return the number of requests that failed
+     */
+    public int replay(int port) {
+        List<String> paths = readQueries();
+        if (paths.isEmpty()) {
+            return 0;
+        }
+        HttpClient client = HttpClient.newBuilder().connectTimeout(REQUEST_TIMEOUT).build();
+        String baseUrl = "http://localhost:" + port;
+
+        // latencies[query][round] in microseconds
+        long[][] latencies = new long[paths.size()][rounds];
+        int[] failures = new int[paths.size()];
+        long deadline = System.nanoTime() + maxDurationMillis * 1_000_000;
+        long start = System.nanoTime();
+        int completedRounds = 0;
+
+        while (completedRounds < rounds && System.nanoTime() < deadline) {
+            for (int i = 0; i < paths.size(); i++) {
+                long sent = System.nanoTime();
+                if (!send(client, baseUrl, paths.get(i)) && failures[i]++ == 0) {
+                    log.warn("⚠️ Warm-up query failed: GET {}", paths.get(i));
+                }
+                latencies[i][completedRounds] = (System.nanoTime() - sent) / 1000;
+            }
+            completedRounds++;
+        }
+
+        log.info(report(paths, latencies, failures, completedRounds, (System.nanoTime() - start) / 1_000_000));
+        return Arrays.stream(failures).sum();
+    }
+
+    private boolean send(HttpClient client, String baseUrl, String path) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + encode(path)))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/json")
+                .header(TOKEN_HEADER, token)
+                .GET()
+                .build();
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() < 400;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Per query: latency of the first request and median of the final tenth
+     * of the rounds
+     */
+    private static String report(List<String> paths, long[][] latencies, int[] failures, int rounds,
+            long elapsedMillis) {
+        int tail = Math.max(1, rounds / 10);
+        StringBuilder report = new StringBuilder(String.format(
+                "🔥 Warm-up replayed %d queries x %d rounds in %d ms (first request vs median of the last %d rounds)",
+                paths.size(), rounds, elapsedMillis, tail));
+        report.append(String.format("%n   %10s %10s %8s  query", "first ms", "after ms", "failed"));
+        for (int i = 0; i < paths.size(); i++) {
+            long[] last = Arrays.copyOfRange(latencies[i], rounds - tail, rounds);
+            Arrays.sort(last);
+            report.append(String.format("%n   %10.1f %10.2f %8d  GET %s", latencies[i][0] / 1000.0,
+                    last[last.length / 2] / 1000.0, failures[i], paths.get(i)));
+        }
+        return report.toString();
+    }
+
+    /**
+     * @return paths of the "GET path" lines; blank lines and # comments are
+     *         skipped
+     */
+    private List<String> readQueries() {
+        List<String> paths = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(queries.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (!line.startsWith("GET ")) {
+                    throw new IllegalArgumentException("Warm-up queries must be 'GET path' lines: " + line);
+                }
+                String path = line.substring("GET ".length()).trim();
+                if (path.contains("/$changes")) {
+                    // A change stream never completes, so each round would wait for the request timeout
+                    throw new IllegalArgumentException("Warm-up queries cannot subscribe to $changes: " + line);
+                }
+                paths.add(path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read warm-up queries from " + queries, e);
+        }
+        return paths;
+    }
+
+    /**
+     * Percent-encodes the characters of a readable query string that are not
+     * allowed in a URI (spaces, quotes, ...); '$', '/', '=', '&' and ',' stay
+     */
+    private static String encode(String path) {
+        StringBuilder encoded = new StringBuilder(path.length() + 16);
+        for (byte b : path.getBytes(StandardCharsets.UTF_8)) {
+            int c = b & 0xFF;
+            if (c > 0x20 && c < 0x7F && "\"'<>\\^`{|}#".indexOf(c) < 0) {
+                encoded.append((char) c);
+            } else {
+                encoded.append('%').append(Character.toUpperCase(Character.forDigit(c >> 4, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(c & 0xF, 16)));
+            }
+        }
+        return encoded.toString();
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.odata.infrastructure.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Infrastructure - Startup phase timing report
+ * Logs, once the startup warm-up has finished, when each phase ended in
+ * milliseconds since JVM start (JVM and class loading before Spring, context
+ * refresh, application ready, warm-up done = readiness UP) and the slowest
+ * bean creations recorded by the BufferingApplicationStartup. The first
+ * request to the service (not /actuator, not the warm-up's own) after
+ * readiness is logged separately as the time-to-first-request. The recorded steps are also served by
+ * /actuator/startup.
+ */
+@Slf4j
+@Component
+public class StartupTimingReport {
+
+    private static final int SLOWEST_BEANS = 5;
+
+    private final ApplicationStartup applicationStartup;
+    private final Map<String, Long> marks = new LinkedHashMap<>();
+    private final AtomicBoolean firstRequestSeen = new AtomicBoolean();
+    private volatile boolean warmupCompleted;
+
+    public StartupTimingReport(ApplicationStartup applicationStartup) {
+        this.applicationStartup = applicationStartup;
+    }
+
+    @EventListener
+    public void onApplicationStarted(ApplicationStartedEvent event) {
+        mark("context refreshed");
+    }
+
+    // Before the warm-up, which may report right away
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        mark("application ready");
+    }
+
+    @EventListener
+    public void onRequestHandled(ServletRequestHandledEvent event) {
+        if (warmupCompleted && !event.getRequestUrl().startsWith("/actuator")
+                && firstRequestSeen.compareAndSet(false, true)) {
+            log.info("⏱️ First request ({} {}) served {} ms after JVM start, in {} ms", event.getMethod(),
+                    event.getRequestUrl(), uptime(), event.getProcessingTimeMillis());
+        }
+    }
+
+    /**
+     * Records the duration of a warm-up phase
+     */
+    public synchronized void phase(String name, long millis) {
+        marks.put(name + " took", millis);
+    }
+
+    public void warmupCompleted() {
+        mark("warm-up done, readiness UP");
+        warmupCompleted = true;
+        log.info(report());
+    }
+
+    private synchronized void mark(String name) {
+        marks.put(name, uptime());
+    }
+
+    private synchronized String report() {
+        StringBuilder report = new StringBuilder("⏱️ Startup timing (ms since JVM start)");
+        if (applicationStartup instanceof BufferingApplicationStartup) {
+            StartupTimeline timeline = ((BufferingApplicationStartup) applicationStartup).getBufferedTimeline();
+            long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+            line(report, "JVM start to Spring start", timeline.getStartTime().toEpochMilli() - jvmStart);
+            timeline.getEvents().stream()
+                    .filter(event -> event.getStartupStep().getName().equals("spring.context.refresh"))
+                    .findFirst()
+                    .ifPresent(event -> line(report, "context refresh took", event.getDuration().toMillis()));
+        }
+        marks.forEach((name, millis) -> line(report, name, millis));
+
+        if (applicationStartup instanceof BufferingApplicationStartup) {
+            String slowest = ((BufferingApplicationStartup) applicationStartup).getBufferedTimeline().getEvents()
+                    .stream()
+                    .filter(event -> event.getStartupStep().getName().equals("spring.beans.instantiate"))
+                    .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                    .limit(SLOWEST_BEANS)
+                    .map(event -> beanName(event) + " " + event.getDuration().toMillis() + " ms")
+                    .collect(Collectors.joining(", "));
+            report.append("\n   slowest bean creations (with their dependencies): ").append(slowest);
+        }
+        return report.toString();
+    }
+
+    private static String beanName(StartupTimeline.TimelineEvent event) {
+        for (StartupStep.Tag tag : event.getStartupStep().getTags()) {
+            if (tag.getKey().equals("beanName")) {
+                return tag.getValue();
+            }
+        }
+        return "?";
+    }
+
+    private static void line(StringBuilder report, String name, long millis) {
+        report.append(String.format("%n   %-40s %6d", name, millis));
+    }
+
+    private static long uptime() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
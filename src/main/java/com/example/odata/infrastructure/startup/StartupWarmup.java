@@ -0,0 +1,120 @@
+package com.example.odata.infrastructure.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Infrastructure - Startup warm-up behind the readiness probe
+ * Runs once the application is ready. With odata.startup.background-warmup
+ * (the fast-startup profile) it creates the singletons that lazy
+ * initialization skipped - repositories, indexes, query pipeline - on a
+ * background thread while the server already accepts connections. Then the
+ * QueryReplayWarmup replays representative queries so the JIT has compiled
+ * the hot paths. Until both have finished, the "warmup" health contributor,
+ * part of the readiness group, reports OUT_OF_SERVICE.
+ */
+@Slf4j
+@Component
+public class StartupWarmup {
+
+    private final ConfigurableListableBeanFactory beanFactory;
+    private final StartupTimingReport timingReport;
+    private final QueryReplayWarmup queryReplay;
+    private final boolean background;
+    private final boolean exitAfterWarmup;
+
+    private volatile String phase = "waiting for application ready";
+    private volatile boolean done;
+    private volatile boolean failed;
+
+    public StartupWarmup(ConfigurableListableBeanFactory beanFactory, StartupTimingReport timingReport,
+            QueryReplayWarmup queryReplay,
+            @Value("${odata.startup.background-warmup:false}") boolean background,
+            @Value("${odata.startup.exit-after-warmup:false}") boolean exitAfterWarmup) {
+        this.beanFactory = beanFactory;
+        this.timingReport = timingReport;
+        this.queryReplay = queryReplay;
+        this.background = background;
+        this.exitAfterWarmup = exitAfterWarmup;
+    }
+
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        if (!background) {
+            run(event.getApplicationContext());
+            return;
+        }
+        Thread thread = new Thread(() -> run(event.getApplicationContext()), "startup-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    /**
+     * Creates what lazy initialization left out; a no-op otherwise. Unlike a
+     * second preInstantiateSingletons() it does not re-run the
+     * after-singletons callbacks, which would register every @EventListener
+     * again and deliver each event twice.
+     */
+    private void createSingletons() {
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getMergedBeanDefinition(name);
+            if (!definition.isAbstract() && definition.isSingleton()) {
+                beanFactory.getBean(beanFactory.isFactoryBean(name) ? BeanFactory.FACTORY_BEAN_PREFIX + name : name);
+            }
+        }
+    }
+
+    private void run(ConfigurableApplicationContext context) {
+        try {
+            phase = "creating beans";
+            long start = System.nanoTime();
+            createSingletons();
+            timingReport.phase("bean creation (warm-up)", (System.nanoTime() - start) / 1_000_000);
+
+            if (queryReplay.isEnabled() && context instanceof WebServerApplicationContext) {
+                phase = "replaying queries";
+                start = System.nanoTime();
+                int failures = queryReplay.replay(((WebServerApplicationContext) context).getWebServer().getPort());
+                if (failures > 0) {
+                    log.warn("⚠️ {} warm-up requests failed, see the query replay report", failures);
+                }
+                timingReport.phase("query replay (warm-up)", (System.nanoTime() - start) / 1_000_000);
+            }
+
+            phase = "done";
+            done = true;
+            timingReport.warmupCompleted();
+        } catch (RuntimeException e) {
+            phase = "failed: " + e.getMessage();
+            failed = true;
+            log.error("❌ Startup warm-up failed, readiness stays down", e);
+        }
+
+        if (exitAfterWarmup) {
+            // Training run, e.g. for the AppCDS archive: the JVM exits normally
+            log.info("👋 Exiting after warm-up (odata.startup.exit-after-warmup)");
+            System.exit(SpringApplication.exit(context, () -> failed ? 1 : 0));
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.odata.infrastructure.stream;
+
+import com.example.odata.domain.event.ProductDeletedEvent;
+import com.example.odata.domain.event.ProductSavedEvent;
+import com.example.odata.domain.model.ProductChange;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Infrastructure - Pushes product changes to stream subscribers
+ * Saves and deletes are published once into a bounded ring buffer. Every
+ * subscriber reads the buffer from its own position on a worker of its own,
+ * so a slow subscriber only delays itself. A subscriber that falls more
+ * than max-lag events behind (or whose connection fails) is evicted; it can
+ * catch up through a $deltatoken request using the last sequence it saw.
+ * A reconnecting subscriber can instead resume after its last sequence,
+ * replayed from the buffer as long as the buffer still holds the changes.
+ *
+ * Metrics: odata.changes.subscribers and odata.changes.evictions
+ */
+@Slf4j
+@Component
+public class ProductChangeBroadcaster {
+
+    /**
+     * Receives the changes of one subscription, in order
+     */
+    public interface Subscriber {
+        void send(ProductChange change) throws IOException;
+
+        void evicted(String reason);
+    }
+
+    private final RingBuffer<ProductChange> buffer;
+    private final int maxLag;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger workerCount = new AtomicInteger();
+    private final ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "product-changes-" + workerCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Counter evictions;
+
+    public ProductChangeBroadcaster(MeterRegistry meterRegistry,
+            @Value("${odata.changes.buffer-capacity:1024}") int bufferCapacity,
+            @Value("${odata.changes.max-lag:512}") int maxLag) {
+        this.buffer = new RingBuffer<>(bufferCapacity);
+        this.maxLag = Math.min(maxLag, bufferCapacity);
+
+        Gauge.builder("odata.changes.subscribers", subscriptions, Set::size)
+                .description("Open product change stream subscriptions")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("odata.changes.evictions")
+                .description("Subscribers evicted for falling behind or failing")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Subscribes to the changes after a sequence (a delta token, or the last
+     * event id of an earlier stream), replaying the ones still buffered.
+     * Nothing is sent before the subscription is started.
+     *
+     * @return empty if changes after the sequence have left the buffer
+     */
+    public Optional<Subscription> subscribe(Subscriber subscriber, long afterSequence) {
+        // Walk back from the head to the first buffered change after the sequence
+        long position = buffer.head();
+        ProductChange previous;
+        while ((previous = position > 0 ? buffer.get(position - 1) : null) != null
+                && previous.getSequence() > afterSequence) {
+            position--;
+        }
+        if (position > 0 && previous == null) {
+            // Overwritten: a change after the sequence may be lost
+            return Optional.empty();
+        }
+        Subscription subscription = new Subscription(subscriber, position, afterSequence);
+        subscriptions.add(subscription);
+        log.info("📡 Change stream subscriber added after sequence {} ({} open)", afterSequence,
+                subscriptions.size());
+        return Optional.of(subscription);
+    }
+
+    @EventListener
+    public void onProductSaved(ProductSavedEvent event) {
+        publish(new ProductChange(event.getSequence(), ProductChange.Type.SAVED, event.getProduct().getId(),
+                event.getProduct()));
+    }
+
+    @EventListener
+    public void onProductDeleted(ProductDeletedEvent event) {
+        publish(new ProductChange(event.getSequence(), ProductChange.Type.DELETED, event.getProductId(), null));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private void publish(ProductChange change) {
+        buffer.publish(change);
+        subscriptions.forEach(Subscription::schedule);
+    }
+
+    /**
+     * One subscriber and its read position in the ring buffer
+     */
+    public final class Subscription {
+        private final Subscriber subscriber;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // Changes up to this sequence are already known to the subscriber
+        private final long afterSequence;
+        private volatile boolean started;
+        private volatile boolean closed;
+        private long position;
+
+        private Subscription(Subscriber subscriber, long position, long afterSequence) {
+            this.subscriber = subscriber;
+            this.position = position;
+            this.afterSequence = afterSequence;
+        }
+
+        /**
+         * Starts sending, beginning with the replayed changes
+         */
+        public void start() {
+            started = true;
+            schedule();
+        }
+
+        /**
+         * Ends the subscription (e.g. when the client disconnects)
+         */
+        public void close() {
+            closed = true;
+            if (subscriptions.remove(this)) {
+                log.info("📡 Change stream subscriber removed ({} open)", subscriptions.size());
+            }
+        }
+
+        private void schedule() {
+            if (started && !closed && draining.compareAndSet(false, true)) {
+                workers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (!closed && position < buffer.head()) {
+                    ProductChange change = buffer.get(position);
+                    if (change == null || buffer.head() - position > maxLag) {
+                        evict("fell more than " + maxLag + " changes behind");
+                        return;
+                    }
+                    // Published concurrently with the subscription, but already covered by its sequence
+                    if (change.getSequence() > afterSequence) {
+                        subscriber.send(change);
+                    }
+                    position++;
+                }
+            } catch (IOException | RuntimeException e) {
+                evict("send failed: " + e.getMessage());
+                return;
+            } finally {
+                draining.set(false);
+            }
+            // A change published after the loop ended but before draining was reset
+            if (position < buffer.head()) {
+                schedule();
+            }
+        }
+
+        private void evict(String reason) {
+            log.warn("📡 Evicting change stream subscriber: {}", reason);
+            evictions.increment();
+            close();
+            subscriber.evicted(reason);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.odata.infrastructure.stream;
+
+/**
+ * Infrastructure - Bounded ring buffer of published events
+ * Events are addressed by their position (0, 1, 2, ...); once more than
+ * capacity events have been published the oldest positions are overwritten.
+ * Readers keep their own position, so one stored copy serves every reader.
+ */
+public class RingBuffer<T> {
+
+    private final Object[] slots;
+    // Position of the next event to publish
+    private long head;
+
+    public RingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.slots = new Object[capacity];
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * @return position of the published event
+     */
+    public synchronized long publish(T event) {
+        slots[(int) (head % slots.length)] = event;
+        return head++;
+    }
+
+    public synchronized long head() {
+        return head;
+    }
+
+    /**
+     * @return the event at the position, or null if it has been overwritten
+     *         or not published yet
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized T get(long position) {
+        if (position >= head || head - position > slots.length) {
+            return null;
+        }
+        return (T) slots[(int) (position % slots.length)];
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.odata.infrastructure.view;
+
+import com.example.odata.domain.event.BrandSavedEvent;
+import com.example.odata.domain.event.ProductDeletedEvent;
+import com.example.odata.domain.event.ProductSavedEvent;
+import com.example.odata.domain.model.Brand;
+import com.example.odata.domain.model.Product;
+import com.example.odata.domain.model.ProductWithBrand;
+import com.example.odata.domain.repository.BrandRepository;
+import com.example.odata.domain.repository.ProductRepository;
+import com.example.odata.domain.repository.ProductWithBrandRepository;
+import com.example.odata.domain.repository.Snapshot;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Infrastructure Layer - Materialized Product ⋈ Brand view
+ * Built once at startup, then maintained incrementally: a saved product
+ * re-joins only itself, a saved brand re-joins only its own products.
+ * Enabled with odata.view.product-brand.enabled=true
+ *
+ * The rows are an immutable snapshot published together with the product
+ * and brand versions they were joined from. A reader whose versions differ
+ * (it holds a pin taken before the last write, or a write is still being
+ * applied) joins the products and brands it reads on the fly instead, so
+ * pinned requests never see rows from another version.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "odata.view.product-brand.enabled", havingValue = "true")
+public class InMemoryProductBrandView implements ProductWithBrandRepository {
+
+    // Product version of rows that include changes beyond their contiguous version
+    private static final long UNKNOWN_VERSION = -1;
+
+    private final ProductRepository productRepository;
+    private final BrandRepository brandRepository;
+
+    private volatile State state = new State(Snapshot.empty(ProductWithBrand::getId), UNKNOWN_VERSION, 0);
+
+    // Written only by the synchronized event handlers
+    private final Map<Integer, Brand> brands = new HashMap<>();
+    private final Map<Integer, Set<Integer>> productIdsByBrand = new HashMap<>();
+    // Last product version up to which every change is applied, and changes applied ahead of it
+    private long appliedThrough;
+    private final NavigableSet<Long> appliedAhead = new TreeSet<>();
+
+    @PostConstruct
+    public synchronized void init() {
+        Snapshot<Brand> brandSnapshot = brandRepository.snapshot();
+        brandSnapshot.forEach(brand -> brands.put(brand.getId(), brand));
+        Snapshot<Product> products = productRepository.snapshot();
+        List<ProductWithBrand> joined = new ArrayList<>(products.size());
+        for (Product product : products) {
+            joined.add(join(product, brands.get(product.getBrandId())));
+            productIdsByBrand.computeIfAbsent(product.getBrandId(), id -> new HashSet<>()).add(product.getId());
+        }
+        Snapshot<ProductWithBrand> rows = Snapshot.of(0, joined, ProductWithBrand::getId);
+        appliedThrough = products.getVersion();
+        state = new State(rows, appliedThrough, brandSnapshot.getVersion());
+        log.info("🧮 Materialized {} product-brand rows", rows.size());
+    }
+
+    @Override
+    public Stream<ProductWithBrand> streamAll() {
+        State current = currentState();
+        if (current != null) {
+            return current.rows.stream();
+        }
+        Snapshot<Brand> brandSnapshot = brandRepository.snapshot();
+        return productRepository.streamAll()
+                .map(product -> join(product, brandSnapshot.get(product.getBrandId()).orElse(null)));
+    }
+
+    @Override
+    public List<ProductWithBrand> findAllById(Collection<Integer> ids) {
+        List<ProductWithBrand> result = new ArrayList<>(ids.size());
+        State current = currentState();
+        if (current != null) {
+            for (Integer id : ids) {
+                current.rows.get(id).ifPresent(result::add);
+            }
+            return result;
+        }
+        Snapshot<Brand> brandSnapshot = brandRepository.snapshot();
+        for (Product product : productRepository.findAllById(ids)) {
+            result.add(join(product, brandSnapshot.get(product.getBrandId()).orElse(null)));
+        }
+        return result;
+    }
+
+    @EventListener
+    public synchronized void onProductSaved(ProductSavedEvent event) {
+        if (event.getSequence() > appliedThrough && !appliedAhead.contains(event.getSequence())) {
+            publish(upsert(state.rows, event.getProduct()), event.getSequence());
+        }
+    }
+
+    @EventListener
+    public synchronized void onProductDeleted(ProductDeletedEvent event) {
+        if (event.getSequence() <= appliedThrough || appliedAhead.contains(event.getSequence())) {
+            return;
+        }
+        Snapshot<ProductWithBrand> rows = state.rows;
+        ProductWithBrand previous = rows.get(event.getProductId()).orElse(null);
+        if (previous != null) {
+            productIdsByBrand.getOrDefault(previous.getBrandId(), Set.of()).remove(previous.getId());
+            rows = rows.without(previous.getId());
+        }
+        publish(rows, event.getSequence());
+    }
+
+    @EventListener
+    public synchronized void onBrandSaved(BrandSavedEvent event) {
+        if (event.getVersion() <= state.brandVersion) {
+            return;
+        }
+        Brand brand = event.getBrand();
+        brands.put(brand.getId(), brand);
+        List<ProductWithBrand> rejoined = new ArrayList<>();
+        for (Integer productId : productIdsByBrand.getOrDefault(brand.getId(), Set.of())) {
+            state.rows.get(productId).ifPresent(row -> rejoined.add(join(row, brand)));
+        }
+        Snapshot<ProductWithBrand> rows = rejoined.isEmpty() ? state.rows : state.rows.withAll(rejoined);
+        state = new State(rows, state.productVersion, event.getVersion());
+    }
+
+    /**
+     * The published state if it is at the product and brand versions this
+     * thread reads, else null
+     */
+    private State currentState() {
+        State current = state;
+        if (current.productVersion == productRepository.version()
+                && current.brandVersion == brandRepository.version()) {
+            return current;
+        }
+        return null;
+    }
+
+    /**
+     * Publishes the rows after the change with the given sequence; stores
+     * that write concurrently may deliver changes out of order, and until
+     * the gaps are filled the rows have no single product version
+     */
+    private void publish(Snapshot<ProductWithBrand> rows, long sequence) {
+        appliedAhead.add(sequence);
+        while (!appliedAhead.isEmpty() && appliedAhead.first() == appliedThrough + 1) {
+            appliedThrough = appliedAhead.pollFirst();
+        }
+        state = new State(rows, appliedAhead.isEmpty() ? appliedThrough : UNKNOWN_VERSION, state.brandVersion);
+    }
+
+    private Snapshot<ProductWithBrand> upsert(Snapshot<ProductWithBrand> rows, Product product) {
+        ProductWithBrand previous = rows.get(product.getId()).orElse(null);
+        if (previous != null && previous.getBrandId() != product.getBrandId()) {
+            productIdsByBrand.getOrDefault(previous.getBrandId(), Set.of()).remove(product.getId());
+        }
+        productIdsByBrand.computeIfAbsent(product.getBrandId(), id -> new HashSet<>()).add(product.getId());
+        return rows.with(join(product, brands.get(product.getBrandId())));
+    }
+
+    private static ProductWithBrand join(Product product, Brand brand) {
+        return new ProductWithBrand(product.getId(), product.getName(), product.getDescription(),
+                product.getPrice(), product.getBrandId(),
+                brand != null ? brand.getName() : null,
+                brand != null ? brand.getCountry() : null);
+    }
+
+    private static ProductWithBrand join(ProductWithBrand row, Brand brand) {
+        return new ProductWithBrand(row.getId(), row.getName(), row.getDescription(),
+                row.getPrice(), row.getBrandId(), brand.getName(), brand.getCountry());
+    }
+
+    private static final class State {
+        final Snapshot<ProductWithBrand> rows;
+        final long productVersion;
+        final long brandVersion;
+
+        State(Snapshot<ProductWithBrand> rows, long productVersion, long brandVersion) {
+            this.rows = rows;
+            this.productVersion = productVersion;
+            this.brandVersion = brandVersion;
+        }
+    }
+}
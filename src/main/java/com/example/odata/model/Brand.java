@@ -1,14 +0,0 @@
-package com.example.odata.model;
-
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
-public class Brand {
-    private int id;
-    private String name;
-    private String country;
-}
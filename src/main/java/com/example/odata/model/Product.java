@@ -1,16 +0,0 @@
-package com.example.odata.model;
-
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
-public class Product {
-    private int id;
-    private String name;
-    private String description;
-    private double price;
-    private int brandId;
-}
@@ -0,0 +1,65 @@
+package com.example.odata.presentation.controller;
+
+import com.example.odata.infrastructure.cluster.ClusterQueryCoordinator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * REST Controller - Presentation Layer
+ * Coordinator endpoint of cluster mode: answers /odata/Products queries over
+ * the products of all cluster nodes. Any node can coordinate.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/cluster")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "odata.cluster.enabled", havingValue = "true")
+public class ClusterController {
+
+    private final ClusterQueryCoordinator coordinator;
+
+    /**
+     * GET /cluster/Products
+     * Supports $expand=Brand, $select, $filter, $orderby, $top, $skip and
+     * $count=true with the semantics of /odata/Products; the query is
+     * scattered to every node and the answers are merged
+     */
+    @GetMapping("/Products")
+    public ResponseEntity<Map<String, Object>> getProducts(
+            @RequestParam(value = "$expand", required = false) String expand,
+            @RequestParam(value = "$select", required = false) String select,
+            @RequestParam(value = "$filter", required = false) String filter,
+            @RequestParam(value = "$orderby", required = false) String orderBy,
+            @RequestParam(value = "$top", required = false) Integer top,
+            @RequestParam(value = "$skip", required = false) Integer skip,
+            @RequestParam(value = "$count", required = false) Boolean count,
+            @RequestHeader(value = "X-Client-Id", required = false) String clientId) {
+
+        log.info("📥 GET /cluster/Products | expand={}, select={}, filter={}, orderby={}, top={}, skip={}, count={}",
+                expand, select, filter, orderBy, top, skip, count);
+
+        return ResponseEntity.ok(coordinator.query(expand, select, filter, orderBy, top, skip,
+                Boolean.TRUE.equals(count), clientId));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> handleBadRequest(IllegalArgumentException e) {
+        log.warn("⚠️ Bad request: {}", e.getMessage());
+        return ResponseEntity.badRequest()
+                .body(Map.of("error", Map.of("code", "400", "message", String.valueOf(e.getMessage()))));
+    }
+
+    @ExceptionHandler({ IllegalStateException.class, UncheckedIOException.class })
+    public ResponseEntity<Map<String, Object>> handleNodeFailure(RuntimeException e) {
+        log.warn("⚠️ Cluster query failed: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+                .body(Map.of("error", Map.of("code", "502", "message", String.valueOf(e.getMessage()))));
+    }
+}
@@ -1,13 +1,38 @@
 package com.example.odata.presentation.controller;
 
 import com.example.odata.application.service.ODataQueryService;
+import com.example.odata.application.service.ProductQuery;
+import com.example.odata.application.service.RequestCoalescer;
+import com.example.odata.domain.model.AggregationSpec;
+import com.example.odata.domain.model.Product;
+import com.example.odata.domain.model.ProductChange;
+import com.example.odata.domain.model.ProductCriteria;
+import com.example.odata.infrastructure.encoding.ProductFragmentCache;
+import com.example.odata.infrastructure.odata.ApplyParser;
 import com.example.odata.infrastructure.odata.ODataFilterProcessor;
+import com.example.odata.infrastructure.stream.ProductChangeBroadcaster;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * REST Controller - Presentation Layer
@@ -22,6 +47,18 @@ public class ODataController {
 
     private final ODataQueryService queryService;
     private final ODataFilterProcessor filterProcessor;
+    private final ApplyParser applyParser;
+    private final ProductChangeBroadcaster changeBroadcaster;
+    private final RequestCoalescer requestCoalescer;
+    private final ProductFragmentCache fragmentCache;
+    private final ObjectMapper objectMapper;
+
+    // Entities written between explicit flushes of the streamed response
+    private static final int STREAM_FLUSH_INTERVAL = 256;
+    private static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+    private static final SmileFactory SMILE_FACTORY = new SmileFactory();
+    private static final MediaType JSON_METADATA_NONE = new MediaType(MediaType.APPLICATION_JSON,
+            Map.of(ODataMetadataAdvice.METADATA_PARAMETER, "none"));
 
     /**
      * GET /odata/Products
@@ -29,41 +66,250 @@ public class ODataController {
      * - $expand=Brand (triggers microservice call)
      * - $select=Name,Price (projection)
      * - $filter=Price gt 100 (filtering)
+     * - $search=mouse wireless (full-text, ordered by relevance)
+     * - $apply=groupby((BrandID),aggregate(Price with average as AvgPrice))
+     *   (aggregated in the repository; $filter then applies to the groups)
+     * - $orderby=Price desc,Name, $top=10, $skip=20 (ordering and paging)
+     * - $count=true (@odata.count: matching products before paging)
+     * - $deltatoken=42 (only products changed since the token; 410 Gone once it has aged out)
+     * Unfiltered responses carry an @odata.deltaLink for later delta requests.
      */
     @GetMapping("/Products")
-    public ResponseEntity<Map<String, Object>> getProducts(
+    public ResponseEntity<byte[]> getProducts(
             @RequestParam(value = "$expand", required = false) String expand,
             @RequestParam(value = "$select", required = false) String select,
-            @RequestParam(value = "$filter", required = false) String filter) {
+            @RequestParam(value = "$filter", required = false) String filter,
+            @RequestParam(value = "$search", required = false) String search,
+            @RequestParam(value = "$apply", required = false) String apply,
+            @RequestParam(value = "$orderby", required = false) String orderBy,
+            @RequestParam(value = "$top", required = false) Integer top,
+            @RequestParam(value = "$skip", required = false) Integer skip,
+            @RequestParam(value = "$count", required = false) Boolean count,
+            @RequestParam(value = "$deltatoken", required = false) String deltaToken,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
 
-        log.info("📥 GET /odata/Products | expand={}, select={}, filter={}", expand, select, filter);
+        log.info("📥 GET /odata/Products | expand={}, select={}, filter={}, search={}, apply={}, orderby={}, top={}, "
+                + "skip={}, count={}, deltatoken={}", expand, select, filter, search, apply, orderBy, top, skip, count,
+                deltaToken);
 
-        boolean shouldExpand = expand != null && expand.contains("Brand");
-        List<String> selectedFields = parseSelect(select);
+        MediaType contentType = negotiate(accept);
+        // Read the token before the data: a concurrent change is then sent again
+        // in the next delta rather than lost
+        long currentToken = queryService.currentProductDeltaToken();
+        boolean trackable = expand == null && filter == null && search == null && apply == null
+                && orderBy == null && top == null && skip == null && count == null;
 
-        List<Map<String, Object>> entities = queryService.getProducts(shouldExpand, selectedFields);
+        if (deltaToken != null) {
+            if (!trackable) {
+                throw new IllegalArgumentException("$deltatoken cannot be combined with other query options"
+                        + " than $select");
+            }
+            Optional<List<Map<String, Object>>> changes = queryService.getProductChanges(Long.parseLong(deltaToken),
+                    parseSelect(select));
+            if (changes.isPresent()) {
+                Map<String, Object> response = buildODataResponse(changes.get(), "Products/$delta");
+                response.put("@odata.deltaLink", buildDeltaLink(currentToken, select));
+                return ResponseEntity.ok().contentType(contentType).body(serialize(response, contentType));
+            }
+            // The client has to resynchronize from the full collection, which carries a fresh delta link
+            log.info("♻️ Delta token {} is no longer retained", deltaToken);
+            Map<String, Object> error = Map.of("error", Map.of("code", "410", "message", "Delta token "
+                    + deltaToken + " is no longer retained, re-read /odata/Products for a full resync"));
+            return ResponseEntity.status(HttpStatus.GONE).contentType(contentType).body(serialize(error, contentType));
+        }
 
-        // Apply filters
-        if (filter != null) {
-            entities = filterProcessor.applyFilter(entities, filter);
+        // Identical concurrent reads of the same data version share one
+        // computation and its serialized body
+        boolean counted = Boolean.TRUE.equals(count);
+        String key = coalescingKey(contentType, currentToken, expand, select, filter, search, apply, orderBy, top,
+                skip, counted);
+        byte[] body = requestCoalescer.execute("odata/Products", key, () -> {
+            if (apply != null) {
+                AggregationSpec spec = applyParser.parse(apply);
+                List<Map<String, Object>> groups = queryService.aggregateProducts(spec);
+                if (filter != null) {
+                    groups = filterProcessor.applyFilter(groups, filter);
+                }
+                Map<String, Object> response = buildODataResponse(groups,
+                        "Products(" + String.join(",", spec.columns()) + ")");
+                if (counted) {
+                    response.put("@odata.count", groups.size());
+                }
+                return serialize(response, contentType);
+            }
+
+            ProductQuery query = buildProductQuery(expand, select, filter, search, orderBy, top, skip);
+            Long total = counted ? queryService.countProducts(query) : null;
+            // Plain JSON without $expand is assembled from cached per-product fragments
+            if (fragmentCache.isEnabled() && MediaType.APPLICATION_JSON.equalsTypeAndSubtype(contentType)) {
+                Optional<List<Product>> products = queryService.findProducts(query);
+                if (products.isPresent()) {
+                    return fragmentCache.writeResponse(products.get(),
+                            ProductFragmentCache.shape(query.getSelect()),
+                            ODataMetadataAdvice.isMetadataNone(contentType) ? null : "/odata/$metadata#Products",
+                            total, trackable ? buildDeltaLink(currentToken, select) : null);
+                }
+            }
+
+            List<Map<String, Object>> entities = queryService.getProducts(query);
+
+            Map<String, Object> response = buildODataResponse(entities, "Products");
+            if (total != null) {
+                response.put("@odata.count", total);
+            }
+            if (trackable) {
+                response.put("@odata.deltaLink", buildDeltaLink(currentToken, select));
+            }
+            return serialize(response, contentType);
+        });
+        return ResponseEntity.ok().contentType(contentType).body(body);
+    }
+
+    /**
+     * GET /odata/Products/$stream
+     * Streaming variant of /odata/Products for large exports and slow consumers.
+     * Supports the same query options. The body is written on an async worker,
+     * releasing the servlet thread, and products are read, filtered, expanded
+     * and encoded one at a time: writes block on the client socket, so a slow
+     * reader throttles the pipeline instead of buffering the full result.
+     * The body reads the product and brand versions pinned for the request,
+     * which stay pinned until it is written.
+     * Like the other endpoints it is available as Smile
+     * (application/x-jackson-smile) and as odata.metadata=none JSON.
+     */
+    @GetMapping("/Products/$stream")
+    public ResponseEntity<StreamingResponseBody> streamProducts(
+            @RequestParam(value = "$expand", required = false) String expand,
+            @RequestParam(value = "$select", required = false) String select,
+            @RequestParam(value = "$filter", required = false) String filter,
+            @RequestParam(value = "$search", required = false) String search,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+        log.info("📥 GET /odata/Products/$stream | expand={}, select={}, filter={}, search={}", expand, select,
+                filter, search);
+
+        ProductQuery query = buildProductQuery(expand, select, filter, search, null, null, null);
+        MediaType contentType = negotiate(accept);
+        JsonFactory factory = SMILE.equalsTypeAndSubtype(contentType) ? SMILE_FACTORY : objectMapper.getFactory();
+        boolean metadataNone = ODataMetadataAdvice.isMetadataNone(contentType);
+
+        // Carries the request's pins to the async worker that writes the body
+        Function<OutputStream, Void> write = queryService.withRequestPins(outputStream -> {
+            try (JsonGenerator generator = factory.createGenerator(outputStream);
+                    Stream<Map<String, Object>> entities = queryService.streamProducts(query)) {
+
+                generator.setCodec(objectMapper);
+                generator.writeStartObject();
+                if (!metadataNone) {
+                    generator.writeStringField("@odata.context", "/odata/$metadata#Products");
+                }
+                generator.writeArrayFieldStart("value");
+
+                int written = 0;
+                Iterator<Map<String, Object>> iterator = entities.iterator();
+                while (iterator.hasNext()) {
+                    generator.writeObject(iterator.next());
+                    if (++written % STREAM_FLUSH_INTERVAL == 0) {
+                        generator.flush();
+                    }
+                }
+
+                generator.writeEndArray();
+                generator.writeEndObject();
+                log.info("📤 Streamed {} products", written);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        });
+        StreamingResponseBody body = outputStream -> {
+            try {
+                write.apply(outputStream);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .body(body);
+    }
+
+    /**
+     * GET /odata/Products/$changes
+     * Server-Sent Events stream of product saves and deletes. Each event id is
+     * the change's delta token; the first event ("subscribed") carries the
+     * current token. A reconnect with Last-Event-ID resumes after that event
+     * from the change buffer. Subscribers that fall too far behind (or resume
+     * from beyond the buffer) receive an "evicted" event and are disconnected;
+     * they resume with /odata/Products?$deltatoken=<last event id>.
+     */
+    @GetMapping(value = "/Products/$changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamProductChanges(
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) throws IOException {
+
+        log.info("📥 GET /odata/Products/$changes | Last-Event-ID={}", lastEventId);
+
+        // No timeout: the stream stays open until the client leaves or is evicted
+        SseEmitter emitter = new SseEmitter(0L);
+        long afterToken = lastEventId != null ? lastEventId : queryService.currentProductDeltaToken();
+
+        Optional<ProductChangeBroadcaster.Subscription> subscribed = changeBroadcaster.subscribe(
+                new ProductChangeBroadcaster.Subscriber() {
+                    @Override
+                    public void send(ProductChange change) throws IOException {
+                        emitter.send(SseEmitter.event()
+                                .id(String.valueOf(change.getSequence()))
+                                .name(change.getType().name().toLowerCase(Locale.ROOT))
+                                .data(queryService.toODataEntity(change, null), MediaType.APPLICATION_JSON));
+                    }
+
+                    @Override
+                    public void evicted(String reason) {
+                        try {
+                            emitter.send(SseEmitter.event().name("evicted").data(reason));
+                        } catch (IOException | IllegalStateException e) {
+                            // Connection already gone
+                        }
+                        emitter.complete();
+                    }
+                }, afterToken);
+        if (subscribed.isEmpty()) {
+            emitter.send(SseEmitter.event().name("evicted")
+                    .data("changes after " + afterToken + " are no longer buffered"));
+            emitter.complete();
+            return emitter;
         }
+        ProductChangeBroadcaster.Subscription subscription = subscribed.get();
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
 
-        Map<String, Object> response = buildODataResponse(entities, "Products");
-        return ResponseEntity.ok(response);
+        emitter.send(SseEmitter.event()
+                .id(String.valueOf(afterToken))
+                .name("subscribed")
+                .data(Map.of("@odata.deltaLink", buildDeltaLink(afterToken, null)), MediaType.APPLICATION_JSON));
+        // Changes (replayed or new) follow the subscribed event
+        subscription.start();
+        return emitter;
     }
 
     /**
      * GET /odata/Brands
+     * OData Query Options:
+     * - $expand=Products (reverse navigation, resolved via the BrandID index)
      */
     @GetMapping("/Brands")
     public ResponseEntity<Map<String, Object>> getBrands(
+            @RequestParam(value = "$expand", required = false) String expand,
             @RequestParam(value = "$select", required = false) String select,
             @RequestParam(value = "$filter", required = false) String filter) {
 
-        log.info("📥 GET /odata/Brands | select={}, filter={}", select, filter);
+        log.info("📥 GET /odata/Brands | expand={}, select={}, filter={}", expand, select, filter);
 
+        boolean shouldExpand = expand != null && expand.contains("Products");
         List<String> selectedFields = parseSelect(select);
-        List<Map<String, Object>> entities = queryService.getBrands(selectedFields);
+        List<Map<String, Object>> entities = queryService.getBrands(shouldExpand, selectedFields);
 
         // Apply filters
         if (filter != null) {
@@ -91,13 +337,14 @@ public class ODataController {
                 "        <Property Name=\"Description\" Type=\"Edm.String\"/>\n" +
                 "        <Property Name=\"Price\" Type=\"Edm.Double\"/>\n" +
                 "        <Property Name=\"BrandID\" Type=\"Edm.Int32\"/>\n" +
-                "        <NavigationProperty Name=\"Brand\" Type=\"OData.Demo.Brand\"/>\n" +
+                "        <NavigationProperty Name=\"Brand\" Type=\"OData.Demo.Brand\" Partner=\"Products\"/>\n" +
                 "      </EntityType>\n" +
                 "      <EntityType Name=\"Brand\">\n" +
                 "        <Key><PropertyRef Name=\"ID\"/></Key>\n" +
                 "        <Property Name=\"ID\" Type=\"Edm.Int32\" Nullable=\"false\"/>\n" +
                 "        <Property Name=\"Name\" Type=\"Edm.String\"/>\n" +
                 "        <Property Name=\"Country\" Type=\"Edm.String\"/>\n" +
+                "        <NavigationProperty Name=\"Products\" Type=\"Collection(OData.Demo.Product)\" Partner=\"Brand\"/>\n" +
                 "      </EntityType>\n" +
                 "      <EntityContainer Name=\"Container\">\n" +
                 "        <EntitySet Name=\"Products\" EntityType=\"OData.Demo.Product\"/>\n" +
@@ -158,8 +405,115 @@ public class ODataController {
                 .body(response);
     }
 
+    /**
+     * DELETE /odata/Products(3)
+     * Deletes a product; the deletion shows up in delta responses
+     */
+    @DeleteMapping("/Products({id})")
+    public ResponseEntity<Void> deleteProduct(@PathVariable int id) {
+
+        log.info("📥 DELETE /odata/Products({})", id);
+
+        return queryService.deleteProduct(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> handleBadRequest(IllegalArgumentException e) {
+        log.warn("⚠️ Bad request: {}", e.getMessage());
+        return ResponseEntity.badRequest()
+                .body(Map.of("error", Map.of("code", "400", "message", String.valueOf(e.getMessage()))));
+    }
+
+    @ExceptionHandler(ArithmeticException.class)
+    public ResponseEntity<Map<String, Object>> handleArithmeticError(ArithmeticException e) {
+        return handleBadRequest(new IllegalArgumentException("Arithmetic error in filter: " + e.getMessage(), e));
+    }
+
     // Helper methods
 
+    /**
+     * Smile if the client accepts it, else JSON (keeping odata.metadata=none)
+     */
+    private static MediaType negotiate(String accept) {
+        for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+            if (SMILE.equalsTypeAndSubtype(mediaType)) {
+                return SMILE;
+            }
+            if (MediaType.APPLICATION_JSON.equalsTypeAndSubtype(mediaType)
+                    && ODataMetadataAdvice.isMetadataNone(mediaType)) {
+                return JSON_METADATA_NONE;
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    private ProductQuery buildProductQuery(String expand, String select, String filter, String search,
+            String orderBy, Integer top, Integer skip) {
+        if ((top != null && top < 0) || (skip != null && skip < 0)) {
+            throw new IllegalArgumentException("$top and $skip must not be negative");
+        }
+        ProductQuery query = new ProductQuery();
+        query.setExpand(expand != null && expand.contains("Brand"));
+        query.setSelect(parseSelect(select));
+
+        // The top-level AND of comparisons on product properties is pushed down;
+        // unless that is the whole filter, the compiled filter (the same as on
+        // /OData.svc) runs before $select so it may reference any property
+        ProductCriteria criteria = query.getCriteria();
+        Expression expression = filterProcessor.parse(filter);
+        ODataFilterProcessor.Pushdown pushdown = filterProcessor.pushdown(expression);
+        criteria.getConditions().addAll(pushdown.getConditions());
+        if (!pushdown.isExact()) {
+            query.setFilter(filterProcessor.compiler(expression));
+        }
+        criteria.setOrderBy(ProductCriteria.parseOrderBy(orderBy));
+        criteria.setTop(top);
+        criteria.setSkip(skip);
+        criteria.setSelect(query.getSelect());
+
+        query.setSearch(search);
+        query.setCandidateIds(filterProcessor.candidateIds(expression));
+        return query;
+    }
+
+    /**
+     * Writes the response in the negotiated format; odata.metadata=none
+     * leaves out @odata.context
+     */
+    private byte[] serialize(Map<String, Object> response, MediaType contentType) {
+        if (ODataMetadataAdvice.isMetadataNone(contentType)) {
+            response.remove("@odata.context");
+        }
+        JsonFactory factory = SMILE.equalsTypeAndSubtype(contentType) ? SMILE_FACTORY : objectMapper.getFactory();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = factory.createGenerator(out)) {
+            objectMapper.writeValue(generator, response);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Query options (length-prefixed, so no two queries share a key), format
+     * and data version of a coalescable read
+     */
+    private static String coalescingKey(MediaType contentType, long version, Object... options) {
+        StringBuilder key = new StringBuilder().append(contentType).append('@').append(version);
+        for (Object option : options) {
+            String value = option != null ? option.toString().trim() : "";
+            key.append('|').append(option != null ? value.length() : -1).append(':').append(value);
+        }
+        return key.toString();
+    }
+
+    private String buildDeltaLink(long deltaToken, String select) {
+        String link = "/odata/Products?$deltatoken=" + deltaToken;
+        return select != null ? link + "&$select=" + select : link;
+    }
+
     private List<String> parseSelect(String select) {
         if (select == null || select.isEmpty()) {
             return Collections.emptyList();
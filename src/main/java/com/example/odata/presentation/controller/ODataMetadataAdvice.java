@@ -0,0 +1,49 @@
+package com.example.odata.presentation.controller;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Presentation Layer - odata.metadata=none responses
+ * With Accept: application/json;odata.metadata=none the @odata.context
+ * annotation is left out of the response; links clients need to continue
+ * (@odata.deltaLink) are kept.
+ */
+@ControllerAdvice(assignableTypes = ODataController.class)
+public class ODataMetadataAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String METADATA_PARAMETER = "odata.metadata";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+            Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+            ServerHttpResponse response) {
+        if (!(body instanceof Map) || !isMetadataNone(selectedContentType)) {
+            return body;
+        }
+        Map<?, ?> map = (Map<?, ?>) body;
+        if (!map.containsKey("@odata.context")) {
+            return body;
+        }
+        Map<Object, Object> stripped = new LinkedHashMap<>(map);
+        stripped.remove("@odata.context");
+        return stripped;
+    }
+
+    public static boolean isMetadataNone(MediaType mediaType) {
+        return mediaType != null && "none".equalsIgnoreCase(mediaType.getParameter(METADATA_PARAMETER));
+    }
+}
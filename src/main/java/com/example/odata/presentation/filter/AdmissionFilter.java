@@ -0,0 +1,154 @@
+package com.example.odata.presentation.filter;
+
+import com.example.odata.infrastructure.admission.AdmissionGate;
+import com.example.odata.infrastructure.admission.QueryCostEstimator;
+import com.example.odata.infrastructure.startup.QueryReplayWarmup;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Presentation Layer - Admission control in front of /odata and /OData.svc
+ * Rejects requests before any data is read: 429 when the client exceeds its
+ * rate, 503 when the server's concurrency budget is used up, both with a
+ * Retry-After header. Clients are identified by their remote address, or
+ * by the client id header when the request comes from a trusted proxy that
+ * sets it (a client could otherwise rotate the header for fresh rate
+ * limits). The startup warm-up's own requests are not limited.
+ * An asynchronous request (e.g. a streamed $stream response) holds its
+ * admission until the response is complete, not just until the request
+ * thread returns. A $changes subscription stays open indefinitely, so it
+ * only holds its admission until it is set up.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "odata.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private static final String[] SERVICE_ROOTS = { "/odata", "/OData.svc" };
+    private static final String CHANGE_STREAM = "Products/$changes";
+
+    private final AdmissionGate admissionGate;
+    private final QueryCostEstimator costEstimator;
+    private final QueryReplayWarmup queryReplay;
+
+    @Value("${odata.admission.client-header:X-Client-Id}")
+    private String clientHeader;
+
+    // Remote addresses whose client id header is trusted
+    @Value("${odata.admission.trusted-proxies:}")
+    private Set<String> trustedProxies;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return serviceRoot(request) == null
+                || queryReplay.isReplayed(request.getHeader(QueryReplayWarmup.TOKEN_HEADER));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = path(request);
+        String resource = path.substring(serviceRoot(request).length());
+        resource = resource.startsWith("/") ? resource.substring(1) : resource;
+
+        int cost = costEstimator.estimate(request.getMethod(), resource, request::getParameter);
+        AdmissionGate.Admission admission = admissionGate.admit(clientId(request), cost);
+        if (!admission.isAdmitted()) {
+            reject(response, admission);
+            return;
+        }
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted() && !CHANGE_STREAM.equals(resource)) {
+                // Streamed responses are still being written: keep the budget until they end
+                request.getAsyncContext().addListener(new ReleaseOnCompletion(admission));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                admission.release();
+            }
+        }
+    }
+
+    /**
+     * Releases an admission when the asynchronous part of a request ends,
+     * however it ends
+     */
+    @RequiredArgsConstructor
+    static class ReleaseOnCompletion implements AsyncListener {
+
+        private final AdmissionGate.Admission admission;
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            admission.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            admission.release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            admission.release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Listeners are dropped when the request is put into async mode again
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    private String clientId(HttpServletRequest request) {
+        if (!trustedProxies.contains(request.getRemoteAddr())) {
+            return request.getRemoteAddr();
+        }
+        String clientId = request.getHeader(clientHeader);
+        return clientId != null && !clientId.isBlank() ? clientId : request.getRemoteAddr();
+    }
+
+    private static String serviceRoot(HttpServletRequest request) {
+        String path = path(request);
+        for (String root : SERVICE_ROOTS) {
+            if (path.equals(root) || path.startsWith(root + "/")) {
+                return root;
+            }
+        }
+        return null;
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static void reject(HttpServletResponse response, AdmissionGate.Admission admission) throws IOException {
+        boolean rateLimited = admission.getStatus() == HttpStatus.TOO_MANY_REQUESTS.value();
+        String message = rateLimited ? "Request rate limit exceeded" : "Server is busy";
+        response.setStatus(admission.getStatus());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admission.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"error\":{\"code\":\"" + admission.getStatus() + "\",\"message\":\""
+                + message + "\"}}");
+    }
+}
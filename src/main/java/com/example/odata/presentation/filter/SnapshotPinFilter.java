@@ -0,0 +1,73 @@
+package com.example.odata.presentation.filter;
+
+import com.example.odata.domain.repository.BrandRepository;
+import com.example.odata.domain.repository.ProductRepository;
+import com.example.odata.domain.repository.SnapshotPin;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Presentation Layer - One data version per read request
+ * Pins the product and brand stores for the whole of a GET to /odata or
+ * /OData.svc, so filtering, $expand, $count and the delta token of a
+ * response all see the same versions while writes keep being published.
+ * Writes never wait for readers: they publish new versions next to the
+ * pinned ones.
+ *
+ * Pins are per thread (a ThreadLocal in the store): only reads on the
+ * request thread see the pinned versions. Work handed to other threads
+ * takes the pins along through the repositories' withCallerPin: brand
+ * service calls, the chunks of a partitioned scan and the body of
+ * $stream, which is written after the request thread has returned and so
+ * keeps the versions pinned until it is done. The sharded store's fan-out
+ * passes the pinned shard states to its tasks explicitly, and the
+ * product-brand view is only read at the versions it was built from.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "odata.snapshot.pin-requests", havingValue = "true", matchIfMissing = true)
+public class SnapshotPinFilter extends OncePerRequestFilter {
+
+    private static final String[] SERVICE_ROOTS = { "/odata", "/OData.svc" };
+
+    private final ProductRepository productRepository;
+    private final BrandRepository brandRepository;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String root : SERVICE_ROOTS) {
+            if (path.equals(root) || path.startsWith(root + "/")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SnapshotPin products = productRepository.pin();
+        try {
+            SnapshotPin brands = brandRepository.pin();
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                brands.close();
+            }
+        } finally {
+            products.close();
+        }
+    }
+}
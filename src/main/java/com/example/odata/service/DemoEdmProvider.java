@@ -42,6 +42,10 @@ public class DemoEdmProvider extends CsdlAbstractEdmProvider {
     public static final String ES_PRODUCTS_NAME = "Products";
     public static final String ES_BRANDS_NAME = "Brands";
 
+    // Navigation Property Names
+    public static final String NAV_BRAND = "Brand";
+    public static final String NAV_PRODUCTS = "Products";
+
     @Override
     public CsdlEntityType getEntityType(FullQualifiedName entityTypeName) {
         // checks for exact match
@@ -61,10 +65,10 @@ public class DemoEdmProvider extends CsdlAbstractEdmProvider {
 
             // navigation properties
             CsdlNavigationProperty navProp = new CsdlNavigationProperty()
-                    .setName("Brand")
+                    .setName(NAV_BRAND)
                     .setType(ET_BRAND_FQN)
                     .setNullable(false)
-                    .setPartner(null);
+                    .setPartner(NAV_PRODUCTS);
 
             // key
             CsdlPropertyRef propertyRef = new CsdlPropertyRef();
@@ -87,6 +91,13 @@ public class DemoEdmProvider extends CsdlAbstractEdmProvider {
             CsdlProperty country = new CsdlProperty().setName("Country")
                     .setType(EdmPrimitiveTypeKind.String.getFullQualifiedName());
 
+            // navigation properties (reverse one-to-many of Product/Brand)
+            CsdlNavigationProperty navProp = new CsdlNavigationProperty()
+                    .setName(NAV_PRODUCTS)
+                    .setType(ET_PRODUCT_FQN)
+                    .setCollection(true)
+                    .setPartner(NAV_BRAND);
+
             // key
             CsdlPropertyRef propertyRef = new CsdlPropertyRef();
             propertyRef.setName("ID");
@@ -94,6 +105,7 @@ public class DemoEdmProvider extends CsdlAbstractEdmProvider {
             CsdlEntityType entityType = new CsdlEntityType();
             entityType.setName(ET_BRAND_NAME);
             entityType.setProperties(Arrays.asList(id, name, country));
+            entityType.setNavigationProperties(Collections.singletonList(navProp));
             entityType.setKey(Collections.singletonList(propertyRef));
 
             return entityType;
@@ -112,8 +124,8 @@ public class DemoEdmProvider extends CsdlAbstractEdmProvider {
 
                 // Define Binding for Navigation Property
                 CsdlNavigationPropertyBinding navPropBinding = new CsdlNavigationPropertyBinding();
-                navPropBinding.setPath("Brand"); // Name of the nav property
-                navPropBinding.setTarget("Brands"); // Name of the target EntitySet
+                navPropBinding.setPath(NAV_BRAND); // Name of the nav property
+                navPropBinding.setTarget(ES_BRANDS_NAME); // Name of the target EntitySet
 
                 entitySet.setNavigationPropertyBindings(Collections.singletonList(navPropBinding));
 
@@ -122,6 +134,13 @@ public class DemoEdmProvider extends CsdlAbstractEdmProvider {
                 CsdlEntitySet entitySet = new CsdlEntitySet();
                 entitySet.setName(ES_BRANDS_NAME);
                 entitySet.setType(ET_BRAND_FQN);
+
+                CsdlNavigationPropertyBinding navPropBinding = new CsdlNavigationPropertyBinding();
+                navPropBinding.setPath(NAV_PRODUCTS);
+                navPropBinding.setTarget(ES_PRODUCTS_NAME);
+
+                entitySet.setNavigationPropertyBindings(Collections.singletonList(navPropBinding));
+
                 return entitySet;
             }
         }
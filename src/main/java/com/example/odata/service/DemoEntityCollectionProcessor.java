@@ -1,6 +1,19 @@
 package com.example.odata.service;
 
-import com.example.odata.model.Product;
+import com.example.odata.application.service.ODataQueryService;
+import com.example.odata.application.service.RequestCoalescer;
+import com.example.odata.domain.model.AggregationSpec;
+import com.example.odata.domain.model.Brand;
+import com.example.odata.domain.model.Product;
+import com.example.odata.domain.model.ProductCriteria;
+import com.example.odata.domain.repository.BrandDictionary;
+import com.example.odata.infrastructure.encoding.DictionaryEntrySerializer;
+import com.example.odata.infrastructure.odata.ApplyParser;
+import com.example.odata.infrastructure.odata.ODataFilterProcessor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.olingo.commons.api.data.ContextURL;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
 import org.apache.olingo.commons.api.data.Property;
@@ -12,6 +25,7 @@ import org.apache.olingo.commons.api.http.HttpHeader;
 import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ODataLibraryException;
 import org.apache.olingo.server.api.ODataRequest;
 import org.apache.olingo.server.api.ODataResponse;
 import org.apache.olingo.server.api.ServiceMetadata;
@@ -23,30 +37,62 @@ import org.apache.olingo.server.api.serializer.SerializerResult;
 import org.apache.olingo.server.api.uri.UriInfo;
 import org.apache.olingo.server.api.uri.UriResource;
 import org.apache.olingo.server.api.uri.UriResourceEntitySet;
+import org.apache.olingo.server.api.uri.UriResourcePrimitiveProperty;
+import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
 import org.apache.olingo.server.api.uri.queryoption.FilterOption;
 import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+import org.apache.olingo.server.api.uri.queryoption.OrderByItem;
+import org.apache.olingo.server.api.uri.queryoption.OrderByOption;
+import org.apache.olingo.server.api.uri.queryoption.SearchOption;
 import org.apache.olingo.server.api.uri.queryoption.SelectOption;
-import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
 import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitException;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+import org.apache.olingo.server.core.serializer.utils.ContextURLBuilder;
 
-import com.example.odata.model.Brand; // Import Brand
 import org.apache.olingo.commons.api.data.Link; // Import Link
 
-import java.util.Iterator;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
+/**
+ * Olingo processor for /OData.svc
+ * Reads through the same ODataQueryService pipeline (repository, search index,
+ * pushdown, Brand service guard) as the /odata controller, so both endpoints
+ * serve one copy of the data and see each other's writes.
+ */
 public class DemoEntityCollectionProcessor implements EntityCollectionProcessor {
 
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
     private OData odata;
     private ServiceMetadata serviceMetadata;
-    private Storage storage;
-    private BrandStorage brandStorage;
+    private final ODataQueryService queryService;
+    private final ODataFilterProcessor filterProcessor;
+    private final ApplyParser applyParser;
+    private final RequestCoalescer requestCoalescer;
+    private final BrandDictionary brandDictionary;
 
-    public DemoEntityCollectionProcessor(Storage storage, BrandStorage brandStorage) {
-        this.storage = storage;
-        this.brandStorage = brandStorage;
+    public DemoEntityCollectionProcessor(ODataQueryService queryService, ODataFilterProcessor filterProcessor,
+            ApplyParser applyParser, RequestCoalescer requestCoalescer, BrandDictionary brandDictionary) {
+        this.queryService = queryService;
+        this.filterProcessor = filterProcessor;
+        this.applyParser = applyParser;
+        this.requestCoalescer = requestCoalescer;
+        this.brandDictionary = brandDictionary;
     }
 
     @Override
@@ -57,97 +103,108 @@ public class DemoEntityCollectionProcessor implements EntityCollectionProcessor
 
     @Override
     public void readEntityCollection(ODataRequest request, ODataResponse response, UriInfo uriInfo,
-            ContentType responseFormat) throws ODataApplicationException, SerializerException {
+            ContentType responseFormat) throws ODataApplicationException, ODataLibraryException {
+        // Identical concurrent reads of the same data version share one
+        // rendering: the first request renders into a scratch response whose
+        // bytes are then copied into every waiting response
+        Rendered rendered;
+        try {
+            rendered = requestCoalescer.execute("OData.svc", coalescingKey(request, responseFormat), () -> {
+                ODataResponse scratch = new ODataResponse();
+                try {
+                    render(request, scratch, uriInfo, responseFormat);
+                } catch (ODataApplicationException | ODataLibraryException e) {
+                    throw new RenderingFailure(e);
+                }
+                return new Rendered(scratch);
+            });
+        } catch (RenderingFailure failure) {
+            if (failure.getCause() instanceof ODataApplicationException) {
+                throw (ODataApplicationException) failure.getCause();
+            }
+            throw (ODataLibraryException) failure.getCause();
+        }
+
+        response.setContent(new ByteArrayInputStream(rendered.content));
+        response.setStatusCode(rendered.statusCode);
+        response.setHeader(HttpHeader.CONTENT_TYPE, rendered.contentType);
+    }
+
+    private void render(ODataRequest request, ODataResponse response, UriInfo uriInfo, ContentType responseFormat)
+            throws ODataApplicationException, SerializerException {
 
         // 1st retrieve the requested EntitySet from the uriInfo
         List<UriResource> resourcePaths = uriInfo.getUriResourceParts();
         UriResourceEntitySet uriResourceEntitySet = (UriResourceEntitySet) resourcePaths.get(0);
         EdmEntitySet edmEntitySet = uriResourceEntitySet.getEntitySet();
 
+        // $apply: aggregated in the store, only the groups are serialized
+        ApplyOption applyOption = uriInfo.getApplyOption();
+        if (applyOption != null) {
+            writeAggregation(response, edmEntitySet, applyOption);
+            return;
+        }
+
         // 2nd: fetch the data from backend
-        // In a real app, you would pass the filter options to the database query
-        EntityCollection entityCollection = getData(edmEntitySet);
+        // Rows stay domain objects until after filtering; only the survivors are
+        // materialized as Olingo entities (or written directly)
+        boolean isProducts = DemoEdmProvider.ES_PRODUCTS_NAME.equals(edmEntitySet.getName());
+        // Brands are fetched once per request (for Brand/... filters and $expand)
+        Map<Integer, Optional<Brand>> brandCache = new ConcurrentHashMap<>();
+        List<Product> productRows = null;
+        List<Brand> brandRows = null;
+        if (isProducts) {
+            productRows = readProducts(uriInfo, brandCache);
+        } else {
+            if (uriInfo.getFilterOption() != null) {
+                throw new ODataApplicationException("$filter is only supported on Products",
+                        HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+            }
+            brandRows = queryService.findBrands();
+        }
 
-        // 3rd: apply System Query Options provided by OData ($filter)
-        FilterOption filterOption = uriInfo.getFilterOption();
-        if (filterOption != null) {
-            // Apply $filter
-            try {
-                // Determine the key for the loop
-                List<Entity> entityList = entityCollection.getEntities();
-                Iterator<Entity> entityIterator = entityList.iterator();
-
-                while (entityIterator.hasNext()) {
-                    // Iterate and remove elements that don't match the filter
-                    Entity currentEntity = entityIterator.next();
-                    Expression filterExpression = filterOption.getExpression();
-
-                    // Convert Olingo Entity back to Product to use our Visitor (or make Visitor use
-                    // Entity)
-                    // It is easier to make Visitor use Entity directly for generic support,
-                    // BUT for this specific example I created a ProductVisitor.
-                    // Let's create a temporary Product from the Entity to reuse the Visitor logic.
-                    Integer id = (Integer) currentEntity.getProperty("ID").getValue();
-                    String name = (String) currentEntity.getProperty("Name").getValue();
-                    String desc = (String) currentEntity.getProperty("Description").getValue();
-                    Double price = (Double) currentEntity.getProperty("Price").getValue();
-                    // brandId might not be in the entity properties generated by getData initial
-                    // pass if we didn't add it
-                    // But we will fix getData below. For filter visitor we just need a dummy
-                    // brandId or the real one if available
-                    // Let's assume 0 for now as filter visitor doesn't use brandId yet.
-                    Product prod = new Product(id, name, desc, price, 0);
-
-                    ProductFilterExpressionVisitor expressionVisitor = new ProductFilterExpressionVisitor(prod);
-                    Object visitorResult = filterExpression.accept(expressionVisitor);
-
-                    // The result of the filter expression must be of type Boolean
-                    if (visitorResult instanceof Boolean) {
-                        if (!Boolean.TRUE.equals(visitorResult)) {
-                            // The expression evaluated to false (or null), so we remove the entity
-                            entityIterator.remove();
-                        }
-                    } else {
-                        throw new ODataApplicationException("A filter expression must evaluate to type Boolean",
-                                HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
-                    }
-                }
+        // Plain JSON reads are written straight from the domain objects
+        ExpandOption expandOption = uriInfo.getExpandOption();
+        SelectOption selectOption = uriInfo.getSelectOption();
+        if (expandOption == null && selectOption == null && isPlainJson(responseFormat)) {
+            writeDirect(response, edmEntitySet, productRows, brandRows, responseFormat);
+            return;
+        }
 
-            } catch (ExpressionVisitException e) {
-                throw new ODataApplicationException("Exception in filter evaluation",
-                        HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH);
+        EntityCollection entityCollection = new EntityCollection();
+        if (isProducts) {
+            for (Product product : productRows) {
+                entityCollection.getEntities().add(toEntity(product));
+            }
+        } else {
+            for (Brand brand : brandRows) {
+                entityCollection.getEntities().add(toEntity(brand));
             }
         }
 
         // 4th: Handle $expand
-        ExpandOption expandOption = uriInfo.getExpandOption();
         if (expandOption != null) {
             // Retrieve the user defined expand items
             List<ExpandItem> expandItems = expandOption.getExpandItems();
             for (ExpandItem expandItem : expandItems) {
-                // We only have one navigation property "Brand"
-                if (expandItem.getResourcePath().getUriResourceParts().get(0).toString().equals("Brand")) {
+                String navigationName = expandItem.getResourcePath().getUriResourceParts().get(0).toString();
+                if (DemoEdmProvider.NAV_BRAND.equals(navigationName)) {
                     // Logic to fetch related data
                     // Iterate over the already fetched products
                     List<Entity> entityList = entityCollection.getEntities();
                     for (Entity entity : entityList) {
-                        // Get the BrandID from the entity (we must ensure it is added in getData)
+                        // Get the BrandID from the entity (always part of the materialized product)
                         Property brandIdProp = entity.getProperty("BrandID");
                         if (brandIdProp != null) {
                             Integer brandID = (Integer) brandIdProp.getValue();
 
                             // Call Microservice to get Brand
-                            Brand brand = brandStorage.getBrandById(brandID);
+                            Brand brand = brandCache.computeIfAbsent(brandID, queryService::findBrand)
+                                    .orElse(null);
 
                             if (brand != null) {
                                 // Create Brand Entity
-                                Entity brandEntity = new Entity();
-                                brandEntity.addProperty(new Property(null, "ID", ValueType.PRIMITIVE, brand.getId()));
-                                brandEntity
-                                        .addProperty(new Property(null, "Name", ValueType.PRIMITIVE, brand.getName()));
-                                brandEntity.addProperty(
-                                        new Property(null, "Country", ValueType.PRIMITIVE, brand.getCountry()));
-                                brandEntity.setId(createId(DemoEdmProvider.ES_BRANDS_NAME, brand.getId()));
+                                Entity brandEntity = toEntity(brand);
 
                                 // Create Link
                                 Link link = new Link();
@@ -159,12 +216,26 @@ public class DemoEntityCollectionProcessor implements EntityCollectionProcessor
                             }
                         }
                     }
+                } else if (DemoEdmProvider.NAV_PRODUCTS.equals(navigationName)) {
+                    // Reverse navigation: resolved through the BrandID index, no product scan
+                    for (Entity entity : entityCollection.getEntities()) {
+                        Integer brandID = (Integer) entity.getProperty("ID").getValue();
+
+                        EntityCollection products = new EntityCollection();
+                        for (Product product : queryService.findProductsByBrandId(brandID)) {
+                            products.getEntities().add(toEntity(product));
+                        }
+
+                        Link link = new Link();
+                        link.setTitle(DemoEdmProvider.NAV_PRODUCTS);
+                        link.setInlineEntitySet(products);
+                        entity.getNavigationLinks().add(link);
+                    }
                 }
             }
         }
 
-        // 5th: Handle $select
-        SelectOption selectOption = uriInfo.getSelectOption();
+        // 5th: $select is applied by the serializer
 
         // 6th: create a serializer based on the requested format (json)
         ODataSerializer serializer = odata.createSerializer(responseFormat);
@@ -173,7 +244,7 @@ public class DemoEntityCollectionProcessor implements EntityCollectionProcessor
         EdmEntityType edmEntityType = edmEntitySet.getEntityType();
         String selectList = odata.createUriHelper().buildContextURLSelectList(edmEntityType, expandOption,
                 selectOption);
-        org.apache.olingo.commons.api.data.ContextURL contextUrl = org.apache.olingo.commons.api.data.ContextURL.with()
+        ContextURL contextUrl = ContextURL.with()
                 .entitySet(edmEntitySet)
                 .selectList(selectList)
                 .build();
@@ -196,42 +267,244 @@ public class DemoEntityCollectionProcessor implements EntityCollectionProcessor
         response.setHeader(HttpHeader.CONTENT_TYPE, responseFormat.toContentTypeString());
     }
 
-    private EntityCollection getData(EdmEntitySet edmEntitySet) {
-        EntityCollection productsCollection = new EntityCollection();
-        // Check which set is requested
-        if (DemoEdmProvider.ES_PRODUCTS_NAME.equals(edmEntitySet.getName())) {
-            List<Entity> entityList = productsCollection.getEntities();
-
-            // map from POJO to Olingo Entity
-            for (Product product : storage.getProducts()) {
-                Entity e = new Entity()
-                        .addProperty(new Property(null, "ID", ValueType.PRIMITIVE, product.getId()))
-                        .addProperty(new Property(null, "Name", ValueType.PRIMITIVE, product.getName()))
-                        .addProperty(new Property(null, "Description", ValueType.PRIMITIVE, product.getDescription()))
-                        .addProperty(new Property(null, "Price", ValueType.PRIMITIVE, product.getPrice()))
-                        .addProperty(new Property(null, "BrandID", ValueType.PRIMITIVE, product.getBrandId()));
-                e.setId(createId(edmEntitySet.getName(), product.getId()));
-                entityList.add(e);
+    /**
+     * Translates $search, $filter, $orderby, $top and $skip for the shared
+     * query pipeline; the top-level AND of comparisons on product properties
+     * is pushed down to the repository, and unless that is the whole filter
+     * the compiled predicate runs on the remaining rows
+     */
+    private List<Product> readProducts(UriInfo uriInfo, Map<Integer, Optional<Brand>> brandCache)
+            throws ODataApplicationException {
+        ProductCriteria criteria = new ProductCriteria();
+        Predicate<Product> residual = null;
+        Set<Integer> candidateIds = null;
+
+        FilterOption filterOption = uriInfo.getFilterOption();
+        if (filterOption != null) {
+            try {
+                // Compile the expression once (also validates it); it is then evaluated per product
+                Predicate<Product> filter = ProductFilterExpressionVisitor.compile(filterOption.getExpression(),
+                        brandId -> brandCache.computeIfAbsent(brandId, queryService::findBrand).orElse(null));
+                ODataFilterProcessor.Pushdown pushdown = filterProcessor.pushdown(filterOption.getExpression());
+                criteria.getConditions().addAll(pushdown.getConditions());
+                if (!pushdown.isExact()) {
+                    residual = filter;
+                }
+                candidateIds = filterProcessor.candidateIds(filterOption.getExpression());
+            } catch (ExpressionVisitException e) {
+                throw new ODataApplicationException("Exception in filter evaluation",
+                        HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH);
+            }
+        }
+
+        OrderByOption orderByOption = uriInfo.getOrderByOption();
+        if (orderByOption != null) {
+            for (OrderByItem item : orderByOption.getOrders()) {
+                criteria.getOrderBy().add(new ProductCriteria.Order(orderByProperty(item), item.isDescending()));
             }
-        } else if (DemoEdmProvider.ES_BRANDS_NAME.equals(edmEntitySet.getName())) {
-            List<Entity> entityList = productsCollection.getEntities();
-            for (Brand brand : brandStorage.getBrands()) {
-                Entity e = new Entity()
-                        .addProperty(new Property(null, "ID", ValueType.PRIMITIVE, brand.getId()))
-                        .addProperty(new Property(null, "Name", ValueType.PRIMITIVE, brand.getName()))
-                        .addProperty(new Property(null, "Country", ValueType.PRIMITIVE, brand.getCountry()));
-                e.setId(createId(edmEntitySet.getName(), brand.getId()));
-                entityList.add(e);
+        }
+        if (uriInfo.getTopOption() != null) {
+            criteria.setTop(uriInfo.getTopOption().getValue());
+        }
+        if (uriInfo.getSkipOption() != null) {
+            criteria.setSkip(uriInfo.getSkipOption().getValue());
+        }
+
+        // With $search only the matching products are read, most relevant first
+        SearchOption searchOption = uriInfo.getSearchOption();
+        try {
+            return queryService.findProducts(criteria, searchOption != null ? searchOption.getText() : null,
+                    candidateIds, residual);
+        } catch (ArithmeticException e) {
+            throw new ODataApplicationException("Arithmetic error in filter: " + e.getMessage(),
+                    HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
+        } catch (IllegalArgumentException e) {
+            throw new ODataApplicationException(e.getMessage(), HttpStatusCode.BAD_REQUEST.getStatusCode(),
+                    Locale.ENGLISH);
+        }
+    }
+
+    /**
+     * @return the product property of a $orderby item; navigation paths and
+     *         expressions are not supported
+     */
+    private static String orderByProperty(OrderByItem item) throws ODataApplicationException {
+        if (item.getExpression() instanceof Member) {
+            List<UriResource> parts = ((Member) item.getExpression()).getResourcePath().getUriResourceParts();
+            if (parts.size() == 1 && parts.get(0) instanceof UriResourcePrimitiveProperty) {
+                return ((UriResourcePrimitiveProperty) parts.get(0)).getProperty().getName();
             }
         }
-        return productsCollection;
+        throw new ODataApplicationException("$orderby is only supported on Product properties",
+                HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
     }
 
-    private java.net.URI createId(String entitySetName, Object id) {
+    private void writeAggregation(ODataResponse response, EdmEntitySet edmEntitySet,
+            ApplyOption applyOption) throws ODataApplicationException {
+        if (!DemoEdmProvider.ES_PRODUCTS_NAME.equals(edmEntitySet.getName())) {
+            throw new ODataApplicationException("$apply is only supported on Products",
+                    HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+        }
+
+        List<Map<String, Object>> groups;
+        AggregationSpec spec;
+        try {
+            spec = applyParser.parse(applyOption.getText());
+            groups = queryService.aggregateProducts(spec);
+        } catch (IllegalArgumentException e) {
+            throw new ODataApplicationException(e.getMessage(), HttpStatusCode.BAD_REQUEST.getStatusCode(),
+                    Locale.ENGLISH);
+        }
+
+        // Aggregated rows are not Product entities, so they bypass the entity serializer
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("@odata.context", contextUrl(ContextURL.with()
+                .entitySet(edmEntitySet)
+                .selectList(String.join(",", spec.columns()))
+                .build()));
+        body.put("value", groups);
         try {
-            return new java.net.URI(entitySetName + "(" + String.valueOf(id) + ")");
-        } catch (Exception e) {
-            throw new RuntimeException("Unable to create id for entity: " + entitySetName, e);
+            response.setContent(new ByteArrayInputStream(OBJECT_MAPPER.writeValueAsBytes(body)));
+        } catch (JsonProcessingException e) {
+            throw new ODataApplicationException("Unable to serialize aggregation",
+                    HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH);
         }
+        response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+        response.setHeader(HttpHeader.CONTENT_TYPE, ContentType.APPLICATION_JSON.toContentTypeString());
+    }
+
+    /**
+     * Path, query options (in any order), format and product data version
+     */
+    private String coalescingKey(ODataRequest request, ContentType responseFormat) {
+        String query = request.getRawQueryPath() == null ? ""
+                : Arrays.stream(request.getRawQueryPath().split("&")).sorted().collect(Collectors.joining("&"));
+        return request.getRawBaseUri() + request.getRawODataPath() + "?" + query + " " + responseFormat
+                + " @" + queryService.currentProductDeltaToken();
+    }
+
+    private static boolean isPlainJson(ContentType responseFormat) {
+        String metadata = responseFormat.getParameter(ContentType.PARAMETER_ODATA_METADATA);
+        return responseFormat.isCompatible(ContentType.APPLICATION_JSON)
+                && (metadata == null || ContentType.VALUE_ODATA_METADATA_MINIMAL.equalsIgnoreCase(metadata)
+                        || isMetadataNone(responseFormat))
+                && responseFormat.getParameter(ContentType.PARAMETER_IEEE754_COMPATIBLE) == null;
+    }
+
+    private static boolean isMetadataNone(ContentType responseFormat) {
+        return ContentType.VALUE_ODATA_METADATA_NONE.equalsIgnoreCase(
+                responseFormat.getParameter(ContentType.PARAMETER_ODATA_METADATA));
+    }
+
+    /**
+     * Writes the odata.metadata=minimal (or none) JSON the Olingo serializer
+     * would produce, without building Entity/Property objects
+     */
+    private void writeDirect(ODataResponse response, EdmEntitySet edmEntitySet, List<Product> productRows,
+            List<Brand> brandRows, ContentType responseFormat) throws ODataApplicationException {
+        boolean metadataNone = isMetadataNone(responseFormat);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            if (!metadataNone) {
+                generator.writeStringField("@odata.context",
+                        contextUrl(ContextURL.with().entitySet(edmEntitySet).build()));
+            }
+            generator.writeArrayFieldStart("value");
+            if (productRows != null) {
+                for (Product product : productRows) {
+                    generator.writeStartObject();
+                    generator.writeNumberField("ID", product.getId());
+                    generator.writeStringField("Name", product.getName());
+                    generator.writeStringField("Description", product.getDescription());
+                    generator.writeNumberField("Price", product.getPrice());
+                    generator.writeNumberField("BrandID", product.getBrandId());
+                    generator.writeEndObject();
+                }
+            } else {
+                for (Brand brand : brandRows) {
+                    generator.writeStartObject();
+                    generator.writeNumberField("ID", brand.getId());
+                    generator.writeFieldName("Name");
+                    DictionaryEntrySerializer.write(generator, brandDictionary.name(brand.getName()));
+                    generator.writeFieldName("Country");
+                    DictionaryEntrySerializer.write(generator, brandDictionary.country(brand.getCountry()));
+                    generator.writeEndObject();
+                }
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new ODataApplicationException("Unable to serialize " + edmEntitySet.getName(),
+                    HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH);
+        }
+
+        response.setContent(new ByteArrayInputStream(out.toByteArray()));
+        response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+        response.setHeader(HttpHeader.CONTENT_TYPE,
+                (metadataNone ? ContentType.JSON_NO_METADATA : ContentType.JSON).toContentTypeString());
+    }
+
+    /**
+     * The service-relative context URL the Olingo serializer writes, e.g.
+     * "$metadata#Products(BrandID,AvgPrice)"
+     */
+    private static String contextUrl(ContextURL contextUrl) {
+        return ContextURLBuilder.create(contextUrl).toASCIIString();
+    }
+
+    private Entity toEntity(Brand brand) {
+        Entity e = new Entity()
+                .addProperty(new Property(null, "ID", ValueType.PRIMITIVE, brand.getId()))
+                .addProperty(new Property(null, "Name", ValueType.PRIMITIVE, brand.getName()))
+                .addProperty(new Property(null, "Country", ValueType.PRIMITIVE, brand.getCountry()));
+        e.setId(createId(DemoEdmProvider.ES_BRANDS_NAME, brand.getId()));
+        return e;
+    }
+
+    private Entity toEntity(Product product) {
+        Entity e = new Entity()
+                .addProperty(new Property(null, "ID", ValueType.PRIMITIVE, product.getId()))
+                .addProperty(new Property(null, "Name", ValueType.PRIMITIVE, product.getName()))
+                .addProperty(new Property(null, "Description", ValueType.PRIMITIVE, product.getDescription()))
+                .addProperty(new Property(null, "Price", ValueType.PRIMITIVE, product.getPrice()))
+                .addProperty(new Property(null, "BrandID", ValueType.PRIMITIVE, product.getBrandId()));
+        e.setId(createId(DemoEdmProvider.ES_PRODUCTS_NAME, product.getId()));
+        return e;
+    }
+
+    /**
+     * Body, status and content type of a rendered response, shared by
+     * coalesced requests
+     */
+    private static final class Rendered {
+        private final byte[] content;
+        private final int statusCode;
+        private final String contentType;
+
+        private Rendered(ODataResponse response) {
+            try {
+                this.content = response.getContent().readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.statusCode = response.getStatusCode();
+            this.contentType = response.getHeader(HttpHeader.CONTENT_TYPE);
+        }
+    }
+
+    /**
+     * Carries a checked Olingo exception out of a coalesced rendering
+     */
+    private static final class RenderingFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private RenderingFailure(Exception cause) {
+            super(cause);
+        }
+    }
+
+    private static URI createId(String entitySetName, int id) {
+        return URI.create(entitySetName + "(" + id + ")");
     }
 }
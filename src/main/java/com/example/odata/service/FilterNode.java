@@ -0,0 +1,69 @@
+package com.example.odata.service;
+
+import com.example.odata.domain.model.Product;
+
+/**
+ * Compiled node of a $filter expression
+ * The expression tree is compiled once per request and then evaluated per
+ * product through typed accessors, so numeric values stay primitive.
+ * Booleans are three-valued (TRUE, FALSE, NULL) as required by OData null
+ * semantics; numeric nodes report null through {@link #isNull(Product)} and
+ * string nodes return null.
+ */
+public abstract class FilterNode {
+
+    public enum Type {
+        BOOLEAN, INTEGRAL, DECIMAL, STRING, NULL
+    }
+
+    public static final int FALSE = 0;
+    public static final int TRUE = 1;
+    public static final int NULL = -1;
+
+    private final Type type;
+    private final boolean constant;
+
+    protected FilterNode(Type type, boolean constant) {
+        this.type = type;
+        this.constant = constant;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public boolean isNumeric() {
+        return type == Type.INTEGRAL || type == Type.DECIMAL;
+    }
+
+    /**
+     * Constant nodes do not depend on the product and may be evaluated once
+     * at compile time (e.g. to build the lookup set of an "in" list)
+     */
+    public boolean isConstant() {
+        return constant;
+    }
+
+    /**
+     * @return TRUE, FALSE or NULL
+     */
+    public int evalBoolean(Product product) {
+        throw new IllegalStateException("Not a boolean expression: " + type);
+    }
+
+    public boolean isNull(Product product) {
+        return false;
+    }
+
+    public long evalLong(Product product) {
+        throw new IllegalStateException("Not an integral expression: " + type);
+    }
+
+    public double evalDouble(Product product) {
+        return evalLong(product);
+    }
+
+    public String evalString(Product product) {
+        throw new IllegalStateException("Not a string expression: " + type);
+    }
+}
@@ -1,200 +1,745 @@
 package com.example.odata.service;
 
-import com.example.odata.model.Product;
+import com.example.odata.domain.model.Brand;
+import com.example.odata.domain.model.Product;
 import org.apache.olingo.commons.api.edm.EdmEnumType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
 import org.apache.olingo.commons.api.edm.EdmType;
 import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.server.api.ODataApplicationException;
 import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceNavigation;
 import org.apache.olingo.server.api.uri.UriResourcePrimitiveProperty;
 import org.apache.olingo.server.api.uri.queryoption.expression.BinaryOperatorKind;
 import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitException;
 import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitor;
 import org.apache.olingo.server.api.uri.queryoption.expression.Literal;
 import org.apache.olingo.server.api.uri.queryoption.expression.Member;
 import org.apache.olingo.server.api.uri.queryoption.expression.MethodKind;
 import org.apache.olingo.server.api.uri.queryoption.expression.UnaryOperatorKind;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
 
-public class ProductFilterExpressionVisitor implements ExpressionVisitor<Object> {
+/**
+ * Compiles a $filter expression into a tree of typed {@link FilterNode}s
+ * The tree is built once per request and then evaluated for every product.
+ * Supports logical, comparison and arithmetic operators, "in" lists
+ * (precomputed lookup sets), the string functions contains, startswith,
+ * endswith, indexof, length, substring, tolower, toupper, trim and concat, the
+ * math functions round, floor and ceiling, and Brand/... navigation members.
+ */
+public class ProductFilterExpressionVisitor implements ExpressionVisitor<FilterNode> {
 
-    private final Product currentProduct;
+    private static final Predicate<Product> NEVER_NULL = product -> false;
 
-    public ProductFilterExpressionVisitor(Product product) {
-        this.currentProduct = product;
+    private static final FilterNode NULL_LITERAL = new FilterNode(FilterNode.Type.NULL, true) {
+        @Override
+        public int evalBoolean(Product product) {
+            return NULL;
+        }
+
+        @Override
+        public boolean isNull(Product product) {
+            return true;
+        }
+
+        @Override
+        public long evalLong(Product product) {
+            return 0;
+        }
+
+        @Override
+        public double evalDouble(Product product) {
+            return 0;
+        }
+
+        @Override
+        public String evalString(Product product) {
+            return null;
+        }
+    };
+
+    private final IntFunction<Brand> brandResolver;
+
+    /**
+     * @param brandResolver resolves the target of the Brand navigation for
+     *                      members such as Brand/Name
+     */
+    public ProductFilterExpressionVisitor(IntFunction<Brand> brandResolver) {
+        this.brandResolver = brandResolver;
+    }
+
+    /**
+     * Compiles the filter into a predicate; only products for which the
+     * expression evaluates to true (not false or null) match
+     */
+    public static Predicate<Product> compile(Expression expression, IntFunction<Brand> brandResolver)
+            throws ExpressionVisitException, ODataApplicationException {
+        FilterNode node = expression.accept(new ProductFilterExpressionVisitor(brandResolver));
+        if (node.getType() != FilterNode.Type.BOOLEAN && node.getType() != FilterNode.Type.NULL) {
+            throw badRequest("A filter expression must evaluate to type Boolean");
+        }
+        return product -> node.evalBoolean(product) == FilterNode.TRUE;
     }
 
     @Override
-    public Object visitBinaryOperator(BinaryOperatorKind operator, Object left, List<Object> right)
+    public FilterNode visitBinaryOperator(BinaryOperatorKind operator, FilterNode left, List<FilterNode> right)
             throws ODataApplicationException {
-        // Logic for List based operator (like IN) or delegate to single object version
-        if (right != null && !right.isEmpty()) {
-            return visitBinaryOperator(operator, left, right.get(0));
+        // List based operator: left in (a, b, c)
+        if (operator != BinaryOperatorKind.IN || right == null || right.isEmpty()) {
+            throw badRequest("Invalid binary operation");
         }
-        throw new ODataApplicationException("Invalid binary operation", HttpStatusCode.BAD_REQUEST.getStatusCode(),
-                Locale.ENGLISH);
+        return in(left, right);
     }
 
     @Override
-    public Object visitBinaryOperator(BinaryOperatorKind operator, Object left, Object right)
+    public FilterNode visitBinaryOperator(BinaryOperatorKind operator, FilterNode left, FilterNode right)
             throws ODataApplicationException {
-        // Binary Operators like eq, ne, gt, ge, lt, le, and, or
-        if (operator == BinaryOperatorKind.AND || operator == BinaryOperatorKind.OR) {
-            return evaluateBooleanOperation(operator, left, right);
-        } else {
-            return evaluateComparisonOperation(operator, left, right);
+        switch (operator) {
+            case AND:
+            case OR:
+                return logical(operator, left, right);
+            case EQ:
+            case NE:
+            case GT:
+            case GE:
+            case LT:
+            case LE:
+                return comparison(operator, left, right);
+            case ADD:
+            case SUB:
+            case MUL:
+            case DIV:
+            case MOD:
+                return arithmetic(operator, left, right);
+            default:
+                throw notImplemented("Unsupported binary operator: " + operator);
         }
     }
 
     @Override
-    public Object visitUnaryOperator(UnaryOperatorKind operator, Object operand) throws ODataApplicationException {
-        if (operator == UnaryOperatorKind.NOT && operand instanceof Boolean) {
-            return !(Boolean) operand;
-        } else if (operator == UnaryOperatorKind.MINUS && operand instanceof Number) {
-            // Simple negation for numbers
-            if (operand instanceof Integer)
-                return -(Integer) operand;
-            if (operand instanceof Double)
-                return -(Double) operand;
+    public FilterNode visitUnaryOperator(UnaryOperatorKind operator, FilterNode operand)
+            throws ODataApplicationException {
+        if (operand.getType() == FilterNode.Type.NULL) {
+            return NULL_LITERAL;
         }
-        throw new ODataApplicationException("Invalid type for unary operator",
-                HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
+        if (operator == UnaryOperatorKind.NOT && operand.getType() == FilterNode.Type.BOOLEAN) {
+            return bool(product -> {
+                int value = operand.evalBoolean(product);
+                return value == FilterNode.NULL ? FilterNode.NULL
+                        : value == FilterNode.TRUE ? FilterNode.FALSE : FilterNode.TRUE;
+            });
+        } else if (operator == UnaryOperatorKind.MINUS && operand.getType() == FilterNode.Type.INTEGRAL) {
+            return integral(product -> -operand.evalLong(product), operand::isNull, operand.isConstant());
+        } else if (operator == UnaryOperatorKind.MINUS && operand.getType() == FilterNode.Type.DECIMAL) {
+            return decimal(product -> -operand.evalDouble(product), operand::isNull, operand.isConstant());
+        }
+        throw badRequest("Invalid type for unary operator");
     }
 
     @Override
-    public Object visitMethodCall(MethodKind methodCall, List<Object> parameters) throws ODataApplicationException {
-        if (methodCall == MethodKind.CONTAINS) {
-            if (parameters.get(0) instanceof String && parameters.get(1) instanceof String) {
-                return ((String) parameters.get(0)).contains((String) parameters.get(1));
+    public FilterNode visitMethodCall(MethodKind methodCall, List<FilterNode> parameters)
+            throws ODataApplicationException {
+        switch (methodCall) {
+            case CONTAINS:
+                return stringTest(parameters, String::contains);
+            case STARTSWITH:
+                return stringTest(parameters, String::startsWith);
+            case ENDSWITH:
+                return stringTest(parameters, String::endsWith);
+            case INDEXOF: {
+                FilterNode text = stringParameter(parameters, 0, 2);
+                FilterNode search = stringParameter(parameters, 1, 2);
+                return integral(product -> text.evalString(product).indexOf(search.evalString(product)),
+                        product -> text.evalString(product) == null || search.evalString(product) == null,
+                        false);
             }
-        }
-        if (methodCall == MethodKind.STARTSWITH) {
-            if (parameters.get(0) instanceof String && parameters.get(1) instanceof String) {
-                return ((String) parameters.get(0)).startsWith((String) parameters.get(1));
+            case LENGTH: {
+                FilterNode text = stringParameter(parameters, 0, 1);
+                return integral(product -> text.evalString(product).length(),
+                        product -> text.evalString(product) == null, false);
+            }
+            case SUBSTRING:
+                return substring(parameters);
+            case TOLOWER:
+                return stringTransform(parameters, value -> value.toLowerCase(Locale.ROOT));
+            case TOUPPER:
+                return stringTransform(parameters, value -> value.toUpperCase(Locale.ROOT));
+            case TRIM:
+                return stringTransform(parameters, String::trim);
+            case CONCAT: {
+                FilterNode first = stringParameter(parameters, 0, 2);
+                FilterNode second = stringParameter(parameters, 1, 2);
+                return string(product -> {
+                    String a = first.evalString(product);
+                    String b = second.evalString(product);
+                    return a == null || b == null ? null : a.concat(b);
+                });
             }
+            case ROUND:
+                return rounding(parameters, value -> Math.signum(value) * Math.floor(Math.abs(value) + 0.5));
+            case FLOOR:
+                return rounding(parameters, Math::floor);
+            case CEILING:
+                return rounding(parameters, Math::ceil);
+            default:
+                throw notImplemented("Unsupported method: " + methodCall);
         }
-        // Add more methods like tolower, toupper etc if needed.
-        return false;
     }
 
     @Override
-    public Object visitLambdaExpression(String lambdaFunction, String lambdaVariable, Expression expression) {
-        return null; // Not implemented for this simple example
+    public FilterNode visitLambdaExpression(String lambdaFunction, String lambdaVariable, Expression expression)
+            throws ODataApplicationException {
+        throw notImplemented("Lambda expressions are not supported");
     }
 
     @Override
-    public Object visitLiteral(Literal literal) {
-        // Olingo passes literals as strings (e.g. "'Bike'", "10", "15.5")
-        // We need to try parsing them.
+    public FilterNode visitLiteral(Literal literal) throws ODataApplicationException {
+        // Olingo passes literals as text plus the smallest fitting EDM type
         String literalText = literal.getText();
-        if (literalText.startsWith("'") && literalText.endsWith("'")) {
-            return literalText.substring(1, literalText.length() - 1); // String
+        EdmType type = literal.getType();
+        if (type == null || "null".equals(literalText)) {
+            return NULL_LITERAL;
         }
+
+        EdmPrimitiveTypeKind kind;
         try {
-            return Integer.parseInt(literalText);
-        } catch (NumberFormatException e) {
-            try {
-                return Double.parseDouble(literalText);
-            } catch (NumberFormatException e2) {
-                // Boolean or other
-                if ("true".equalsIgnoreCase(literalText))
-                    return true;
-                if ("false".equalsIgnoreCase(literalText))
-                    return false;
+            kind = EdmPrimitiveTypeKind.valueOfFQN(type.getFullQualifiedName());
+        } catch (IllegalArgumentException e) {
+            throw notImplemented("Unsupported literal type: " + type.getFullQualifiedName());
+        }
+
+        switch (kind) {
+            case String: {
+                String value = literalText.substring(1, literalText.length() - 1).replace("''", "'");
+                return constantString(value);
+            }
+            case Boolean: {
+                int value = Boolean.parseBoolean(literalText) ? FilterNode.TRUE : FilterNode.FALSE;
+                return new FilterNode(FilterNode.Type.BOOLEAN, true) {
+                    @Override
+                    public int evalBoolean(Product product) {
+                        return value;
+                    }
+                };
+            }
+            case Byte:
+            case SByte:
+            case Int16:
+            case Int32:
+            case Int64: {
+                long value = Long.parseLong(literalText);
+                return integral(product -> value, NEVER_NULL, true);
+            }
+            case Single:
+            case Double:
+            case Decimal: {
+                double value = parseDecimal(literalText);
+                return decimal(product -> value, NEVER_NULL, true);
             }
+            default:
+                throw notImplemented("Unsupported literal type: " + kind);
         }
-        return literalText;
     }
 
     @Override
-    public Object visitMember(Member member) throws ODataApplicationException {
-        // Retrieves the value of the property from the current product
-        UriResource uriResource = member.getResourcePath().getUriResourceParts().get(0);
+    public FilterNode visitMember(Member member) throws ODataApplicationException {
+        // Resolves a property of the current product, or of its brand (Brand/Name)
+        List<UriResource> uriResourceParts = member.getResourcePath().getUriResourceParts();
+        UriResource uriResource = uriResourceParts.get(0);
 
-        if (uriResource instanceof UriResourcePrimitiveProperty) {
-            String propertyName = ((UriResourcePrimitiveProperty) uriResource).getProperty().getName();
-            if ("ID".equals(propertyName)) {
-                return currentProduct.getId();
-            } else if ("Name".equals(propertyName)) {
-                return currentProduct.getName();
-            } else if ("Description".equals(propertyName)) {
-                return currentProduct.getDescription();
-            } else if ("Price".equals(propertyName)) {
-                return currentProduct.getPrice();
-            }
+        if (uriResourceParts.size() == 1 && uriResource instanceof UriResourcePrimitiveProperty) {
+            return productProperty(((UriResourcePrimitiveProperty) uriResource).getProperty().getName());
+        }
+        if (uriResourceParts.size() == 2 && uriResource instanceof UriResourceNavigation
+                && uriResourceParts.get(1) instanceof UriResourcePrimitiveProperty
+                && DemoEdmProvider.NAV_BRAND.equals(((UriResourceNavigation) uriResource).getProperty().getName())) {
+            return brandProperty(((UriResourcePrimitiveProperty) uriResourceParts.get(1)).getProperty().getName());
         }
-        return null;
+        throw notImplemented("Unsupported member: " + uriResource);
     }
 
     @Override
-    public Object visitAlias(String aliasName) {
-        return null;
+    public FilterNode visitAlias(String aliasName) throws ODataApplicationException {
+        throw notImplemented("Aliases are not supported");
     }
 
     @Override
-    public Object visitTypeLiteral(EdmType type) {
-        return null;
+    public FilterNode visitTypeLiteral(EdmType type) throws ODataApplicationException {
+        throw notImplemented("Type literals are not supported");
     }
 
     @Override
-    public Object visitLambdaReference(String variableName) {
-        return null;
+    public FilterNode visitLambdaReference(String variableName) throws ODataApplicationException {
+        throw notImplemented("Lambda references are not supported");
     }
 
     @Override
-    public Object visitEnum(EdmEnumType type, List<String> enumValues) {
-        return null;
+    public FilterNode visitEnum(EdmEnumType type, List<String> enumValues) throws ODataApplicationException {
+        throw notImplemented("Enumerations are not supported");
     }
 
-    // --- Helper Methods ---
+    // --- Members ---
+
+    private FilterNode productProperty(String propertyName) throws ODataApplicationException {
+        switch (propertyName) {
+            case "ID":
+                return integral(Product::getId, NEVER_NULL, false);
+            case "Name":
+                return string(Product::getName);
+            case "Description":
+                return string(Product::getDescription);
+            case "Price":
+                return decimal(Product::getPrice, NEVER_NULL, false);
+            case "BrandID":
+                return integral(Product::getBrandId, NEVER_NULL, false);
+            default:
+                throw badRequest("Unknown property: " + propertyName);
+        }
+    }
+
+    private FilterNode brandProperty(String propertyName) throws ODataApplicationException {
+        Predicate<Product> noBrand = product -> brandResolver.apply(product.getBrandId()) == null;
+        switch (propertyName) {
+            case "ID":
+                return integral(product -> brandResolver.apply(product.getBrandId()).getId(), noBrand, false);
+            case "Name":
+                return string(product -> {
+                    Brand brand = brandResolver.apply(product.getBrandId());
+                    return brand != null ? brand.getName() : null;
+                });
+            case "Country":
+                return string(product -> {
+                    Brand brand = brandResolver.apply(product.getBrandId());
+                    return brand != null ? brand.getCountry() : null;
+                });
+            default:
+                throw badRequest("Unknown property: Brand/" + propertyName);
+        }
+    }
+
+    // --- Operators ---
+
+    private FilterNode logical(BinaryOperatorKind operator, FilterNode left, FilterNode right)
+            throws ODataApplicationException {
+        if (!isBooleanOrNull(left) || !isBooleanOrNull(right)) {
+            throw badRequest("Boolean operation expects boolean operands");
+        }
+        if (operator == BinaryOperatorKind.AND) {
+            // false wins over null; null and true is null
+            return bool(product -> {
+                int l = left.evalBoolean(product);
+                if (l == FilterNode.FALSE) {
+                    return FilterNode.FALSE;
+                }
+                int r = right.evalBoolean(product);
+                if (r == FilterNode.FALSE) {
+                    return FilterNode.FALSE;
+                }
+                return l == FilterNode.TRUE && r == FilterNode.TRUE ? FilterNode.TRUE : FilterNode.NULL;
+            });
+        }
+        // true wins over null; null or false is null
+        return bool(product -> {
+            int l = left.evalBoolean(product);
+            if (l == FilterNode.TRUE) {
+                return FilterNode.TRUE;
+            }
+            int r = right.evalBoolean(product);
+            if (r == FilterNode.TRUE) {
+                return FilterNode.TRUE;
+            }
+            return l == FilterNode.FALSE && r == FilterNode.FALSE ? FilterNode.FALSE : FilterNode.NULL;
+        });
+    }
+
+    private FilterNode comparison(BinaryOperatorKind operator, FilterNode left, FilterNode right)
+            throws ODataApplicationException {
+        FilterNode.Type l = left.getType();
+        FilterNode.Type r = right.getType();
+
+        if ((left.isNumeric() || l == FilterNode.Type.NULL) && (right.isNumeric() || r == FilterNode.Type.NULL)) {
+            boolean integral = l == FilterNode.Type.INTEGRAL && r == FilterNode.Type.INTEGRAL;
+            return bool(product -> {
+                boolean leftNull = left.isNull(product);
+                boolean rightNull = right.isNull(product);
+                if (leftNull || rightNull) {
+                    return compareNulls(operator, leftNull, rightNull);
+                }
+                int cmp = integral
+                        ? Long.compare(left.evalLong(product), right.evalLong(product))
+                        : Double.compare(left.evalDouble(product), right.evalDouble(product));
+                return compareResult(operator, cmp);
+            });
+        } else if (isStringOrNull(left) && isStringOrNull(right)) {
+            return bool(product -> {
+                String a = left.evalString(product);
+                String b = right.evalString(product);
+                if (a == null || b == null) {
+                    return compareNulls(operator, a == null, b == null);
+                }
+                return compareResult(operator, a.compareTo(b));
+            });
+        } else if (isBooleanOrNull(left) && isBooleanOrNull(right)
+                && (operator == BinaryOperatorKind.EQ || operator == BinaryOperatorKind.NE)) {
+            return bool(product -> {
+                int a = left.evalBoolean(product);
+                int b = right.evalBoolean(product);
+                if (a == FilterNode.NULL || b == FilterNode.NULL) {
+                    return compareNulls(operator, a == FilterNode.NULL, b == FilterNode.NULL);
+                }
+                return compareResult(operator, Integer.compare(a, b));
+            });
+        }
+        throw badRequest("Incompatible operand types for " + operator + ": " + l + ", " + r);
+    }
+
+    private FilterNode arithmetic(BinaryOperatorKind operator, FilterNode left, FilterNode right)
+            throws ODataApplicationException {
+        if (left.getType() == FilterNode.Type.NULL || right.getType() == FilterNode.Type.NULL) {
+            return NULL_LITERAL;
+        }
+        if (!left.isNumeric() || !right.isNumeric()) {
+            throw badRequest("Arithmetic operation expects numeric operands");
+        }
+
+        Predicate<Product> isNull = product -> left.isNull(product) || right.isNull(product);
+        boolean constant = left.isConstant() && right.isConstant();
+
+        if (left.getType() == FilterNode.Type.INTEGRAL && right.getType() == FilterNode.Type.INTEGRAL) {
+            switch (operator) {
+                case ADD:
+                    return integral(product -> left.evalLong(product) + right.evalLong(product), isNull, constant);
+                case SUB:
+                    return integral(product -> left.evalLong(product) - right.evalLong(product), isNull, constant);
+                case MUL:
+                    return integral(product -> left.evalLong(product) * right.evalLong(product), isNull, constant);
+                case DIV:
+                    // Integer division by zero raises ArithmeticException (reported as 400)
+                    return integral(product -> left.evalLong(product) / right.evalLong(product), isNull, constant);
+                default:
+                    return integral(product -> left.evalLong(product) % right.evalLong(product), isNull, constant);
+            }
+        }
+        switch (operator) {
+            case ADD:
+                return decimal(product -> left.evalDouble(product) + right.evalDouble(product), isNull, constant);
+            case SUB:
+                return decimal(product -> left.evalDouble(product) - right.evalDouble(product), isNull, constant);
+            case MUL:
+                return decimal(product -> left.evalDouble(product) * right.evalDouble(product), isNull, constant);
+            case DIV:
+                return decimal(product -> left.evalDouble(product) / right.evalDouble(product), isNull, constant);
+            default:
+                return decimal(product -> left.evalDouble(product) % right.evalDouble(product), isNull, constant);
+        }
+    }
+
+    /**
+     * Constant lists become a hash set (strings) or a sorted primitive array
+     * (numbers, probed by binary search without boxing), built once per request.
+     * Lists with non-constant items are expanded to eq/or.
+     */
+    private FilterNode in(FilterNode left, List<FilterNode> items) throws ODataApplicationException {
+        if (!items.stream().allMatch(FilterNode::isConstant)) {
+            FilterNode result = comparison(BinaryOperatorKind.EQ, left, items.get(0));
+            for (FilterNode item : items.subList(1, items.size())) {
+                result = logical(BinaryOperatorKind.OR, result, comparison(BinaryOperatorKind.EQ, left, item));
+            }
+            return result;
+        }
+
+        boolean containsNull = items.stream().anyMatch(item -> item.getType() == FilterNode.Type.NULL);
+        int nullResult = containsNull ? FilterNode.TRUE : FilterNode.FALSE;
+
+        if (left.getType() == FilterNode.Type.STRING) {
+            Set<String> values = new HashSet<>();
+            for (FilterNode item : items) {
+                if (!isStringOrNull(item)) {
+                    throw badRequest("Incompatible types in 'in' list");
+                }
+                if (item.getType() == FilterNode.Type.STRING) {
+                    values.add(item.evalString(null));
+                }
+            }
+            return bool(product -> {
+                String value = left.evalString(product);
+                if (value == null) {
+                    return nullResult;
+                }
+                return values.contains(value) ? FilterNode.TRUE : FilterNode.FALSE;
+            });
+        }
+
+        if (left.isNumeric()) {
+            boolean integral = left.getType() == FilterNode.Type.INTEGRAL;
+            int count = 0;
+            for (FilterNode item : items) {
+                if (!item.isNumeric() && item.getType() != FilterNode.Type.NULL) {
+                    throw badRequest("Incompatible types in 'in' list");
+                }
+                if (item.isNumeric()) {
+                    integral &= item.getType() == FilterNode.Type.INTEGRAL;
+                    count++;
+                }
+            }
+
+            if (integral) {
+                long[] values = new long[count];
+                int i = 0;
+                for (FilterNode item : items) {
+                    if (item.isNumeric()) {
+                        values[i++] = item.evalLong(null);
+                    }
+                }
+                Arrays.sort(values);
+                return bool(product -> left.isNull(product) ? nullResult
+                        : Arrays.binarySearch(values, left.evalLong(product)) >= 0 ? FilterNode.TRUE
+                                : FilterNode.FALSE);
+            }
 
-    private Object evaluateBooleanOperation(BinaryOperatorKind operator, Object left, Object right)
+            double[] values = new double[count];
+            int i = 0;
+            for (FilterNode item : items) {
+                if (item.isNumeric()) {
+                    values[i++] = item.evalDouble(null);
+                }
+            }
+            Arrays.sort(values);
+            return bool(product -> left.isNull(product) ? nullResult
+                    : Arrays.binarySearch(values, left.evalDouble(product)) >= 0 ? FilterNode.TRUE
+                            : FilterNode.FALSE);
+        }
+
+        if (left.getType() == FilterNode.Type.NULL) {
+            return bool(product -> nullResult);
+        }
+        throw badRequest("Unsupported operand type for 'in': " + left.getType());
+    }
+
+    // --- Functions ---
+
+    private FilterNode stringTest(List<FilterNode> parameters, BiPredicate<String, String> test)
+            throws ODataApplicationException {
+        FilterNode text = stringParameter(parameters, 0, 2);
+        FilterNode search = stringParameter(parameters, 1, 2);
+        return bool(product -> {
+            String a = text.evalString(product);
+            String b = search.evalString(product);
+            if (a == null || b == null) {
+                return FilterNode.NULL;
+            }
+            return test.test(a, b) ? FilterNode.TRUE : FilterNode.FALSE;
+        });
+    }
+
+    private FilterNode stringTransform(List<FilterNode> parameters, UnaryOperator<String> transform)
             throws ODataApplicationException {
-        if (left instanceof Boolean && right instanceof Boolean) {
-            if (operator == BinaryOperatorKind.AND)
-                return (Boolean) left && (Boolean) right;
-            if (operator == BinaryOperatorKind.OR)
-                return (Boolean) left || (Boolean) right;
+        FilterNode text = stringParameter(parameters, 0, 1);
+        return string(product -> {
+            String value = text.evalString(product);
+            return value != null ? transform.apply(value) : null;
+        });
+    }
+
+    private FilterNode substring(List<FilterNode> parameters) throws ODataApplicationException {
+        if (parameters.size() != 2 && parameters.size() != 3) {
+            throw badRequest("substring expects 2 or 3 parameters");
         }
-        throw new ODataApplicationException("Boolean operation expects boolean operands",
-                HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
+        FilterNode text = stringParameter(parameters, 0, parameters.size());
+        FilterNode start = integralParameter(parameters, 1);
+        FilterNode length = parameters.size() == 3 ? integralParameter(parameters, 2) : null;
+
+        return string(product -> {
+            String value = text.evalString(product);
+            if (value == null || start.isNull(product) || (length != null && length.isNull(product))) {
+                return null;
+            }
+            int from = (int) Math.min(Math.max(start.evalLong(product), 0), value.length());
+            if (length == null) {
+                return value.substring(from);
+            }
+            int to = (int) Math.min(from + Math.max(length.evalLong(product), 0), value.length());
+            return value.substring(from, to);
+        });
     }
 
-    private Object evaluateComparisonOperation(BinaryOperatorKind operator, Object left, Object right)
+    private FilterNode rounding(List<FilterNode> parameters, DoubleUnaryOperator function)
             throws ODataApplicationException {
-        if (left instanceof Number && right instanceof Number) {
-            double l = ((Number) left).doubleValue();
-            double r = ((Number) right).doubleValue();
-            if (operator == BinaryOperatorKind.EQ)
-                return l == r;
-            if (operator == BinaryOperatorKind.NE)
-                return l != r;
-            if (operator == BinaryOperatorKind.GT)
-                return l > r;
-            if (operator == BinaryOperatorKind.GE)
-                return l >= r;
-            if (operator == BinaryOperatorKind.LT)
-                return l < r;
-            if (operator == BinaryOperatorKind.LE)
-                return l <= r;
-        } else if (left instanceof String && right instanceof String) {
-            String l = (String) left;
-            String r = (String) right;
-            if (operator == BinaryOperatorKind.EQ)
-                return l.equals(r);
-            if (operator == BinaryOperatorKind.NE)
-                return !l.equals(r);
-            // String comparisons (alphabetical) could be added here
-        }
-
-        // Use default equals for other types
-        if (operator == BinaryOperatorKind.EQ)
-            return left.equals(right);
-        if (operator == BinaryOperatorKind.NE)
-            return !left.equals(right);
-
-        return false;
+        if (parameters.size() != 1) {
+            throw badRequest("Rounding functions expect 1 parameter");
+        }
+        FilterNode value = parameters.get(0);
+        if (value.getType() == FilterNode.Type.INTEGRAL || value.getType() == FilterNode.Type.NULL) {
+            return value;
+        }
+        if (value.getType() != FilterNode.Type.DECIMAL) {
+            throw badRequest("Rounding functions expect a numeric parameter");
+        }
+        return decimal(product -> function.applyAsDouble(value.evalDouble(product)), value::isNull,
+                value.isConstant());
+    }
+
+    private FilterNode stringParameter(List<FilterNode> parameters, int index, int expectedCount)
+            throws ODataApplicationException {
+        if (parameters.size() != expectedCount) {
+            throw badRequest("Expected " + expectedCount + " parameters");
+        }
+        FilterNode parameter = parameters.get(index);
+        if (!isStringOrNull(parameter)) {
+            throw badRequest("Expected a string parameter at position " + (index + 1));
+        }
+        return parameter;
+    }
+
+    private FilterNode integralParameter(List<FilterNode> parameters, int index) throws ODataApplicationException {
+        FilterNode parameter = parameters.get(index);
+        if (parameter.getType() != FilterNode.Type.INTEGRAL && parameter.getType() != FilterNode.Type.NULL) {
+            throw badRequest("Expected an integer parameter at position " + (index + 1));
+        }
+        return parameter;
+    }
+
+    // --- Helper Methods ---
+
+    private static int compareNulls(BinaryOperatorKind operator, boolean leftNull, boolean rightNull) {
+        // null eq null, null ge null and null le null are true; any other comparison with null is false
+        if (leftNull && rightNull) {
+            return operator == BinaryOperatorKind.EQ || operator == BinaryOperatorKind.GE
+                    || operator == BinaryOperatorKind.LE ? FilterNode.TRUE : FilterNode.FALSE;
+        }
+        return operator == BinaryOperatorKind.NE ? FilterNode.TRUE : FilterNode.FALSE;
+    }
+
+    private static int compareResult(BinaryOperatorKind operator, int cmp) {
+        boolean result;
+        switch (operator) {
+            case EQ:
+                result = cmp == 0;
+                break;
+            case NE:
+                result = cmp != 0;
+                break;
+            case GT:
+                result = cmp > 0;
+                break;
+            case GE:
+                result = cmp >= 0;
+                break;
+            case LT:
+                result = cmp < 0;
+                break;
+            default:
+                result = cmp <= 0;
+                break;
+        }
+        return result ? FilterNode.TRUE : FilterNode.FALSE;
+    }
+
+    private static double parseDecimal(String literalText) {
+        if ("INF".equals(literalText)) {
+            return Double.POSITIVE_INFINITY;
+        } else if ("-INF".equals(literalText)) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return Double.parseDouble(literalText);
+    }
+
+    private static boolean isStringOrNull(FilterNode node) {
+        return node.getType() == FilterNode.Type.STRING || node.getType() == FilterNode.Type.NULL;
+    }
+
+    private static boolean isBooleanOrNull(FilterNode node) {
+        return node.getType() == FilterNode.Type.BOOLEAN || node.getType() == FilterNode.Type.NULL;
+    }
+
+    private static FilterNode bool(ToIntFunction<Product> function) {
+        return new FilterNode(FilterNode.Type.BOOLEAN, false) {
+            @Override
+            public int evalBoolean(Product product) {
+                return function.applyAsInt(product);
+            }
+        };
+    }
+
+    private static FilterNode integral(ToLongFunction<Product> function, Predicate<Product> isNull,
+            boolean constant) {
+        return new FilterNode(FilterNode.Type.INTEGRAL, constant) {
+            @Override
+            public long evalLong(Product product) {
+                return function.applyAsLong(product);
+            }
+
+            @Override
+            public boolean isNull(Product product) {
+                return isNull.test(product);
+            }
+        };
+    }
+
+    private static FilterNode decimal(ToDoubleFunction<Product> function, Predicate<Product> isNull,
+            boolean constant) {
+        return new FilterNode(FilterNode.Type.DECIMAL, constant) {
+            @Override
+            public double evalDouble(Product product) {
+                return function.applyAsDouble(product);
+            }
+
+            @Override
+            public boolean isNull(Product product) {
+                return isNull.test(product);
+            }
+        };
+    }
+
+    private static FilterNode string(Function<Product, String> function) {
+        return new FilterNode(FilterNode.Type.STRING, false) {
+            @Override
+            public String evalString(Product product) {
+                return function.apply(product);
+            }
+
+            @Override
+            public boolean isNull(Product product) {
+                return function.apply(product) == null;
+            }
+        };
+    }
+
+    private static FilterNode constantString(String value) {
+        return new FilterNode(FilterNode.Type.STRING, true) {
+            @Override
+            public String evalString(Product product) {
+                return value;
+            }
+
+            @Override
+            public boolean isNull(Product product) {
+                return false;
+            }
+        };
+    }
+
+    private static ODataApplicationException badRequest(String message) {
+        return new ODataApplicationException(message, HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
+    }
+
+    private static ODataApplicationException notImplemented(String message) {
+        return new ODataApplicationException(message, HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(),
+                Locale.ENGLISH);
     }
 }
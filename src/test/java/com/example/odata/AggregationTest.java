@@ -0,0 +1,52 @@
+package com.example.odata;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AggregationTest extends ODataApiTest {
+
+    private static final String AVERAGE_BY_BRAND = "$apply=groupby((BrandID),aggregate(Price with average as AvgPrice))";
+
+    @Test
+    void averagesPerGroupOnBothEndpoints() {
+        for (String root : new String[] { "/OData.svc", "/odata" }) {
+            JsonNode groups = getJson(root + "/Products?" + AVERAGE_BY_BRAND).get("value");
+            Map<Integer, Double> averages = new HashMap<>();
+            groups.forEach(group -> averages.put(group.get("BrandID").asInt(), group.get("AvgPrice").asDouble()));
+            assertThat(averages).as(root).containsExactlyInAnyOrderEntriesOf(Map.of(1, 257.5, 2, 150.0, 3, 20.0));
+        }
+    }
+
+    @Test
+    void aggregatesWithoutGrouping() {
+        for (String root : new String[] { "/OData.svc", "/odata" }) {
+            JsonNode groups = getJson(root + "/Products?$apply=aggregate(Price with sum as Total)").get("value");
+            assertThat(groups).as(root).hasSize(1);
+            assertThat(groups.get(0).get("Total").asDouble()).as(root).isEqualTo(725.0);
+        }
+    }
+
+    @Test
+    void contextUrlIsServiceRelativeLikeOtherResponses() {
+        assertThat(getJson("/OData.svc/Products?" + AVERAGE_BY_BRAND).get("@odata.context").asText())
+                .isEqualTo("$metadata#Products(BrandID,AvgPrice)");
+        assertThat(getJson("/OData.svc/Products").get("@odata.context").asText())
+                .isEqualTo("$metadata#Products");
+    }
+
+    @Test
+    void filterAppliesToAggregatedRowsOnOdata() {
+        JsonNode groups = getJson("/odata/Products?" + AVERAGE_BY_BRAND + "&$filter=AvgPrice gt 100").get("value");
+        assertThat(groups).extracting(group -> group.get("BrandID").asInt()).containsExactlyInAnyOrder(1, 2);
+    }
+
+    @Test
+    void malformedApplyIsABadRequest() {
+        assertThat(get("/odata/Products?$apply=groupby(BrandID").getStatusCodeValue()).isEqualTo(400);
+    }
+}
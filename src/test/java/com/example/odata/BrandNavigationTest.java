@@ -0,0 +1,37 @@
+package com.example.odata;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BrandNavigationTest extends ODataApiTest {
+
+    @Test
+    void expandsProductsOfEachBrandOnBothEndpoints() {
+        for (String root : new String[] { "/OData.svc", "/odata" }) {
+            JsonNode brands = getJson(root + "/Brands?$expand=Products").get("value");
+            assertThat(ids(brands)).as(root).containsExactly(1, 2, 3);
+            assertThat(ids(brands.get(0).get("Products"))).as(root).containsExactlyInAnyOrder(1, 2);
+            assertThat(ids(brands.get(1).get("Products"))).as(root).containsExactly(3);
+            assertThat(ids(brands.get(2).get("Products"))).as(root).containsExactlyInAnyOrder(4, 5, 6);
+        }
+    }
+
+    @Test
+    void filtersProductsByBrandProperties() {
+        assertThat(ids("/OData.svc/Products?$filter=Brand/Name eq 'ErgoSoft'")).containsExactly(3);
+        assertThat(ids("/OData.svc/Products?$filter=Brand/Country eq 'China' and Price gt 20"))
+                .containsExactly(5);
+        assertThat(ids("/OData.svc/Products?$filter=Brand/Name ne 'SpeedyMouse'")).containsExactly(1, 2, 3);
+        assertThat(ids("/odata/Products?$filter=Brand/Name eq 'ErgoSoft'")).containsExactly(3);
+        assertThat(ids("/odata/Products?$filter=Brand/Country eq 'USA'")).containsExactly(1, 2);
+    }
+
+    @Test
+    void expandsBrandOfEachProduct() {
+        JsonNode products = getJson("/OData.svc/Products?$expand=Brand&$filter=ID le 3").get("value");
+        assertThat(products).extracting(product -> product.get("Brand").get("Name").asText())
+                .containsExactly("TechGiant", "TechGiant", "ErgoSoft");
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.odata;
+
+import com.example.odata.application.service.ODataQueryService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * /odata/Products/$changes: event ids are delta tokens, a reconnect resumes
+ * after Last-Event-ID from the ring buffer, and subscribers beyond the buffer
+ * or the lag limit are evicted
+ */
+@DirtiesContext
+@TestPropertySource(properties = { "odata.changes.buffer-capacity=8", "odata.changes.max-lag=4" })
+class ChangeStreamTest extends ODataApiTest {
+
+    @Autowired
+    private ODataQueryService queryService;
+
+    @Test
+    void eventIdsAreDeltaTokens() throws Exception {
+        long token = queryService.currentProductDeltaToken();
+        MockHttpServletResponse stream = subscribe(MockMvcRequestBuilders.get(uri("/odata/Products/$changes")));
+
+        int id = save("Streamed");
+        rest.delete(uri("/odata/Products(" + id + ")"));
+
+        assertThat(awaitEvents(stream, 3)).containsExactly(
+                token + " subscribed",
+                (token + 1) + " saved",
+                (token + 2) + " deleted");
+        assertThat(stream.getContentAsString()).contains("\"Name\":\"Streamed\"")
+                .contains("\"@odata.deltaLink\":\"/odata/Products?$deltatoken=" + token + "\"");
+    }
+
+    @Test
+    void resumesAfterTheLastEventIdFromTheBuffer() throws Exception {
+        long token = queryService.currentProductDeltaToken();
+        save("Missed 1");
+        save("Missed 2");
+
+        MockHttpServletResponse stream = subscribe(MockMvcRequestBuilders.get(uri("/odata/Products/$changes"))
+                .header("Last-Event-ID", token));
+        save("Live");
+
+        assertThat(awaitEvents(stream, 4)).containsExactly(
+                token + " subscribed",
+                (token + 1) + " saved",
+                (token + 2) + " saved",
+                (token + 3) + " saved");
+        String content = stream.getContentAsString();
+        assertThat(content.indexOf("Missed 1")).isLessThan(content.indexOf("Missed 2"));
+        assertThat(content.indexOf("Missed 2")).isLessThan(content.indexOf("Live"));
+    }
+
+    @Test
+    void evictsSubscribersBeyondTheBufferOrTheLagLimit() throws Exception {
+        long token = queryService.currentProductDeltaToken();
+        // More changes than the lag limit, fewer than the buffer holds
+        for (int i = 0; i < 6; i++) {
+            save("Lagging " + i);
+        }
+        MockHttpServletResponse lagging = subscribe(MockMvcRequestBuilders.get(uri("/odata/Products/$changes"))
+                .header("Last-Event-ID", token));
+        assertThat(awaitEvents(lagging, 2)).containsExactly(token + " subscribed", "- evicted");
+        assertThat(lagging.getContentAsString()).contains("fell more than 4 changes behind");
+
+        // More changes than the buffer holds
+        for (int i = 0; i < 6; i++) {
+            save("Overwritten " + i);
+        }
+        MockHttpServletResponse gone = subscribe(MockMvcRequestBuilders.get(uri("/odata/Products/$changes"))
+                .header("Last-Event-ID", token));
+        assertThat(awaitEvents(gone, 1)).containsExactly("- evicted");
+        assertThat(gone.getContentAsString()).contains("no longer buffered");
+    }
+
+    private MockHttpServletResponse subscribe(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+        return result.getResponse();
+    }
+
+    /**
+     * "id event" of each event sent so far ("-" when it has no id), once at
+     * least the expected number arrived
+     */
+    private static List<String> awaitEvents(MockHttpServletResponse stream, int expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        List<String> events;
+        do {
+            events = new ArrayList<>();
+            for (String block : stream.getContentAsString().split("\n\n")) {
+                String id = "-";
+                String name = null;
+                for (String line : block.split("\n")) {
+                    if (line.startsWith("id:")) {
+                        id = line.substring(3);
+                    } else if (line.startsWith("event:")) {
+                        name = line.substring(6);
+                    }
+                }
+                if (name != null) {
+                    events.add(id + " " + name);
+                }
+            }
+            if (events.size() >= expected) {
+                return events;
+            }
+            Thread.sleep(20);
+        } while (System.currentTimeMillis() < deadline);
+        return events;
+    }
+
+    private int save(String name) throws Exception {
+        String created = rest.postForEntity(uri("/odata/Products"),
+                Map.of("Name", name, "Description", "", "Price", 1.0, "BrandID", 1), String.class).getBody();
+        return MAPPER.readTree(created).get("value").get("ID").asInt();
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.odata;
+
+import com.example.odata.infrastructure.cluster.ConsistentHashRing;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cluster mode end to end: two nodes on free ports hold the products between
+ * them, and /cluster/Products on either node must answer like /odata/Products
+ * on this (single, unclustered) instance holding the same products
+ */
+@DirtiesContext
+class ClusterQueryTest extends ODataApiTest {
+
+    private static final int VIRTUAL_NODES = 128;
+    private static final List<ConfigurableApplicationContext> NODES = new ArrayList<>();
+    private static final List<String> NODE_URLS = new ArrayList<>();
+
+    private static final List<String> QUERIES = List.of(
+            "$orderby=Price desc&$top=3",
+            "$orderby=Price desc&$skip=2&$top=4",
+            "$orderby=Name&$skip=5&$top=5&$count=true",
+            "$orderby=Name desc,Price&$select=Name&$top=7",
+            "$orderby=Description&$count=true",
+            "$orderby=BrandID,Price desc&$skip=3&$select=Price,BrandID",
+            "$filter=Price lt 100&$orderby=Price&$count=true&$top=4",
+            "$filter=contains(Name,'Mouse') or BrandID eq 2&$orderby=ID desc&$top=3&$count=true",
+            "$filter=Brand/Country eq 'Germany'&$expand=Brand&$orderby=Price",
+            "$skip=10&$count=true",
+            "$top=0&$count=true");
+
+    @BeforeAll
+    static void startCluster() throws IOException {
+        int first = freePort();
+        int second = freePort();
+        while (second == first) {
+            second = freePort();
+        }
+        List<Integer> ports = List.of(first, second);
+        ports.forEach(port -> NODE_URLS.add("http://localhost:" + port));
+        for (int port : ports) {
+            NODES.add(new SpringApplicationBuilder(ODataApplication.class).run(
+                    "--server.port=" + port,
+                    "--odata.cluster.enabled=true",
+                    "--odata.cluster.nodes=" + String.join(",", NODE_URLS),
+                    "--odata.cluster.virtual-nodes=" + VIRTUAL_NODES,
+                    "--odata.warmup.enabled=false",
+                    "--odata.admission.enabled=false",
+                    "--spring.datasource.url=jdbc:h2:mem:cluster-" + port + ";DB_CLOSE_DELAY=-1"));
+        }
+    }
+
+    @AfterAll
+    static void stopCluster() {
+        NODES.forEach(ConfigurableApplicationContext::close);
+        NODES.clear();
+        NODE_URLS.clear();
+    }
+
+    @Test
+    void mergedAnswersMatchASingleNode() {
+        addProducts();
+        TestRestTemplate cluster = new TestRestTemplate();
+        for (String nodeUrl : NODE_URLS) {
+            for (String query : QUERIES) {
+                JsonNode expected = getJson("/odata/Products?" + query);
+                JsonNode merged = json(exchange(cluster, HttpMethod.GET, uri(nodeUrl, "/cluster/Products?" + query),
+                        null));
+                assertThat(merged.get("value")).as("%s via %s", query, nodeUrl).isEqualTo(expected.get("value"));
+                assertThat(merged.get("@odata.count")).as("$count of %s", query)
+                        .isEqualTo(expected.get("@odata.count"));
+            }
+        }
+    }
+
+    @Test
+    void rejectsUnknownOrderByProperties() {
+        ResponseEntity<String> response = exchange(new TestRestTemplate(), HttpMethod.GET,
+                uri(NODE_URLS.get(0), "/cluster/Products?$orderby=Colour desc"), null);
+        assertThat(response.getStatusCodeValue()).isEqualTo(400);
+        assertThat(response.getBody()).contains("Unknown property: Colour");
+    }
+
+    /**
+     * The same products on this instance and in the cluster, under the same
+     * IDs: each is posted to the owner of the next ID, which hands out the
+     * lowest ID it owns above its last one
+     */
+    private void addProducts() {
+        ConsistentHashRing ring = new ConsistentHashRing(NODE_URLS, VIRTUAL_NODES);
+        int id = 7;
+        if (getJson("/odata/Products?$count=true&$top=0").get("@odata.count").asInt() >= id) {
+            return;
+        }
+        TestRestTemplate cluster = new TestRestTemplate();
+        String[] kinds = { "Mouse", "Monitor", "Keyboard", "Headset" };
+        for (int i = 0; i < 24; i++, id++) {
+            Map<String, Object> product = new LinkedHashMap<>();
+            // Some products without a name or description, and few distinct prices (ties)
+            product.put("Name", i % 7 == 3 ? null : kinds[i % kinds.length] + " " + (i % 5));
+            product.put("Description", i % 5 == 1 ? null : "Model " + (i % 3));
+            product.put("Price", 10.0 * (i % 6) + 5);
+            product.put("BrandID", 1 + i % 3);
+
+            JsonNode local = json(exchange(rest, HttpMethod.POST, uri("/odata/Products"), product));
+            JsonNode remote = json(exchange(cluster, HttpMethod.POST, uri(ring.ownerOf(id), "/odata/Products"),
+                    product));
+            assertThat(local.get("value").get("ID").asInt()).isEqualTo(id);
+            assertThat(remote.get("value").get("ID").asInt()).isEqualTo(id);
+        }
+    }
+
+    private static ResponseEntity<String> exchange(TestRestTemplate client, HttpMethod method, URI uri,
+            Object body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        return client.exchange(uri, method, new HttpEntity<>(body, headers), String.class);
+    }
+
+    private static JsonNode json(ResponseEntity<String> response) {
+        assertThat(response.getStatusCode().is2xxSuccessful()).as(response.getBody()).isTrue();
+        try {
+            return MAPPER.readTree(response.getBody());
+        } catch (IOException e) {
+            throw new AssertionError("Not JSON: " + response.getBody(), e);
+        }
+    }
+
+    private static URI uri(String nodeUrl, String pathAndQuery) {
+        return URI.create(nodeUrl + pathAndQuery.replace(" ", "%20"));
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
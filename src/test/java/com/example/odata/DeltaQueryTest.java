@@ -0,0 +1,86 @@
+package com.example.odata;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * $deltatoken reads: the changes since a previous response, deletions as
+ * deleted-entity markers, and 410 Gone once the token left the change log
+ */
+@DirtiesContext
+@TestPropertySource(properties = "odata.delta.retention=6")
+class DeltaQueryTest extends ODataApiTest {
+
+    @Test
+    void returnsOnlyTheChangesSinceTheToken() {
+        String deltaLink = getJson("/odata/Products").get("@odata.deltaLink").asText();
+        assertThat(getJson(deltaLink).get("value")).isEmpty();
+
+        int added = save(Map.of("Name", "Trackball", "Description", "Trackball USB", "Price", 45.0,
+                "BrandID", 3));
+        rest.delete(uri("/odata/Products(4)"));
+        // Saved, then deleted: only the deletion is reported
+        int removed = save(Map.of("Name", "Short-lived", "Description", "", "Price", 1.0, "BrandID", 1));
+        rest.delete(uri("/odata/Products(" + removed + ")"));
+
+        JsonNode delta = getJson(deltaLink);
+        List<String> entries = new ArrayList<>();
+        delta.get("value").forEach(entry -> entries.add(entry.has("reason")
+                ? entry.get("reason").asText() + " " + entry.get("id").asText()
+                : "saved " + entry.get("ID").asInt() + " " + entry.get("Description").asText()));
+        assertThat(entries).containsExactly("saved " + added + " Trackball USB", "deleted Products(4)",
+                "deleted Products(" + removed + ")");
+        delta.get("value").forEach(entry -> {
+            if (entry.has("reason")) {
+                assertThat(entry.get("@odata.context").asText()).endsWith("#Products/$deletedEntity");
+            }
+        });
+
+        // The next link starts after these changes
+        assertThat(getJson(delta.get("@odata.deltaLink").asText()).get("value")).isEmpty();
+        assertThat(getJson(deltaLink + "&$select=Name").get("value").get(0).has("Price")).isFalse();
+    }
+
+    @Test
+    void expiredTokenIsGone() {
+        String deltaLink = getJson("/odata/Products").get("@odata.deltaLink").asText();
+        // More writes than the change log retains
+        for (int i = 0; i < 7; i++) {
+            save(Map.of("Name", "Filler " + i, "Description", "", "Price", 1.0, "BrandID", 1));
+        }
+
+        ResponseEntity<String> gone = get(deltaLink);
+        assertThat(gone.getStatusCodeValue()).isEqualTo(410);
+        assertThat(gone.getBody()).contains("full resync");
+
+        // A full read gives a token that works again
+        String fresh = getJson("/odata/Products").get("@odata.deltaLink").asText();
+        assertThat(getJson(fresh).get("value")).isEmpty();
+        assertThat(get("/odata/Products?$deltatoken=" + Long.MAX_VALUE).getStatusCodeValue()).isEqualTo(410);
+    }
+
+    @Test
+    void rejectsOtherQueryOptions() {
+        String deltaLink = getJson("/odata/Products").get("@odata.deltaLink").asText();
+        assertThat(get(deltaLink + "&$filter=Price gt 10").getStatusCodeValue()).isEqualTo(400);
+    }
+
+    private int save(Map<String, Object> product) {
+        ResponseEntity<String> created = rest.postForEntity(uri("/odata/Products"), product, String.class);
+        assertThat(created.getStatusCode().is2xxSuccessful()).as(created.getBody()).isTrue();
+        try {
+            return MAPPER.readTree(created.getBody()).get("value").get("ID").asInt();
+        } catch (Exception e) {
+            throw new AssertionError(created.getBody(), e);
+        }
+    }
+}
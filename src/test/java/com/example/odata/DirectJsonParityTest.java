@@ -0,0 +1,101 @@
+package com.example.odata;
+
+import com.example.odata.application.service.ODataQueryService;
+import com.example.odata.domain.model.Brand;
+import com.example.odata.domain.model.Product;
+import com.example.odata.domain.model.ProductCriteria;
+import com.example.odata.service.DemoEdmProvider;
+import org.apache.olingo.commons.api.data.ContextURL;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Plain JSON reads of /OData.svc skip the Olingo serializer; their bytes must
+ * still be exactly what it would write
+ */
+@DirtiesContext
+class DirectJsonParityTest extends ODataApiTest {
+
+    private static final ContentType[] FORMATS = { ContentType.JSON, ContentType.JSON_NO_METADATA };
+
+    private final OData odata = OData.newInstance();
+    private final ServiceMetadata metadata = odata.createServiceMetadata(new DemoEdmProvider(), new ArrayList<>());
+
+    @Autowired
+    private ODataQueryService queryService;
+
+    @Test
+    void writesWhatTheOlingoSerializerWrites() throws Exception {
+        // Characters that need escaping, non-ASCII text and prices with and without fractions
+        rest.postForEntity(uri("/odata/Products"), Map.of("Name", "Quote \" and \\ / slash",
+                "Description", "Tab\tNewline\n Ünïcödé €", "Price", 1234567.125, "BrandID", 2), String.class);
+        rest.postForEntity(uri("/odata/Products"), Map.of("Name", "Tiny", "Description", "",
+                "Price", 0.1, "BrandID", 3), String.class);
+
+        List<Product> products = queryService.findProducts(new ProductCriteria(), null, null, null);
+        EntityCollection productEntities = new EntityCollection();
+        for (Product product : products) {
+            productEntities.getEntities().add(new Entity()
+                    .addProperty(new Property(null, "ID", ValueType.PRIMITIVE, product.getId()))
+                    .addProperty(new Property(null, "Name", ValueType.PRIMITIVE, product.getName()))
+                    .addProperty(new Property(null, "Description", ValueType.PRIMITIVE, product.getDescription()))
+                    .addProperty(new Property(null, "Price", ValueType.PRIMITIVE, product.getPrice()))
+                    .addProperty(new Property(null, "BrandID", ValueType.PRIMITIVE, product.getBrandId())));
+        }
+        EntityCollection brandEntities = new EntityCollection();
+        for (Brand brand : queryService.findBrands()) {
+            brandEntities.getEntities().add(new Entity()
+                    .addProperty(new Property(null, "ID", ValueType.PRIMITIVE, brand.getId()))
+                    .addProperty(new Property(null, "Name", ValueType.PRIMITIVE, brand.getName()))
+                    .addProperty(new Property(null, "Country", ValueType.PRIMITIVE, brand.getCountry())));
+        }
+        assertThat(products).hasSize(8);
+
+        for (ContentType format : FORMATS) {
+            assertSameBytes(DemoEdmProvider.ES_PRODUCTS_NAME, productEntities, format);
+            assertSameBytes(DemoEdmProvider.ES_BRANDS_NAME, brandEntities, format);
+        }
+    }
+
+    private void assertSameBytes(String entitySetName, EntityCollection entities, ContentType format)
+            throws Exception {
+        EdmEntitySet entitySet = metadata.getEdm().getEntityContainer().getEntitySet(entitySetName);
+        byte[] expected = odata.createSerializer(format).entityCollection(metadata, entitySet.getEntityType(),
+                entities, EntityCollectionSerializerOptions.with()
+                        .contextURL(ContextURL.with().entitySet(entitySet).build())
+                        .build())
+                .getContent().readAllBytes();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT, format.toContentTypeString());
+        ResponseEntity<byte[]> response = rest.exchange(uri("/OData.svc/" + entitySetName), HttpMethod.GET,
+                new HttpEntity<>(headers), byte[].class);
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE)).as("%s %s", entitySetName, format)
+                .isEqualTo(format.toContentTypeString());
+        assertThat(new String(response.getBody(), "UTF-8")).as("%s %s", entitySetName, format)
+                .isEqualTo(new String(expected, "UTF-8"));
+        assertThat(response.getBody()).as("%s %s", entitySetName, format).isEqualTo(expected);
+    }
+}
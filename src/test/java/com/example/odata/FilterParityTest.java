@@ -0,0 +1,99 @@
+package com.example.odata;
+
+import com.example.odata.application.service.ODataQueryService;
+import com.example.odata.domain.model.Product;
+import com.example.odata.domain.model.ProductCriteria;
+import com.example.odata.infrastructure.odata.ODataFilterProcessor;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pushed-down filters against the compiled predicate: the repository
+ * conditions plus the residual must select exactly the products the compiled
+ * filter alone selects, on both endpoints
+ */
+class FilterParityTest extends ODataApiTest {
+
+    private static final List<String> FILTERS = List.of(
+            "Price gt 100 and Price lt 200",
+            "100 lt Price and ID ne 2",
+            "Price ge 20 and Price le 95",
+            "contains(Name,'Mouse') and Price lt 100",
+            "contains(Name,'Mouse') or ID eq 1",
+            "contains(Name,'k,Pro')",
+            "contains(Name,'o') and BrandID eq 3",
+            "startswith(Name,'Note') and not (Price gt 100)",
+            "Name eq 'Monitor Ergo' or Name eq 'Mouse Optical'",
+            "Name ne 'Mouse Optical' and Price lt 50",
+            "Name eq 'O''Neil'",
+            "Description eq null or ID eq 6",
+            "ID in (1,3,5) and Price gt 20",
+            "tolower(Name) eq 'mouse wireless' and BrandID eq 3",
+            "Brand/Name eq 'SpeedyMouse' and Price gt 15",
+            "Brand/Country eq 'Germany' or Brand/Country eq 'USA'",
+            "Brand/ID eq 1 and Price lt 100",
+            "Price mul 2 gt 200 and contains(Description,'1')");
+
+    @Autowired
+    private ODataFilterProcessor filterProcessor;
+
+    @Autowired
+    private ODataQueryService queryService;
+
+    @Test
+    void reviewedFiltersSelectTheExpectedProducts() {
+        for (String root : new String[] { "/odata", "/OData.svc" }) {
+            String products = root + "/Products?$orderby=ID&$filter=";
+            assertThat(ids(products + "contains(Name,'Mouse') and Price lt 100")).containsExactly(4, 5);
+            assertThat(ids(products + "contains(Name,'Mouse') or ID eq 1")).containsExactly(1, 4, 5);
+            assertThat(ids(products + "contains(Name,'k,Pro')")).isEmpty();
+            assertThat(ids(products + "Price gt 100 and Price lt 200")).containsExactly(3);
+        }
+    }
+
+    @Test
+    void pushdownPlusResidualMatchesTheCompiledFilter() {
+        for (String filter : FILTERS) {
+            Expression expression = filterProcessor.parse(filter);
+            Predicate<Product> compiled = filterProcessor.compile(expression,
+                    brandId -> queryService.findBrand(brandId).orElse(null));
+            List<Integer> expected = ids(queryService.findProducts(new ProductCriteria(), null, null, compiled));
+
+            ODataFilterProcessor.Pushdown pushdown = filterProcessor.pushdown(expression);
+            ProductCriteria criteria = new ProductCriteria();
+            criteria.getConditions().addAll(pushdown.getConditions());
+            assertThat(ids(queryService.findProducts(criteria, null, null, pushdown.isExact() ? null : compiled)))
+                    .as("pushed down: %s", filter).isEqualTo(expected);
+            assertThat(ids(queryService.findProducts(criteria, null, filterProcessor.candidateIds(expression),
+                    pushdown.isExact() ? null : compiled)))
+                    .as("narrowed by the search index: %s", filter).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void endpointsAgreeWithTheCompiledFilter() {
+        for (String filter : FILTERS) {
+            Predicate<Product> compiled = filterProcessor.compile(filterProcessor.parse(filter),
+                    brandId -> queryService.findBrand(brandId).orElse(null));
+            List<Integer> expected = ids(queryService.findProducts(new ProductCriteria(), null, null, compiled));
+
+            assertThat(ids("/odata/Products?$orderby=ID&$filter=" + filter)).as("/odata: %s", filter)
+                    .isEqualTo(expected);
+            assertThat(ids("/OData.svc/Products?$orderby=ID&$filter=" + filter)).as("/OData.svc: %s", filter)
+                    .isEqualTo(expected);
+            assertThat(getJson("/odata/Products?$count=true&$top=1&$filter=" + filter).get("@odata.count").asInt())
+                    .as("/odata $count: %s", filter).isEqualTo(expected.size());
+        }
+    }
+
+    private static List<Integer> ids(List<Product> products) {
+        return products.stream().map(Product::getId).sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.odata;
+
+import com.example.odata.domain.model.ProductCriteria;
+import com.example.odata.infrastructure.odata.ODataFilterProcessor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * $filter on /odata: parsed against the entity model, with the top-level AND
+ * of supported comparisons pushed down to the repository
+ */
+class FilterPushdownTest extends ODataApiTest {
+
+    private static final String PRODUCTS = "/odata/Products?$filter=";
+
+    @Autowired
+    private ODataFilterProcessor filterProcessor;
+
+    @Test
+    void malformedFiltersAreBadRequests() {
+        for (String filter : new String[] { "contains(Name)", "contains(", "Price gt", "Unknown eq 1", "Price eq 'x" }) {
+            assertThat(get(PRODUCTS + filter).getStatusCodeValue()).as(filter).isEqualTo(400);
+        }
+    }
+
+    @Test
+    void pushedDownFiltersMatchWholeLiterals() {
+        assertThat(ids(PRODUCTS + "contains(Name,'k,Pro')")).isEmpty();
+        assertThat(ids(PRODUCTS + "contains(Name,'Mouse') and Price lt 100")).containsExactly(4, 5);
+        assertThat(ids(PRODUCTS + "Price gt 100 and Price lt 200")).containsExactly(3);
+        assertThat(ids(PRODUCTS + "100 lt Price and ID ne 2")).containsExactly(3);
+        assertThat(ids(PRODUCTS + "Name eq 'Monitor Ergo'")).containsExactly(3);
+    }
+
+    @Test
+    void unescapesQuotesInStringLiterals() {
+        ODataFilterProcessor.Pushdown pushdown = filterProcessor.pushdown(filterProcessor.parse("Name eq 'O''Neil'"));
+        assertThat(pushdown.isExact()).isTrue();
+        assertThat(pushdown.getConditions()).containsExactly(
+                new ProductCriteria.Condition("Name", ProductCriteria.Operator.EQ, "O'Neil"));
+    }
+
+    @Test
+    void pushesDownOnlyTheTopLevelAnd() {
+        ODataFilterProcessor.Pushdown and = filterProcessor.pushdown(
+                filterProcessor.parse("Price lt 100 and (contains(Name,'Mouse') and 20 le Price)"));
+        assertThat(and.isExact()).isTrue();
+        assertThat(and.getConditions()).containsExactly(
+                new ProductCriteria.Condition("Price", ProductCriteria.Operator.LT, 100.0),
+                new ProductCriteria.Condition("Name", ProductCriteria.Operator.CONTAINS, "Mouse"),
+                new ProductCriteria.Condition("Price", ProductCriteria.Operator.GE, 20.0));
+
+        ODataFilterProcessor.Pushdown partial = filterProcessor.pushdown(
+                filterProcessor.parse("Price lt 100 and (contains(Name,'Mouse') or ID eq 1)"));
+        assertThat(partial.isExact()).isFalse();
+        assertThat(partial.getConditions()).containsExactly(
+                new ProductCriteria.Condition("Price", ProductCriteria.Operator.LT, 100.0));
+
+        for (String filter : new String[] { "contains(Name,'Mouse') or ID eq 1", "not (ID eq 1)",
+                "Name ne 'Mouse Optical'", "tolower(Name) eq 'mouse optical'", "Brand/ID eq 1" }) {
+            assertThat(filterProcessor.pushdown(filterProcessor.parse(filter)).isExact()).as(filter).isFalse();
+        }
+    }
+
+    @Test
+    void brandEqualityBecomesBrandIdInSet() {
+        ODataFilterProcessor.Pushdown pushdown = filterProcessor.pushdown(
+                filterProcessor.parse("Brand/Country eq 'Germany'"));
+        assertThat(pushdown.isExact()).isTrue();
+        assertThat(pushdown.getConditions()).containsExactly(
+                new ProductCriteria.Condition("BrandID", ProductCriteria.Operator.IN, Set.of(2)));
+        assertThat(ids(PRODUCTS + "Brand/Country eq 'Germany'")).containsExactly(3);
+    }
+
+    @Test
+    void parseRejectsMalformedFilters() {
+        assertThat(filterProcessor.parse(" ")).isNull();
+        assertThatThrownBy(() -> filterProcessor.parse("contains(Name)"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Invalid $filter");
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.odata;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * $filter semantics of the compiled evaluation tree on /OData.svc
+ */
+class FilterSemanticsTest extends ODataApiTest {
+
+    private static final String PRODUCTS = "/OData.svc/Products?$filter=";
+
+    @Test
+    void inListHonoursEveryItem() {
+        assertThat(ids(PRODUCTS + "ID in (1,3,5)")).containsExactly(1, 3, 5);
+        assertThat(ids(PRODUCTS + "Price in (15,420)")).containsExactly(2, 4);
+        assertThat(ids(PRODUCTS + "Name in ('Mouse Optical','Monitor Ergo','Unknown')")).containsExactly(3, 4);
+    }
+
+    @Test
+    void stringFunctions() {
+        assertThat(ids(PRODUCTS + "tolower(Name) eq 'mouse optical'")).containsExactly(4);
+        assertThat(ids(PRODUCTS + "toupper(Name) eq 'MONITOR ERGO'")).containsExactly(3);
+        assertThat(ids(PRODUCTS + "endswith(Name,'Wireless')")).containsExactly(5);
+        assertThat(ids(PRODUCTS + "startswith(Name,'Note')")).containsExactly(1, 2);
+        assertThat(ids(PRODUCTS + "length(Name) eq 13")).containsExactly(4);
+        assertThat(ids(PRODUCTS + "substring(Name,0,5) eq 'Mouse'")).containsExactly(4, 5);
+        assertThat(ids(PRODUCTS + "substring(Name,9) eq 'Professional'")).containsExactly(2);
+        assertThat(ids(PRODUCTS + "indexof(Name,'Ergo') eq 8")).containsExactly(3);
+        assertThat(ids(PRODUCTS + "concat(Name,'!') eq 'Monitor Ergo!'")).containsExactly(3);
+        assertThat(ids(PRODUCTS + "trim(concat(' ',Name)) eq 'Mouse Wireless'")).containsExactly(5);
+    }
+
+    @Test
+    void arithmetic() {
+        assertThat(ids(PRODUCTS + "Price mul 2 gt 200")).containsExactly(2, 3);
+        assertThat(ids(PRODUCTS + "Price add 5 eq 20")).containsExactly(4);
+        assertThat(ids(PRODUCTS + "Price sub 10 lt 10")).containsExactly(4);
+        assertThat(ids(PRODUCTS + "ID mod 2 eq 0")).containsExactly(2, 4, 6);
+        // Integer division when both operands are integral
+        assertThat(ids(PRODUCTS + "ID div 2 eq 1")).containsExactly(2, 3);
+        assertThat(ids(PRODUCTS + "Price div 2 eq 7.5")).containsExactly(4);
+        assertThat(ids(PRODUCTS + "round(Price div 10) eq 3")).containsExactly(5);
+        assertThat(ids(PRODUCTS + "floor(Price div 10) eq 2")).containsExactly(5, 6);
+        assertThat(ids(PRODUCTS + "ceiling(Price div 10) eq 2")).containsExactly(4, 6);
+    }
+
+    @Test
+    void nullSemantics() {
+        assertThat(ids(PRODUCTS + "Description eq null")).isEmpty();
+        assertThat(ids(PRODUCTS + "Description ne null")).containsExactly(1, 2, 3, 4, 5, 6);
+        // null and false is false, null or true is true
+        assertThat(ids(PRODUCTS + "Brand/Name eq null and ID eq 1")).isEmpty();
+        assertThat(ids(PRODUCTS + "length(Brand/Name) gt 100 or ID eq 1")).containsExactly(1);
+    }
+
+    @Test
+    void logicalOperators() {
+        assertThat(ids(PRODUCTS + "Price lt 100 and not startswith(Name,'Mouse')")).containsExactly(1, 6);
+        assertThat(ids(PRODUCTS + "(ID eq 1 or ID eq 2) and Price gt 100")).containsExactly(2);
+    }
+
+    @Test
+    void integerDivisionByZeroIsABadRequest() {
+        assertThat(get(PRODUCTS + "ID div 0 eq 1").getStatusCodeValue()).isEqualTo(400);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.odata;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Filter parity with the products in the embedded database, where pushed
+ * down conditions become SQL
+ */
+@TestPropertySource(properties = "odata.repository=jdbc")
+class JdbcFilterParityTest extends FilterParityTest {
+}
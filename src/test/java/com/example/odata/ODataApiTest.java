@@ -0,0 +1,79 @@
+package com.example.odata;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Base of the HTTP-level tests: the application on a random port with the
+ * seed data, without admission control (and, like every test context, without
+ * the startup warm-up). Subclasses that write data must restore it or use
+ * their own context. Async endpoints ($stream, $changes) are driven through
+ * MockMvc.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties =
+        "odata.admission.enabled=false")
+@AutoConfigureMockMvc
+public abstract class ODataApiTest {
+
+    protected static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Autowired
+    protected TestRestTemplate rest;
+
+    @Autowired
+    protected MockMvc mvc;
+
+    /**
+     * GET of a path with a readable query, e.g.
+     * "/odata/Products?$filter=Price lt 100" (spaces are encoded here),
+     * accepting JSON only
+     */
+    protected ResponseEntity<String> get(String pathAndQuery) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        return rest.exchange(uri(pathAndQuery), HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+
+    protected JsonNode getJson(String pathAndQuery) {
+        ResponseEntity<String> response = get(pathAndQuery);
+        assertThat(response.getStatusCodeValue()).as("GET %s: %s", pathAndQuery, response.getBody()).isEqualTo(200);
+        try {
+            return MAPPER.readTree(response.getBody());
+        } catch (Exception e) {
+            throw new AssertionError("Not JSON: " + response.getBody(), e);
+        }
+    }
+
+    /**
+     * IDs of the value array, in response order
+     */
+    protected List<Integer> ids(String pathAndQuery) {
+        return ids(getJson(pathAndQuery).get("value"));
+    }
+
+    protected static List<Integer> ids(JsonNode value) {
+        List<Integer> ids = new ArrayList<>();
+        value.forEach(row -> ids.add(row.get("ID").asInt()));
+        return ids;
+    }
+
+    protected URI uri(String pathAndQuery) {
+        return URI.create(rest.getRootUri() + pathAndQuery.replace(" ", "%20"));
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.odata;
+
+import com.example.odata.application.service.ODataQueryService;
+import com.example.odata.application.usecase.GetBrandsUseCase;
+import com.example.odata.domain.model.Brand;
+import com.example.odata.domain.model.Product;
+import com.example.odata.domain.model.ProductWithBrand;
+import com.example.odata.domain.repository.BrandRepository;
+import com.example.odata.domain.repository.ProductRepository;
+import com.example.odata.domain.repository.ProductWithBrandRepository;
+import com.example.odata.domain.repository.SnapshotPin;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+
+/**
+ * Reads from the materialized product-brand view: Brand/... filters the
+ * repository cannot evaluate read the brand fields joined into each row and
+ * never call the Brand service. Pinned readers see the rows of their pinned
+ * versions, also on the threads they hand work to.
+ */
+@DirtiesContext
+@TestPropertySource(properties = "odata.view.product-brand.enabled=true")
+class ProductBrandViewTest extends ODataApiTest {
+
+    @SpyBean
+    private GetBrandsUseCase getBrandsUseCase;
+
+    @Autowired
+    private ProductWithBrandRepository view;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private ODataQueryService queryService;
+
+    @Test
+    void filtersOnTheJoinedBrandFields() throws Exception {
+        clearInvocations(getBrandsUseCase);
+
+        String products = "/odata/Products?$orderby=ID&$filter=";
+        assertThat(ids(products + "Brand/Country eq 'Germany' or Price gt 400")).containsExactly(2, 3);
+        assertThat(ids(products + "contains(Brand/Name,'Mouse') and Price le 20")).containsExactly(4, 6);
+        assertThat(ids(products + "Brand/ID eq 1")).containsExactly(1, 2);
+        assertThat(getJson(products + "Brand/Country ne 'China'&$count=true&$top=1").get("@odata.count").asInt())
+                .isEqualTo(3);
+
+        MvcResult started = mvc.perform(MockMvcRequestBuilders.get(
+                uri("/odata/Products/$stream?$filter=Brand/Country eq 'USA' or ID eq 4"))).andReturn();
+        JsonNode streamed = MAPPER.readTree(mvc.perform(asyncDispatch(started)).andReturn().getResponse()
+                .getContentAsByteArray());
+        assertThat(ids(streamed.get("value"))).containsExactlyInAnyOrder(1, 2, 4);
+
+        verify(getBrandsUseCase, never()).executeById(anyInt());
+    }
+
+    @Test
+    void pinnedReadsSeeTheRowsOfTheirVersions() throws Exception {
+        Product added;
+        Function<Void, List<String>> carried;
+        SnapshotPin products = productRepository.pin();
+        try {
+            SnapshotPin brands = brandRepository.pin();
+            try {
+                // Applied to the view after the pins were taken
+                added = productRepository.save(new Product(0, "Pinned Out", "p", 1.0, 1));
+                brandRepository.save(new Brand(1, "TechGiant Renamed", "USA"));
+
+                assertThat(rows(view.streamAll().collect(Collectors.toList()))).contains("1 TechGiant")
+                        .doesNotContain(added.getId() + " TechGiant Renamed");
+                assertThat(view.findAllById(List.of(1, added.getId()))).extracting(ProductWithBrand::getBrandName)
+                        .containsExactly("TechGiant");
+                // Like a streamed body, run after the request thread has let go of its pins
+                carried = queryService.withRequestPins(ignored -> rows(view.streamAll().collect(Collectors.toList())));
+            } finally {
+                brands.close();
+            }
+        } finally {
+            products.close();
+        }
+
+        assertThat(CompletableFuture.supplyAsync(() -> carried.apply(null)).get()).contains("1 TechGiant")
+                .hasSize(6);
+        assertThat(rows(view.streamAll().collect(Collectors.toList()))).contains("1 TechGiant Renamed",
+                added.getId() + " TechGiant Renamed");
+        brandRepository.save(new Brand(1, "TechGiant", "USA"));
+        productRepository.deleteById(added.getId());
+    }
+
+    private static List<String> rows(List<ProductWithBrand> rows) {
+        return rows.stream().map(row -> row.getId() + " " + row.getBrandName()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.odata;
+
+import com.example.odata.application.usecase.GetProductsUseCase;
+import com.example.odata.domain.model.Product;
+import com.example.odata.domain.repository.ProductRepository;
+import com.example.odata.presentation.controller.ODataController;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET /odata/Products/$stream: the same products as /odata/Products for the
+ * same options, written and flushed incrementally on an async worker, and the
+ * product stream closed when the client goes away
+ */
+@DirtiesContext
+class ProductStreamTest extends ODataApiTest {
+
+    private static final List<String> QUERIES = List.of(
+            "",
+            "$select=Name,Price",
+            "$filter=Price lt 100",
+            "$filter=contains(Name,'Mouse') or ID eq 1&$select=ID,BrandID",
+            "$filter=Brand/Country eq 'Germany'",
+            "$expand=Brand&$filter=Price gt 20",
+            "$expand=Brand&$select=Name",
+            "$search=mouse");
+
+    @Autowired
+    private ODataController controller;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @SpyBean
+    private GetProductsUseCase getProductsUseCase;
+
+    @Test
+    void streamsWhatTheCollectionReturns() throws Exception {
+        for (String query : QUERIES) {
+            JsonNode streamed = MAPPER.readTree(stream(query, MediaType.APPLICATION_JSON));
+            JsonNode expected = getJson("/odata/Products?" + query);
+            assertThat(streamed.get("@odata.context").asText()).isEqualTo("/odata/$metadata#Products");
+            assertThat(streamed.get("value")).as(query).isEqualTo(expected.get("value"));
+        }
+    }
+
+    @Test
+    void streamsSmileAndMetadataNone() throws Exception {
+        JsonNode expected = getJson("/odata/Products?$filter=Price lt 100").get("value");
+
+        JsonNode smile = new ObjectMapper(new SmileFactory()).readTree(
+                stream("$filter=Price lt 100", MediaType.parseMediaType("application/x-jackson-smile")));
+        assertThat(smile.get("value")).isEqualTo(expected);
+
+        JsonNode none = MAPPER.readTree(stream("$filter=Price lt 100",
+                MediaType.parseMediaType("application/json;odata.metadata=none")));
+        assertThat(none.has("@odata.context")).isFalse();
+        assertThat(none.get("value")).isEqualTo(expected);
+    }
+
+    @Test
+    void flushesWhileWriting() throws IOException {
+        addProducts(600);
+        RecordingOutputStream out = new RecordingOutputStream();
+        body().writeTo(out);
+
+        int total = out.size();
+        long partialFlushes = out.flushedAt.stream().filter(size -> size > 0 && size < total).count();
+        // Every 256 products: after 256 and 512 of 606
+        assertThat(partialFlushes).isGreaterThanOrEqualTo(2);
+        assertThat(MAPPER.readTree(out.toByteArray()).get("value")).hasSize(productRepository.findAll().size());
+    }
+
+    @Test
+    void closesTheProductStreamWhenTheClientGoesAway() {
+        addProducts(600);
+        AtomicBoolean closed = new AtomicBoolean();
+        AtomicInteger read = new AtomicInteger();
+        doAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            Stream<Product> products = (Stream<Product>) invocation.callRealMethod();
+            return products.peek(product -> read.incrementAndGet()).onClose(() -> closed.set(true));
+        }).when(getProductsUseCase).stream();
+
+        // The connection breaks at the first flush
+        OutputStream aborted = new RecordingOutputStream() {
+            @Override
+            public void flush() throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        assertThatThrownBy(() -> body().writeTo(aborted)).isInstanceOf(IOException.class);
+        assertThat(closed).isTrue();
+        assertThat(read.get()).isLessThan(productRepository.findAll().size());
+    }
+
+    private byte[] stream(String query, MediaType accept) throws Exception {
+        MvcResult started = mvc.perform(MockMvcRequestBuilders.get(uri("/odata/Products/$stream?" + query))
+                        .accept(accept))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    private StreamingResponseBody body() {
+        return controller.streamProducts(null, "ID,Name", null, null, MediaType.APPLICATION_JSON_VALUE).getBody();
+    }
+
+    private void addProducts(int count) {
+        if (productRepository.findAll().size() >= count) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            productRepository.save(new Product(0, "Bulk " + i, "Bulk", 10.0 + i, 1 + i % 3));
+        }
+    }
+
+    /**
+     * Keeps what was written and the number of bytes written at each flush
+     */
+    private static class RecordingOutputStream extends ByteArrayOutputStream {
+        final List<Integer> flushedAt = new ArrayList<>();
+
+        @Override
+        public void flush() throws IOException {
+            flushedAt.add(size());
+        }
+    }
+}
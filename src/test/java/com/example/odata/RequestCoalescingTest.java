@@ -0,0 +1,145 @@
+package com.example.odata;
+
+import com.example.odata.application.service.ODataQueryService;
+import com.example.odata.domain.model.ProductCriteria;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Identical concurrent /OData.svc reads share one rendering, including its
+ * failure, and a write in between starts a rendering of its own
+ */
+@DirtiesContext
+class RequestCoalescingTest extends ODataApiTest {
+
+    private static final String QUERY = "/OData.svc/Products?$filter=Price gt 10 and contains(Name,'o')";
+    private static final int CLIENTS = 6;
+
+    private final ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+
+    @SpyBean
+    private ODataQueryService queryService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        clients.shutdownNow();
+        reset(queryService);
+    }
+
+    @Test
+    void concurrentIdenticalRequestsShareOneRendering() throws Exception {
+        double coalescedBefore = coalesced();
+        // The first rendering waits until every other request has joined it
+        doAnswer(invocation -> {
+            awaitCoalesced(coalescedBefore + CLIENTS - 1);
+            return invocation.callRealMethod();
+        }).when(queryService).findProducts(any(ProductCriteria.class), any(), any(), any());
+        clearInvocations(queryService);
+
+        List<ResponseEntity<String>> responses = getConcurrently(CLIENTS);
+
+        verify(queryService, times(1)).findProducts(any(ProductCriteria.class), any(), any(), any());
+        for (ResponseEntity<String> response : responses) {
+            assertThat(response.getStatusCodeValue()).isEqualTo(200);
+            assertThat(response.getBody()).isEqualTo(responses.get(0).getBody());
+        }
+        assertThat(ids(MAPPER.readTree(responses.get(0).getBody()).get("value"))).contains(1, 2, 3, 4, 5, 6);
+    }
+
+    @Test
+    void aFailedRenderingReachesEveryWaiter() throws Exception {
+        double coalescedBefore = coalesced();
+        doAnswer(invocation -> {
+            awaitCoalesced(coalescedBefore + CLIENTS - 1);
+            throw new IllegalArgumentException("Rendering failed on purpose");
+        }).when(queryService).findProducts(any(ProductCriteria.class), any(), any(), any());
+        clearInvocations(queryService);
+
+        // Each waiter gets the Olingo error of the shared rendering, not a wrapper of it
+        for (ResponseEntity<String> response : getConcurrently(CLIENTS)) {
+            assertThat(response.getStatusCodeValue()).isEqualTo(400);
+            assertThat(response.getBody()).contains("Rendering failed on purpose");
+        }
+        verify(queryService, times(1)).findProducts(any(ProductCriteria.class), any(), any(), any());
+    }
+
+    @Test
+    void aWriteBetweenRequestsStartsANewRendering() throws Exception {
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            if (firstStarted.getCount() > 0) {
+                firstStarted.countDown();
+                assertThat(releaseFirst.await(10, TimeUnit.SECONDS)).isTrue();
+            }
+            return invocation.callRealMethod();
+        }).when(queryService).findProducts(any(ProductCriteria.class), any(), any(), any());
+        clearInvocations(queryService);
+
+        Future<ResponseEntity<String>> before = clients.submit(() -> get(QUERY));
+        assertThat(firstStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        int created = MAPPER.readTree(rest.postForEntity(uri("/odata/Products"), Map.of("Name", "Scroll Mouse",
+                "Description", "", "Price", 30.0, "BrandID", 3), String.class).getBody()).get("value").get("ID")
+                .asInt();
+
+        // Same query, newer data version: renders on its own while the first is still running
+        ResponseEntity<String> after = get(QUERY);
+        releaseFirst.countDown();
+
+        assertThat(ids(MAPPER.readTree(after.getBody()).get("value"))).contains(created);
+        assertThat(before.get(10, TimeUnit.SECONDS).getStatusCodeValue()).isEqualTo(200);
+        verify(queryService, times(2)).findProducts(any(ProductCriteria.class), any(), any(), any());
+    }
+
+    private List<ResponseEntity<String>> getConcurrently(int count) throws Exception {
+        List<Future<ResponseEntity<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            futures.add(clients.submit(() -> get(QUERY)));
+        }
+        List<ResponseEntity<String>> responses = new ArrayList<>();
+        for (Future<ResponseEntity<String>> future : futures) {
+            responses.add(future.get(20, TimeUnit.SECONDS));
+        }
+        return responses;
+    }
+
+    private void awaitCoalesced(double count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (coalesced() < count) {
+            assertThat(System.currentTimeMillis()).as("requests joining the rendering").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private double coalesced() {
+        Counter counter = meterRegistry.find("odata.coalescing.requests")
+                .tags("endpoint", "OData.svc", "outcome", "coalesced").counter();
+        return counter != null ? counter.count() : 0;
+    }
+}
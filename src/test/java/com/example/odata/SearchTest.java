@@ -0,0 +1,42 @@
+package com.example.odata;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchTest extends ODataApiTest {
+
+    @Test
+    void searchesNameAndDescriptionOnBothEndpoints() {
+        for (String root : new String[] { "/OData.svc", "/odata" }) {
+            assertThat(ids(root + "/Products?$search=mouse")).as(root).containsExactlyInAnyOrder(4, 5);
+            assertThat(ids(root + "/Products?$search=usb")).as(root).containsExactlyInAnyOrder(4, 6);
+            assertThat(ids(root + "/Products?$search=mouse usb")).as(root).containsExactly(4);
+            assertThat(ids(root + "/Products?$search=notebook OR keyboard")).as(root)
+                    .containsExactlyInAnyOrder(1, 2, 6);
+        }
+    }
+
+    @Test
+    void combinesSearchWithFilter() {
+        assertThat(ids("/odata/Products?$search=mouse&$filter=Price gt 20")).containsExactly(5);
+        assertThat(ids("/OData.svc/Products?$search=mouse&$filter=Price gt 20")).containsExactly(5);
+    }
+
+    @Test
+    void indexFollowsSavedProducts() {
+        Map<?, ?> created = rest.postForObject(uri("/odata/Products"), Map.of("Name", "Trackball Ergo",
+                "Description", "Trackball", "Price", 55.0, "BrandID", 2), Map.class);
+        int id = ((Number) ((Map<?, ?>) created.get("value")).get("ID")).intValue();
+        try {
+            assertThat(ids("/odata/Products?$search=trackball")).containsExactly(id);
+            assertThat(ids("/OData.svc/Products?$search=trackball")).containsExactly(id);
+            assertThat(ids("/odata/Products?$filter=contains(Name,'ball')")).containsExactly(id);
+        } finally {
+            rest.delete(uri("/odata/Products(" + id + ")"));
+        }
+        assertThat(ids("/odata/Products?$search=trackball")).isEmpty();
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.odata;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Filter parity with the products partitioned over shards, with the
+ * parallel fan-out used from the first product
+ */
+@TestPropertySource(properties = { "odata.repository=sharded", "odata.sharding.shards=2",
+        "odata.sharding.parallel-threshold=0" })
+class ShardedFilterParityTest extends FilterParityTest {
+}
@@ -0,0 +1,90 @@
+package com.example.odata;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pinned reads under concurrent writes: while products matching the filter
+ * keep being created, $count and the value array of every response must
+ * describe the same version
+ */
+@DirtiesContext
+@TestPropertySource(properties = "odata.snapshot.pin-requests=true")
+class SnapshotConsistencyTest extends ODataApiTest {
+
+    private static final String QUERY = "/odata/Products?$count=true&$select=ID&$filter=Price lt 100";
+    private static final long DURATION_MS = 3000;
+
+    @Test
+    void countAndValueComeFromOneVersion() throws Exception {
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicInteger writes = new AtomicInteger();
+        AtomicInteger reads = new AtomicInteger();
+        List<String> mismatches = new ArrayList<>();
+
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+        List<Future<?>> running = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2; i++) {
+                running.add(clients.submit(() -> {
+                    HttpHeaders headers = new HttpHeaders();
+                    headers.setContentType(MediaType.APPLICATION_JSON);
+                    headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+                    Map<String, Object> product = Map.of("Name", "Bulk", "Description", "b", "Price", 9.5,
+                            "BrandID", 2);
+                    while (!stop.get()) {
+                        assertThat(rest.exchange(uri("/odata/Products"), HttpMethod.POST,
+                                new HttpEntity<>(product, headers), String.class).getStatusCodeValue())
+                                .isEqualTo(201);
+                        writes.incrementAndGet();
+                    }
+                    return null;
+                }));
+                running.add(clients.submit(() -> {
+                    while (!stop.get()) {
+                        JsonNode response = getJson(QUERY);
+                        int count = response.get("@odata.count").asInt();
+                        int values = response.get("value").size();
+                        if (count != values) {
+                            synchronized (mismatches) {
+                                mismatches.add("$count " + count + ", " + values + " values");
+                            }
+                        }
+                        reads.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            Thread.sleep(DURATION_MS);
+        } finally {
+            stop.set(true);
+            clients.shutdown();
+        }
+        assertThat(clients.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        for (Future<?> client : running) {
+            client.get();
+        }
+
+        assertThat(writes.get()).isPositive();
+        assertThat(reads.get()).isPositive();
+        assertThat(mismatches).as("%d reads while %d products were created", reads.get(), writes.get()).isEmpty();
+    }
+}
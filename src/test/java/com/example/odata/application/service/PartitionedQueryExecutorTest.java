@@ -0,0 +1,89 @@
+package com.example.odata.application.service;
+
+import com.example.odata.domain.model.Brand;
+import com.example.odata.domain.model.Product;
+import com.example.odata.domain.repository.SnapshotPin;
+import com.example.odata.infrastructure.repository.InMemoryBrandRepository;
+import com.example.odata.infrastructure.repository.InMemoryProductRepository;
+import com.example.odata.infrastructure.resilience.BrandServiceFaultInjector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionedQueryExecutorTest {
+
+    private final List<Integer> rows = IntStream.range(0, 10_007).boxed().collect(Collectors.toList());
+
+    private InMemoryProductRepository products;
+    private InMemoryBrandRepository brands;
+
+    @BeforeEach
+    void setUp() {
+        products = new InMemoryProductRepository(event -> { }, new SimpleMeterRegistry(), 1000);
+        products.init();
+        brands = new InMemoryBrandRepository(new BrandServiceFaultInjector(0, 0), event -> { },
+                new SimpleMeterRegistry());
+        brands.init();
+    }
+
+    @Test
+    void partitionedScanKeepsInputOrder() {
+        PartitionedQueryExecutor executor = new PartitionedQueryExecutor(products, brands, 0, 100, 4);
+        try {
+            List<String> result = executor.execute(rows, row -> row * 3, value -> value % 2 == 0,
+                    value -> "#" + value);
+            assertThat(result).isEqualTo(IntStream.range(0, 10_007)
+                    .map(row -> row * 3)
+                    .filter(value -> value % 2 == 0)
+                    .mapToObj(value -> "#" + value)
+                    .collect(Collectors.toList()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void inputsBelowThresholdRunOnTheCallingThread() {
+        PartitionedQueryExecutor executor = new PartitionedQueryExecutor(products, brands, 20_000, 100, 4);
+        Thread caller = Thread.currentThread();
+        try {
+            List<Boolean> onCaller = executor.execute(rows, row -> Thread.currentThread() == caller, row -> true,
+                    row -> row);
+            assertThat(onCaller).hasSize(rows.size()).containsOnly(true);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void chunksReadTheCallersPinnedVersions() {
+        PartitionedQueryExecutor executor = new PartitionedQueryExecutor(products, brands, 0, 100, 4);
+        SnapshotPin productPin = products.pin();
+        try {
+            SnapshotPin brandPin = brands.pin();
+            try {
+                // Written after the pins were taken: no chunk may see them
+                Product added = products.save(new Product(0, "Added", "a", 1.0, 1));
+                brands.save(new Brand(1, "Renamed", "USA"));
+
+                List<String> seen = executor.execute(rows, row -> row, row -> row % 1_000 == 0,
+                        row -> products.version() + "/" + products.findById(added.getId()).isPresent() + "/"
+                                + brands.findById(1).map(Brand::getName).orElse(null));
+                assertThat(seen).hasSize(11).containsOnly(products.version() + "/false/TechGiant");
+            } finally {
+                brandPin.close();
+            }
+        } finally {
+            productPin.close();
+            executor.shutdown();
+        }
+        assertThat(brands.findById(1).map(Brand::getName)).isEqualTo(Optional.of("Renamed"));
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.odata.domain.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnapshotTest {
+
+    @Test
+    void matchesASortedMapUnderRandomWrites() {
+        Random random = new Random(7);
+        TreeMap<Integer, int[]> reference = new TreeMap<>();
+        Snapshot<int[]> snapshot = Snapshot.empty(item -> item[0]);
+        // Enough items for many chunks, ids dense enough for deletes to empty and merge chunks
+        for (int write = 0; write < 20_000; write++) {
+            int id = 1 + random.nextInt(5_000);
+            Snapshot<int[]> previous = snapshot;
+            if (random.nextInt(3) == 0) {
+                snapshot = snapshot.without(id);
+                assertThat(snapshot == previous).isEqualTo(reference.remove(id) == null);
+            } else {
+                int[] item = { id, write };
+                snapshot = snapshot.with(item);
+                reference.put(id, item);
+            }
+            if (snapshot != previous) {
+                assertThat(snapshot.getVersion()).isEqualTo(previous.getVersion() + 1);
+            }
+            if (write % 1_000 == 0) {
+                assertSameItems(snapshot, reference);
+            }
+        }
+        assertSameItems(snapshot, reference);
+
+        List<int[]> bulk = new ArrayList<>();
+        for (int id = 4_000; id < 9_000; id += 3) {
+            int[] item = { id, -1 };
+            bulk.add(item);
+            reference.put(id, item);
+        }
+        assertSameItems(snapshot.withAll(bulk), reference);
+        assertSameItems(Snapshot.of(42, reference.values(), item -> item[0]), reference);
+    }
+
+    @Test
+    void keepsEarlierVersionsUnchanged() {
+        Snapshot<int[]> first = Snapshot.<int[]>empty(item -> item[0]).withAll(items(1, 2_000));
+        List<int[]> before = new ArrayList<>(first.asList());
+
+        Snapshot<int[]> second = first.with(new int[] { 700, 1 }).with(new int[] { 5_000, 1 }).without(3);
+        assertThat(first.asList()).isEqualTo(before);
+        assertThat(first.get(3)).isPresent();
+        assertThat(second.get(3)).isEmpty();
+        assertThat(second.get(700).map(item -> item[1])).contains(1);
+        assertThat(second.maxId()).isEqualTo(5_000);
+    }
+
+    @Test
+    void writeCostDoesNotGrowWithTheSnapshot() {
+        AtomicLong idReads = new AtomicLong();
+        ToIntFunction<int[]> idOf = item -> {
+            idReads.incrementAndGet();
+            return item[0];
+        };
+        Snapshot<int[]> small = Snapshot.empty(idOf).withAll(items(1, 10_000));
+        Snapshot<int[]> large = Snapshot.empty(idOf).withAll(items(1, 1_000_000));
+
+        // A copy of all items would read every id; a chunked write reads one per chunk plus two binary searches
+        long smallWrite = idReadsOf(idReads, () -> small.with(new int[] { 5_001, 1 }).without(17));
+        long largeWrite = idReadsOf(idReads, () -> large.with(new int[] { 500_001, 1 }).without(17));
+        assertThat(smallWrite).isLessThan(200);
+        assertThat(largeWrite).isLessThan(5_000);
+
+        // Loading one write at a time stays far from quadratic
+        long load = idReadsOf(idReads, () -> {
+            Snapshot<int[]> loaded = Snapshot.empty(idOf);
+            for (int id = 1; id <= 100_000; id++) {
+                loaded = loaded.with(new int[] { id, 0 });
+            }
+            assertThat(loaded.size()).isEqualTo(100_000);
+        });
+        assertThat(load).isLessThan(100_000L * 250);
+    }
+
+    private static long idReadsOf(AtomicLong idReads, Runnable writes) {
+        long before = idReads.get();
+        writes.run();
+        return idReads.get() - before;
+    }
+
+    private static List<int[]> items(int from, int to) {
+        List<int[]> items = new ArrayList<>();
+        for (int id = from; id <= to; id++) {
+            items.add(new int[] { id, 0 });
+        }
+        return items;
+    }
+
+    private static void assertSameItems(Snapshot<int[]> snapshot, TreeMap<Integer, int[]> reference) {
+        assertThat(snapshot.size()).isEqualTo(reference.size());
+        assertThat(snapshot.asList()).containsExactlyElementsOf(reference.values());
+        assertThat(snapshot.stream().collect(Collectors.toList())).containsExactlyElementsOf(reference.values());
+        List<int[]> visited = new ArrayList<>();
+        snapshot.forEach(visited::add);
+        assertThat(visited).containsExactlyElementsOf(reference.values());
+
+        List<int[]> values = new ArrayList<>(reference.values());
+        for (int index = 0; index < values.size(); index += 97) {
+            assertThat(snapshot.asList().get(index)).isSameAs(values.get(index));
+        }
+        for (Map.Entry<Integer, int[]> entry : reference.entrySet()) {
+            assertThat(snapshot.get(entry.getKey())).containsSame(entry.getValue());
+        }
+        assertThat(snapshot.get(0)).isEmpty();
+        assertThat(snapshot.get(Integer.MAX_VALUE)).isEmpty();
+        assertThat(snapshot.maxId()).isEqualTo(reference.isEmpty() ? 0 : reference.lastKey());
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.odata.infrastructure.repository;
+
+import com.example.odata.domain.model.Product;
+import com.example.odata.domain.model.ProductCriteria;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JdbcProductRepositoryTest {
+
+    private JdbcProductRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:products-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        repository = new JdbcProductRepository(dataSource, event -> { }, 16, 100);
+        repository.init();
+    }
+
+    @Test
+    void translatesEveryOperator() {
+        assertThat(ids(criteria(condition("Price", ProductCriteria.Operator.EQ, 25.0)))).containsExactly(5);
+        assertThat(ids(criteria(condition("BrandID", ProductCriteria.Operator.NE, 3.0)))).containsExactly(1, 2, 3);
+        assertThat(ids(criteria(condition("Price", ProductCriteria.Operator.GT, 95.0)))).containsExactly(2, 3);
+        assertThat(ids(criteria(condition("Price", ProductCriteria.Operator.GE, 95.0)))).containsExactly(1, 2, 3);
+        assertThat(ids(criteria(condition("Price", ProductCriteria.Operator.LT, 20.0)))).containsExactly(4);
+        assertThat(ids(criteria(condition("Price", ProductCriteria.Operator.LE, 20.0)))).containsExactly(4, 6);
+        assertThat(ids(criteria(condition("Name", ProductCriteria.Operator.CONTAINS, "ous")))).containsExactly(4, 5);
+        assertThat(ids(criteria(condition("Name", ProductCriteria.Operator.STARTSWITH, "Note")))).containsExactly(1, 2);
+        assertThat(ids(criteria(condition("BrandID", ProductCriteria.Operator.IN, Set.of(1, 2)))))
+                .containsExactly(1, 2, 3);
+        assertThat(ids(criteria(condition("BrandID", ProductCriteria.Operator.IN, Set.of())))).isEmpty();
+
+        assertThat(ids(criteria(condition("Name", ProductCriteria.Operator.CONTAINS, "o"),
+                condition("Price", ProductCriteria.Operator.LT, 100.0)))).containsExactly(1, 4, 5, 6);
+    }
+
+    @Test
+    void generatesParameterizedSql() {
+        ProductCriteria criteria = criteria(condition("Name", ProductCriteria.Operator.CONTAINS, "o"),
+                condition("BrandID", ProductCriteria.Operator.IN, Set.of(1, 2, 3)));
+        criteria.setOrderBy(ProductCriteria.parseOrderBy("Price desc,Name"));
+        criteria.setTop(2);
+        criteria.setSkip(1);
+        criteria.setSelect(List.of("Price", "Name"));
+
+        assertThat(JdbcProductRepository.buildSelect(criteria)).isEqualTo("SELECT id, name, price FROM products"
+                + " WHERE name LIKE ? ESCAPE '\\' AND brand_id IN (?, ?, ?, ?)"
+                + " ORDER BY price DESC NULLS LAST, name ASC NULLS FIRST, id"
+                + " OFFSET ? ROWS FETCH FIRST ? ROWS ONLY");
+    }
+
+    @Test
+    void countsInTheDatabase() {
+        ProductCriteria criteria = criteria(condition("Name", ProductCriteria.Operator.CONTAINS, "o"),
+                condition("BrandID", ProductCriteria.Operator.IN, Set.of(1, 3)));
+        // Ordering, paging and select do not change the count
+        criteria.setOrderBy(ProductCriteria.parseOrderBy("Price desc"));
+        criteria.setTop(1);
+        criteria.setSkip(1);
+        criteria.setSelect(List.of("Name"));
+        assertThat(repository.count(criteria)).isEqualTo(5);
+
+        assertThat(repository.count(criteria())).isEqualTo(6);
+        assertThat(repository.count(criteria(condition("Price", ProductCriteria.Operator.GT, 1000.0)))).isZero();
+        assertThat(repository.count(criteria(condition("BrandID", ProductCriteria.Operator.IN, Set.of()))))
+                .isZero();
+    }
+
+    @Test
+    void ordersNullsFirstAscendingAndLastDescending() {
+        repository.save(new Product(7, null, null, 50.0, 2));
+
+        ProductCriteria ascending = criteria();
+        ascending.setOrderBy(ProductCriteria.parseOrderBy("Name"));
+        assertThat(ids(ascending)).containsExactly(7, 6, 3, 4, 5, 1, 2);
+
+        ProductCriteria descending = criteria();
+        descending.setOrderBy(ProductCriteria.parseOrderBy("Name desc"));
+        assertThat(ids(descending)).containsExactly(2, 1, 5, 4, 3, 6, 7);
+    }
+
+    @Test
+    void pagesAfterFilteringAndOrdering() {
+        ProductCriteria criteria = criteria(condition("Price", ProductCriteria.Operator.LT, 200.0));
+        criteria.setOrderBy(ProductCriteria.parseOrderBy("Price desc"));
+        criteria.setSkip(1);
+        criteria.setTop(2);
+        assertThat(ids(criteria)).containsExactly(1, 5);
+
+        criteria.setSkip(4);
+        criteria.setTop(10);
+        assertThat(ids(criteria)).containsExactly(4);
+
+        criteria.setSkip(null);
+        criteria.setTop(0);
+        assertThat(ids(criteria)).isEmpty();
+    }
+
+    @Test
+    void projectsSelectedColumnsAndTheKey() {
+        ProductCriteria criteria = criteria(condition("ID", ProductCriteria.Operator.EQ, 3.0));
+        criteria.setSelect(List.of("Price"));
+        Product product = repository.query(criteria).findFirst().orElseThrow();
+        assertThat(product.getId()).isEqualTo(3);
+        assertThat(product.getPrice()).isEqualTo(150.0);
+        assertThat(product.getName()).isNull();
+    }
+
+    @Test
+    void escapesLikeWildcards() {
+        repository.save(new Product(7, "100% Cotton", "a_b", 10.0, 1));
+        repository.save(new Product(8, "1000 Cotton", "axb", 10.0, 1));
+        repository.save(new Product(9, "C:\\Temp", "back\\slash", 10.0, 1));
+
+        assertThat(ids(criteria(condition("Name", ProductCriteria.Operator.CONTAINS, "%")))).containsExactly(7);
+        assertThat(ids(criteria(condition("Name", ProductCriteria.Operator.STARTSWITH, "100%")))).containsExactly(7);
+        assertThat(ids(criteria(condition("Description", ProductCriteria.Operator.CONTAINS, "_")))).containsExactly(7);
+        assertThat(ids(criteria(condition("Name", ProductCriteria.Operator.CONTAINS, "\\")))).containsExactly(9);
+        assertThat(ids(criteria(condition("Description", ProductCriteria.Operator.CONTAINS, "k\\s"))))
+                .containsExactly(9);
+    }
+
+    @Test
+    void sharesStatementsBetweenSimilarShapes() {
+        repository.query(criteria(condition("BrandID", ProductCriteria.Operator.IN, Set.of(1, 2, 3)))).count();
+        repository.query(criteria(condition("BrandID", ProductCriteria.Operator.IN, Set.of(1, 2, 3, 4)))).count();
+        ProductCriteria nameThenPrice = criteria();
+        nameThenPrice.setSelect(List.of("Name", "Price"));
+        ProductCriteria priceThenName = criteria();
+        priceThenName.setSelect(List.of("Price", "Name", "Price"));
+        repository.query(nameThenPrice).count();
+        repository.query(priceThenName).count();
+
+        assertThat(repository.cachedStatements()).isEqualTo(2);
+        assertThat(JdbcProductRepository.inListSlots(0)).isEqualTo(0);
+        assertThat(JdbcProductRepository.inListSlots(1)).isEqualTo(1);
+        assertThat(JdbcProductRepository.inListSlots(3)).isEqualTo(4);
+        assertThat(JdbcProductRepository.inListSlots(5)).isEqualTo(8);
+    }
+
+    @Test
+    void capsTheStatementCache() {
+        // Each number of conditions and IN list length class is a different shape
+        for (int conditions = 1; conditions <= 130; conditions++) {
+            for (int values = 1; values <= 8; values *= 2) {
+                Set<Integer> brands = IntStream.rangeClosed(1, values).boxed().collect(Collectors.toSet());
+                List<ProductCriteria.Condition> list = new ArrayList<>();
+                for (int i = 0; i < conditions; i++) {
+                    list.add(condition("BrandID", ProductCriteria.Operator.IN, brands));
+                }
+                repository.query(new ProductCriteria(list, new ArrayList<>(), null, null, new ArrayList<>())).count();
+            }
+        }
+        assertThat(repository.cachedStatements()).isEqualTo(JdbcProductRepository.MAX_CACHED_STATEMENTS);
+
+        // Uncached shapes still run
+        assertThat(ids(criteria(condition("Price", ProductCriteria.Operator.LT, 20.0)))).containsExactly(4);
+    }
+
+    private List<Integer> ids(ProductCriteria criteria) {
+        return repository.query(criteria).map(Product::getId).collect(Collectors.toList());
+    }
+
+    private static ProductCriteria criteria(ProductCriteria.Condition... conditions) {
+        ProductCriteria criteria = new ProductCriteria();
+        criteria.getConditions().addAll(List.of(conditions));
+        return criteria;
+    }
+
+    private static ProductCriteria.Condition condition(String property, ProductCriteria.Operator operator,
+            Object value) {
+        return new ProductCriteria.Condition(property, operator, value);
+    }
+}
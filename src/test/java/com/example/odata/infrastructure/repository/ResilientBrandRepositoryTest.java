@@ -0,0 +1,74 @@
+package com.example.odata.infrastructure.repository;
+
+import com.example.odata.domain.model.Brand;
+import com.example.odata.domain.repository.SnapshotPin;
+import com.example.odata.infrastructure.resilience.BrandServiceFaultInjector;
+import com.example.odata.infrastructure.resilience.BrandServiceGuard;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResilientBrandRepositoryTest {
+
+    /**
+     * Fault-injecting stand-in for the Brand microservice that fails on demand
+     */
+    static class SwitchableFaults extends BrandServiceFaultInjector {
+        volatile boolean failing;
+
+        SwitchableFaults() {
+            super(0, 0.0);
+        }
+
+        @Override
+        public void beforeCall() {
+            if (failing) {
+                throw new IllegalStateException("Injected Brand service failure");
+            }
+        }
+    }
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SwitchableFaults faults = new SwitchableFaults();
+    private InMemoryBrandRepository brands;
+    private BrandServiceGuard guard;
+    private ResilientBrandRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        brands = new InMemoryBrandRepository(faults, event -> {
+        }, meterRegistry);
+        brands.init();
+        guard = new BrandServiceGuard(meterRegistry, 10, 20, 3, 60_000, 1000, 1000);
+        repository = new ResilientBrandRepository(brands, guard);
+    }
+
+    @AfterEach
+    void tearDown() {
+        guard.shutdown();
+    }
+
+    @Test
+    void failingServiceIsAnsweredWithLastKnownBrands() {
+        assertThat(repository.findById(1)).map(Brand::getName).hasValue("TechGiant");
+
+        faults.failing = true;
+        assertThat(repository.findById(1)).map(Brand::getName).hasValue("TechGiant");
+        assertThat(repository.findById(2)).isEmpty();
+        assertThat(repository.findAll()).extracting(Brand::getId).containsExactly(1);
+    }
+
+    @Test
+    void callsOnGuardThreadsReadTheCallersPin() {
+        try (SnapshotPin pin = repository.pin()) {
+            brands.save(new Brand(1, "Renamed", "USA"));
+            assertThat(repository.findById(1)).map(Brand::getName).hasValue("TechGiant");
+            assertThat(repository.snapshot().get(1)).map(Brand::getName).hasValue("TechGiant");
+        }
+        assertThat(repository.findById(1)).map(Brand::getName).hasValue("Renamed");
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.odata.infrastructure.repository;
+
+import com.example.odata.domain.model.AggregationSpec;
+import com.example.odata.domain.model.Product;
+import com.example.odata.domain.model.ProductCriteria;
+import com.example.odata.domain.repository.SnapshotPin;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The sharded store against the unsharded in-memory store: after the same
+ * writes, including moves between brands (and so between shards), every read
+ * returns the same products in the same order
+ */
+class ShardedProductRepositoryTest {
+
+    private static final int BRANDS = 5;
+
+    private InMemoryProductRepository reference;
+    private ShardedProductRepository sharded;
+
+    @BeforeEach
+    void setUp() {
+        reference = new InMemoryProductRepository(event -> { }, new SimpleMeterRegistry(), 1000);
+        reference.init();
+        // Parallel fan-out from the first product
+        sharded = new ShardedProductRepository(event -> { }, new SimpleMeterRegistry(), 1000, 3, 0);
+        sharded.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sharded.shutdown();
+    }
+
+    @Test
+    void movesProductsBetweenShards() {
+        save(new Product(4, "Mouse Optical", "Mouse Optical USB", 15.0, 1));
+        assertThat(sharded.findByBrandId(3)).extracting(Product::getId).containsExactly(5, 6);
+        assertThat(sharded.findByBrandId(1)).extracting(Product::getId).containsExactly(1, 2, 4);
+        assertThat(sharded.findById(4)).map(Product::getBrandId).contains(1);
+        assertSameReads();
+
+        save(new Product(4, "Mouse Optical", "Mouse Optical USB", 15.0, 2));
+        assertThat(sharded.findByBrandId(1)).extracting(Product::getId).containsExactly(1, 2);
+        assertThat(sharded.findAll()).hasSize(6);
+        assertSameReads();
+    }
+
+    @Test
+    void readersNeverSeeAMovedProductTwiceOrNotAtAll() throws Exception {
+        ExecutorService readers = Executors.newFixedThreadPool(3);
+        AtomicBoolean moving = new AtomicBoolean(true);
+        try {
+            List<Future<Integer>> scans = new ArrayList<>();
+            scans.add(readers.submit(() -> scanWhile(moving, () -> {
+                assertSeenOnce(sharded.findAll());
+                assertThat(sharded.findById(4)).isPresent();
+            })));
+            scans.add(readers.submit(() -> scanWhile(moving,
+                    () -> assertSeenOnce(sharded.query(new ProductCriteria()).collect(Collectors.toList())))));
+            scans.add(readers.submit(() -> scanWhile(moving, () -> {
+                try (SnapshotPin pin = sharded.pin()) {
+                    List<Product> byBrand = new ArrayList<>();
+                    for (int brandId = 1; brandId <= 3; brandId++) {
+                        byBrand.addAll(sharded.findByBrandId(brandId));
+                    }
+                    assertSeenOnce(byBrand);
+                    assertSeenOnce(sharded.snapshot().asList());
+                }
+            })));
+
+            // Brands 1, 2 and 3 are on different shards, so every save is a move
+            for (int move = 0; move < 20_000; move++) {
+                sharded.save(new Product(4, "Mouse Optical", "Mouse Optical USB", 15.0, 1 + move % 3));
+            }
+            moving.set(false);
+            for (Future<Integer> scan : scans) {
+                assertThat(scan.get(10, TimeUnit.SECONDS)).isPositive();
+            }
+        } finally {
+            moving.set(false);
+            readers.shutdownNow();
+        }
+    }
+
+    @Test
+    void matchesTheUnshardedStoreUnderRandomWrites() {
+        Random random = new Random(42);
+        // Explicit IDs: the stores may hand out different new IDs once the highest one was deleted
+        int maxId = 6;
+        for (int round = 0; round < 20; round++) {
+            for (int write = 0; write < 25; write++) {
+                int operation = random.nextInt(10);
+                if (operation < 4) {
+                    save(randomProduct(++maxId, random));
+                } else if (operation < 9) {
+                    // Update (or re-insert), often with another brand
+                    save(randomProduct(1 + random.nextInt(maxId), random));
+                } else {
+                    int id = 1 + random.nextInt(maxId);
+                    assertThat(sharded.deleteById(id)).isEqualTo(reference.deleteById(id));
+                }
+            }
+            assertSameReads();
+        }
+    }
+
+    private void assertSameReads() {
+        assertThat(sorted(sharded.findAll())).isEqualTo(sorted(reference.findAll()));
+        assertThat(sorted(sharded.snapshot().asList())).isEqualTo(sorted(reference.snapshot().asList()));
+        for (int brandId = 1; brandId <= BRANDS; brandId++) {
+            assertThat(sharded.findByBrandId(brandId)).as("brand %d", brandId)
+                    .isEqualTo(reference.findByBrandId(brandId));
+        }
+        for (int id = 1; id <= reference.snapshot().maxId() + 1; id++) {
+            assertThat(sharded.findById(id)).isEqualTo(reference.findById(id));
+        }
+
+        for (ProductCriteria criteria : criteria()) {
+            assertThat(sharded.query(criteria).collect(Collectors.toList())).as("%s", criteria)
+                    .isEqualTo(reference.query(criteria).collect(Collectors.toList()));
+        }
+
+        AggregationSpec byBrand = new AggregationSpec(List.of("BrandID"),
+                List.of(new AggregationSpec.Aggregate("Price", AggregationSpec.Method.SUM, "Total"),
+                        new AggregationSpec.Aggregate(null, AggregationSpec.Method.COUNT, "Count")));
+        assertThat(sharded.aggregate(byBrand)).isEqualTo(reference.aggregate(byBrand));
+    }
+
+    private static List<ProductCriteria> criteria() {
+        List<ProductCriteria> all = new ArrayList<>();
+        List<List<ProductCriteria.Condition>> filters = List.of(
+                List.of(),
+                List.of(new ProductCriteria.Condition("BrandID", ProductCriteria.Operator.EQ, 2.0)),
+                List.of(new ProductCriteria.Condition("BrandID", ProductCriteria.Operator.IN, Set.of(1, 4))),
+                List.of(new ProductCriteria.Condition("Price", ProductCriteria.Operator.LT, 100.0),
+                        new ProductCriteria.Condition("Name", ProductCriteria.Operator.CONTAINS, "o")));
+        for (List<ProductCriteria.Condition> filter : filters) {
+            for (String orderBy : new String[] { null, "Price desc", "Name", "BrandID desc,Price", "Description" }) {
+                for (Integer[] page : new Integer[][] { { null, null }, { 3, null }, { 2, 4 }, { null, 0 } }) {
+                    all.add(new ProductCriteria(filter, ProductCriteria.parseOrderBy(orderBy), page[1], page[0],
+                            List.of()));
+                }
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Runs the scan until the flag is cleared
+     *
+     * @return the number of scans
+     */
+    private static int scanWhile(AtomicBoolean running, Runnable scan) {
+        int scans = 0;
+        while (running.get()) {
+            scan.run();
+            scans++;
+        }
+        return scans;
+    }
+
+    private static void assertSeenOnce(List<Product> products) {
+        assertThat(products).extracting(Product::getId).containsExactlyInAnyOrder(1, 2, 3, 4, 5, 6);
+    }
+
+    private Product randomProduct(int id, Random random) {
+        String[] kinds = { "Notebook", "Monitor", "Mouse", "Keyboard" };
+        String name = random.nextInt(8) == 0 ? null : kinds[random.nextInt(kinds.length)] + " " + random.nextInt(5);
+        String description = random.nextInt(8) == 0 ? null : "Model " + random.nextInt(3);
+        // Few distinct prices, so $orderby has ties to break
+        return new Product(id, name, description, 10.0 * random.nextInt(12), 1 + random.nextInt(BRANDS));
+    }
+
+    private void save(Product product) {
+        Product saved = sharded.save(copy(product));
+        assertThat(reference.save(copy(product))).isEqualTo(saved);
+    }
+
+    private static Product copy(Product product) {
+        return new Product(product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                product.getBrandId());
+    }
+
+    private static List<Product> sorted(List<Product> products) {
+        List<Product> sorted = new ArrayList<>(products);
+        sorted.sort((left, right) -> Integer.compare(left.getId(), right.getId()));
+        return sorted;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.odata.infrastructure.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BrandServiceGuardTest {
+
+    private static final long OPEN_MS = 100;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger calls = new AtomicInteger();
+    private BrandServiceGuard guard;
+
+    @AfterEach
+    void shutdown() {
+        if (guard != null) {
+            guard.shutdown();
+        }
+    }
+
+    @Test
+    void opensAfterConsecutiveFailuresAndClosesAfterSuccessfulProbe() throws Exception {
+        guard = guard(10, 2, 1000);
+
+        assertThat(guard.execute(this::fail, () -> "fallback")).isEqualTo("fallback");
+        assertThat(guard.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(guard.execute(this::fail, () -> "fallback")).isEqualTo("fallback");
+        assertThat(guard.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        // Open: the call is not attempted
+        assertThat(guard.execute(this::succeed, () -> "fallback")).isEqualTo("fallback");
+        assertThat(calls).hasValue(2);
+        assertThat(outcome("short_circuited")).isEqualTo(1);
+
+        // Half-open: a failed probe opens the circuit again
+        Thread.sleep(OPEN_MS + 20);
+        assertThat(guard.execute(this::fail, () -> "fallback")).isEqualTo("fallback");
+        assertThat(guard.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        // Half-open: a successful probe closes it
+        Thread.sleep(OPEN_MS + 20);
+        assertThat(guard.execute(this::succeed, () -> "fallback")).isEqualTo("brand");
+        assertThat(guard.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(guard.execute(this::succeed, () -> "fallback")).isEqualTo("brand");
+    }
+
+    @Test
+    void errorThrownByHalfOpenProbeDoesNotWedgeTheCircuit() throws Exception {
+        guard = guard(10, 1, 1000);
+        guard.execute(this::fail, () -> "fallback");
+        Thread.sleep(OPEN_MS + 20);
+
+        assertThatThrownBy(() -> guard.execute(() -> {
+            throw new AssertionError("probe crashed");
+        }, () -> "fallback")).isInstanceOf(AssertionError.class);
+        assertThat(guard.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        Thread.sleep(OPEN_MS + 20);
+        assertThat(guard.execute(this::succeed, () -> "fallback")).isEqualTo("brand");
+        assertThat(guard.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void slowCallIsAbandonedAfterTimeoutAndCountsAsFailure() {
+        guard = guard(10, 1, 50);
+        BrandServiceFaultInjector faults = new BrandServiceFaultInjector(2000, 0.0);
+
+        long start = System.nanoTime();
+        String result = guard.execute(() -> {
+            faults.beforeCall();
+            return "brand";
+        }, () -> "fallback");
+
+        assertThat(result).isEqualTo("fallback");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        assertThat(outcome("timeout")).isEqualTo(1);
+        assertThat(guard.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void fullBulkheadAnswersWithFallback() throws Exception {
+        guard = guard(1, 5, 5000);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> blocking = CompletableFuture.supplyAsync(() -> guard.execute(() -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "brand";
+        }, () -> "fallback"));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(guard.execute(this::succeed, () -> "fallback")).isEqualTo("fallback");
+        assertThat(outcome("bulkhead_full")).isEqualTo(1);
+        assertThat(calls).hasValue(0);
+
+        release.countDown();
+        assertThat(blocking.get(5, TimeUnit.SECONDS)).isEqualTo("brand");
+        assertThat(guard.execute(this::succeed, () -> "fallback")).isEqualTo("brand");
+    }
+
+    private BrandServiceGuard guard(int maxConcurrentCalls, int failureThreshold, long callTimeoutMs) {
+        return new BrandServiceGuard(meterRegistry, maxConcurrentCalls, 0, failureThreshold, OPEN_MS, 1000,
+                callTimeoutMs);
+    }
+
+    private String succeed() {
+        calls.incrementAndGet();
+        return "brand";
+    }
+
+    private String fail() {
+        calls.incrementAndGet();
+        throw new IllegalStateException("Injected Brand service failure");
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.get("brand.calls").tag("outcome", outcome).counter().count();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.odata.infrastructure.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvertedIndexTest {
+
+    private InvertedIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new InvertedIndex(List.of("Name", "Description"), 2.0, 1.0);
+        index.put(1, "Notebook Basic", "Notebook Basic 15");
+        index.put(4, "Mouse Optical", "Mouse Optical USB");
+        index.put(5, "Mouse Wireless", "Mouse Wireless Bluetooth");
+        index.put(6, "Keyboard Standard", "Keyboard Standard USB, wireless ready");
+    }
+
+    @Test
+    void matchesCaseFoldedPrefixes() {
+        assertThat(index.search("MOUSE")).containsExactlyInAnyOrder(4, 5);
+        assertThat(index.search("note")).containsExactly(1);
+        assertThat(index.search("xyz")).isEmpty();
+    }
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatches() {
+        assertThat(index.search("wireless")).containsExactly(5, 6);
+    }
+
+    @Test
+    void combinesTermsWithAndOrAndNot() {
+        assertThat(index.search("mouse usb")).containsExactly(4);
+        assertThat(index.search("mouse AND usb")).containsExactly(4);
+        assertThat(index.search("notebook OR keyboard")).containsExactlyInAnyOrder(1, 6);
+        assertThat(index.search("usb NOT mouse")).containsExactly(6);
+        assertThat(index.search("NOT usb")).containsExactlyInAnyOrder(1, 5);
+    }
+
+    @Test
+    void reindexingReplacesTheOldTokens() {
+        index.put(4, "Trackball", "Trackball USB");
+        assertThat(index.search("mouse")).containsExactly(5);
+        assertThat(index.search("track")).containsExactly(4);
+
+        index.remove(4);
+        assertThat(index.search("track")).isEmpty();
+        assertThat(index.candidates("Name", "ball")).isEmpty();
+    }
+
+    @Test
+    void candidatesAreASupersetOfSubstringMatches() {
+        assertThat(index.candidates("Name", "ouse")).containsExactlyInAnyOrder(4, 5);
+        assertThat(index.candidates("Name", "Mouse Opt")).contains(4);
+        assertThat(index.candidates("Description", "USB")).containsExactlyInAnyOrder(4, 6);
+        assertThat(index.candidates("Name", "!!")).isNull();
+        assertThat(index.candidates("Unknown", "mouse")).isNull();
+    }
+}
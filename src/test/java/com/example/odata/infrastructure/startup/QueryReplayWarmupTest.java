@@ -0,0 +1,59 @@
+package com.example.odata.infrastructure.startup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The warm-up queries replayed with admission control on and a loopback
+ * client bucket far smaller than the replay: none of them may be throttled,
+ * and the loopback client must still have its full bucket afterwards.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "odata.admission.enabled=true",
+        "odata.admission.client.capacity=10",
+        "odata.admission.client.refill-per-second=0.001",
+        "odata.warmup.rounds=5" })
+class QueryReplayWarmupTest {
+
+    @Autowired
+    private QueryReplayWarmup queryReplay;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void replayedQueriesAreNeitherThrottledNorCounted() {
+        assertThat(queryReplay.replay(port)).isZero();
+
+        assertThat(meterRegistry.find("odata.admission.rejected").counters())
+                .allSatisfy(counter -> assertThat(counter.count()).isZero());
+        assertThat(meterRegistry.get("odata.admission.inflight-cost").gauge().value()).isZero();
+        // The replay took nothing from the loopback client's bucket
+        assertThat(rest.getForEntity("/odata/Products", String.class).getStatusCodeValue()).isEqualTo(200);
+    }
+
+    @Test
+    void rejectsChangeStreams() {
+        QueryReplayWarmup changes = new QueryReplayWarmup(true,
+                new ByteArrayResource("GET /odata/Products/$changes\n".getBytes(StandardCharsets.UTF_8)), 1, 1000);
+
+        assertThatThrownBy(() -> changes.replay(port)).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("$changes");
+    }
+}
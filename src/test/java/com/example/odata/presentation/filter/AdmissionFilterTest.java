@@ -0,0 +1,141 @@
+package com.example.odata.presentation.filter;
+
+import com.example.odata.domain.repository.BrandDictionary;
+import com.example.odata.domain.repository.ProductSearchIndex;
+import com.example.odata.infrastructure.admission.AdmissionGate;
+import com.example.odata.infrastructure.admission.QueryCostEstimator;
+import com.example.odata.infrastructure.odata.ODataFilterProcessor;
+import com.example.odata.infrastructure.startup.QueryReplayWarmup;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class AdmissionFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private QueryCostEstimator costEstimator;
+    private AdmissionFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        AdmissionGate gate = new AdmissionGate(meterRegistry, 1000, 1000, 100, 64);
+        costEstimator = new QueryCostEstimator(
+                new ODataFilterProcessor(mock(ProductSearchIndex.class), mock(BrandDictionary.class)));
+        filter = new AdmissionFilter(gate, costEstimator, mock(QueryReplayWarmup.class));
+        ReflectionTestUtils.setField(filter, "clientHeader", "X-Client-Id");
+        ReflectionTestUtils.setField(filter, "trustedProxies", Set.of("10.0.0.1"));
+    }
+
+    @Test
+    void releasesWhenTheRequestThreadReturns() throws Exception {
+        filter.doFilter(new MockHttpServletRequest("GET", "/odata/Products"), new MockHttpServletResponse(),
+                (request, response) -> assertThat(inflightCost()).isEqualTo(5));
+        assertThat(inflightCost()).isZero();
+    }
+
+    @Test
+    void holdsAsyncRequestsUntilTheyComplete() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/odata/Products/$stream");
+        request.setAsyncSupported(true);
+        filter.doFilter(request, new MockHttpServletResponse(), (req, response) -> req.startAsync());
+        assertThat(inflightCost()).isEqualTo(5);
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertThat(inflightCost()).isZero();
+    }
+
+    @Test
+    void releasesAsyncRequestsOnceOnTimeoutOrError() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/odata/Products/$stream");
+        request.setAsyncSupported(true);
+        filter.doFilter(request, new MockHttpServletResponse(), (req, response) -> req.startAsync());
+
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+            listener.onError(new AsyncEvent(asyncContext));
+        }
+        assertThat(inflightCost()).isZero();
+        asyncContext.complete();
+        assertThat(inflightCost()).isZero();
+    }
+
+    @Test
+    void releasesChangeStreamSubscriptionsOnceTheyAreSetUp() throws Exception {
+        // More open subscriptions than the budget of 64 cost units
+        for (int i = 0; i < 100; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/odata/Products/$changes");
+            request.setAsyncSupported(true);
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, (req, res) -> req.startAsync());
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(request.isAsyncStarted()).isTrue();
+        }
+        assertThat(inflightCost()).isZero();
+
+        MockHttpServletResponse query = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/odata/Products"), query, (req, res) -> { });
+        assertThat(query.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void trustsTheClientHeaderOnlyFromTrustedProxies() throws Exception {
+        // 10 tokens per client, practically no refill; /odata/Products costs 5
+        filter = new AdmissionFilter(new AdmissionGate(meterRegistry, 10, 0.001, 100, 64), costEstimator,
+                mock(QueryReplayWarmup.class));
+        ReflectionTestUtils.setField(filter, "clientHeader", "X-Client-Id");
+        ReflectionTestUtils.setField(filter, "trustedProxies", Set.of("10.0.0.1"));
+
+        // A rotated header does not give a direct client a fresh bucket
+        assertThat(status("192.168.0.7", "a")).isEqualTo(200);
+        assertThat(status("192.168.0.7", "b")).isEqualTo(200);
+        assertThat(status("192.168.0.7", "c")).isEqualTo(429);
+
+        // Behind the trusted proxy every client id has its own bucket
+        assertThat(status("10.0.0.1", "a")).isEqualTo(200);
+        assertThat(status("10.0.0.1", "a")).isEqualTo(200);
+        assertThat(status("10.0.0.1", "a")).isEqualTo(429);
+        assertThat(status("10.0.0.1", "b")).isEqualTo(200);
+    }
+
+    @Test
+    void filtersTheRepositoryCannotEvaluateCostMore() {
+        assertThat(estimate(null)).isEqualTo(5);
+        assertThat(estimate("Price gt 100 and Price lt 200")).isEqualTo(5);
+        assertThat(estimate("contains(Name,'Mouse') or ID eq 1")).isEqualTo(9);
+        assertThat(estimate("Price gt 100 and tolower(Name) eq 'x'")).isEqualTo(9);
+        // Rejected with 400 before any row is read
+        assertThat(estimate("contains(")).isEqualTo(5);
+    }
+
+    private int status(String remoteAddress, String clientId) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/odata/Products");
+        request.setRemoteAddr(remoteAddress);
+        request.addHeader("X-Client-Id", clientId);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> { });
+        return response.getStatus();
+    }
+
+    private int estimate(String filter) {
+        Map<String, String> parameters = filter == null ? Map.of() : Map.of("$filter", filter);
+        return costEstimator.estimate("GET", "Products", parameters::get);
+    }
+
+    private double inflightCost() {
+        return meterRegistry.get("odata.admission.inflight-cost").gauge().value();
+    }
+}